@@ -151,4 +151,108 @@ public interface FieldDesc {
      */
     void setStaticFieldValue(Object value);
 
+    /**
+     * {@link Field}の値をintとして返します。
+     * <p>
+     * {@link Field}の型が{@literal int}の場合は値をボクシングせずに読み出します。 そうでない場合は{@link Field}の値をintに変換して返します。
+     * </p>
+     * 
+     * @param target
+     *            対象のオブジェクト。{@literal null}であってはいけません
+     * @return {@link Field}の値
+     */
+    int getInt(Object target);
+
+    /**
+     * {@link Field}の値をlongとして返します。
+     * <p>
+     * {@link Field}の型が{@literal long}の場合は値をボクシングせずに読み出します。 そうでない場合は{@link Field}の値をlongに変換して返します。
+     * </p>
+     * 
+     * @param target
+     *            対象のオブジェクト。{@literal null}であってはいけません
+     * @return {@link Field}の値
+     */
+    long getLong(Object target);
+
+    /**
+     * {@link Field}の値をdoubleとして返します。
+     * <p>
+     * {@link Field}の型が{@literal double}の場合は値をボクシングせずに読み出します。 そうでない場合は{@link Field}の値をdoubleに変換して返します。
+     * </p>
+     * 
+     * @param target
+     *            対象のオブジェクト。{@literal null}であってはいけません
+     * @return {@link Field}の値
+     */
+    double getDouble(Object target);
+
+    /**
+     * {@link Field}の値をbooleanとして返します。
+     * <p>
+     * {@link Field}の型が{@literal boolean}の場合は値をボクシングせずに読み出します。 そうでない場合は{@link Field}の値をbooleanに変換して返します。
+     * </p>
+     * 
+     * @param target
+     *            対象のオブジェクト。{@literal null}であってはいけません
+     * @return {@link Field}の値
+     */
+    boolean getBoolean(Object target);
+
+    /**
+     * {@link Field}にintの値を設定します。
+     * <p>
+     * {@link Field}の型が{@literal int}の場合は値をボクシングせずに書き込みます。
+     * そうでない場合はボクシングした値を{@link #setFieldValue(Object, Object)}と同様に設定します。
+     * </p>
+     * 
+     * @param target
+     *            対象のオブジェクト。{@literal null}であってはいけません
+     * @param value
+     *            {@link Field}の値
+     */
+    void setInt(Object target, int value);
+
+    /**
+     * {@link Field}にlongの値を設定します。
+     * <p>
+     * {@link Field}の型が{@literal long}の場合は値をボクシングせずに書き込みます。
+     * そうでない場合はボクシングした値を{@link #setFieldValue(Object, Object)}と同様に設定します。
+     * </p>
+     * 
+     * @param target
+     *            対象のオブジェクト。{@literal null}であってはいけません
+     * @param value
+     *            {@link Field}の値
+     */
+    void setLong(Object target, long value);
+
+    /**
+     * {@link Field}にdoubleの値を設定します。
+     * <p>
+     * {@link Field}の型が{@literal double}の場合は値をボクシングせずに書き込みます。
+     * そうでない場合はボクシングした値を{@link #setFieldValue(Object, Object)}と同様に設定します。
+     * </p>
+     * 
+     * @param target
+     *            対象のオブジェクト。{@literal null}であってはいけません
+     * @param value
+     *            {@link Field}の値
+     */
+    void setDouble(Object target, double value);
+
+    /**
+     * {@link Field}にbooleanの値を設定します。
+     * <p>
+     * {@link Field}の型が{@literal boolean}の場合は値をボクシングせずに書き込みます。
+     * そうでない場合はボクシングした値を{@link #setFieldValue(Object, Object)}と同様に設定します。
+     * </p>
+     * 
+     * @param target
+     *            対象のオブジェクト。{@literal null}であってはいけません
+     * @param value
+     *            {@link Field}の値
+     */
+    void setBoolean(Object target, boolean value);
+
 }
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2004-2012 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.util.beans;
+
+/**
+ * プロパティの値を読み書きするためのインターフェースです。
+ * <p>
+ * {@link PropertyDesc}とは異なり、値の変換や読み書きの可否のチェックは行いません。
+ * </p>
+ * <p>
+ * {@link #getInt(Object)}などのプリミティブ型用のメソッドは、 プロパティの型がそのプリミティブ型の場合に値をボクシングせずに読み書きします。
+ * </p>
+ * 
+ * @author koichik
+ * @see PropertyAccessorFactory
+ */
+public interface PropertyAccessor {
+
+    /**
+     * プロパティの値を返します。
+     * 
+     * @param target
+     *            ターゲットオブジェクト。{@literal null}であってはいけません
+     * @return プロパティの値
+     */
+    Object getValue(Object target);
+
+    /**
+     * プロパティに値を設定します。
+     * 
+     * @param target
+     *            ターゲットオブジェクト。{@literal null}であってはいけません
+     * @param value
+     *            プロパティに設定する値
+     */
+    void setValue(Object target, Object value);
+
+    /**
+     * int型のプロパティの値を返します。
+     * 
+     * @param target
+     *            ターゲットオブジェクト。{@literal null}であってはいけません
+     * @return プロパティの値
+     */
+    int getInt(Object target);
+
+    /**
+     * long型のプロパティの値を返します。
+     * 
+     * @param target
+     *            ターゲットオブジェクト。{@literal null}であってはいけません
+     * @return プロパティの値
+     */
+    long getLong(Object target);
+
+    /**
+     * double型のプロパティの値を返します。
+     * 
+     * @param target
+     *            ターゲットオブジェクト。{@literal null}であってはいけません
+     * @return プロパティの値
+     */
+    double getDouble(Object target);
+
+    /**
+     * boolean型のプロパティの値を返します。
+     * 
+     * @param target
+     *            ターゲットオブジェクト。{@literal null}であってはいけません
+     * @return プロパティの値
+     */
+    boolean getBoolean(Object target);
+
+    /**
+     * int型のプロパティに値を設定します。
+     * 
+     * @param target
+     *            ターゲットオブジェクト。{@literal null}であってはいけません
+     * @param value
+     *            プロパティに設定する値
+     */
+    void setInt(Object target, int value);
+
+    /**
+     * long型のプロパティに値を設定します。
+     * 
+     * @param target
+     *            ターゲットオブジェクト。{@literal null}であってはいけません
+     * @param value
+     *            プロパティに設定する値
+     */
+    void setLong(Object target, long value);
+
+    /**
+     * double型のプロパティに値を設定します。
+     * 
+     * @param target
+     *            ターゲットオブジェクト。{@literal null}であってはいけません
+     * @param value
+     *            プロパティに設定する値
+     */
+    void setDouble(Object target, double value);
+
+    /**
+     * boolean型のプロパティに値を設定します。
+     * 
+     * @param target
+     *            ターゲットオブジェクト。{@literal null}であってはいけません
+     * @param value
+     *            プロパティに設定する値
+     */
+    void setBoolean(Object target, boolean value);
+
+}
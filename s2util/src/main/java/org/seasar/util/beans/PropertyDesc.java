@@ -113,6 +113,117 @@ public interface PropertyDesc {
      */
     void setValue(Object target, Object value);
 
+    /**
+     * プロパティの値をintとして返します。
+     * <p>
+     * プロパティの型が{@literal int}の場合は値をボクシングせずに読み出します。 そうでない場合はプロパティの値をintに変換して返します。
+     * </p>
+     * 
+     * @param target
+     *            ターゲットオブジェクト。{@literal null}であってはいけません
+     * @return プロパティの値
+     */
+    int getInt(Object target);
+
+    /**
+     * プロパティの値をlongとして返します。
+     * <p>
+     * プロパティの型が{@literal long}の場合は値をボクシングせずに読み出します。 そうでない場合はプロパティの値をlongに変換して返します。
+     * </p>
+     * 
+     * @param target
+     *            ターゲットオブジェクト。{@literal null}であってはいけません
+     * @return プロパティの値
+     */
+    long getLong(Object target);
+
+    /**
+     * プロパティの値をdoubleとして返します。
+     * <p>
+     * プロパティの型が{@literal double}の場合は値をボクシングせずに読み出します。 そうでない場合はプロパティの値をdoubleに変換して返します。
+     * </p>
+     * 
+     * @param target
+     *            ターゲットオブジェクト。{@literal null}であってはいけません
+     * @return プロパティの値
+     */
+    double getDouble(Object target);
+
+    /**
+     * プロパティの値をbooleanとして返します。
+     * <p>
+     * プロパティの型が{@literal boolean}の場合は値をボクシングせずに読み出します。 そうでない場合はプロパティの値をbooleanに変換して返します。
+     * </p>
+     * 
+     * @param target
+     *            ターゲットオブジェクト。{@literal null}であってはいけません
+     * @return プロパティの値
+     */
+    boolean getBoolean(Object target);
+
+    /**
+     * プロパティにintの値を設定します。
+     * <p>
+     * プロパティの型が{@literal int}の場合は値をボクシングせずに書き込みます。 そうでない場合は{@link #setValue(Object, Object)}と同様に値を変換して設定します。
+     * </p>
+     * 
+     * @param target
+     *            ターゲットオブジェクト。{@literal null}であってはいけません
+     * @param value
+     *            プロパティに設定する値
+     */
+    void setInt(Object target, int value);
+
+    /**
+     * プロパティにlongの値を設定します。
+     * <p>
+     * プロパティの型が{@literal long}の場合は値をボクシングせずに書き込みます。 そうでない場合は{@link #setValue(Object, Object)}と同様に値を変換して設定します。
+     * </p>
+     * 
+     * @param target
+     *            ターゲットオブジェクト。{@literal null}であってはいけません
+     * @param value
+     *            プロパティに設定する値
+     */
+    void setLong(Object target, long value);
+
+    /**
+     * プロパティにdoubleの値を設定します。
+     * <p>
+     * プロパティの型が{@literal double}の場合は値をボクシングせずに書き込みます。 そうでない場合は{@link #setValue(Object, Object)}と同様に値を変換して設定します。
+     * </p>
+     * 
+     * @param target
+     *            ターゲットオブジェクト。{@literal null}であってはいけません
+     * @param value
+     *            プロパティに設定する値
+     */
+    void setDouble(Object target, double value);
+
+    /**
+     * プロパティにbooleanの値を設定します。
+     * <p>
+     * プロパティの型が{@literal boolean}の場合は値をボクシングせずに書き込みます。 そうでない場合は{@link #setValue(Object, Object)}と同様に値を変換して設定します。
+     * </p>
+     * 
+     * @param target
+     *            ターゲットオブジェクト。{@literal null}であってはいけません
+     * @param value
+     *            プロパティに設定する値
+     */
+    void setBoolean(Object target, boolean value);
+
+    /**
+     * プロパティの値を読み書きするための{@link PropertyAccessor}を返します。
+     * <p>
+     * {@link PropertyAccessor}は最初に呼び出された時に作成されます。
+     * </p>
+     * 
+     * @return {@link PropertyAccessor}
+     * @see PropertyAccessorFactory
+     */
+    PropertyAccessor getPropertyAccessor();
+
     /**
      * プロパティの型に応じて必要なら適切に変換します。
      * 
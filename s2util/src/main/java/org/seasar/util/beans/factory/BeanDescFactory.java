@@ -15,10 +15,23 @@
  */
 package org.seasar.util.beans.factory;
 
+import java.lang.ref.SoftReference;
+import java.lang.ref.WeakReference;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
 import java.util.concurrent.ConcurrentMap;
 
 import org.seasar.util.beans.BeanDesc;
+import org.seasar.util.beans.PropertyAccessor;
+import org.seasar.util.beans.PropertyAccessorFactory;
 import org.seasar.util.beans.impl.BeanDescImpl;
+import org.seasar.util.beans.impl.BytecodePropertyAccessorFactory;
+import org.seasar.util.collection.CacheStats;
+import org.seasar.util.collection.MemoizingLoader;
+import org.seasar.util.collection.MemoizingLoader.LoadListener;
+import org.seasar.util.collection.MemoizingLoader.Loader;
 import org.seasar.util.misc.Disposable;
 import org.seasar.util.misc.DisposableUtil;
 
@@ -38,6 +51,39 @@ import static org.seasar.util.misc.AssertionUtil.*;
  * {@link BeanDesc}はキャッシュされます。 キャッシュをクリアするには{@link DisposableUtil#dispose()}
  * を呼び出してください。
  * </p>
+ * <p>
+ * キャッシュはBeanクラスをロードしたクラスローダごとに分割されています。
+ * このクラスをロードしたクラスローダおよびその祖先がロードしたクラスの{@link BeanDesc}は強参照でキャッシュされます。
+ * それ以外のクラスローダの分割はクラスローダへの弱参照と分割へのソフト参照で保持されます。
+ * ただし分割はキャッシュしているBeanクラスを通じてクラスローダを参照するため、
+ * クラスローダはメモリが逼迫してソフト参照がクリアされるまでガベージコレクトされません。
+ * ホットデプロイなどで特定のクラスローダを破棄する場合は、 {@link #clear(ClassLoader)}
+ * でそのクラスローダの分割を削除してください。 {@link #setLimitSize(int)}で分割ごとのエントリ数の上限を設定することもできます。
+ * </p>
+ * <p>
+ * ソフト参照で保持する分割の一覧は書き換えのたびにコピーされるため、 {@link BeanDesc}の取得はロックを取得せずに行われます。
+ * 一覧は線形に探索されるため、 キャッシュの対象となるクラスローダの数が少ないことを想定しています。
+ * </p>
+ * <p>
+ * キャッシュされていない{@link BeanDesc}を複数のスレッドが同時に要求した場合、{@link BeanDesc}を作成するのは一つのスレッドだけで、
+ * 他のスレッドはその作成が終わるのを待ちます。 {@link BeanDesc}の作成ではプロパティのメタデータまで準備され、
+ * それに要した時間は{@link #getBeanDescLoader(ClassLoader)}が返す{@link MemoizingLoader}に記録されます。
+ * コンストラクタ、メソッド、フィールドのメタデータは最初にアクセスされた時に準備されるため、作成時間には含まれません。
+ * </p>
+ * <p>
+ * すべての分割の統計情報を合算したものは{@link #getStats()}で参照できます。 ヒット数とミス数は
+ * {@link #setRecordStats(boolean)}で有効にした場合だけ記録されます。 {@link BeanDesc}の作成ごとに通知を受け取るには
+ * {@link #setLoadListener(LoadListener)}で{@link LoadListener}を設定してください。
+ * </p>
+ * <p>
+ * {@link BeanDesc}やBeanクラスを独自にキャッシュするクラスは、 {@link #addClearListener(ClearListener)}
+ * で{@link ClearListener}を追加すると、 このクラスのキャッシュがクリアされた時に同じクラスローダのエントリを削除できます。
+ * </p>
+ * <p>
+ * {@link BeanDesc}が扱うプロパティへのアクセスには、{@link #setPropertyAccessorFactory(PropertyAccessorFactory)}
+ * で設定された{@link PropertyAccessorFactory}が作成する{@link PropertyAccessor}が使われます。
+ * デフォルトはアクセス用のクラスを生成する{@link BytecodePropertyAccessorFactory}です。
+ * </p>
  * 
  * @author higa
  * @see BeanDesc
@@ -48,11 +94,59 @@ public abstract class BeanDescFactory {
     /** 初期化済みなら{@literal true} */
     private static volatile boolean initialized;
 
-    /** {@link BeanDesc}のキャッシュ */
-    private static final ConcurrentMap<Class<?>, BeanDesc> beanDescCache =
-        newConcurrentHashMap(1024);
+    /** {@link BeanDesc}を作成する{@link Loader} */
+    private static final Loader<Class<?>, BeanDesc> BEAN_DESC_LOADER =
+        new Loader<Class<?>, BeanDesc>() {
+            @Override
+            public BeanDesc load(final Class<?> clazz) {
+                final BeanDesc beanDesc = new BeanDescImpl(clazz);
+                // プロパティのメタデータは作成中に準備し、一度だけの作成と作成時間の記録の対象にする
+                beanDesc.getPropertyDescSize();
+                return beanDesc;
+            }
+        };
+
+    /** ブートストラップクラスローダがロードしたクラスの分割 */
+    private static final Partition bootstrapPartition = new Partition();
+
+    /** このクラスをロードしたクラスローダおよびその祖先 */
+    private static final Set<ClassLoader> cacheSafeClassLoaders =
+        newHashSet();
+
+    /** 強参照で保持する分割 */
+    private static final ConcurrentMap<ClassLoader, Partition> strongPartitions =
+        newConcurrentHashMap();
+
+    /** ソフト参照で保持する分割の一覧 (書き換えは{@link #softPartitionsLock}の同期の中でコピーに対して行う) */
+    private static volatile SoftPartitionRef[] softPartitions =
+        new SoftPartitionRef[0];
+
+    /** {@link #softPartitions}を書き換える際のロック */
+    private static final Object softPartitionsLock = new Object();
+
+    /** 分割ごとのエントリ数の上限 ({@literal 0}の場合は上限なし) */
+    private static volatile int limitSize;
+
+    /** ヒット数とミス数を記録する場合は{@literal true} */
+    private static volatile boolean recordStats;
+
+    /** {@link BeanDesc}の作成が完了したことを通知される{@link LoadListener} */
+    private static volatile LoadListener<? super Class<?>, ? super BeanDesc> loadListener;
+
+    /** {@link PropertyAccessor}を作成するファクトリ */
+    private static volatile PropertyAccessorFactory propertyAccessorFactory =
+        new BytecodePropertyAccessorFactory();
+
+    /** キャッシュがクリアされたことを通知される{@link ClearListener} (弱参照で保持する) */
+    private static final Map<ClearListener, Boolean> clearListeners =
+        newWeakHashMap();
 
     static {
+        ClassLoader loader = BeanDescFactory.class.getClassLoader();
+        while (loader != null) {
+            cacheSafeClassLoaders.add(loader);
+            loader = loader.getParent();
+        }
         initialize();
     }
 
@@ -69,12 +163,176 @@ public abstract class BeanDescFactory {
         if (!initialized) {
             initialize();
         }
-        BeanDesc beanDesc = beanDescCache.get(clazz);
-        if (beanDesc == null) {
-            beanDesc =
-                putIfAbsent(beanDescCache, clazz, new BeanDescImpl(clazz));
+        return getPartition(clazz.getClassLoader(), true).get(clazz);
+    }
+
+    /**
+     * クラスローダがロードしたクラスの{@link BeanDesc}を一度だけ作成してキャッシュするローダを返します。
+     * <p>
+     * {@link BeanDesc}の作成回数や作成に要した時間を参照するために使用します。
+     * </p>
+     * 
+     * @param classLoader
+     *            クラスローダ。ブートストラップクラスローダの場合は{@literal null}
+     * @return {@link BeanDesc}を一度だけ作成してキャッシュするローダ。
+     *         クラスローダの分割が存在しない場合は{@literal null}
+     */
+    public static MemoizingLoader<Class<?>, BeanDesc> getBeanDescLoader(
+            final ClassLoader classLoader) {
+        return getPartition(classLoader, false);
+    }
+
+    /**
+     * 分割ごとのエントリ数の上限を返します。
+     * 
+     * @return 分割ごとのエントリ数の上限。{@literal 0}の場合は上限なし
+     */
+    public static int getLimitSize() {
+        return limitSize;
+    }
+
+    /**
+     * 分割ごとのエントリ数の上限を設定します。
+     * <p>
+     * 上限を超えると、 最も古くキャッシュされた{@link BeanDesc}から破棄されます。
+     * 既に上限を超えてキャッシュされている分割からも直ちに破棄されます。
+     * </p>
+     * 
+     * @param limitSize
+     *            分割ごとのエントリ数の上限。{@literal 0}の場合は上限なし
+     */
+    public static void setLimitSize(final int limitSize) {
+        assertArgument("limitSize", limitSize >= 0, "limitSize < 0");
+
+        BeanDescFactory.limitSize = limitSize;
+        if (limitSize > 0) {
+            for (final Partition partition : getPartitions()) {
+                partition.evict(limitSize);
+            }
+        }
+    }
+
+    /**
+     * ヒット数とミス数を記録する場合は{@literal true}を返します。
+     * 
+     * @return ヒット数とミス数を記録する場合は{@literal true}
+     */
+    public static boolean isRecordStats() {
+        return recordStats;
+    }
+
+    /**
+     * ヒット数とミス数を記録するかどうかを設定します。
+     * <p>
+     * デフォルトは記録しません。 設定はすべての分割に適用されます。
+     * </p>
+     * 
+     * @param recordStats
+     *            ヒット数とミス数を記録する場合は{@literal true}
+     */
+    public static void setRecordStats(final boolean recordStats) {
+        BeanDescFactory.recordStats = recordStats;
+        for (final Partition partition : getPartitions()) {
+            partition.setRecordStats(recordStats);
+        }
+    }
+
+    /**
+     * {@link BeanDesc}の作成が完了したことを通知される{@link LoadListener}を返します。
+     * 
+     * @return {@link BeanDesc}の作成が完了したことを通知される{@link LoadListener}
+     */
+    public static LoadListener<? super Class<?>, ? super BeanDesc> getLoadListener() {
+        return loadListener;
+    }
+
+    /**
+     * {@link BeanDesc}の作成が完了したことを通知される{@link LoadListener}を設定します。
+     * <p>
+     * 設定はすべての分割に適用されます。
+     * </p>
+     * 
+     * @param listener
+     *            {@link BeanDesc}の作成が完了したことを通知される{@link LoadListener}。
+     *            {@literal null}の場合は通知しません
+     */
+    public static void setLoadListener(
+            final LoadListener<? super Class<?>, ? super BeanDesc> listener) {
+        loadListener = listener;
+        for (final Partition partition : getPartitions()) {
+            partition.setLoadListener(listener);
+        }
+    }
+
+    /**
+     * すべての分割の統計情報を合算したスナップショットを返します。
+     * 
+     * @return すべての分割の統計情報を合算したスナップショット
+     */
+    public static CacheStats getStats() {
+        CacheStats stats = CacheStats.EMPTY;
+        for (final Partition partition : getPartitions()) {
+            stats = stats.plus(partition.getStats());
+        }
+        return stats;
+    }
+
+    /**
+     * {@link PropertyAccessor}を作成するファクトリを返します。
+     * 
+     * @return {@link PropertyAccessor}を作成するファクトリ
+     */
+    public static PropertyAccessorFactory getPropertyAccessorFactory() {
+        return propertyAccessorFactory;
+    }
+
+    /**
+     * {@link PropertyAccessor}を作成するファクトリを設定します。
+     * <p>
+     * キャッシュされている{@link BeanDesc}はクリアされます。
+     * </p>
+     * 
+     * @param factory
+     *            {@link PropertyAccessor}を作成するファクトリ。{@literal null}であってはいけません
+     */
+    public static void setPropertyAccessorFactory(
+            final PropertyAccessorFactory factory) {
+        assertArgumentNotNull("factory", factory);
+
+        propertyAccessorFactory = factory;
+        clearPartitions();
+    }
+
+    /**
+     * キャッシュがクリアされたことを通知される{@link ClearListener}を追加します。
+     * <p>
+     * リスナは弱参照で保持されるため、 追加した側がリスナへの参照を保持してください。
+     * リスナへの参照がなくなると自動的に取り除かれます。
+     * </p>
+     * 
+     * @param listener
+     *            キャッシュがクリアされたことを通知される{@link ClearListener}。{@literal null}であってはいけません
+     */
+    public static void addClearListener(final ClearListener listener) {
+        assertArgumentNotNull("listener", listener);
+
+        synchronized (clearListeners) {
+            clearListeners.put(listener, Boolean.TRUE);
+        }
+    }
+
+    /**
+     * キャッシュがクリアされたことを通知される{@link ClearListener}を削除します。
+     * 
+     * @param listener
+     *            削除する{@link ClearListener}。{@literal null}であってはいけません
+     */
+    public static void removeClearListener(final ClearListener listener) {
+        assertArgumentNotNull("listener", listener);
+
+        synchronized (clearListeners) {
+            clearListeners.remove(listener);
         }
-        return beanDesc;
     }
 
     /**
@@ -98,8 +356,277 @@ public abstract class BeanDescFactory {
      * キャッシュをクリアします。
      */
     public static void clear() {
-        beanDescCache.clear();
+        clearPartitions();
         initialized = false;
     }
 
+    /**
+     * クラスローダがロードしたクラスの{@link BeanDesc}のキャッシュをクリアします。
+     * <p>
+     * 他のクラスローダがロードしたクラスの{@link BeanDesc}はクリアされません。
+     * </p>
+     * 
+     * @param classLoader
+     *            クラスローダ。ブートストラップクラスローダの場合は{@literal null}
+     * @return クリアされた{@link BeanDesc}の数
+     */
+    public static int clear(final ClassLoader classLoader) {
+        final Partition partition;
+        if (classLoader == null) {
+            partition = bootstrapPartition;
+        } else if (cacheSafeClassLoaders.contains(classLoader)) {
+            partition = strongPartitions.remove(classLoader);
+        } else {
+            synchronized (softPartitionsLock) {
+                partition = findSoftPartition(classLoader);
+                replaceSoftPartition(classLoader, null);
+            }
+        }
+        for (final ClearListener listener : getClearListeners()) {
+            listener.clear(classLoader);
+        }
+        if (partition == null) {
+            return 0;
+        }
+        final int size = partition.size();
+        partition.clear();
+        return size;
+    }
+
+    /**
+     * すべての分割をクリアします。
+     */
+    protected static void clearPartitions() {
+        bootstrapPartition.clear();
+        strongPartitions.clear();
+        synchronized (softPartitionsLock) {
+            softPartitions = new SoftPartitionRef[0];
+        }
+        for (final ClearListener listener : getClearListeners()) {
+            listener.clearAll();
+        }
+    }
+
+    /**
+     * 現在追加されているすべての{@link ClearListener}を返します。
+     * 
+     * @return 現在追加されているすべての{@link ClearListener}の配列
+     */
+    protected static ClearListener[] getClearListeners() {
+        synchronized (clearListeners) {
+            return clearListeners.keySet().toArray(
+                new ClearListener[clearListeners.size()]);
+        }
+    }
+
+    /**
+     * 現在存在するすべての分割を返します。
+     * 
+     * @return 現在存在するすべての分割のリスト
+     */
+    protected static List<Partition> getPartitions() {
+        final List<Partition> partitions = newArrayList();
+        partitions.add(bootstrapPartition);
+        partitions.addAll(strongPartitions.values());
+        for (final SoftPartitionRef ref : softPartitions) {
+            final Partition partition = ref.partition.get();
+            if (partition != null) {
+                partitions.add(partition);
+            }
+        }
+        return partitions;
+    }
+
+    /**
+     * クラスローダの分割を返します。
+     * 
+     * @param classLoader
+     *            クラスローダ。ブートストラップクラスローダの場合は{@literal null}
+     * @param create
+     *            分割が存在しない場合に作成するなら{@literal true}
+     * @return クラスローダの分割
+     */
+    protected static Partition getPartition(final ClassLoader classLoader,
+            final boolean create) {
+        if (classLoader == null) {
+            return bootstrapPartition;
+        }
+        if (cacheSafeClassLoaders.contains(classLoader)) {
+            final Partition partition = strongPartitions.get(classLoader);
+            if (partition != null || !create) {
+                return partition;
+            }
+            return putIfAbsent(strongPartitions, classLoader, new Partition());
+        }
+        final Partition partition = findSoftPartition(classLoader);
+        if (partition != null || !create) {
+            return partition;
+        }
+        synchronized (softPartitionsLock) {
+            final Partition current = findSoftPartition(classLoader);
+            if (current != null) {
+                return current;
+            }
+            final Partition newPartition = new Partition();
+            replaceSoftPartition(classLoader, newPartition);
+            return newPartition;
+        }
+    }
+
+    /**
+     * ソフト参照で保持されているクラスローダの分割を返します。
+     * 
+     * @param classLoader
+     *            クラスローダ
+     * @return クラスローダの分割。存在しないかソフト参照がクリアされている場合は{@literal null}
+     */
+    protected static Partition findSoftPartition(final ClassLoader classLoader) {
+        for (final SoftPartitionRef ref : softPartitions) {
+            if (ref.classLoader.get() == classLoader) {
+                return ref.partition.get();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * ソフト参照で保持するクラスローダの分割を置き換えた一覧を作成します。
+     * <p>
+     * クラスローダがガベージコレクトされたか、ソフト参照がクリアされた要素は取り除かれます。
+     * {@link #softPartitionsLock}の同期の中で呼び出さなければいけません。
+     * </p>
+     * 
+     * @param classLoader
+     *            クラスローダ
+     * @param partition
+     *            クラスローダの分割。{@literal null}の場合は削除します
+     */
+    protected static void replaceSoftPartition(final ClassLoader classLoader,
+            final Partition partition) {
+        final List<SoftPartitionRef> refs = newArrayList();
+        for (final SoftPartitionRef ref : softPartitions) {
+            final ClassLoader loader = ref.classLoader.get();
+            if (loader != null && loader != classLoader
+                && ref.partition.get() != null) {
+                refs.add(ref);
+            }
+        }
+        if (partition != null) {
+            refs.add(new SoftPartitionRef(classLoader, partition));
+        }
+        softPartitions = refs.toArray(new SoftPartitionRef[refs.size()]);
+    }
+
+    /**
+     * {@link BeanDescFactory}のキャッシュがクリアされたことを通知されるインタフェースです。
+     * 
+     * @author koichik
+     * @see BeanDescFactory#addClearListener(ClearListener)
+     */
+    public interface ClearListener {
+
+        /**
+         * クラスローダがロードしたクラスの{@link BeanDesc}のキャッシュがクリアされたことを通知します。
+         * <p>
+         * 実装は{@link Class#getClassLoader()}がこのクラスローダであるクラスのエントリを削除してください。
+         * </p>
+         * 
+         * @param classLoader
+         *            クラスローダ。ブートストラップクラスローダの場合は{@literal null}
+         */
+        void clear(ClassLoader classLoader);
+
+        /**
+         * すべての{@link BeanDesc}のキャッシュがクリアされたことを通知します。
+         */
+        void clearAll();
+
+    }
+
+    /**
+     * 一つのクラスローダがロードしたクラスの{@link BeanDesc}をキャッシュする分割です。
+     * 
+     * @author koichik
+     */
+    protected static class Partition extends
+            MemoizingLoader<Class<?>, BeanDesc> {
+
+        /** キャッシュされた順序 */
+        protected final Queue<Class<?>> order = newConcurrentLinkedQueue();
+
+        /**
+         * インスタンスを構築します。
+         */
+        public Partition() {
+            super(BEAN_DESC_LOADER);
+            setRecordStats(BeanDescFactory.recordStats);
+            setLoadListener(BeanDescFactory.loadListener);
+        }
+
+        @Override
+        public void clear() {
+            super.clear();
+            order.clear();
+        }
+
+        @Override
+        protected BeanDesc load(final Class<?> key) {
+            final BeanDesc beanDesc = super.load(key);
+            order.add(key);
+            final int limit = limitSize;
+            if (limit > 0) {
+                evict(limit);
+            }
+            return beanDesc;
+        }
+
+        /**
+         * エントリ数が上限以下になるまで最も古くキャッシュされた{@link BeanDesc}から破棄します。
+         * 
+         * @param limit
+         *            エントリ数の上限
+         */
+        protected void evict(final int limit) {
+            while (cache.size() > limit) {
+                final Class<?> eldest = order.poll();
+                if (eldest == null) {
+                    break;
+                }
+                if (cache.remove(eldest) != null) {
+                    evictionCount.incrementAndGet();
+                }
+            }
+        }
+
+    }
+
+    /**
+     * ソフト参照で保持するクラスローダの分割です。
+     * 
+     * @author koichik
+     */
+    protected static class SoftPartitionRef {
+
+        /** クラスローダへの弱参照 */
+        protected final WeakReference<ClassLoader> classLoader;
+
+        /** 分割へのソフト参照 */
+        protected final SoftReference<Partition> partition;
+
+        /**
+         * インスタンスを構築します。
+         * 
+         * @param classLoader
+         *            クラスローダ
+         * @param partition
+         *            クラスローダの分割
+         */
+        public SoftPartitionRef(final ClassLoader classLoader,
+                final Partition partition) {
+            this.classLoader = new WeakReference<ClassLoader>(classLoader);
+            this.partition = new SoftReference<Partition>(partition);
+        }
+
+    }
+
 }
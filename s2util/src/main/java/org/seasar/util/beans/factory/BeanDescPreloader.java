@@ -0,0 +1,302 @@
+/*
+ * Copyright 2004-2012 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.util.beans.factory;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.seasar.util.beans.BeanDesc;
+import org.seasar.util.exception.SIllegalStateException;
+import org.seasar.util.io.ClassHandler;
+import org.seasar.util.io.TraversalUtil;
+import org.seasar.util.io.Traverser;
+import org.seasar.util.lang.ClassUtil;
+
+import static org.seasar.util.collection.CollectionsUtil.*;
+import static org.seasar.util.misc.AssertionUtil.*;
+
+/**
+ * ルートパッケージ配下のクラスの{@link BeanDesc}をあらかじめ作成するクラスです。
+ * <p>
+ * 起動直後のリクエストで多数のクラスのイントロスペクションが行われることを避けるため、
+ * ルートパッケージ配下のクラスを{@link TraversalUtil#getTraversers(String)}で探し、
+ * 複数のスレッドで並行して{@link BeanDesc}を作成して{@link BeanDescFactory}にキャッシュします。
+ * </p>
+ * 
+ * <pre>
+ * BeanDescPreloader.preload(new File(&quot;beanDesc.snapshot&quot;), &quot;com.example.entity&quot;, &quot;com.example.dto&quot;);
+ * </pre>
+ * <p>
+ * スナップショットファイルを指定すると、 {@link BeanDescSnapshot}が最新の場合はルートパッケージ配下のクラスを探す処理を省略し、
+ * 最新でない場合は作成した{@link BeanDesc}のクラス名でスナップショットファイルを更新します。
+ * </p>
+ * 
+ * @author koichik
+ * @see BeanDescFactory
+ * @see BeanDescSnapshot
+ */
+public abstract class BeanDescPreloader {
+
+    /**
+     * ルートパッケージ配下のクラスの{@link BeanDesc}を作成します。
+     * 
+     * @param rootPackages
+     *            ルートパッケージの並び
+     * @return 作成した{@link BeanDesc}の数
+     */
+    public static int preload(final String... rootPackages) {
+        return preload((File) null, rootPackages);
+    }
+
+    /**
+     * ルートパッケージ配下のクラスの{@link BeanDesc}を作成します。
+     * <p>
+     * 利用可能なプロセッサ数のスレッドで並行して作成します。
+     * </p>
+     * 
+     * @param snapshotFile
+     *            スナップショットファイル。 {@literal null}の場合はスナップショットを使用しません
+     * @param rootPackages
+     *            ルートパッケージの並び
+     * @return 作成した{@link BeanDesc}の数
+     */
+    public static int preload(final File snapshotFile,
+            final String... rootPackages) {
+        final ExecutorService executor =
+            Executors.newFixedThreadPool(Runtime
+                .getRuntime()
+                .availableProcessors(), new DaemonThreadFactory());
+        try {
+            return preload(executor, snapshotFile, rootPackages);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * ルートパッケージ配下のクラスの{@link BeanDesc}を作成します。
+     * <p>
+     * クラスは呼び出したスレッドのコンテキストクラスローダで、 初期化せずにロードされます。
+     * ロードできないクラスは無視されます。
+     * </p>
+     * 
+     * @param executor
+     *            {@link BeanDesc}を作成する{@link ExecutorService}。{@literal null}であってはいけません
+     * @param snapshotFile
+     *            スナップショットファイル。 {@literal null}の場合はスナップショットを使用しません
+     * @param rootPackages
+     *            ルートパッケージの並び。{@literal null}であってはいけません
+     * @return 作成した{@link BeanDesc}の数
+     */
+    public static int preload(final ExecutorService executor,
+            final File snapshotFile, final String... rootPackages) {
+        assertArgumentNotNull("executor", executor);
+        assertArgumentNotNull("rootPackages", rootPackages);
+
+        final ClassLoader classLoader =
+            Thread.currentThread().getContextClassLoader();
+        final BeanDescSnapshot snapshot =
+            snapshotFile == null ? null : BeanDescSnapshot.read(snapshotFile);
+        if (snapshot != null && snapshot.isValid(classLoader, rootPackages)) {
+            return preload(
+                executor,
+                classLoader,
+                snapshot.getClassNames(),
+                null);
+        }
+
+        final BeanDescSnapshot newSnapshot =
+            snapshotFile == null ? null : new BeanDescSnapshot(rootPackages);
+        final int count =
+            preload(
+                executor,
+                classLoader,
+                getClassNames(rootPackages),
+                newSnapshot);
+        if (newSnapshot != null) {
+            newSnapshot.addRoots(classLoader);
+            newSnapshot.write(snapshotFile);
+        }
+        return count;
+    }
+
+    /**
+     * ルートパッケージ配下のクラス名のリストを返します。
+     * 
+     * @param rootPackages
+     *            ルートパッケージの並び。{@literal null}であってはいけません
+     * @return ルートパッケージ配下のクラス名のリスト
+     */
+    public static List<String> getClassNames(final String... rootPackages) {
+        assertArgumentNotNull("rootPackages", rootPackages);
+
+        final List<String> classNames = newArrayList();
+        for (final String rootPackage : rootPackages) {
+            for (final Traverser traverser : TraversalUtil
+                .getTraversers(rootPackage)) {
+                try {
+                    traverser.forEach(new ClassHandler() {
+                        @Override
+                        public void processClass(final String packageName,
+                                final String shortClassName) {
+                            classNames.add(ClassUtil.concatName(
+                                packageName,
+                                shortClassName));
+                        }
+                    });
+                } finally {
+                    traverser.close();
+                }
+            }
+        }
+        return classNames;
+    }
+
+    /**
+     * クラスの{@link BeanDesc}を並行して作成します。
+     * <p>
+     * 一つのクラスの失敗で全体を中断しないよう、 クラスごとの失敗は作成しなかったものとして数えません。
+     * {@link Error}や割り込みで中断する場合は、 まだ終わっていない作成を取り消します。
+     * </p>
+     * 
+     * @param executor
+     *            {@link BeanDesc}を作成する{@link ExecutorService}
+     * @param classLoader
+     *            クラスローダ
+     * @param classNames
+     *            クラス名のリスト
+     * @param snapshot
+     *            作成した{@link BeanDesc}のクラスを記録するスナップショット。
+     *            {@literal null}の場合は記録しません
+     * @return 作成した{@link BeanDesc}の数
+     */
+    protected static int preload(final ExecutorService executor,
+            final ClassLoader classLoader, final List<String> classNames,
+            final BeanDescSnapshot snapshot) {
+        final List<Future<Boolean>> futures = newArrayList(classNames.size());
+        for (final String className : classNames) {
+            futures.add(executor.submit(new Callable<Boolean>() {
+                @Override
+                public Boolean call() {
+                    return preload(classLoader, className, snapshot);
+                }
+            }));
+        }
+
+        int count = 0;
+        boolean completed = false;
+        try {
+            for (final Future<Boolean> future : futures) {
+                try {
+                    if (future.get().booleanValue()) {
+                        ++count;
+                    }
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new SIllegalStateException(e);
+                } catch (final ExecutionException e) {
+                    final Throwable cause = e.getCause();
+                    if (cause instanceof RuntimeException) {
+                        throw (RuntimeException) cause;
+                    }
+                    if (cause instanceof Error) {
+                        throw (Error) cause;
+                    }
+                    throw new SIllegalStateException(cause);
+                }
+            }
+            completed = true;
+        } finally {
+            if (!completed) {
+                for (final Future<Boolean> future : futures) {
+                    future.cancel(true);
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * クラスの{@link BeanDesc}を作成します。
+     * <p>
+     * {@link BeanDesc}はイントロスペクションを遅延するため、 すべての情報を準備させます。
+     * クラスの静的初期化子は実行しません。
+     * </p>
+     * 
+     * @param classLoader
+     *            クラスローダ
+     * @param className
+     *            クラス名
+     * @param snapshot
+     *            作成した{@link BeanDesc}のクラスを記録するスナップショット。
+     *            {@literal null}の場合は記録しません
+     * @return {@link BeanDesc}を作成した場合は{@literal true}、 クラスをロードできなかった場合や
+     *         {@link BeanDesc}の作成に失敗した場合は{@literal false}
+     */
+    protected static boolean preload(final ClassLoader classLoader,
+            final String className, final BeanDescSnapshot snapshot) {
+        final Class<?> clazz;
+        final BeanDesc beanDesc;
+        try {
+            clazz = Class.forName(className, false, classLoader);
+            beanDesc = BeanDescFactory.getBeanDesc(clazz);
+            beanDesc.getConstructorDescSize();
+            beanDesc.getPropertyDescSize();
+            beanDesc.getFieldDescSize();
+            beanDesc.getMethodNames();
+        } catch (final ClassNotFoundException e) {
+            return false;
+        } catch (final LinkageError e) {
+            return false;
+        } catch (final RuntimeException e) {
+            // 不正なジェネリクスのシグネチャ (TypeNotPresentExceptionなど) を持つクラス
+            return false;
+        }
+        if (snapshot != null) {
+            snapshot.addBeanDesc(beanDesc);
+        }
+        return true;
+    }
+
+    /**
+     * デーモンスレッドを作成する{@link ThreadFactory}です。
+     * 
+     * @author koichik
+     */
+    protected static class DaemonThreadFactory implements ThreadFactory {
+
+        /** スレッドの連番 */
+        protected final AtomicInteger threadNumber = new AtomicInteger();
+
+        @Override
+        public Thread newThread(final Runnable r) {
+            final Thread thread =
+                new Thread(r, "BeanDescPreloader-"
+                    + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+
+    }
+
+}
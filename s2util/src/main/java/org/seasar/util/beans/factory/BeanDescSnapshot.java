@@ -0,0 +1,373 @@
+/*
+ * Copyright 2004-2012 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.util.beans.factory;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.seasar.util.beans.BeanDesc;
+import org.seasar.util.exception.IORuntimeException;
+import org.seasar.util.io.CloseableUtil;
+import org.seasar.util.io.ReaderUtil;
+import org.seasar.util.io.WriterUtil;
+import org.seasar.util.lang.ClassLoaderUtil;
+import org.seasar.util.lang.StringUtil;
+import org.seasar.util.net.URLUtil;
+
+import static org.seasar.util.collection.CollectionsUtil.*;
+import static org.seasar.util.misc.AssertionUtil.*;
+
+/**
+ * {@link BeanDesc}を作成したクラスの一覧をファイルに保存するスナップショットです。
+ * <p>
+ * スナップショットはルートパッケージ配下のクラス名と、
+ * ルートパッケージを含むディレクトリとそのサブディレクトリ、 またはJarファイルのタイムスタンプを保持し、
+ * 次回の起動時に{@link #isValid(ClassLoader, String...)}でスナップショットが最新か検証できます。
+ * 最新のスナップショットがあれば、 ルートパッケージ配下のクラスを探す処理を省略できます。
+ * 検証はディレクトリやJarファイル単位で行い、 クラスファイルごとのタイムスタンプは確認しません。
+ * </p>
+ * <p>
+ * ディレクトリとJarファイル以外のリソース (アプリケーションサーバ固有のプロトコルなど) は、
+ * ルートパッケージのURLのタイムスタンプだけで検証します。
+ * この場合、 サブパッケージに追加されたクラスは検出できないことがあります。
+ * </p>
+ * <p>
+ * {@link java.lang.reflect.Method}などのリフレクションオブジェクトは保存できないため、
+ * {@link BeanDesc}自体やプロパティ名・メソッド名の一覧はスナップショットから復元されません。
+ * それらはクラスをロードしたときに改めて作成されます。
+ * </p>
+ * 
+ * @author koichik
+ * @see BeanDescPreloader
+ */
+public class BeanDescSnapshot {
+
+    /** スナップショットファイルのエンコーディング */
+    protected static final String ENCODING = "UTF-8";
+
+    /** スナップショットファイルのヘッダ */
+    protected static final String HEADER = "#BeanDescSnapshot 3";
+
+    /** ルートパッケージの行の識別子 */
+    protected static final String PACKAGES = "P";
+
+    /** ルートパッケージを含むディレクトリやJarファイルの行の識別子 */
+    protected static final String ROOT = "R";
+
+    /** クラスの行の識別子 */
+    protected static final String CLASS = "C";
+
+    /** 項目の区切り文字 */
+    protected static final String SEPARATOR = "\t";
+
+    /** 名前の区切り文字 */
+    protected static final String NAME_SEPARATOR = ",";
+
+    /** ルートパッケージ */
+    protected final String[] rootPackages;
+
+    /** ルートパッケージを含むディレクトリやJarファイルのURLとタイムスタンプ */
+    protected final Map<String, Long> roots = newLinkedHashMap();
+
+    /** クラス名のセット */
+    protected final Set<String> classes = newLinkedHashSet();
+
+    /**
+     * インスタンスを構築します。
+     * 
+     * @param rootPackages
+     *            ルートパッケージの並び。{@literal null}であってはいけません
+     */
+    public BeanDescSnapshot(final String... rootPackages) {
+        assertArgumentNotNull("rootPackages", rootPackages);
+
+        this.rootPackages = rootPackages.clone();
+    }
+
+    /**
+     * スナップショットファイルを読み込みます。
+     * 
+     * @param file
+     *            スナップショットファイル。{@literal null}であってはいけません
+     * @return スナップショット。 ファイルが存在しないか形式が正しくない場合は{@literal null}
+     */
+    public static BeanDescSnapshot read(final File file) {
+        assertArgumentNotNull("file", file);
+
+        if (!file.isFile()) {
+            return null;
+        }
+        final BufferedReader reader =
+            new BufferedReader(ReaderUtil.create(file, ENCODING));
+        try {
+            if (!HEADER.equals(ReaderUtil.readLine(reader))) {
+                return null;
+            }
+            final String packagesLine = ReaderUtil.readLine(reader);
+            if (packagesLine == null
+                || !packagesLine.startsWith(PACKAGES + SEPARATOR)) {
+                return null;
+            }
+            final BeanDescSnapshot snapshot =
+                new BeanDescSnapshot(StringUtil.split(
+                    packagesLine.substring(PACKAGES.length()
+                        + SEPARATOR.length()),
+                    NAME_SEPARATOR));
+            String line;
+            while ((line = ReaderUtil.readLine(reader)) != null) {
+                final String[] items = line.split(SEPARATOR, -1);
+                if (ROOT.equals(items[0]) && items.length == 3) {
+                    snapshot.roots.put(items[1], Long.valueOf(items[2]));
+                } else if (CLASS.equals(items[0]) && items.length == 2) {
+                    snapshot.classes.add(items[1]);
+                } else {
+                    return null;
+                }
+            }
+            return snapshot;
+        } catch (final NumberFormatException e) {
+            return null;
+        } finally {
+            CloseableUtil.close(reader);
+        }
+    }
+
+    /**
+     * スナップショットをファイルに書き込みます。
+     * 
+     * @param file
+     *            スナップショットファイル。{@literal null}であってはいけません
+     */
+    public void write(final File file) {
+        assertArgumentNotNull("file", file);
+
+        final BufferedWriter writer =
+            new BufferedWriter(WriterUtil.create(file, ENCODING));
+        try {
+            writeLine(writer, HEADER);
+            writeLine(writer, PACKAGES + SEPARATOR
+                + join(Arrays.asList(rootPackages)));
+            for (final Map.Entry<String, Long> root : roots.entrySet()) {
+                writeLine(writer, ROOT + SEPARATOR + root.getKey() + SEPARATOR
+                    + root.getValue());
+            }
+            for (final String className : classes) {
+                writeLine(writer, CLASS + SEPARATOR + className);
+            }
+            writer.flush();
+        } catch (final IOException e) {
+            throw new IORuntimeException(e);
+        } finally {
+            CloseableUtil.close(writer);
+        }
+    }
+
+    /**
+     * ルートパッケージを含むディレクトリやJarファイルを記録します。
+     * 
+     * @param classLoader
+     *            クラスローダ。{@literal null}であってはいけません
+     */
+    public void addRoots(final ClassLoader classLoader) {
+        assertArgumentNotNull("classLoader", classLoader);
+
+        roots.clear();
+        roots.putAll(getRoots(classLoader, rootPackages));
+    }
+
+    /**
+     * {@link BeanDesc}を作成したクラスを記録します。
+     * 
+     * @param beanDesc
+     *            {@link BeanDesc}。{@literal null}であってはいけません
+     */
+    public void addBeanDesc(final BeanDesc beanDesc) {
+        assertArgumentNotNull("beanDesc", beanDesc);
+
+        final String className = beanDesc.getBeanClass().getName();
+        synchronized (classes) {
+            classes.add(className);
+        }
+    }
+
+    /**
+     * スナップショットが最新なら{@literal true}を返します。
+     * <p>
+     * ルートパッケージが一致し、 ルートパッケージを含むディレクトリとそのサブディレクトリやJarファイルの
+     * タイムスタンプが変わっていなければ最新です。
+     * クラスファイルの追加や削除はそれを含むディレクトリのタイムスタンプの変化として検出します。
+     * 既存のクラスファイルの変更はクラス名の一覧に影響しないため検証しません。
+     * </p>
+     * 
+     * @param classLoader
+     *            クラスローダ。{@literal null}であってはいけません
+     * @param rootPackages
+     *            ルートパッケージの並び。{@literal null}であってはいけません
+     * @return スナップショットが最新なら{@literal true}
+     */
+    public boolean isValid(final ClassLoader classLoader,
+            final String... rootPackages) {
+        assertArgumentNotNull("classLoader", classLoader);
+        assertArgumentNotNull("rootPackages", rootPackages);
+
+        if (!Arrays.equals(this.rootPackages, rootPackages)) {
+            return false;
+        }
+        return roots.equals(getRoots(classLoader, rootPackages));
+    }
+
+    /**
+     * ルートパッケージの並びを返します。
+     * 
+     * @return ルートパッケージの並び
+     */
+    public String[] getRootPackages() {
+        return rootPackages.clone();
+    }
+
+    /**
+     * 記録されているクラス名のリストを返します。
+     * 
+     * @return 記録されているクラス名のリスト
+     */
+    public List<String> getClassNames() {
+        return newArrayList(classes);
+    }
+
+    /**
+     * ルートパッケージを含むディレクトリやJarファイルのURLとタイムスタンプを返します。
+     * <p>
+     * ディレクトリの場合はすべてのサブディレクトリのタイムスタンプも含みます。
+     * </p>
+     * 
+     * @param classLoader
+     *            クラスローダ
+     * @param rootPackages
+     *            ルートパッケージの並び
+     * @return ルートパッケージを含むディレクトリやJarファイルのURLとタイムスタンプ
+     */
+    protected static Map<String, Long> getRoots(final ClassLoader classLoader,
+            final String... rootPackages) {
+        final Map<String, Long> result = newLinkedHashMap();
+        for (final String rootPackage : rootPackages) {
+            if (StringUtil.isEmpty(rootPackage)) {
+                continue;
+            }
+            for (final Iterator<URL> it =
+                ClassLoaderUtil.getResources(
+                    classLoader,
+                    rootPackage.replace('.', '/') + '/'); it.hasNext();) {
+                final URL url = it.next();
+                if ("file".equals(URLUtil.toCanonicalProtocol(url
+                    .getProtocol()))) {
+                    addDirectories(
+                        result,
+                        url.toExternalForm(),
+                        URLUtil.toFile(url));
+                } else {
+                    result.put(url.toExternalForm(), getLastModified(url));
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * ディレクトリとすべてのサブディレクトリのタイムスタンプを追加します。
+     * 
+     * @param result
+     *            URLとタイムスタンプのマップ
+     * @param name
+     *            ディレクトリを表す名前
+     * @param dir
+     *            ディレクトリ
+     */
+    protected static void addDirectories(final Map<String, Long> result,
+            final String name, final File dir) {
+        result.put(name, dir.lastModified());
+        final File[] children = dir.listFiles();
+        if (children == null) {
+            return;
+        }
+        Arrays.sort(children);
+        for (final File child : children) {
+            if (child.isDirectory()) {
+                addDirectories(result, name + child.getName() + '/', child);
+            }
+        }
+    }
+
+    /**
+     * URLが表すリソースのタイムスタンプを返します。
+     * <p>
+     * Jarファイル中のリソースの場合はJarファイルのタイムスタンプを返します。
+     * ルートパッケージごとに一度だけ呼び出されます。
+     * </p>
+     * 
+     * @param url
+     *            URL
+     * @return URLが表すリソースのタイムスタンプ
+     */
+    protected static long getLastModified(final URL url) {
+        if ("file".equals(URLUtil.toCanonicalProtocol(url.getProtocol()))) {
+            return URLUtil.toFile(url).lastModified();
+        }
+        return URLUtil.openConnection(url).getLastModified();
+    }
+
+    /**
+     * 名前の並びを連結します。
+     * 
+     * @param names
+     *            名前の並び
+     * @return 連結した文字列
+     */
+    protected static String join(final List<String> names) {
+        final StringBuilder buf = new StringBuilder();
+        for (final String name : names) {
+            if (buf.length() > 0) {
+                buf.append(NAME_SEPARATOR);
+            }
+            buf.append(name);
+        }
+        return buf.toString();
+    }
+
+    /**
+     * 一行書き込みます。
+     * 
+     * @param writer
+     *            {@link BufferedWriter}
+     * @param line
+     *            行
+     * @throws IOException
+     *             入出力エラーが発生した場合
+     */
+    protected static void writeLine(final BufferedWriter writer,
+            final String line) throws IOException {
+        writer.write(line);
+        writer.newLine();
+    }
+
+}
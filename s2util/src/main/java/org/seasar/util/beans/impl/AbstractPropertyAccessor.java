@@ -0,0 +1,71 @@
+/*
+ * Copyright 2004-2012 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.util.beans.impl;
+
+import org.seasar.util.beans.PropertyAccessor;
+
+/**
+ * {@link PropertyAccessor}の実装を簡単にするための抽象クラスです。
+ * <p>
+ * プリミティブ型用のメソッドは、{@link #getValue(Object)}と{@link #setValue(Object, Object)}
+ * を使用してボクシングした値を読み書きします。 ボクシングせずにアクセスできるサブクラスはこれらのメソッドをオーバーライドします。
+ * </p>
+ * 
+ * @author koichik
+ */
+public abstract class AbstractPropertyAccessor implements PropertyAccessor {
+
+    @Override
+    public int getInt(final Object target) {
+        return ((Number) getValue(target)).intValue();
+    }
+
+    @Override
+    public long getLong(final Object target) {
+        return ((Number) getValue(target)).longValue();
+    }
+
+    @Override
+    public double getDouble(final Object target) {
+        return ((Number) getValue(target)).doubleValue();
+    }
+
+    @Override
+    public boolean getBoolean(final Object target) {
+        return ((Boolean) getValue(target)).booleanValue();
+    }
+
+    @Override
+    public void setInt(final Object target, final int value) {
+        setValue(target, Integer.valueOf(value));
+    }
+
+    @Override
+    public void setLong(final Object target, final long value) {
+        setValue(target, Long.valueOf(value));
+    }
+
+    @Override
+    public void setDouble(final Object target, final double value) {
+        setValue(target, Double.valueOf(value));
+    }
+
+    @Override
+    public void setBoolean(final Object target, final boolean value) {
+        setValue(target, Boolean.valueOf(value));
+    }
+
+}
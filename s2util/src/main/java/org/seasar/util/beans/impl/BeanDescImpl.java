@@ -24,13 +24,16 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
 
 import org.seasar.util.beans.BeanDesc;
 import org.seasar.util.beans.ConstructorDesc;
 import org.seasar.util.beans.FieldDesc;
 import org.seasar.util.beans.MethodDesc;
 import org.seasar.util.beans.ParameterizedClassDesc;
+import org.seasar.util.beans.PropertyAccessorFactory;
 import org.seasar.util.beans.PropertyDesc;
+import org.seasar.util.beans.factory.BeanDescFactory;
 import org.seasar.util.collection.ArrayMap;
 import org.seasar.util.collection.CaseInsensitiveMap;
 import org.seasar.util.convert.ByteConversionUtil;
@@ -55,6 +58,10 @@ import static org.seasar.util.misc.AssertionUtil.*;
 
 /**
  * {@link BeanDesc}の実装クラスです。
+ * <p>
+ * コンストラクタ、プロパティ、メソッド、フィールドのメタデータは、それぞれ最初にアクセスされた時に準備されます。
+ * サブクラスでキャッシュ用のフィールドを直接参照する場合は、事前に対応する{@literal prepare}メソッドを呼び出してください。
+ * </p>
  * 
  * @author higa
  */
@@ -66,12 +73,21 @@ public class BeanDescImpl implements BeanDesc {
     /** 空のクラス配列 */
     protected static final Class<?>[] EMPTY_PARAM_TYPES = new Class<?>[0];
 
+    /** 空の{@literal int}配列 */
+    protected static final int[] EMPTY_INDEXES = new int[0];
+
+    /** 引数に適合するメソッドやコンストラクタのキャッシュの上限 */
+    protected static final int SUITABLE_CACHE_LIMIT = 256;
+
     /** Beanのクラス */
     protected final Class<?> beanClass;
 
     /** 型引数と型変数のマップ */
     protected final Map<TypeVariable<?>, Type> typeVariables;
 
+    /** {@link org.seasar.util.beans.PropertyAccessor}を作成するファクトリ */
+    protected final PropertyAccessorFactory propertyAccessorFactory;
+
     /** プロパティ名から{@link PropertyDesc}へのマップ */
     protected final CaseInsensitiveMap<PropertyDesc> propertyDescCache =
         new CaseInsensitiveMap<PropertyDesc>();
@@ -89,21 +105,55 @@ public class BeanDescImpl implements BeanDesc {
     /** 不正なプロパティ名のセット */
     protected final Set<String> invalidPropertyNames = newHashSet();
 
+    /** 名前と引数の型の並びから引数に適合する{@link ConstructorDesc}や{@link MethodDesc}へのマップ */
+    protected final ConcurrentMap<Signature, Suitable<?>> suitableCache =
+        newConcurrentHashMap();
+
+    /** {@link ConstructorDesc}を準備済みなら{@literal true} */
+    protected volatile boolean constructorDescsPrepared;
+
+    /** {@link PropertyDesc}を準備済みなら{@literal true} */
+    protected volatile boolean propertyDescsPrepared;
+
+    /** {@link MethodDesc}を準備済みなら{@literal true} */
+    protected volatile boolean methodDescsPrepared;
+
+    /** {@link FieldDesc}を準備済みなら{@literal true} */
+    protected volatile boolean fieldDescsPrepared;
+
     /**
      * {@link BeanDescImpl}を作成します。
+     * <p>
+     * プロパティへのアクセスには{@link BeanDescFactory#getPropertyAccessorFactory()}
+     * が返すファクトリの作成した{@link org.seasar.util.beans.PropertyAccessor}を使用します。
+     * </p>
      * 
      * @param beanClass
      *            ビーンのクラス。{@literal null}であってはいけません
      */
     public BeanDescImpl(final Class<?> beanClass) {
+        this(beanClass, BeanDescFactory.getPropertyAccessorFactory());
+    }
+
+    /**
+     * {@link BeanDescImpl}を作成します。
+     * 
+     * @param beanClass
+     *            ビーンのクラス。{@literal null}であってはいけません
+     * @param propertyAccessorFactory
+     *            {@link org.seasar.util.beans.PropertyAccessor}を作成するファクトリ。
+     *            {@literal null}であってはいけません
+     */
+    public BeanDescImpl(final Class<?> beanClass,
+            final PropertyAccessorFactory propertyAccessorFactory) {
         assertArgumentNotNull("beanClass", beanClass);
+        assertArgumentNotNull(
+            "propertyAccessorFactory",
+            propertyAccessorFactory);
 
         this.beanClass = beanClass;
+        this.propertyAccessorFactory = propertyAccessorFactory;
         typeVariables = getTypeVariableMap(beanClass);
-        setupConstructorDescs();
-        setupPropertyDescs();
-        setupMethodDescs();
-        setupFieldDescs();
     }
 
     @SuppressWarnings("unchecked")
@@ -117,10 +167,20 @@ public class BeanDescImpl implements BeanDesc {
         return typeVariables;
     }
 
+    /**
+     * {@link org.seasar.util.beans.PropertyAccessor}を作成するファクトリを返します。
+     * 
+     * @return {@link org.seasar.util.beans.PropertyAccessor}を作成するファクトリ
+     */
+    public PropertyAccessorFactory getPropertyAccessorFactory() {
+        return propertyAccessorFactory;
+    }
+
     @Override
     public boolean hasPropertyDesc(final String propertyName) {
         assertArgumentNotEmpty("propertyName", propertyName);
 
+        preparePropertyDescs();
         return propertyDescCache.get(propertyName) != null;
     }
 
@@ -129,6 +189,7 @@ public class BeanDescImpl implements BeanDesc {
             throws PropertyNotFoundRuntimeException {
         assertArgumentNotEmpty("propertyName", propertyName);
 
+        preparePropertyDescs();
         final PropertyDesc pd = propertyDescCache.get(propertyName);
         if (pd == null) {
             throw new PropertyNotFoundRuntimeException(beanClass, propertyName);
@@ -145,11 +206,13 @@ public class BeanDescImpl implements BeanDesc {
 
     @Override
     public int getPropertyDescSize() {
+        preparePropertyDescs();
         return propertyDescCache.size();
     }
 
     @Override
     public Iterable<PropertyDesc> getPropertyDescs() {
+        preparePropertyDescs();
         return unmodifiableCollection(propertyDescCache.values());
     }
 
@@ -157,6 +220,7 @@ public class BeanDescImpl implements BeanDesc {
     public boolean hasFieldDesc(final String fieldName) {
         assertArgumentNotEmpty("fieldName", fieldName);
 
+        prepareFieldDescs();
         return fieldDescCache.containsKey(fieldName);
     }
 
@@ -164,6 +228,7 @@ public class BeanDescImpl implements BeanDesc {
     public FieldDesc getFieldDesc(final String fieldName) {
         assertArgumentNotEmpty("fieldName", fieldName);
 
+        prepareFieldDescs();
         final FieldDesc fieldDesc = fieldDescCache.get(fieldName);
         if (fieldDesc == null) {
             throw new FieldNotFoundRuntimeException(beanClass, fieldName);
@@ -180,11 +245,13 @@ public class BeanDescImpl implements BeanDesc {
 
     @Override
     public int getFieldDescSize() {
+        prepareFieldDescs();
         return fieldDescCache.size();
     }
 
     @Override
     public Iterable<FieldDesc> getFieldDescs() {
+        prepareFieldDescs();
         return unmodifiableCollection(fieldDescCache.values());
     }
 
@@ -198,6 +265,7 @@ public class BeanDescImpl implements BeanDesc {
 
     @Override
     public ConstructorDesc getConstructorDesc(final Class<?>... paramTypes) {
+        prepareConstructorDescs();
         for (final ConstructorDesc constructorDesc : constructorDescs) {
             if (Arrays.equals(paramTypes, constructorDesc.getParameterTypes())) {
                 return constructorDesc;
@@ -206,14 +274,31 @@ public class BeanDescImpl implements BeanDesc {
         throw new ConstructorNotFoundRuntimeException(beanClass, paramTypes);
     }
 
+    @SuppressWarnings("unchecked")
     @Override
     public ConstructorDesc getSuitableConstructorDesc(final Object... args) {
+        final Signature signature = new Signature(null, args);
+        final Suitable<ConstructorDesc> cached =
+            (Suitable<ConstructorDesc>) suitableCache.get(signature);
+        if (cached != null) {
+            return cached.adjust(args);
+        }
+
+        prepareConstructorDescs();
         ConstructorDesc constructorDesc = findSuitableConstructorDesc(args);
         if (constructorDesc != null) {
+            cacheSuitable(signature, new Suitable<ConstructorDesc>(
+                constructorDesc,
+                EMPTY_INDEXES));
             return constructorDesc;
         }
         constructorDesc = findSuitableConstructorDescAdjustNumber(args);
         if (constructorDesc != null) {
+            final int[] adjustIndexes =
+                getAdjustIndexes(constructorDesc.getParameterTypes(), signature);
+            cacheSuitable(signature, new Suitable<ConstructorDesc>(
+                constructorDesc,
+                adjustIndexes));
             return constructorDesc;
         }
         throw new ConstructorNotFoundRuntimeException(beanClass, args);
@@ -221,16 +306,19 @@ public class BeanDescImpl implements BeanDesc {
 
     @Override
     public ConstructorDesc getConstructorDesc(int index) {
+        prepareConstructorDescs();
         return constructorDescs.get(index);
     }
 
     @Override
     public int getConstructorDescSize() {
+        prepareConstructorDescs();
         return constructorDescs.size();
     }
 
     @Override
     public Iterable<ConstructorDesc> getConstructorDescs() {
+        prepareConstructorDescs();
         return unmodifiableCollection(constructorDescs);
     }
 
@@ -255,6 +343,7 @@ public class BeanDescImpl implements BeanDesc {
             final Class<?>... paramTypes) {
         assertArgumentNotEmpty("methodName", methodName);
 
+        prepareMethodDescs();
         final MethodDesc[] methodDescs = methodDescsCache.get(methodName);
         if (methodDescs == null) {
             return null;
@@ -267,18 +356,32 @@ public class BeanDescImpl implements BeanDesc {
         return null;
     }
 
+    @SuppressWarnings("unchecked")
     @Override
     public MethodDesc getSuitableMethodDesc(final String methodName,
             final Object... args) {
         assertArgumentNotEmpty("methodName", methodName);
 
+        final Signature signature = new Signature(methodName, args);
+        final Suitable<MethodDesc> cached =
+            (Suitable<MethodDesc>) suitableCache.get(signature);
+        if (cached != null) {
+            return cached.adjust(args);
+        }
+
         final MethodDesc[] methodDescs = getMethodDescs(methodName);
         MethodDesc methodDesc = findSuitableMethod(methodDescs, args);
         if (methodDesc != null) {
+            cacheSuitable(signature, new Suitable<MethodDesc>(
+                methodDesc,
+                EMPTY_INDEXES));
             return methodDesc;
         }
         methodDesc = findSuitableMethodDescAdjustNumber(methodDescs, args);
         if (methodDesc != null) {
+            cacheSuitable(signature, new Suitable<MethodDesc>(
+                methodDesc,
+                getAdjustIndexes(methodDesc.getParameterTypes(), signature)));
             return methodDesc;
         }
         throw new MethodNotFoundRuntimeException(beanClass, methodName, args);
@@ -288,6 +391,7 @@ public class BeanDescImpl implements BeanDesc {
     public MethodDesc[] getMethodDescs(final String methodName) {
         assertArgumentNotEmpty("methodName", methodName);
 
+        prepareMethodDescs();
         final MethodDesc[] methodDescs = methodDescsCache.get(methodName);
         if (methodDescs == null) {
             throw new MethodNotFoundRuntimeException(
@@ -302,15 +406,77 @@ public class BeanDescImpl implements BeanDesc {
     public boolean hasMethodDesc(final String methodName) {
         assertArgumentNotEmpty("methodName", methodName);
 
+        prepareMethodDescs();
         return methodDescsCache.containsKey(methodName);
     }
 
     @Override
     public String[] getMethodNames() {
+        prepareMethodDescs();
         return methodDescsCache.keySet().toArray(
             new String[methodDescsCache.size()]);
     }
 
+    /**
+     * {@link ConstructorDesc}が準備されていなければ準備します。
+     */
+    protected void prepareConstructorDescs() {
+        if (constructorDescsPrepared) {
+            return;
+        }
+        synchronized (this) {
+            if (!constructorDescsPrepared) {
+                setupConstructorDescs();
+                constructorDescsPrepared = true;
+            }
+        }
+    }
+
+    /**
+     * {@link PropertyDesc}が準備されていなければ準備します。
+     */
+    protected void preparePropertyDescs() {
+        if (propertyDescsPrepared) {
+            return;
+        }
+        synchronized (this) {
+            if (!propertyDescsPrepared) {
+                setupPropertyDescs();
+                propertyDescsPrepared = true;
+            }
+        }
+    }
+
+    /**
+     * {@link MethodDesc}が準備されていなければ準備します。
+     */
+    protected void prepareMethodDescs() {
+        if (methodDescsPrepared) {
+            return;
+        }
+        synchronized (this) {
+            if (!methodDescsPrepared) {
+                setupMethodDescs();
+                methodDescsPrepared = true;
+            }
+        }
+    }
+
+    /**
+     * {@link FieldDesc}が準備されていなければ準備します。
+     */
+    protected void prepareFieldDescs() {
+        if (fieldDescsPrepared) {
+            return;
+        }
+        synchronized (this) {
+            if (!fieldDescsPrepared) {
+                setupFieldDescs();
+                fieldDescsPrepared = true;
+            }
+        }
+    }
+
     /**
      * {@link PropertyDesc}を返します。
      * 
@@ -319,6 +485,7 @@ public class BeanDescImpl implements BeanDesc {
      * @return {@link PropertyDesc}。プロパティが存在しない場合は{@literal null}
      */
     protected PropertyDesc getPropertyDescNoException(final String propertyName) {
+        preparePropertyDescs();
         return propertyDescCache.get(propertyName);
     }
 
@@ -399,6 +566,49 @@ public class BeanDescImpl implements BeanDesc {
         return null;
     }
 
+    /**
+     * 引数に適合する{@link ConstructorDesc}や{@link MethodDesc}をキャッシュします。
+     * <p>
+     * キャッシュのエントリ数が上限に達している場合はキャッシュしません。
+     * </p>
+     * 
+     * @param signature
+     *            名前と引数の型の並び
+     * @param suitable
+     *            引数に適合する{@link ConstructorDesc}や{@link MethodDesc}
+     */
+    protected void cacheSuitable(final Signature signature,
+            final Suitable<?> suitable) {
+        if (suitableCache.size() < SUITABLE_CACHE_LIMIT) {
+            suitableCache.putIfAbsent(signature, suitable);
+        }
+    }
+
+    /**
+     * 数値への変換が必要な引数のインデックスの配列を返します。
+     * 
+     * @param paramTypes
+     *            引数型の並び
+     * @param signature
+     *            名前と引数の型の並び
+     * @return 数値への変換が必要な引数のインデックスの配列
+     */
+    protected static int[] getAdjustIndexes(final Class<?>[] paramTypes,
+            final Signature signature) {
+        final Class<?>[] argTypes = signature.argTypes;
+        int count = 0;
+        final int[] indexes = new int[argTypes.length];
+        for (int i = 0; i < argTypes.length; ++i) {
+            if (argTypes[i] != null
+                && !ClassUtil.isAssignableFrom(paramTypes[i], argTypes[i])) {
+                indexes[count++] = i;
+            }
+        }
+        final int[] result = new int[count];
+        System.arraycopy(indexes, 0, result, 0, count);
+        return result;
+    }
+
     /**
      * 引数が引数型に適合するかチェックします。
      * 
@@ -532,6 +742,67 @@ public class BeanDescImpl implements BeanDesc {
             propertyDescCache.remove(name);
         }
         invalidPropertyNames.clear();
+        if (!beanClass.isInterface()) {
+            final Set<String> fieldNames = newHashSet();
+            setupPropertyFieldsByClass(beanClass, fieldNames);
+        }
+    }
+
+    /**
+     * クラスに定義されたフィールドをプロパティとして準備します。
+     * <p>
+     * getter/setterメソッドを持つプロパティと同名のフィールドは、そのプロパティのフィールドとして設定します。
+     * それ以外の{@literal public}なインスタンスフィールドは、フィールドだけを持つプロパティとして追加します。
+     * サブクラスやインターフェースで同名のフィールドが定義されている場合、スーパークラスのフィールドは対象外です。
+     * </p>
+     * 
+     * @param targetClass
+     *            対象のクラス
+     * @param fieldNames
+     *            処理済みのフィールド名のセット
+     */
+    protected void setupPropertyFieldsByClass(final Class<?> targetClass,
+            final Set<String> fieldNames) {
+        for (final Field field : targetClass.getDeclaredFields()) {
+            final String fname = field.getName();
+            if (!fieldNames.add(fname) || !FieldUtil.isInstanceField(field)) {
+                continue;
+            }
+            final PropertyDescImpl pd =
+                (PropertyDescImpl) propertyDescCache.get(fname);
+            if (pd != null) {
+                field.setAccessible(true);
+                pd.setField(field);
+                continue;
+            }
+            if (FieldUtil.isPublicField(field)) {
+                field.setAccessible(true);
+                propertyDescCache.put(fname, new PropertyDescImpl(
+                    fname,
+                    field.getType(),
+                    null,
+                    null,
+                    field,
+                    this));
+            }
+        }
+        for (final Class<?> intf : targetClass.getInterfaces()) {
+            addInterfaceFieldNames(intf, fieldNames);
+        }
+        final Class<?> superClass = targetClass.getSuperclass();
+        if (superClass != Object.class && superClass != null) {
+            setupPropertyFieldsByClass(superClass, fieldNames);
+        }
+    }
+
+    private static void addInterfaceFieldNames(final Class<?> interfaceClass,
+            final Set<String> fieldNames) {
+        for (final Field field : interfaceClass.getDeclaredFields()) {
+            fieldNames.add(field.getName());
+        }
+        for (final Class<?> intf : interfaceClass.getInterfaces()) {
+            addInterfaceFieldNames(intf, fieldNames);
+        }
     }
 
     /**
@@ -697,26 +968,6 @@ public class BeanDescImpl implements BeanDesc {
             field.setAccessible(true);
             final FieldDescImpl fieldDesc = new FieldDescImpl(this, field);
             fieldDescCache.put(fname, fieldDesc);
-            if (!FieldUtil.isInstanceField(field)) {
-                continue;
-            }
-            if (hasPropertyDesc(fname)) {
-                final PropertyDescImpl pd =
-                    (PropertyDescImpl) propertyDescCache.get(field.getName());
-                pd.setField(field);
-                continue;
-            }
-            if (FieldUtil.isPublicField(field)) {
-                final PropertyDescImpl pd =
-                    new PropertyDescImpl(
-                        field.getName(),
-                        field.getType(),
-                        null,
-                        null,
-                        field,
-                        this);
-                propertyDescCache.put(fname, pd);
-            }
         }
     }
 
@@ -751,4 +1002,116 @@ public class BeanDescImpl implements BeanDesc {
         return desc;
     }
 
+    /**
+     * メソッド名 (コンストラクタの場合は{@literal null}) と実引数の型の並びからなるキーです。
+     * 
+     * @author koichik
+     */
+    protected static class Signature {
+
+        /** メソッド名 */
+        protected final String name;
+
+        /** 実引数の型の並び ({@literal null}の引数は{@literal null}) */
+        protected final Class<?>[] argTypes;
+
+        /** ハッシュ値 */
+        protected final int hashCode;
+
+        /**
+         * インスタンスを構築します。
+         * 
+         * @param name
+         *            メソッド名。コンストラクタの場合は{@literal null}
+         * @param args
+         *            引数の並び
+         */
+        public Signature(final String name, final Object[] args) {
+            this.name = name;
+            if (args == null || args.length == 0) {
+                argTypes = EMPTY_PARAM_TYPES;
+            } else {
+                argTypes = new Class<?>[args.length];
+                for (int i = 0; i < args.length; ++i) {
+                    argTypes[i] = args[i] == null ? null : args[i].getClass();
+                }
+            }
+            hashCode =
+                (name == null ? 0 : name.hashCode()) * 31
+                    + Arrays.hashCode(argTypes);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Signature)) {
+                return false;
+            }
+            final Signature other = (Signature) obj;
+            if (name == null ? other.name != null : !name.equals(other.name)) {
+                return false;
+            }
+            return Arrays.equals(argTypes, other.argTypes);
+        }
+
+    }
+
+    /**
+     * 引数に適合する{@link ConstructorDesc}や{@link MethodDesc}と、 数値への変換が必要な引数のインデックスです。
+     * 
+     * @author koichik
+     * @param <T>
+     *            {@link ConstructorDesc}または{@link MethodDesc}
+     */
+    protected static class Suitable<T> {
+
+        /** 引数に適合する{@link ConstructorDesc}や{@link MethodDesc} */
+        protected final T desc;
+
+        /** 引数型の並び */
+        protected final Class<?>[] paramTypes;
+
+        /** 数値への変換が必要な引数のインデックス */
+        protected final int[] adjustIndexes;
+
+        /**
+         * インスタンスを構築します。
+         * 
+         * @param desc
+         *            引数に適合する{@link ConstructorDesc}や{@link MethodDesc}
+         * @param adjustIndexes
+         *            数値への変換が必要な引数のインデックス
+         */
+        public Suitable(final T desc, final int[] adjustIndexes) {
+            this.desc = desc;
+            this.paramTypes =
+                desc instanceof MethodDesc ? ((MethodDesc) desc)
+                    .getParameterTypes() : ((ConstructorDesc) desc)
+                    .getParameterTypes();
+            this.adjustIndexes = adjustIndexes;
+        }
+
+        /**
+         * 必要な引数を数値に変換して、 引数に適合する{@link ConstructorDesc}や{@link MethodDesc}を返します。
+         * 
+         * @param args
+         *            引数の並び
+         * @return 引数に適合する{@link ConstructorDesc}や{@link MethodDesc}
+         */
+        public T adjust(final Object[] args) {
+            for (final int index : adjustIndexes) {
+                adjustNumber(paramTypes, args, index);
+            }
+            return desc;
+        }
+
+    }
+
 }
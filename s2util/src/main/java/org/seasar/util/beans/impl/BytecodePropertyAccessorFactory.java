@@ -0,0 +1,963 @@
+/*
+ * Copyright 2004-2012 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.util.beans.impl;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Field;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.seasar.util.beans.PropertyAccessor;
+import org.seasar.util.beans.PropertyAccessorFactory;
+import org.seasar.util.beans.PropertyDesc;
+import org.seasar.util.exception.IORuntimeException;
+import org.seasar.util.lang.ClassUtil;
+import org.seasar.util.lang.ModifierUtil;
+
+import static org.seasar.util.collection.CollectionsUtil.*;
+import static org.seasar.util.misc.AssertionUtil.*;
+
+/**
+ * プロパティに直接アクセスするクラスを実行時に生成する{@link PropertyAccessorFactory}の実装クラスです。
+ * <p>
+ * getter/setterメソッドまたは{@literal public}フィールドをリフレクションを使わずに呼び出すクラスを、
+ * プロパティごとにバイトコードで生成します。
+ * 生成したクラスから直接アクセスできないプロパティ (非{@literal public}なクラスやメンバ、
+ * {@literal static}なメソッドや{@literal final}なフィールドなど) や、 クラスの生成に失敗した場合は、
+ * フォールバック用の{@link PropertyAccessorFactory}が作成した{@link PropertyAccessor}を返します。
+ * </p>
+ * <p>
+ * プロパティの型が{@literal int}、{@literal long}、{@literal double}、{@literal boolean}の場合は、
+ * 対応するプリミティブ型用のメソッドもボクシングせずにgetter/setterメソッドやフィールドにアクセスするように生成します。
+ * </p>
+ * 
+ * @author koichik
+ */
+public class BytecodePropertyAccessorFactory implements
+        PropertyAccessorFactory {
+
+    /** 生成するクラス名のプレフィックス */
+    public static final String GENERATED_CLASS_NAME_PREFIX =
+        BytecodePropertyAccessorFactory.class.getName() + "$$Accessor$";
+
+    /** クラスファイルのバージョン (Java5) */
+    protected static final int CLASS_FILE_VERSION = 49;
+
+    /** ボクシングせずにアクセスするメソッドを生成するプリミティブ型 */
+    protected static final Class<?>[] PRIMITIVE_TYPES = new Class<?>[] {
+        int.class, long.class, double.class, boolean.class };
+
+    /** 生成したクラスの数 */
+    protected static final AtomicInteger generatedCount = new AtomicInteger();
+
+    /** Beanのクラスローダから生成したクラスを定義するクラスローダへのマップ */
+    protected final Map<ClassLoader, WeakReference<AccessorClassLoader>> classLoaders =
+        newWeakHashMap();
+
+    /** フォールバック用の{@link PropertyAccessorFactory} */
+    protected final PropertyAccessorFactory fallbackFactory;
+
+    /**
+     * インスタンスを構築します。
+     * <p>
+     * フォールバックには{@link ReflectionPropertyAccessorFactory}を使用します。
+     * </p>
+     */
+    public BytecodePropertyAccessorFactory() {
+        this(new ReflectionPropertyAccessorFactory());
+    }
+
+    /**
+     * インスタンスを構築します。
+     * 
+     * @param fallbackFactory
+     *            フォールバック用の{@link PropertyAccessorFactory}。{@literal null}であってはいけません
+     */
+    public BytecodePropertyAccessorFactory(
+            final PropertyAccessorFactory fallbackFactory) {
+        assertArgumentNotNull("fallbackFactory", fallbackFactory);
+
+        this.fallbackFactory = fallbackFactory;
+    }
+
+    @Override
+    public PropertyAccessor createPropertyAccessor(
+            final PropertyDesc propertyDesc) {
+        assertArgumentNotNull("propertyDesc", propertyDesc);
+
+        final Class<?> beanClass = propertyDesc.getBeanDesc().getBeanClass();
+        final Member readMember = getReadMember(propertyDesc);
+        final Member writeMember = getWriteMember(propertyDesc);
+        if (readMember == null && writeMember == null
+            || !isDirectlyAccessible(beanClass, readMember, false)
+            || !isDirectlyAccessible(beanClass, writeMember, true)) {
+            return fallbackFactory.createPropertyAccessor(propertyDesc);
+        }
+        try {
+            final String className =
+                GENERATED_CLASS_NAME_PREFIX + generatedCount.incrementAndGet();
+            final byte[] bytecode =
+                generateClassFile(className, beanClass, readMember, writeMember);
+            final Class<?> accessorClass =
+                getClassLoader(beanClass).define(className, bytecode);
+            return (PropertyAccessor) ClassUtil.newInstance(accessorClass);
+        } catch (final RuntimeException e) {
+            return fallbackFactory.createPropertyAccessor(propertyDesc);
+        } catch (final LinkageError e) {
+            return fallbackFactory.createPropertyAccessor(propertyDesc);
+        }
+    }
+
+    /**
+     * プロパティの値を読み出すメンバを返します。
+     * 
+     * @param propertyDesc
+     *            {@link PropertyDesc}
+     * @return getterメソッドまたは{@literal public}フィールド。読み出せない場合は{@literal null}
+     */
+    protected static Member getReadMember(final PropertyDesc propertyDesc) {
+        if (propertyDesc.hasReadMethod()) {
+            return propertyDesc.getReadMethod();
+        }
+        return getPublicField(propertyDesc);
+    }
+
+    /**
+     * プロパティに値を書き込むメンバを返します。
+     * 
+     * @param propertyDesc
+     *            {@link PropertyDesc}
+     * @return setterメソッドまたは{@literal public}フィールド。書き込めない場合は{@literal null}
+     */
+    protected static Member getWriteMember(final PropertyDesc propertyDesc) {
+        if (propertyDesc.hasWriteMethod()) {
+            return propertyDesc.getWriteMethod();
+        }
+        return getPublicField(propertyDesc);
+    }
+
+    private static Field getPublicField(final PropertyDesc propertyDesc) {
+        final Field field = propertyDesc.getField();
+        if (field != null && ModifierUtil.isPublic(field)) {
+            return field;
+        }
+        return null;
+    }
+
+    /**
+     * 生成したクラスからメンバに直接アクセスできる場合は{@literal true}を返します。
+     * 
+     * @param beanClass
+     *            Beanのクラス
+     * @param member
+     *            メソッドまたはフィールド
+     * @param write
+     *            書き込みに使用するメンバなら{@literal true}
+     * @return 生成したクラスからメンバに直接アクセスできる場合は{@literal true}
+     */
+    protected static boolean isDirectlyAccessible(final Class<?> beanClass,
+            final Member member, final boolean write) {
+        if (member == null) {
+            return true;
+        }
+        final int modifiers = member.getModifiers();
+        if (!ModifierUtil.isPublic(modifiers)
+            || ModifierUtil.isStatic(modifiers)) {
+            return false;
+        }
+        if (member instanceof Field && write
+            && ModifierUtil.isFinal(modifiers)) {
+            return false;
+        }
+        final Class<?> ownerClass = getOwnerClass(beanClass, member);
+        if (ownerClass == null) {
+            return false;
+        }
+        final Class<?> type = getMemberType(member);
+        return isVisible(beanClass.getClassLoader(), ownerClass)
+            && isVisible(beanClass.getClassLoader(), type);
+    }
+
+    /**
+     * 生成したクラスから参照するメンバの所有クラスを返します。
+     * 
+     * @param beanClass
+     *            Beanのクラス
+     * @param member
+     *            メソッドまたはフィールド
+     * @return メンバの所有クラス。{@literal public}なクラスがない場合は{@literal null}
+     */
+    protected static Class<?> getOwnerClass(final Class<?> beanClass,
+            final Member member) {
+        if (ModifierUtil.isPublic(beanClass.getModifiers())) {
+            return beanClass;
+        }
+        final Class<?> declaringClass = member.getDeclaringClass();
+        if (ModifierUtil.isPublic(declaringClass.getModifiers())) {
+            return declaringClass;
+        }
+        return null;
+    }
+
+    /**
+     * メンバが扱う値の型を返します。
+     * 
+     * @param member
+     *            メソッドまたはフィールド
+     * @return getterメソッドの戻り値の型、setterメソッドの引数の型、またはフィールドの型
+     */
+    protected static Class<?> getMemberType(final Member member) {
+        if (member instanceof Field) {
+            return ((Field) member).getType();
+        }
+        final Method method = (Method) member;
+        if (method.getParameterTypes().length == 1) {
+            return method.getParameterTypes()[0];
+        }
+        return method.getReturnType();
+    }
+
+    /**
+     * 型が{@literal public}で、クラスローダから同じクラスとして見える場合は{@literal true}を返します。
+     * 
+     * @param loader
+     *            クラスローダ
+     * @param type
+     *            型
+     * @return 型が{@literal public}で、クラスローダから同じクラスとして見える場合は{@literal true}
+     */
+    protected static boolean isVisible(final ClassLoader loader,
+            final Class<?> type) {
+        Class<?> clazz = type;
+        while (clazz.isArray()) {
+            clazz = clazz.getComponentType();
+        }
+        if (clazz.isPrimitive()) {
+            return true;
+        }
+        if (!ModifierUtil.isPublic(clazz.getModifiers())) {
+            return false;
+        }
+        try {
+            return Class.forName(clazz.getName(), false, loader) == clazz;
+        } catch (final ClassNotFoundException e) {
+            return false;
+        } catch (final LinkageError e) {
+            return false;
+        }
+    }
+
+    /**
+     * 生成したクラスを定義するクラスローダを返します。
+     * 
+     * @param beanClass
+     *            Beanのクラス
+     * @return 生成したクラスを定義するクラスローダ
+     */
+    protected AccessorClassLoader getClassLoader(final Class<?> beanClass) {
+        final ClassLoader parent = beanClass.getClassLoader();
+        synchronized (classLoaders) {
+            final WeakReference<AccessorClassLoader> ref =
+                classLoaders.get(parent);
+            AccessorClassLoader loader = ref == null ? null : ref.get();
+            if (loader == null) {
+                loader = new AccessorClassLoader(parent);
+                classLoaders.put(
+                    parent,
+                    new WeakReference<AccessorClassLoader>(loader));
+            }
+            return loader;
+        }
+    }
+
+    /**
+     * {@link AbstractPropertyAccessor}を継承したクラスのクラスファイルを生成します。
+     * 
+     * @param className
+     *            生成するクラスの名前
+     * @param beanClass
+     *            Beanのクラス
+     * @param readMember
+     *            getterメソッドまたは{@literal public}フィールド。読み出せない場合は{@literal null}
+     * @param writeMember
+     *            setterメソッドまたは{@literal public}フィールド。書き込めない場合は{@literal null}
+     * @return クラスファイルのバイト配列
+     */
+    protected static byte[] generateClassFile(final String className,
+            final Class<?> beanClass, final Member readMember,
+            final Member writeMember) {
+        final ConstantPool cp = new ConstantPool();
+        final int thisClass = cp.classRef(toInternalName(className));
+        final int superClass =
+            cp.classRef(toInternalName(AbstractPropertyAccessor.class
+                .getName()));
+        final List<byte[]> methods = newArrayList();
+        methods.add(generateConstructor(cp));
+        methods.add(generateGetValue(cp, beanClass, readMember));
+        methods.add(generateSetValue(cp, beanClass, writeMember));
+        for (final Class<?> type : PRIMITIVE_TYPES) {
+            if (readMember != null && getMemberType(readMember) == type) {
+                methods.add(generateGetPrimitive(
+                    cp,
+                    beanClass,
+                    readMember,
+                    type));
+            }
+            if (writeMember != null && getMemberType(writeMember) == type) {
+                methods.add(generateSetPrimitive(
+                    cp,
+                    beanClass,
+                    writeMember,
+                    type));
+            }
+        }
+
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(1024);
+        final DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            out.writeInt(0xCAFEBABE);
+            out.writeShort(0);
+            out.writeShort(CLASS_FILE_VERSION);
+            cp.writeTo(out);
+            out.writeShort(0x0001 | 0x0010 | 0x0020); // public final super
+            out.writeShort(thisClass);
+            out.writeShort(superClass);
+            out.writeShort(0); // interfaces
+            out.writeShort(0); // fields
+            out.writeShort(methods.size());
+            for (final byte[] method : methods) {
+                out.write(method);
+            }
+            out.writeShort(0); // attributes
+            out.flush();
+        } catch (final IOException e) {
+            throw new IORuntimeException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static byte[] generateConstructor(final ConstantPool cp) {
+        final Code code = new Code();
+        code.op(0x2A); // aload_0
+        code.op(0xB7); // invokespecial
+        code.u2(cp.memberRef(
+            ConstantPool.METHOD_REF,
+            toInternalName(AbstractPropertyAccessor.class.getName()),
+            "<init>",
+            "()V"));
+        code.op(0xB1); // return
+        return code.toMethod(cp, "<init>", "()V", 1, 1);
+    }
+
+    private static byte[] generateGetValue(final ConstantPool cp,
+            final Class<?> beanClass, final Member member) {
+        final Code code = new Code();
+        if (member == null) {
+            code.throwUnsupportedOperation(cp);
+        } else {
+            final Class<?> type = getMemberType(member);
+            generateRead(cp, code, beanClass, member, type);
+            if (type.isPrimitive()) {
+                final String wrapper = getWrapperName(type);
+                code.op(0xB8); // invokestatic
+                code.u2(cp.memberRef(
+                    ConstantPool.METHOD_REF,
+                    wrapper,
+                    "valueOf",
+                    "(" + getDescriptor(type) + ")L" + wrapper + ";"));
+            }
+            code.op(0xB0); // areturn
+        }
+        return code.toMethod(
+            cp,
+            "getValue",
+            "(Ljava/lang/Object;)Ljava/lang/Object;",
+            2,
+            2);
+    }
+
+    private static byte[] generateSetValue(final ConstantPool cp,
+            final Class<?> beanClass, final Member member) {
+        final Code code = new Code();
+        if (member == null) {
+            code.throwUnsupportedOperation(cp);
+        } else {
+            final Class<?> ownerClass = getOwnerClass(beanClass, member);
+            final Class<?> type = getMemberType(member);
+            code.op(0x2B); // aload_1
+            code.op(0xC0); // checkcast
+            code.u2(cp.classRef(toClassRefName(ownerClass)));
+            code.op(0x2C); // aload_2
+            if (type.isPrimitive()) {
+                code.unbox(cp, type);
+            } else if (type != Object.class) {
+                code.op(0xC0); // checkcast
+                code.u2(cp.classRef(toClassRefName(type)));
+            }
+            generateWrite(cp, code, ownerClass, member, type);
+            code.op(0xB1); // return
+        }
+        return code.toMethod(
+            cp,
+            "setValue",
+            "(Ljava/lang/Object;Ljava/lang/Object;)V",
+            3,
+            3);
+    }
+
+    private static byte[] generateGetPrimitive(final ConstantPool cp,
+            final Class<?> beanClass, final Member member, final Class<?> type) {
+        final Code code = new Code();
+        generateRead(cp, code, beanClass, member, type);
+        if (type == long.class) {
+            code.op(0xAD); // lreturn
+        } else if (type == double.class) {
+            code.op(0xAF); // dreturn
+        } else {
+            code.op(0xAC); // ireturn
+        }
+        return code.toMethod(
+            cp,
+            "get" + getPrimitiveName(type),
+            "(Ljava/lang/Object;)" + getDescriptor(type),
+            2,
+            2);
+    }
+
+    private static byte[] generateSetPrimitive(final ConstantPool cp,
+            final Class<?> beanClass, final Member member, final Class<?> type) {
+        final Code code = new Code();
+        final Class<?> ownerClass = getOwnerClass(beanClass, member);
+        final boolean wide = type == long.class || type == double.class;
+        code.op(0x2B); // aload_1
+        code.op(0xC0); // checkcast
+        code.u2(cp.classRef(toClassRefName(ownerClass)));
+        if (type == long.class) {
+            code.op(0x20); // lload_2
+        } else if (type == double.class) {
+            code.op(0x28); // dload_2
+        } else {
+            code.op(0x1C); // iload_2
+        }
+        generateWrite(cp, code, ownerClass, member, type);
+        code.op(0xB1); // return
+        return code.toMethod(
+            cp,
+            "set" + getPrimitiveName(type),
+            "(Ljava/lang/Object;" + getDescriptor(type) + ")V",
+            wide ? 3 : 2,
+            wide ? 4 : 3);
+    }
+
+    private static void generateRead(final ConstantPool cp, final Code code,
+            final Class<?> beanClass, final Member member, final Class<?> type) {
+        final Class<?> ownerClass = getOwnerClass(beanClass, member);
+        code.op(0x2B); // aload_1
+        code.op(0xC0); // checkcast
+        code.u2(cp.classRef(toClassRefName(ownerClass)));
+        if (member instanceof Field) {
+            code.op(0xB4); // getfield
+            code.u2(cp.memberRef(
+                ConstantPool.FIELD_REF,
+                toClassRefName(ownerClass),
+                member.getName(),
+                getDescriptor(type)));
+        } else {
+            code.invoke(cp, ownerClass, member.getName(), "()"
+                + getDescriptor(type), 1);
+        }
+    }
+
+    private static void generateWrite(final ConstantPool cp, final Code code,
+            final Class<?> ownerClass, final Member member, final Class<?> type) {
+        if (member instanceof Field) {
+            code.op(0xB5); // putfield
+            code.u2(cp.memberRef(
+                ConstantPool.FIELD_REF,
+                toClassRefName(ownerClass),
+                member.getName(),
+                getDescriptor(type)));
+        } else {
+            code.invoke(
+                cp,
+                ownerClass,
+                member.getName(),
+                "(" + getDescriptor(type) + ")V",
+                type == long.class || type == double.class ? 3 : 2);
+        }
+    }
+
+    /**
+     * クラス名を内部形式に変換して返します。
+     * 
+     * @param className
+     *            クラス名
+     * @return 内部形式のクラス名
+     */
+    protected static String toInternalName(final String className) {
+        return className.replace('.', '/');
+    }
+
+    /**
+     * {@literal CONSTANT_Class}で参照するためのクラス名を返します。
+     * 
+     * @param clazz
+     *            クラス
+     * @return {@literal CONSTANT_Class}で参照するためのクラス名
+     */
+    protected static String toClassRefName(final Class<?> clazz) {
+        return toInternalName(clazz.getName());
+    }
+
+    /**
+     * 型の記述子を返します。
+     * 
+     * @param type
+     *            型
+     * @return 型の記述子
+     */
+    protected static String getDescriptor(final Class<?> type) {
+        if (type.isArray()) {
+            return toInternalName(type.getName());
+        }
+        if (!type.isPrimitive()) {
+            return "L" + toInternalName(type.getName()) + ";";
+        }
+        if (type == int.class) {
+            return "I";
+        } else if (type == long.class) {
+            return "J";
+        } else if (type == boolean.class) {
+            return "Z";
+        } else if (type == double.class) {
+            return "D";
+        } else if (type == float.class) {
+            return "F";
+        } else if (type == short.class) {
+            return "S";
+        } else if (type == byte.class) {
+            return "B";
+        } else if (type == char.class) {
+            return "C";
+        }
+        return "V";
+    }
+
+    /**
+     * プリミティブ型用のメソッド名に使用するプリミティブ型の名前を返します。
+     * 
+     * @param type
+     *            プリミティブ型
+     * @return 先頭を大文字にしたプリミティブ型の名前
+     */
+    protected static String getPrimitiveName(final Class<?> type) {
+        final String name = type.getName();
+        return Character.toUpperCase(name.charAt(0)) + name.substring(1);
+    }
+
+    /**
+     * プリミティブ型に対応するラッパークラスの内部形式の名前を返します。
+     * 
+     * @param type
+     *            プリミティブ型
+     * @return ラッパークラスの内部形式の名前
+     */
+    protected static String getWrapperName(final Class<?> type) {
+        return toInternalName(ClassUtil.getWrapperClass(type).getName());
+    }
+
+    /**
+     * 生成したクラスを定義するクラスローダです。
+     * <p>
+     * {@link PropertyAccessor}と{@link AbstractPropertyAccessor}はこのクラスローダを読み込んだクラスローダから、
+     * それ以外のクラスはBeanのクラスローダから読み込みます。
+     * </p>
+     * 
+     * @author koichik
+     */
+    protected static class AccessorClassLoader extends ClassLoader {
+
+        /**
+         * インスタンスを構築します。
+         * 
+         * @param parent
+         *            Beanのクラスローダ
+         */
+        public AccessorClassLoader(final ClassLoader parent) {
+            super(parent);
+        }
+
+        /**
+         * クラスを定義します。
+         * 
+         * @param className
+         *            クラス名
+         * @param bytecode
+         *            クラスファイルのバイト配列
+         * @return 定義したクラス
+         */
+        public Class<?> define(final String className, final byte[] bytecode) {
+            return defineClass(className, bytecode, 0, bytecode.length);
+        }
+
+        @Override
+        protected synchronized Class<?> loadClass(final String name,
+                final boolean resolve) throws ClassNotFoundException {
+            if (PropertyAccessor.class.getName().equals(name)) {
+                return PropertyAccessor.class;
+            }
+            if (AbstractPropertyAccessor.class.getName().equals(name)) {
+                return AbstractPropertyAccessor.class;
+            }
+            return super.loadClass(name, resolve);
+        }
+
+    }
+
+    /**
+     * クラスファイルのコンスタントプールです。
+     * 
+     * @author koichik
+     */
+    protected static class ConstantPool {
+
+        /** {@literal CONSTANT_Utf8} */
+        protected static final int UTF8 = 1;
+
+        /** {@literal CONSTANT_Class} */
+        protected static final int CLASS = 7;
+
+        /** {@literal CONSTANT_Fieldref} */
+        protected static final int FIELD_REF = 9;
+
+        /** {@literal CONSTANT_Methodref} */
+        protected static final int METHOD_REF = 10;
+
+        /** {@literal CONSTANT_InterfaceMethodref} */
+        protected static final int INTERFACE_METHOD_REF = 11;
+
+        /** {@literal CONSTANT_NameAndType} */
+        protected static final int NAME_AND_TYPE = 12;
+
+        /** エントリのキーからインデックスへのマップ */
+        protected final Map<String, Integer> indexes = newHashMap();
+
+        /** エントリのバイト列 */
+        protected final ByteArrayOutputStream bytes =
+            new ByteArrayOutputStream(512);
+
+        /** エントリの出力先 */
+        protected final DataOutputStream out = new DataOutputStream(bytes);
+
+        /** 次のエントリのインデックス */
+        protected int nextIndex = 1;
+
+        /**
+         * {@literal CONSTANT_Utf8}のインデックスを返します。
+         * 
+         * @param value
+         *            文字列
+         * @return インデックス
+         */
+        public int utf8(final String value) {
+            final String key = UTF8 + "#" + value;
+            final Integer index = indexes.get(key);
+            if (index != null) {
+                return index;
+            }
+            try {
+                out.writeByte(UTF8);
+                out.writeUTF(value);
+            } catch (final IOException e) {
+                throw new IORuntimeException(e);
+            }
+            return register(key);
+        }
+
+        /**
+         * {@literal CONSTANT_Class}のインデックスを返します。
+         * 
+         * @param name
+         *            内部形式のクラス名
+         * @return インデックス
+         */
+        public int classRef(final String name) {
+            final String key = CLASS + "#" + name;
+            final Integer index = indexes.get(key);
+            if (index != null) {
+                return index;
+            }
+            final int nameIndex = utf8(name);
+            write(CLASS, nameIndex);
+            return register(key);
+        }
+
+        /**
+         * フィールドまたはメソッドの参照のインデックスを返します。
+         * 
+         * @param tag
+         *            {@link #FIELD_REF}、{@link #METHOD_REF}、または
+         *            {@link #INTERFACE_METHOD_REF}
+         * @param owner
+         *            内部形式の所有クラス名
+         * @param name
+         *            メンバ名
+         * @param descriptor
+         *            記述子
+         * @return インデックス
+         */
+        public int memberRef(final int tag, final String owner,
+                final String name, final String descriptor) {
+            final String key =
+                tag + "#" + owner + '.' + name + ':' + descriptor;
+            final Integer index = indexes.get(key);
+            if (index != null) {
+                return index;
+            }
+            final int classIndex = classRef(owner);
+            final int nameAndTypeIndex = nameAndType(name, descriptor);
+            try {
+                out.writeByte(tag);
+                out.writeShort(classIndex);
+                out.writeShort(nameAndTypeIndex);
+            } catch (final IOException e) {
+                throw new IORuntimeException(e);
+            }
+            return register(key);
+        }
+
+        /**
+         * {@literal CONSTANT_NameAndType}のインデックスを返します。
+         * 
+         * @param name
+         *            名前
+         * @param descriptor
+         *            記述子
+         * @return インデックス
+         */
+        public int nameAndType(final String name, final String descriptor) {
+            final String key =
+                NAME_AND_TYPE + "#" + name + ':' + descriptor;
+            final Integer index = indexes.get(key);
+            if (index != null) {
+                return index;
+            }
+            final int nameIndex = utf8(name);
+            final int descriptorIndex = utf8(descriptor);
+            try {
+                out.writeByte(NAME_AND_TYPE);
+                out.writeShort(nameIndex);
+                out.writeShort(descriptorIndex);
+            } catch (final IOException e) {
+                throw new IORuntimeException(e);
+            }
+            return register(key);
+        }
+
+        /**
+         * コンスタントプールを出力します。
+         * 
+         * @param dest
+         *            出力先
+         * @throws IOException
+         *             I/O例外が発生した場合
+         */
+        public void writeTo(final DataOutputStream dest) throws IOException {
+            out.flush();
+            dest.writeShort(nextIndex);
+            bytes.writeTo(dest);
+        }
+
+        private void write(final int tag, final int value) {
+            try {
+                out.writeByte(tag);
+                out.writeShort(value);
+            } catch (final IOException e) {
+                throw new IORuntimeException(e);
+            }
+        }
+
+        private int register(final String key) {
+            final int index = nextIndex++;
+            indexes.put(key, index);
+            return index;
+        }
+
+    }
+
+    /**
+     * メソッドのバイトコードです。
+     * 
+     * @author koichik
+     */
+    protected static class Code {
+
+        /** バイトコード */
+        protected final ByteArrayOutputStream bytes =
+            new ByteArrayOutputStream(64);
+
+        /**
+         * 1バイトを出力します。
+         * 
+         * @param value
+         *            値
+         */
+        public void op(final int value) {
+            bytes.write(value);
+        }
+
+        /**
+         * 2バイトを出力します。
+         * 
+         * @param value
+         *            値
+         */
+        public void u2(final int value) {
+            bytes.write(value >>> 8);
+            bytes.write(value);
+        }
+
+        /**
+         * インスタンスメソッドを呼び出すバイトコードを出力します。
+         * 
+         * @param cp
+         *            コンスタントプール
+         * @param ownerClass
+         *            メソッドの所有クラス
+         * @param name
+         *            メソッド名
+         * @param descriptor
+         *            メソッドの記述子
+         * @param argSlots
+         *            {@literal this}を含む引数のスロット数
+         */
+        public void invoke(final ConstantPool cp, final Class<?> ownerClass,
+                final String name, final String descriptor, final int argSlots) {
+            final String owner = toClassRefName(ownerClass);
+            if (ownerClass.isInterface()) {
+                op(0xB9); // invokeinterface
+                u2(cp.memberRef(
+                    ConstantPool.INTERFACE_METHOD_REF,
+                    owner,
+                    name,
+                    descriptor));
+                op(argSlots);
+                op(0);
+            } else {
+                op(0xB6); // invokevirtual
+                u2(cp.memberRef(
+                    ConstantPool.METHOD_REF,
+                    owner,
+                    name,
+                    descriptor));
+            }
+        }
+
+        /**
+         * スタックトップのオブジェクトをプリミティブ型に変換するバイトコードを出力します。
+         * 
+         * @param cp
+         *            コンスタントプール
+         * @param type
+         *            プリミティブ型
+         */
+        public void unbox(final ConstantPool cp, final Class<?> type) {
+            final String owner;
+            if (type == boolean.class) {
+                owner = "java/lang/Boolean";
+            } else if (type == char.class) {
+                owner = "java/lang/Character";
+            } else {
+                owner = "java/lang/Number";
+            }
+            op(0xC0); // checkcast
+            u2(cp.classRef(owner));
+            op(0xB6); // invokevirtual
+            u2(cp.memberRef(
+                ConstantPool.METHOD_REF,
+                owner,
+                type.getName() + "Value",
+                "()" + getDescriptor(type)));
+        }
+
+        /**
+         * {@link UnsupportedOperationException}をスローするバイトコードを出力します。
+         * 
+         * @param cp
+         *            コンスタントプール
+         */
+        public void throwUnsupportedOperation(final ConstantPool cp) {
+            final String exception = "java/lang/UnsupportedOperationException";
+            op(0xBB); // new
+            u2(cp.classRef(exception));
+            op(0x59); // dup
+            op(0xB7); // invokespecial
+            u2(cp.memberRef(ConstantPool.METHOD_REF, exception, "<init>", "()V"));
+            op(0xBF); // athrow
+        }
+
+        /**
+         * {@literal method_info}構造を返します。
+         * 
+         * @param cp
+         *            コンスタントプール
+         * @param name
+         *            メソッド名
+         * @param descriptor
+         *            メソッドの記述子
+         * @param maxStack
+         *            オペランドスタックの最大の深さ
+         * @param maxLocals
+         *            ローカル変数の数
+         * @return {@literal method_info}構造のバイト配列
+         */
+        public byte[] toMethod(final ConstantPool cp, final String name,
+                final String descriptor, final int maxStack,
+                final int maxLocals) {
+            final int nameIndex = cp.utf8(name);
+            final int descriptorIndex = cp.utf8(descriptor);
+            final int codeIndex = cp.utf8("Code");
+            final ByteArrayOutputStream method = new ByteArrayOutputStream(128);
+            final DataOutputStream out = new DataOutputStream(method);
+            try {
+                out.writeShort(0x0001); // public
+                out.writeShort(nameIndex);
+                out.writeShort(descriptorIndex);
+                out.writeShort(1);
+                out.writeShort(codeIndex);
+                out.writeInt(12 + bytes.size());
+                out.writeShort(maxStack);
+                out.writeShort(maxLocals);
+                out.writeInt(bytes.size());
+                bytes.writeTo(out);
+                out.writeShort(0); // exception_table
+                out.writeShort(0); // attributes
+                out.flush();
+            } catch (final IOException e) {
+                throw new IORuntimeException(e);
+            }
+            return method.toByteArray();
+        }
+
+    }
+
+}
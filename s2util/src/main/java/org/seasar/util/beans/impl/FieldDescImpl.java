@@ -23,6 +23,10 @@ import org.seasar.util.beans.BeanDesc;
 import org.seasar.util.beans.FieldDesc;
 import org.seasar.util.beans.ParameterizedClassDesc;
 import org.seasar.util.beans.factory.ParameterizedClassDescFactory;
+import org.seasar.util.convert.BooleanConversionUtil;
+import org.seasar.util.convert.DoubleConversionUtil;
+import org.seasar.util.convert.IntegerConversionUtil;
+import org.seasar.util.convert.LongConversionUtil;
 import org.seasar.util.exception.FieldNotStaticRuntimeException;
 import org.seasar.util.lang.FieldUtil;
 
@@ -194,4 +198,88 @@ public class FieldDescImpl implements FieldDesc {
         FieldUtil.set(field, value);
     }
 
+    @Override
+    public int getInt(final Object target) {
+        assertArgumentNotNull("target", target);
+
+        if (fieldType != int.class) {
+            return IntegerConversionUtil.toPrimitiveInt(FieldUtil.get(field, target));
+        }
+        return FieldUtil.getInt(field, target);
+    }
+
+    @Override
+    public long getLong(final Object target) {
+        assertArgumentNotNull("target", target);
+
+        if (fieldType != long.class) {
+            return LongConversionUtil.toPrimitiveLong(FieldUtil.get(field, target));
+        }
+        return FieldUtil.getLong(field, target);
+    }
+
+    @Override
+    public double getDouble(final Object target) {
+        assertArgumentNotNull("target", target);
+
+        if (fieldType != double.class) {
+            return DoubleConversionUtil.toPrimitiveDouble(FieldUtil.get(field, target));
+        }
+        return FieldUtil.getDouble(field, target);
+    }
+
+    @Override
+    public boolean getBoolean(final Object target) {
+        assertArgumentNotNull("target", target);
+
+        if (fieldType != boolean.class) {
+            return BooleanConversionUtil.toPrimitiveBoolean(FieldUtil.get(field, target));
+        }
+        return FieldUtil.getBoolean(field, target);
+    }
+
+    @Override
+    public void setInt(final Object target, final int value) {
+        assertArgumentNotNull("target", target);
+
+        if (fieldType != int.class) {
+            FieldUtil.set(field, target, Integer.valueOf(value));
+            return;
+        }
+        FieldUtil.setInt(field, target, value);
+    }
+
+    @Override
+    public void setLong(final Object target, final long value) {
+        assertArgumentNotNull("target", target);
+
+        if (fieldType != long.class) {
+            FieldUtil.set(field, target, Long.valueOf(value));
+            return;
+        }
+        FieldUtil.setLong(field, target, value);
+    }
+
+    @Override
+    public void setDouble(final Object target, final double value) {
+        assertArgumentNotNull("target", target);
+
+        if (fieldType != double.class) {
+            FieldUtil.set(field, target, Double.valueOf(value));
+            return;
+        }
+        FieldUtil.setDouble(field, target, value);
+    }
+
+    @Override
+    public void setBoolean(final Object target, final boolean value) {
+        assertArgumentNotNull("target", target);
+
+        if (fieldType != boolean.class) {
+            FieldUtil.set(field, target, Boolean.valueOf(value));
+            return;
+        }
+        FieldUtil.setBoolean(field, target, value);
+    }
+
 }
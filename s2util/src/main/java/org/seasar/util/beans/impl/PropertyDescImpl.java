@@ -22,24 +22,32 @@ import java.lang.reflect.Type;
 import java.lang.reflect.TypeVariable;
 import java.sql.Time;
 import java.sql.Timestamp;
+import java.util.Calendar;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
 import java.util.Map;
 
 import org.seasar.util.beans.BeanDesc;
 import org.seasar.util.beans.ParameterizedClassDesc;
+import org.seasar.util.beans.PropertyAccessor;
+import org.seasar.util.beans.PropertyAccessorFactory;
 import org.seasar.util.beans.PropertyDesc;
 import org.seasar.util.beans.factory.ParameterizedClassDescFactory;
 import org.seasar.util.convert.BooleanConversionUtil;
 import org.seasar.util.convert.CalendarConversionUtil;
 import org.seasar.util.convert.DateConversionUtil;
+import org.seasar.util.convert.DoubleConversionUtil;
+import org.seasar.util.convert.IntegerConversionUtil;
+import org.seasar.util.convert.LongConversionUtil;
 import org.seasar.util.convert.NumberConversionUtil;
 import org.seasar.util.convert.TimeConversionUtil;
 import org.seasar.util.convert.TimestampConversionUtil;
 import org.seasar.util.exception.IllegalPropertyRuntimeException;
 import org.seasar.util.exception.ParseRuntimeException;
 import org.seasar.util.exception.SIllegalArgumentException;
+import org.seasar.util.lang.ClassUtil;
 import org.seasar.util.lang.ConstructorUtil;
-import org.seasar.util.lang.FieldUtil;
 import org.seasar.util.lang.MethodUtil;
 import org.seasar.util.lang.ModifierUtil;
 
@@ -47,12 +55,62 @@ import static org.seasar.util.misc.AssertionUtil.*;
 
 /**
  * {@link PropertyDesc}の実装クラスです。
+ * <p>
+ * {@link #setValue(Object, Object)}で値をプロパティの型に変換する方法は、 インスタンス構築時にプロパティの型から一度だけ決定されます。
+ * </p>
  * 
  * @author higa
  */
 public class PropertyDescImpl implements PropertyDesc {
 
-    private static final Object[] EMPTY_ARGS = new Object[0];
+    private static final ValueConverter IDENTITY = new ValueConverter() {
+        @Override
+        public Object convert(final Class<?> type, final Object arg) {
+            return arg;
+        }
+    };
+
+    private static final ValueConverter TO_PRIMITIVE_WRAPPER =
+        new ValueConverter() {
+            @Override
+            public Object convert(final Class<?> type, final Object arg) {
+                return NumberConversionUtil.convertPrimitiveWrapper(type, arg);
+            }
+        };
+
+    private static final ValueConverter TO_NUMBER = new ValueConverter() {
+        @Override
+        public Object convert(final Class<?> type, final Object arg) {
+            return NumberConversionUtil.convertNumber(type, arg);
+        }
+    };
+
+    private static final ValueConverter TO_DATE = new ValueConverter() {
+        @Override
+        public Object convert(final Class<?> type, final Object arg) {
+            return convertDate(type, arg);
+        }
+    };
+
+    private static final ValueConverter TO_BOOLEAN = new ValueConverter() {
+        @Override
+        public Object convert(final Class<?> type, final Object arg) {
+            return BooleanConversionUtil.toBoolean(arg);
+        }
+    };
+
+    private static final ValueConverter TO_STRING = new ValueConverter() {
+        @Override
+        public Object convert(final Class<?> type, final Object arg) {
+            return arg == null ? null : arg.toString();
+        }
+    };
+
+    /**
+     * {@link BeanDescImpl}以外の{@link BeanDesc}に属する場合に使用する{@link PropertyAccessorFactory}
+     */
+    private static final PropertyAccessorFactory REFLECTION_ACCESSOR_FACTORY =
+        new ReflectionPropertyAccessorFactory();
 
     private String propertyName;
 
@@ -70,12 +128,20 @@ public class PropertyDescImpl implements PropertyDesc {
 
     private Method valueOfMethod;
 
+    private volatile boolean stringConverterPrepared;
+
     private boolean readable = false;
 
     private boolean writable = false;
 
     private ParameterizedClassDesc parameterizedClassDesc;
 
+    private volatile PropertyAccessor propertyAccessor;
+
+    private Class<?> valueClass;
+
+    private ValueConverter valueConverter;
+
     /**
      * {@link PropertyDescImpl}を作成します。
      * 
@@ -131,9 +197,72 @@ public class PropertyDescImpl implements PropertyDesc {
         setWriteMethod(writeMethod);
         setField(field);
         this.beanDesc = beanDesc;
-        setupStringConstructor();
-        setupValueOfMethod();
         setUpParameterizedClassDesc();
+        setupValueConverter();
+    }
+
+    private void setupValueConverter() {
+        valueClass = ClassUtil.getWrapperClassIfPrimitive(propertyType);
+        if (propertyType.isPrimitive()) {
+            valueConverter = TO_PRIMITIVE_WRAPPER;
+        } else if (Number.class.isAssignableFrom(propertyType)) {
+            valueConverter = TO_NUMBER;
+        } else if (Date.class.isAssignableFrom(propertyType)) {
+            valueConverter = TO_DATE;
+        } else if (Boolean.class.isAssignableFrom(propertyType)) {
+            valueConverter = TO_BOOLEAN;
+        } else if (String.class == propertyType) {
+            valueConverter = TO_STRING;
+        } else {
+            final boolean calendar =
+                Calendar.class.isAssignableFrom(propertyType);
+            valueConverter = new ValueConverter() {
+                @Override
+                public Object convert(final Class<?> type, final Object arg) {
+                    if (arg instanceof String) {
+                        return convertWithString(arg);
+                    }
+                    if (calendar) {
+                        return CalendarConversionUtil.toCalendar(arg);
+                    }
+                    return arg;
+                }
+            };
+        }
+    }
+
+    private static Object convertDate(final Class<?> type, final Object arg) {
+        if (type == Date.class) {
+            try {
+                return TimestampConversionUtil.toDate(arg);
+            } catch (final ParseRuntimeException ex) {
+                try {
+                    return DateConversionUtil.toDate(arg);
+                } catch (final ParseRuntimeException ex2) {
+                    return TimeConversionUtil.toDate(arg);
+                }
+            }
+        } else if (type == Timestamp.class) {
+            return TimestampConversionUtil.toSqlTimestamp(arg);
+        } else if (type == java.sql.Date.class) {
+            return DateConversionUtil.toSqlDate(arg);
+        } else if (type == Time.class) {
+            return TimeConversionUtil.toSqlTime(arg);
+        }
+        return arg;
+    }
+
+    private void prepareStringConverter() {
+        if (stringConverterPrepared) {
+            return;
+        }
+        synchronized (this) {
+            if (!stringConverterPrepared) {
+                setupStringConstructor();
+                setupValueOfMethod();
+                stringConverterPrepared = true;
+            }
+        }
     }
 
     private void setupStringConstructor() {
@@ -163,7 +292,9 @@ public class PropertyDescImpl implements PropertyDesc {
 
     private void setUpParameterizedClassDesc() {
         final Map<TypeVariable<?>, Type> typeVariables =
-            ((BeanDescImpl) beanDesc).getTypeVariables();
+            beanDesc instanceof BeanDescImpl ? ((BeanDescImpl) beanDesc)
+                .getTypeVariables() : Collections
+                .<TypeVariable<?>, Type> emptyMap();
         if (field != null) {
             parameterizedClassDesc =
                 ParameterizedClassDescFactory.createParameterizedClassDesc(
@@ -207,6 +338,7 @@ public class PropertyDescImpl implements PropertyDesc {
      */
     protected final void setReadMethod(final Method readMethod) {
         this.readMethod = readMethod;
+        propertyAccessor = null;
         if (readMethod != null) {
             readable = true;
             readMethod.setAccessible(true);
@@ -231,6 +363,7 @@ public class PropertyDescImpl implements PropertyDesc {
      */
     protected final void setWriteMethod(final Method writeMethod) {
         this.writeMethod = writeMethod;
+        propertyAccessor = null;
         if (writeMethod != null) {
             writable = true;
             writeMethod.setAccessible(true);
@@ -255,6 +388,7 @@ public class PropertyDescImpl implements PropertyDesc {
      */
     public void setField(final Field field) {
         this.field = field;
+        propertyAccessor = null;
         if (field != null && ModifierUtil.isPublic(field)) {
             readable = true;
             writable = true;
@@ -271,6 +405,20 @@ public class PropertyDescImpl implements PropertyDesc {
         return writable;
     }
 
+    @Override
+    public PropertyAccessor getPropertyAccessor() {
+        PropertyAccessor accessor = propertyAccessor;
+        if (accessor == null) {
+            final PropertyAccessorFactory factory =
+                beanDesc instanceof BeanDescImpl ? ((BeanDescImpl) beanDesc)
+                    .getPropertyAccessorFactory()
+                    : REFLECTION_ACCESSOR_FACTORY;
+            accessor = factory.createPropertyAccessor(this);
+            propertyAccessor = accessor;
+        }
+        return accessor;
+    }
+
     @SuppressWarnings("unchecked")
     @Override
     public <T> T getValue(final Object target) {
@@ -278,10 +426,7 @@ public class PropertyDescImpl implements PropertyDesc {
 
         try {
             assertState(readable, propertyName + " is not readable.");
-            if (hasReadMethod()) {
-                return (T) MethodUtil.invoke(readMethod, target, EMPTY_ARGS);
-            }
-            return (T) FieldUtil.get(field, target);
+            return (T) getPropertyAccessor().getValue(target);
         } catch (final Throwable t) {
             throw new IllegalPropertyRuntimeException(
                 beanDesc.getBeanClass(),
@@ -297,12 +442,10 @@ public class PropertyDescImpl implements PropertyDesc {
         try {
             final Object convertedValue = convertIfNeed(value);
             assertState(writable, propertyName + " is not writable.");
+            final PropertyAccessor accessor = getPropertyAccessor();
             if (hasWriteMethod()) {
                 try {
-                    MethodUtil.invoke(
-                        writeMethod,
-                        target,
-                        new Object[] { convertedValue });
+                    accessor.setValue(target, convertedValue);
                 } catch (final Throwable t) {
                     final Class<?> clazz = writeMethod.getDeclaringClass();
                     final Class<?> valueClass =
@@ -328,7 +471,7 @@ public class PropertyDescImpl implements PropertyDesc {
                                 : targetClass.getClassLoader() }).initCause(t);
                 }
             } else {
-                FieldUtil.set(field, target, convertedValue);
+                accessor.setValue(target, convertedValue);
             }
         } catch (final Throwable t) {
             throw new IllegalPropertyRuntimeException(
@@ -338,6 +481,154 @@ public class PropertyDescImpl implements PropertyDesc {
         }
     }
 
+    @Override
+    public int getInt(final Object target) {
+        assertArgumentNotNull("target", target);
+
+        if (propertyType != int.class) {
+            return IntegerConversionUtil.toPrimitiveInt(getValue(target));
+        }
+        try {
+            assertState(readable, propertyName + " is not readable.");
+            return getPropertyAccessor().getInt(target);
+        } catch (final Throwable t) {
+            throw new IllegalPropertyRuntimeException(
+                beanDesc.getBeanClass(),
+                propertyName,
+                t);
+        }
+    }
+
+    @Override
+    public long getLong(final Object target) {
+        assertArgumentNotNull("target", target);
+
+        if (propertyType != long.class) {
+            return LongConversionUtil.toPrimitiveLong(getValue(target));
+        }
+        try {
+            assertState(readable, propertyName + " is not readable.");
+            return getPropertyAccessor().getLong(target);
+        } catch (final Throwable t) {
+            throw new IllegalPropertyRuntimeException(
+                beanDesc.getBeanClass(),
+                propertyName,
+                t);
+        }
+    }
+
+    @Override
+    public double getDouble(final Object target) {
+        assertArgumentNotNull("target", target);
+
+        if (propertyType != double.class) {
+            return DoubleConversionUtil.toPrimitiveDouble(getValue(target));
+        }
+        try {
+            assertState(readable, propertyName + " is not readable.");
+            return getPropertyAccessor().getDouble(target);
+        } catch (final Throwable t) {
+            throw new IllegalPropertyRuntimeException(
+                beanDesc.getBeanClass(),
+                propertyName,
+                t);
+        }
+    }
+
+    @Override
+    public boolean getBoolean(final Object target) {
+        assertArgumentNotNull("target", target);
+
+        if (propertyType != boolean.class) {
+            return BooleanConversionUtil.toPrimitiveBoolean(getValue(target));
+        }
+        try {
+            assertState(readable, propertyName + " is not readable.");
+            return getPropertyAccessor().getBoolean(target);
+        } catch (final Throwable t) {
+            throw new IllegalPropertyRuntimeException(
+                beanDesc.getBeanClass(),
+                propertyName,
+                t);
+        }
+    }
+
+    @Override
+    public void setInt(final Object target, final int value) {
+        assertArgumentNotNull("target", target);
+
+        if (propertyType != int.class) {
+            setValue(target, Integer.valueOf(value));
+            return;
+        }
+        try {
+            assertState(writable, propertyName + " is not writable.");
+            getPropertyAccessor().setInt(target, value);
+        } catch (final Throwable t) {
+            throw new IllegalPropertyRuntimeException(
+                beanDesc.getBeanClass(),
+                propertyName,
+                t);
+        }
+    }
+
+    @Override
+    public void setLong(final Object target, final long value) {
+        assertArgumentNotNull("target", target);
+
+        if (propertyType != long.class) {
+            setValue(target, Long.valueOf(value));
+            return;
+        }
+        try {
+            assertState(writable, propertyName + " is not writable.");
+            getPropertyAccessor().setLong(target, value);
+        } catch (final Throwable t) {
+            throw new IllegalPropertyRuntimeException(
+                beanDesc.getBeanClass(),
+                propertyName,
+                t);
+        }
+    }
+
+    @Override
+    public void setDouble(final Object target, final double value) {
+        assertArgumentNotNull("target", target);
+
+        if (propertyType != double.class) {
+            setValue(target, Double.valueOf(value));
+            return;
+        }
+        try {
+            assertState(writable, propertyName + " is not writable.");
+            getPropertyAccessor().setDouble(target, value);
+        } catch (final Throwable t) {
+            throw new IllegalPropertyRuntimeException(
+                beanDesc.getBeanClass(),
+                propertyName,
+                t);
+        }
+    }
+
+    @Override
+    public void setBoolean(final Object target, final boolean value) {
+        assertArgumentNotNull("target", target);
+
+        if (propertyType != boolean.class) {
+            setValue(target, Boolean.valueOf(value));
+            return;
+        }
+        try {
+            assertState(writable, propertyName + " is not writable.");
+            getPropertyAccessor().setBoolean(target, value);
+        } catch (final Throwable t) {
+            throw new IllegalPropertyRuntimeException(
+                beanDesc.getBeanClass(),
+                propertyName,
+                t);
+        }
+    }
+
     @Override
     public BeanDesc getBeanDesc() {
         return beanDesc;
@@ -361,55 +652,14 @@ public class PropertyDescImpl implements PropertyDesc {
     @SuppressWarnings("unchecked")
     @Override
     public <T> T convertIfNeed(final Object arg) {
-        if (propertyType.isPrimitive()) {
-            return (T) convertPrimitiveWrapper(arg);
-        } else if (Number.class.isAssignableFrom(propertyType)) {
-            return (T) convertNumber(arg);
-        } else if (java.util.Date.class.isAssignableFrom(propertyType)) {
-            return (T) convertDate(arg);
-        } else if (Boolean.class.isAssignableFrom(propertyType)) {
-            return (T) BooleanConversionUtil.toBoolean(arg);
-        } else if (arg != null && arg.getClass() != String.class
-            && String.class == propertyType) {
-            return (T) arg.toString();
-        } else if (arg instanceof String && !String.class.equals(propertyType)) {
-            return (T) convertWithString(arg);
-        } else if (java.util.Calendar.class.isAssignableFrom(propertyType)) {
-            return (T) CalendarConversionUtil.toCalendar(arg);
+        if (arg != null && arg.getClass() == valueClass) {
+            return (T) arg;
         }
-        return (T) arg;
-    }
-
-    private Object convertPrimitiveWrapper(final Object arg) {
-        return NumberConversionUtil.convertPrimitiveWrapper(propertyType, arg);
-    }
-
-    private Object convertNumber(final Object arg) {
-        return NumberConversionUtil.convertNumber(propertyType, arg);
-    }
-
-    private Object convertDate(final Object arg) {
-        if (propertyType == java.util.Date.class) {
-            try {
-                return TimestampConversionUtil.toDate(arg);
-            } catch (ParseRuntimeException ex) {
-                try {
-                    return DateConversionUtil.toDate(arg);
-                } catch (ParseRuntimeException ex2) {
-                    return TimeConversionUtil.toDate(arg);
-                }
-            }
-        } else if (propertyType == Timestamp.class) {
-            return TimestampConversionUtil.toSqlTimestamp(arg);
-        } else if (propertyType == java.sql.Date.class) {
-            return DateConversionUtil.toSqlDate(arg);
-        } else if (propertyType == Time.class) {
-            return TimeConversionUtil.toSqlTime(arg);
-        }
-        return arg;
+        return (T) valueConverter.convert(propertyType, arg);
     }
 
     private Object convertWithString(final Object arg) {
+        prepareStringConverter();
         if (stringConstructor != null) {
             return ConstructorUtil.newInstance(
                 stringConstructor,
@@ -472,4 +722,24 @@ public class PropertyDescImpl implements PropertyDesc {
         return pcd.getRawClass();
     }
 
+    /**
+     * プロパティに設定する値をプロパティの型に変換するストラテジです。
+     * 
+     * @author koichik
+     */
+    private abstract static class ValueConverter {
+
+        /**
+         * 値をプロパティの型に変換します。
+         * 
+         * @param type
+         *            プロパティの型
+         * @param arg
+         *            値
+         * @return 変換された値
+         */
+        public abstract Object convert(Class<?> type, Object arg);
+
+    }
+
 }
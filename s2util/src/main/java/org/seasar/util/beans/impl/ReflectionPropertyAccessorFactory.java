@@ -0,0 +1,183 @@
+/*
+ * Copyright 2004-2012 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.util.beans.impl;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+
+import org.seasar.util.beans.PropertyAccessor;
+import org.seasar.util.beans.PropertyAccessorFactory;
+import org.seasar.util.beans.PropertyDesc;
+import org.seasar.util.lang.FieldUtil;
+import org.seasar.util.lang.MethodUtil;
+import org.seasar.util.lang.ModifierUtil;
+
+import static org.seasar.util.misc.AssertionUtil.*;
+
+/**
+ * リフレクションでプロパティにアクセスする{@link PropertyAccessorFactory}の実装クラスです。
+ * 
+ * @author koichik
+ */
+public class ReflectionPropertyAccessorFactory implements
+        PropertyAccessorFactory {
+
+    @Override
+    public PropertyAccessor createPropertyAccessor(
+            final PropertyDesc propertyDesc) {
+        assertArgumentNotNull("propertyDesc", propertyDesc);
+
+        final Field field = propertyDesc.getField();
+        return new ReflectionPropertyAccessor(
+            propertyDesc.getReadMethod(),
+            propertyDesc.getWriteMethod(),
+            field != null && ModifierUtil.isPublic(field) ? field : null);
+    }
+
+    /**
+     * リフレクションでプロパティにアクセスする{@link PropertyAccessor}です。
+     * <p>
+     * getter/setterメソッドの呼び出しでは値をボクシングしますが、
+     * フィールドへのアクセスではプリミティブ型用のメソッドがボクシングせずに値を読み書きします。
+     * </p>
+     * 
+     * @author koichik
+     */
+    public static class ReflectionPropertyAccessor extends
+            AbstractPropertyAccessor {
+
+        /** 空のオブジェクト配列 */
+        protected static final Object[] EMPTY_ARGS = new Object[0];
+
+        /** getterメソッド */
+        protected final Method readMethod;
+
+        /** setterメソッド */
+        protected final Method writeMethod;
+
+        /** プロパティとして認識しているpublicフィールド */
+        protected final Field field;
+
+        /**
+         * インスタンスを構築します。
+         * 
+         * @param readMethod
+         *            getterメソッド
+         * @param writeMethod
+         *            setterメソッド
+         * @param field
+         *            プロパティとして認識しているpublicフィールド
+         */
+        public ReflectionPropertyAccessor(final Method readMethod,
+                final Method writeMethod, final Field field) {
+            this.readMethod = readMethod;
+            this.writeMethod = writeMethod;
+            this.field = field;
+        }
+
+        @Override
+        public Object getValue(final Object target) {
+            if (readMethod != null) {
+                return MethodUtil.invoke(readMethod, target, EMPTY_ARGS);
+            }
+            if (field != null) {
+                return FieldUtil.get(field, target);
+            }
+            throw new UnsupportedOperationException("getValue");
+        }
+
+        @Override
+        public void setValue(final Object target, final Object value) {
+            if (writeMethod != null) {
+                MethodUtil.invoke(writeMethod, target, new Object[] { value });
+            } else if (field != null) {
+                FieldUtil.set(field, target, value);
+            } else {
+                throw new UnsupportedOperationException("setValue");
+            }
+        }
+
+        @Override
+        public int getInt(final Object target) {
+            if (readMethod == null && field != null) {
+                return FieldUtil.getInt(field, target);
+            }
+            return super.getInt(target);
+        }
+
+        @Override
+        public long getLong(final Object target) {
+            if (readMethod == null && field != null) {
+                return FieldUtil.getLong(field, target);
+            }
+            return super.getLong(target);
+        }
+
+        @Override
+        public double getDouble(final Object target) {
+            if (readMethod == null && field != null) {
+                return FieldUtil.getDouble(field, target);
+            }
+            return super.getDouble(target);
+        }
+
+        @Override
+        public boolean getBoolean(final Object target) {
+            if (readMethod == null && field != null) {
+                return FieldUtil.getBoolean(field, target);
+            }
+            return super.getBoolean(target);
+        }
+
+        @Override
+        public void setInt(final Object target, final int value) {
+            if (writeMethod == null && field != null) {
+                FieldUtil.setInt(field, target, value);
+            } else {
+                super.setInt(target, value);
+            }
+        }
+
+        @Override
+        public void setLong(final Object target, final long value) {
+            if (writeMethod == null && field != null) {
+                FieldUtil.setLong(field, target, value);
+            } else {
+                super.setLong(target, value);
+            }
+        }
+
+        @Override
+        public void setDouble(final Object target, final double value) {
+            if (writeMethod == null && field != null) {
+                FieldUtil.setDouble(field, target, value);
+            } else {
+                super.setDouble(target, value);
+            }
+        }
+
+        @Override
+        public void setBoolean(final Object target, final boolean value) {
+            if (writeMethod == null && field != null) {
+                FieldUtil.setBoolean(field, target, value);
+            } else {
+                super.setBoolean(target, value);
+            }
+        }
+
+    }
+
+}
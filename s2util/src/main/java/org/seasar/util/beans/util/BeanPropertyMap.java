@@ -0,0 +1,362 @@
+/*
+ * Copyright 2004-2012 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.util.beans.util;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import org.seasar.util.beans.BeanDesc;
+import org.seasar.util.beans.PropertyDesc;
+import org.seasar.util.beans.factory.BeanDescFactory;
+import org.seasar.util.exception.IllegalKeyOfBeanMapException;
+
+import static org.seasar.util.misc.AssertionUtil.*;
+
+/**
+ * Beanのプロパティを{@link Map}として参照するビューです。
+ * <p>
+ * {@link BeanUtil#copyBeanToNewMap(Object)}と異なり、プロパティの値をコピーしません。
+ * キーはBeanの{@link BeanDesc}が持つ読み出し可能なプロパティの名前で、
+ * {@link #get(Object)}はその都度プロパティの値を読み出し、 {@link #put(String, Object)}はプロパティに値を書き込みます。
+ * キーの集合はインスタンスごとに作成せず、{@link BeanDesc}のプロパティを直接参照します。
+ * 書き込みのみ可能なプロパティはキーに含まれないため、 {@link #put(String, Object)}でも使用できません。
+ * </p>
+ * <p>
+ * {@link BeanMap}と同様に、存在しないキーで{@link #get(Object)}や{@link #put(String, Object)}を呼び出すと例外をスローします。
+ * プロパティを削除することはできません。
+ * </p>
+ * 
+ * <pre>
+ * Map&lt;String, Object&gt; map = new BeanPropertyMap(bean);
+ * String name = (String) map.get(&quot;name&quot;);
+ * map.put(&quot;name&quot;, &quot;hoge&quot;); // bean.setName(&quot;hoge&quot;)と同じ
+ * </pre>
+ * 
+ * @author koichik
+ */
+public class BeanPropertyMap extends AbstractMap<String, Object> {
+
+    /** 対象のBean */
+    protected final Object bean;
+
+    /** 対象のBeanの{@link BeanDesc} */
+    protected final BeanDesc beanDesc;
+
+    /** 読み出し可能なプロパティの数 */
+    protected final int size;
+
+    /** エントリの集合 */
+    protected final Set<Map.Entry<String, Object>> entrySet = new EntrySet();
+
+    /**
+     * インスタンスを構築します。
+     * 
+     * @param bean
+     *            対象のBean。{@literal null}であってはいけません
+     */
+    public BeanPropertyMap(final Object bean) {
+        this(bean, getBeanDesc(bean));
+    }
+
+    /**
+     * インスタンスを構築します。
+     * 
+     * @param bean
+     *            対象のBean。{@literal null}であってはいけません
+     * @param beanDesc
+     *            対象のBeanの{@link BeanDesc}。{@literal null}であってはいけません
+     */
+    public BeanPropertyMap(final Object bean, final BeanDesc beanDesc) {
+        assertArgumentNotNull("bean", bean);
+        assertArgumentNotNull("beanDesc", beanDesc);
+        assertArgument(
+            "bean",
+            beanDesc.getBeanClass().isInstance(bean),
+            "bean is not an instance of " + beanDesc.getBeanClass().getName());
+
+        this.bean = bean;
+        this.beanDesc = beanDesc;
+        size = countReadableProperties(beanDesc);
+    }
+
+    private static BeanDesc getBeanDesc(final Object bean) {
+        assertArgumentNotNull("bean", bean);
+        return BeanDescFactory.getBeanDesc(bean.getClass());
+    }
+
+    private static int countReadableProperties(final BeanDesc beanDesc) {
+        int size = 0;
+        for (int i = 0; i < beanDesc.getPropertyDescSize(); ++i) {
+            if (beanDesc.getPropertyDesc(i).isReadable()) {
+                ++size;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * 対象のBeanを返します。
+     * 
+     * @return 対象のBean
+     */
+    public Object getBean() {
+        return bean;
+    }
+
+    /**
+     * 対象のBeanの{@link BeanDesc}を返します。
+     * 
+     * @return 対象のBeanの{@link BeanDesc}
+     */
+    public BeanDesc getBeanDesc() {
+        return beanDesc;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean containsKey(final Object key) {
+        return getReadablePropertyDesc(key) != null;
+    }
+
+    @Override
+    public Object get(final Object key) {
+        final PropertyDesc propertyDesc = getReadablePropertyDesc(key);
+        if (propertyDesc == null) {
+            throw new IllegalKeyOfBeanMapException(key, this);
+        }
+        return propertyDesc.getValue(bean);
+    }
+
+    @Override
+    public Object put(final String key, final Object value) {
+        final PropertyDesc propertyDesc = getReadablePropertyDesc(key);
+        if (propertyDesc == null || !propertyDesc.isWritable()) {
+            throw new IllegalKeyOfBeanMapException(key, this);
+        }
+        final Object oldValue = propertyDesc.getValue(bean);
+        propertyDesc.setValue(bean, value);
+        return oldValue;
+    }
+
+    @Override
+    public Object remove(final Object key) {
+        throw new UnsupportedOperationException("remove");
+    }
+
+    @Override
+    public void clear() {
+        throw new UnsupportedOperationException("clear");
+    }
+
+    @Override
+    public Set<Map.Entry<String, Object>> entrySet() {
+        return entrySet;
+    }
+
+    /**
+     * キーと名前が一致する読み出し可能なプロパティの{@link PropertyDesc}を返します。
+     * 
+     * @param key
+     *            キー
+     * @return 読み出し可能なプロパティの{@link PropertyDesc}。存在しない場合は{@literal null}
+     */
+    protected PropertyDesc getReadablePropertyDesc(final Object key) {
+        final PropertyDesc propertyDesc = getPropertyDesc(key);
+        if (propertyDesc == null || !propertyDesc.isReadable()) {
+            return null;
+        }
+        return propertyDesc;
+    }
+
+    /**
+     * キーと名前が一致するプロパティの{@link PropertyDesc}を返します。
+     * <p>
+     * {@link BeanDesc}はプロパティ名の大文字小文字を区別しませんが、 このマップのキーは大文字小文字を区別します。
+     * </p>
+     * 
+     * @param key
+     *            キー
+     * @return プロパティの{@link PropertyDesc}。存在しない場合は{@literal null}
+     */
+    protected PropertyDesc getPropertyDesc(final Object key) {
+        if (!(key instanceof String)) {
+            return null;
+        }
+        final String propertyName = (String) key;
+        if (!beanDesc.hasPropertyDesc(propertyName)) {
+            return null;
+        }
+        final PropertyDesc propertyDesc =
+            beanDesc.getPropertyDesc(propertyName);
+        if (!propertyDesc.getPropertyName().equals(propertyName)) {
+            return null;
+        }
+        return propertyDesc;
+    }
+
+    /**
+     * Beanのプロパティをエントリとする集合です。
+     * 
+     * @author koichik
+     */
+    protected class EntrySet extends AbstractSet<Map.Entry<String, Object>> {
+
+        @Override
+        public int size() {
+            return BeanPropertyMap.this.size();
+        }
+
+        @Override
+        public boolean contains(final Object o) {
+            if (!(o instanceof Map.Entry)) {
+                return false;
+            }
+            final Map.Entry<?, ?> entry = (Map.Entry<?, ?>) o;
+            final PropertyDesc propertyDesc =
+                getReadablePropertyDesc(entry.getKey());
+            if (propertyDesc == null) {
+                return false;
+            }
+            final Object value = propertyDesc.getValue(bean);
+            return value == null ? entry.getValue() == null : value
+                .equals(entry.getValue());
+        }
+
+        @Override
+        public Iterator<Map.Entry<String, Object>> iterator() {
+            return new EntryIterator();
+        }
+
+    }
+
+    /**
+     * Beanのプロパティをエントリとして返す{@link Iterator}です。
+     * 
+     * @author koichik
+     */
+    protected class EntryIterator implements Iterator<Map.Entry<String, Object>> {
+
+        /** 次に返すプロパティのインデックス */
+        protected int index = nextReadableIndex(0);
+
+        @Override
+        public boolean hasNext() {
+            return index < beanDesc.getPropertyDescSize();
+        }
+
+        @Override
+        public Map.Entry<String, Object> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            final PropertyDesc propertyDesc = beanDesc.getPropertyDesc(index);
+            index = nextReadableIndex(index + 1);
+            return new PropertyEntry(propertyDesc);
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException("remove");
+        }
+
+        private int nextReadableIndex(final int from) {
+            int i = from;
+            while (i < beanDesc.getPropertyDescSize()
+                && !beanDesc.getPropertyDesc(i).isReadable()) {
+                ++i;
+            }
+            return i;
+        }
+
+    }
+
+    /**
+     * Beanのプロパティを表すエントリです。
+     * <p>
+     * 値はアクセスするたびにプロパティから読み出します。
+     * </p>
+     * 
+     * @author koichik
+     */
+    protected class PropertyEntry implements Map.Entry<String, Object> {
+
+        /** プロパティの{@link PropertyDesc} */
+        protected final PropertyDesc propertyDesc;
+
+        /**
+         * インスタンスを構築します。
+         * 
+         * @param propertyDesc
+         *            プロパティの{@link PropertyDesc}
+         */
+        public PropertyEntry(final PropertyDesc propertyDesc) {
+            this.propertyDesc = propertyDesc;
+        }
+
+        @Override
+        public String getKey() {
+            return propertyDesc.getPropertyName();
+        }
+
+        @Override
+        public Object getValue() {
+            return propertyDesc.getValue(bean);
+        }
+
+        @Override
+        public Object setValue(final Object value) {
+            if (!propertyDesc.isWritable()) {
+                throw new UnsupportedOperationException("setValue");
+            }
+            final Object oldValue = propertyDesc.getValue(bean);
+            propertyDesc.setValue(bean, value);
+            return oldValue;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (!(o instanceof Map.Entry)) {
+                return false;
+            }
+            final Map.Entry<?, ?> e = (Map.Entry<?, ?>) o;
+            final Object value = getValue();
+            return getKey().equals(e.getKey())
+                && (value == null ? e.getValue() == null : value.equals(e
+                    .getValue()));
+        }
+
+        @Override
+        public int hashCode() {
+            final Object value = getValue();
+            return getKey().hashCode() ^ (value == null ? 0 : value.hashCode());
+        }
+
+        @Override
+        public String toString() {
+            return getKey() + "=" + getValue();
+        }
+
+    }
+
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright 2004-2012 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.util.beans.util;
+
+import java.util.BitSet;
+
+import org.seasar.util.beans.BeanDesc;
+import org.seasar.util.beans.PropertyDesc;
+import org.seasar.util.beans.factory.BeanDescFactory;
+
+import static org.seasar.util.misc.AssertionUtil.*;
+
+/**
+ * Beanのプロパティの値のスナップショットです。
+ * <p>
+ * 読み出し可能なプロパティの値を{@link BeanDesc#getPropertyDesc(int)}のインデックス順に配列で保持します。
+ * {@link #diff(Object)}で変更後のBeanと比較し、値の異なるプロパティのインデックスを{@link BitSet}で求めることができます。
+ * </p>
+ * <p>
+ * プロパティの値はコピーせずに参照を保持します。 プロパティの値であるオブジェクトの内部の変更は検出できません。
+ * </p>
+ * 
+ * <pre>
+ * BeanSnapshot snapshot = BeanUtil.snapshot(bean);
+ * ...
+ * BitSet changed = snapshot.diff(bean);
+ * for (int i = changed.nextSetBit(0); i &gt;= 0; i = changed.nextSetBit(i + 1)) {
+ *     PropertyDesc propertyDesc = snapshot.getBeanDesc().getPropertyDesc(i);
+ *     ...
+ * }
+ * </pre>
+ * 
+ * @author koichik
+ * @see BeanUtil#snapshot(Object)
+ */
+public class BeanSnapshot {
+
+    /** Beanの{@link BeanDesc} */
+    protected final BeanDesc beanDesc;
+
+    /** プロパティの値の配列 */
+    protected final Object[] values;
+
+    /**
+     * インスタンスを構築します。
+     * 
+     * @param bean
+     *            Bean。{@literal null}であってはいけません
+     */
+    public BeanSnapshot(final Object bean) {
+        assertArgumentNotNull("bean", bean);
+
+        beanDesc = BeanDescFactory.getBeanDesc(bean.getClass());
+        final int size = beanDesc.getPropertyDescSize();
+        values = new Object[size];
+        for (int i = 0; i < size; ++i) {
+            final PropertyDesc propertyDesc = beanDesc.getPropertyDesc(i);
+            if (propertyDesc.isReadable()) {
+                values[i] = propertyDesc.getValue(bean);
+            }
+        }
+    }
+
+    /**
+     * Beanの{@link BeanDesc}を返します。
+     * 
+     * @return Beanの{@link BeanDesc}
+     */
+    public BeanDesc getBeanDesc() {
+        return beanDesc;
+    }
+
+    /**
+     * スナップショットを作成した時点のプロパティの値を返します。
+     * 
+     * @param index
+     *            プロパティのインデックス
+     * @return スナップショットを作成した時点のプロパティの値。 読み出しできないプロパティの場合は{@literal null}
+     */
+    public Object getValue(final int index) {
+        assertArgumentArrayIndex("index", index, values.length);
+
+        return values[index];
+    }
+
+    /**
+     * スナップショットとBeanを比較し、値の異なるプロパティのインデックスを返します。
+     * 
+     * @param bean
+     *            比較するBean。{@literal null}であってはいけません。スナップショットを作成したBeanと同じクラスでなければなりません
+     * @return 値の異なるプロパティのインデックスのビットを立てた{@link BitSet}
+     */
+    public BitSet diff(final Object bean) {
+        return diff(bean, false);
+    }
+
+    /**
+     * スナップショットとBeanを比較し、値の異なるプロパティのインデックスを返します。
+     * <p>
+     * {@code identity}が{@literal true}の場合、{@link String}やラッパー型、列挙型などの不変な型のプロパティは
+     * {@link Object#equals(Object)}ではなく同一性 ({@literal ==}) で比較します。
+     * </p>
+     * 
+     * @param bean
+     *            比較するBean。{@literal null}であってはいけません。スナップショットを作成したBeanと同じクラスでなければなりません
+     * @param identity
+     *            不変な型のプロパティを同一性で比較する場合は{@literal true}
+     * @return 値の異なるプロパティのインデックスのビットを立てた{@link BitSet}
+     * @see BeanUtil#diff(Object, Object, boolean)
+     */
+    public BitSet diff(final Object bean, final boolean identity) {
+        assertArgumentNotNull("bean", bean);
+        assertArgument(
+            "bean",
+            bean.getClass() == beanDesc.getBeanClass(),
+            bean.getClass().getName());
+
+        final BitSet changed = new BitSet(values.length);
+        for (int i = 0; i < values.length; ++i) {
+            final PropertyDesc propertyDesc = beanDesc.getPropertyDesc(i);
+            if (!propertyDesc.isReadable()) {
+                continue;
+            }
+            // プリミティブ型の値はボクシングされているため常にequals()で比較する
+            if (!BeanUtil.isEqual(
+                values[i],
+                propertyDesc.getValue(bean),
+                identity && !propertyDesc.getPropertyType().isPrimitive())) {
+                changed.set(i);
+            }
+        }
+        return changed;
+    }
+
+}
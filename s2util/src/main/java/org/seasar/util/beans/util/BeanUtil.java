@@ -15,13 +15,29 @@
  */
 package org.seasar.util.beans.util;
 
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.seasar.util.beans.BeanDesc;
+import org.seasar.util.beans.ConstructorDesc;
 import org.seasar.util.beans.PropertyDesc;
 import org.seasar.util.beans.factory.BeanDescFactory;
+import org.seasar.util.exception.SIllegalStateException;
 import org.seasar.util.lang.ClassUtil;
+import org.seasar.util.misc.Disposable;
+import org.seasar.util.misc.DisposableUtil;
 
 import static org.seasar.util.collection.CollectionsUtil.*;
 import static org.seasar.util.misc.AssertionUtil.*;
@@ -70,6 +86,24 @@ import static org.seasar.util.misc.AssertionUtil.*;
  * <pre>
  * copyBeanToBean(srcBean, destBean, excludeNull().dateConverter("date", "MM/dd"));
  * </pre>
+ * <p>
+ * Beanのリストを新しいBeanのリストにまとめてコピーすることも出来ます。 大きなリストは複数のスレッドで並行してコピーできます。
+ * </p>
+ * 
+ * <pre>
+ * List&lt;DestBean&gt; destBeans = copyAll(srcBeans, DestBean.class, excludeNull());
+ * List&lt;DestBean&gt; destBeans = copyAllParallel(srcBeans, DestBean.class, excludeNull());
+ * </pre>
+ * <p>
+ * 同じクラスの二つのBeanやBeanとそのスナップショットを比較して、値の異なるプロパティのインデックスを求めることも出来ます。
+ * </p>
+ * 
+ * <pre>
+ * BitSet changed = diff(oldBean, newBean);
+ * BeanSnapshot snapshot = snapshot(bean);
+ * ...
+ * BitSet changed = snapshot.diff(bean);
+ * </pre>
  * 
  * @author Kimura Satoshi
  * @author higa
@@ -79,7 +113,29 @@ import static org.seasar.util.misc.AssertionUtil.*;
 public abstract class BeanUtil {
 
     /** デフォルトのオプション */
-    protected static final CopyOptions DEFAULT_OPTIONS = new CopyOptions();
+    protected static final CopyOptions DEFAULT_OPTIONS =
+        new CopyOptions().freeze();
+
+    /** 並行してコピーする場合に一つのスレッドが処理する要素数の下限 */
+    protected static final int MIN_CHUNK_SIZE = 1024;
+
+    /** 並行してコピーする場合にスレッドあたりに分割する数 */
+    protected static final int CHUNKS_PER_THREAD = 4;
+
+    /** 並行してコピーするスレッドの数 */
+    protected static final int PARALLELISM =
+        Runtime.getRuntime().availableProcessors();
+
+    /** 並行してコピーする{@link ExecutorService} */
+    private static ExecutorService copyExecutor;
+
+    /** 現在のスレッドが並行コピーの範囲をコピー中であることを示すフラグ */
+    private static final ThreadLocal<Boolean> copyingChunk =
+        new ThreadLocal<Boolean>();
+
+    /** {@link #diff(Object, Object, boolean)}で同一性で比較できる不変な型のセット */
+    protected static final Set<Class<?>> IMMUTABLE_TYPES =
+        newHashSet(Arrays.asList(DeepCopier.IMMUTABLE_CLASSES));
 
     /**
      * BeanからBeanにコピーを行います。
@@ -95,6 +151,10 @@ public abstract class BeanUtil {
 
     /**
      * BeanからBeanにコピーを行います。
+     * <p>
+     * コピーの手順はコピー元とコピー先のクラスとオプションの組み合わせごとに{@link CopyPlan}として組み立てられます。
+     * オプションが{@link CopyOptions#freeze()}などで設定を変更できなくなっている場合は{@link CopyPlan}がキャッシュされます。
+     * </p>
      * 
      * @param src
      *            コピー元のBean。{@literal null}であってはいけません
@@ -110,37 +170,9 @@ public abstract class BeanUtil {
         assertArgumentNotNull("dest", dest);
         assertArgumentNotNull("option", options);
 
-        final BeanDesc srcBeanDesc =
-            BeanDescFactory.getBeanDesc(src.getClass());
-        final BeanDesc destBeanDesc =
-            BeanDescFactory.getBeanDesc(dest.getClass());
-        for (final PropertyDesc srcPropertyDesc : srcBeanDesc
-            .getPropertyDescs()) {
-            final String srcPropertyName = srcPropertyDesc.getPropertyName();
-            if (!srcPropertyDesc.isReadable()
-                || !options.isTargetProperty(srcPropertyName)) {
-                continue;
-            }
-            final String destPropertyName = options.trimPrefix(srcPropertyName);
-            if (!destBeanDesc.hasPropertyDesc(destPropertyName)) {
-                continue;
-            }
-            final PropertyDesc destPropertyDesc =
-                destBeanDesc.getPropertyDesc(destPropertyName);
-            if (!destPropertyDesc.isWritable()) {
-                continue;
-            }
-            final Object value = srcPropertyDesc.getValue(src);
-            if (!options.isTargetValue(value)) {
-                continue;
-            }
-            final Object convertedValue =
-                options.convertValue(
-                    value,
-                    destPropertyName,
-                    destPropertyDesc.getPropertyType());
-            destPropertyDesc.setValue(dest, convertedValue);
-        }
+        CopyPlan
+            .getCopyPlan(src.getClass(), dest.getClass(), options)
+            .copy(src, dest, options);
     }
 
     /**
@@ -175,13 +207,16 @@ public abstract class BeanUtil {
 
         final BeanDesc srcBeanDesc =
             BeanDescFactory.getBeanDesc(src.getClass());
-        for (final PropertyDesc srcPropertyDesc : srcBeanDesc
-            .getPropertyDescs()) {
-            final String srcPropertyName = srcPropertyDesc.getPropertyName();
-            if (!srcPropertyDesc.isReadable()
-                || !options.isTargetProperty(srcPropertyName)) {
+        final BitSet targetProperties =
+            options.getTargetProperties(srcBeanDesc);
+        for (int i = targetProperties.nextSetBit(0); i >= 0; i =
+            targetProperties.nextSetBit(i + 1)) {
+            final PropertyDesc srcPropertyDesc =
+                srcBeanDesc.getPropertyDesc(i);
+            if (!srcPropertyDesc.isReadable()) {
                 continue;
             }
+            final String srcPropertyName = srcPropertyDesc.getPropertyName();
             final Object value = srcPropertyDesc.getValue(src);
             if (!options.isTargetValue(value)) {
                 continue;
@@ -414,6 +449,158 @@ public abstract class BeanUtil {
         return dest;
     }
 
+    /**
+     * Beanのプロパティを参照する{@link Map}のビューを返します。
+     * <p>
+     * {@link #copyBeanToNewMap(Object)}と異なり、プロパティの値はコピーされません。
+     * マップからの読み出しはBeanのプロパティから直接行われ、マップへの書き込みはBeanのプロパティに反映されます。
+     * </p>
+     * 
+     * @param bean
+     *            Bean。{@literal null}であってはいけません
+     * @return Beanのプロパティを参照する{@link Map}
+     * @see BeanPropertyMap
+     */
+    public static Map<String, Object> asMap(final Object bean) {
+        assertArgumentNotNull("bean", bean);
+
+        return new BeanPropertyMap(bean);
+    }
+
+    /**
+     * 同じクラスの二つのBeanを比較し、値の異なるプロパティのインデックスを返します。
+     * <p>
+     * 読み出し可能なプロパティを{@link BeanDesc#getPropertyDesc(int)}のインデックス順に比較し、
+     * 値の異なるプロパティのインデックスに対応するビットを立てた{@link BitSet}を返します。
+     * プリミティブ型のプロパティはボクシングせずに比較し、それ以外のプロパティは{@link Object#equals(Object)}で比較します。
+     * </p>
+     * 
+     * @param a
+     *            比較するBean。{@literal null}であってはいけません
+     * @param b
+     *            比較するBean。{@literal null}であってはいけません。{@code a}と同じクラスでなければなりません
+     * @return 値の異なるプロパティのインデックスのビットを立てた{@link BitSet}
+     * @see BeanDesc#getPropertyDesc(int)
+     */
+    public static BitSet diff(final Object a, final Object b) {
+        return diff(a, b, false);
+    }
+
+    /**
+     * 同じクラスの二つのBeanを比較し、値の異なるプロパティのインデックスを返します。
+     * <p>
+     * {@code identity}が{@literal true}の場合、{@link String}やラッパー型、列挙型などの不変な型のプロパティは
+     * {@link Object#equals(Object)}ではなく同一性 ({@literal ==}) で比較します。
+     * 同じ値を持つ別のインスタンスも変更されたものとみなされますが、大量のBeanを安価に比較できます。
+     * </p>
+     * 
+     * @param a
+     *            比較するBean。{@literal null}であってはいけません
+     * @param b
+     *            比較するBean。{@literal null}であってはいけません。{@code a}と同じクラスでなければなりません
+     * @param identity
+     *            不変な型のプロパティを同一性で比較する場合は{@literal true}
+     * @return 値の異なるプロパティのインデックスのビットを立てた{@link BitSet}
+     * @see BeanDesc#getPropertyDesc(int)
+     */
+    public static BitSet diff(final Object a, final Object b,
+            final boolean identity) {
+        assertArgumentNotNull("a", a);
+        assertArgumentNotNull("b", b);
+        assertArgument(
+            "b",
+            a.getClass() == b.getClass(),
+            a.getClass().getName());
+
+        final BeanDesc beanDesc = BeanDescFactory.getBeanDesc(a.getClass());
+        final int size = beanDesc.getPropertyDescSize();
+        final BitSet changed = new BitSet(size);
+        for (int i = 0; i < size; ++i) {
+            final PropertyDesc propertyDesc = beanDesc.getPropertyDesc(i);
+            if (!propertyDesc.isReadable()) {
+                continue;
+            }
+            final Class<?> propertyType = propertyDesc.getPropertyType();
+            final boolean equal;
+            if (propertyType == int.class) {
+                equal = propertyDesc.getInt(a) == propertyDesc.getInt(b);
+            } else if (propertyType == long.class) {
+                equal = propertyDesc.getLong(a) == propertyDesc.getLong(b);
+            } else if (propertyType == double.class) {
+                equal =
+                    Double.doubleToLongBits(propertyDesc.getDouble(a)) == Double
+                        .doubleToLongBits(propertyDesc.getDouble(b));
+            } else if (propertyType == boolean.class) {
+                equal =
+                    propertyDesc.getBoolean(a) == propertyDesc.getBoolean(b);
+            } else {
+                equal =
+                    isEqual(
+                        propertyDesc.getValue(a),
+                        propertyDesc.getValue(b),
+                        identity);
+            }
+            if (!equal) {
+                changed.set(i);
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Beanのプロパティの値のスナップショットを作成します。
+     * <p>
+     * 作成したスナップショットと変更後のBeanを{@link BeanSnapshot#diff(Object)}で比較することで、
+     * 変更されたプロパティのインデックスを求めることができます。
+     * </p>
+     * 
+     * @param bean
+     *            Bean。{@literal null}であってはいけません
+     * @return Beanのプロパティの値のスナップショット
+     * @see BeanSnapshot
+     */
+    public static BeanSnapshot snapshot(final Object bean) {
+        assertArgumentNotNull("bean", bean);
+
+        return new BeanSnapshot(bean);
+    }
+
+    /**
+     * 二つのプロパティの値が等しければ{@literal true}を返します。
+     * 
+     * @param a
+     *            プロパティの値
+     * @param b
+     *            プロパティの値
+     * @param identity
+     *            不変な型の値を同一性で比較する場合は{@literal true}
+     * @return 二つのプロパティの値が等しければ{@literal true}
+     */
+    protected static boolean isEqual(final Object a, final Object b,
+            final boolean identity) {
+        if (a == b) {
+            return true;
+        }
+        if (a == null || b == null) {
+            return false;
+        }
+        if (identity && isImmutable(a.getClass())) {
+            return false;
+        }
+        return a.equals(b);
+    }
+
+    /**
+     * 同一性で比較できる不変な型であれば{@literal true}を返します。
+     * 
+     * @param clazz
+     *            値のクラス
+     * @return 同一性で比較できる不変な型であれば{@literal true}
+     */
+    protected static boolean isImmutable(final Class<?> clazz) {
+        return IMMUTABLE_TYPES.contains(clazz) || clazz.isEnum();
+    }
+
     /**
      * コピー元のBeanを新しい{@literal Map}のインスタンスにコピーして返します。
      * 
@@ -531,4 +718,311 @@ public abstract class BeanUtil {
         return dest;
     }
 
+    /**
+     * コピー元のBeanのリストを新しいBeanのリストにコピーして返します。
+     * 
+     * @param <T>
+     *            コピー先となるBeanの型
+     * @param src
+     *            コピー元のBeanのリスト。{@literal null}であってはいけません
+     * @param destClass
+     *            コピー先となるBeanの型。{@literal null}であってはいけません
+     * @return コピーされた新しいBeanのリスト
+     * @see #copyAll(List, Class, CopyOptions)
+     */
+    public static <T> List<T> copyAll(final List<?> src,
+            final Class<T> destClass) {
+        return copyAll(src, destClass, DEFAULT_OPTIONS);
+    }
+
+    /**
+     * コピー元のBeanのリストを新しいBeanのリストにコピーして返します。
+     * <p>
+     * コピー先のクラスのデフォルトコンストラクタとコピーの手順は一度だけ求められ、 すべての要素で使い回されます。
+     * 返されるリストの要素の順序はコピー元のリストと同じです。 コピー元の要素が{@literal null}の場合、
+     * 対応するコピー先の要素も{@literal null}になります。
+     * </p>
+     * 
+     * @param <T>
+     *            コピー先となるBeanの型
+     * @param src
+     *            コピー元のBeanのリスト。{@literal null}であってはいけません
+     * @param destClass
+     *            コピー先となるBeanの型。{@literal null}であってはいけません
+     * @param options
+     *            コピーのオプション。{@literal null}であってはいけません
+     * @return コピーされた新しいBeanのリスト
+     * @see CopyOptionsUtil
+     */
+    public static <T> List<T> copyAll(final List<?> src,
+            final Class<T> destClass, final CopyOptions options) {
+        assertArgumentNotNull("src", src);
+        assertArgumentNotNull("destClass", destClass);
+        assertArgumentNotNull("options", options);
+
+        final BulkCopier<T> copier = new BulkCopier<T>(destClass, options);
+        final List<T> dest = newArrayList(src.size());
+        for (final Object element : src) {
+            dest.add(copier.copy(element));
+        }
+        return dest;
+    }
+
+    /**
+     * コピー元のBeanのリストを複数のスレッドで並行して新しいBeanのリストにコピーして返します。
+     * 
+     * @param <T>
+     *            コピー先となるBeanの型
+     * @param src
+     *            コピー元のBeanのリスト。{@literal null}であってはいけません
+     * @param destClass
+     *            コピー先となるBeanの型。{@literal null}であってはいけません
+     * @param options
+     *            コピーのオプション。{@literal null}であってはいけません
+     * @return コピーされた新しいBeanのリスト
+     * @see #copyAllParallel(List, Class, CopyOptions, ExecutorService)
+     */
+    public static <T> List<T> copyAllParallel(final List<?> src,
+            final Class<T> destClass, final CopyOptions options) {
+        return copyAllParallel(src, destClass, options, getCopyExecutor());
+    }
+
+    /**
+     * コピー元のBeanのリストを複数のスレッドで並行して新しいBeanのリストにコピーして返します。
+     * <p>
+     * コピー元のリストは連続した範囲に分割され、 それぞれの範囲が{@link ExecutorService}で並行してコピーされます。
+     * 分割した範囲が{@link #MIN_CHUNK_SIZE}件に満たない場合や、
+     * 並行コピーの範囲をコピーしているスレッドから呼び出された場合は、 呼び出したスレッドでコピーします。
+     * 後者は{@link ExecutorService}のスレッドが入れ子のコピーの終了を待ち合ってデッドロックすることを避けるためです。
+     * いずれかの範囲のコピーが失敗した場合は、 残りの範囲のコピーを取り消して例外をスローします。
+     * 返されるリストの要素の順序はコピー元のリストと同じです。
+     * </p>
+     * 
+     * @param <T>
+     *            コピー先となるBeanの型
+     * @param src
+     *            コピー元のBeanのリスト。{@literal null}であってはいけません
+     * @param destClass
+     *            コピー先となるBeanの型。{@literal null}であってはいけません
+     * @param options
+     *            コピーのオプション。{@literal null}であってはいけません
+     * @param executor
+     *            コピーを行う{@link ExecutorService}。{@literal null}であってはいけません
+     * @return コピーされた新しいBeanのリスト
+     * @see CopyOptionsUtil
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> List<T> copyAllParallel(final List<?> src,
+            final Class<T> destClass, final CopyOptions options,
+            final ExecutorService executor) {
+        assertArgumentNotNull("src", src);
+        assertArgumentNotNull("destClass", destClass);
+        assertArgumentNotNull("options", options);
+        assertArgumentNotNull("executor", executor);
+
+        final int size = src.size();
+        final int chunks = PARALLELISM * CHUNKS_PER_THREAD;
+        final int chunkSize =
+            Math.max(MIN_CHUNK_SIZE, (size + chunks - 1) / chunks);
+        if (size <= chunkSize || copyingChunk.get() != null) {
+            return copyAll(src, destClass, options);
+        }
+
+        final List<?> source =
+            src instanceof RandomAccess ? src : Arrays.asList(src.toArray());
+        final Object[] dest = new Object[size];
+        final List<Future<?>> futures = newArrayList();
+        for (int start = chunkSize; start < size; start += chunkSize) {
+            final int from = start;
+            final int to = Math.min(start + chunkSize, size);
+            futures.add(executor.submit(new Callable<Object>() {
+                @Override
+                public Object call() {
+                    copyingChunk.set(Boolean.TRUE);
+                    try {
+                        new BulkCopier<T>(destClass, options).copy(
+                            source,
+                            dest,
+                            from,
+                            to);
+                    } finally {
+                        copyingChunk.remove();
+                    }
+                    return null;
+                }
+            }));
+        }
+        boolean completed = false;
+        try {
+            new BulkCopier<T>(destClass, options).copy(
+                source,
+                dest,
+                0,
+                chunkSize);
+            for (final Future<?> future : futures) {
+                await(future);
+            }
+            completed = true;
+        } finally {
+            if (!completed) {
+                for (final Future<?> future : futures) {
+                    future.cancel(true);
+                }
+            }
+        }
+        return (List<T>) (List<?>) newArrayList(Arrays.asList(dest));
+    }
+
+    /**
+     * 並行してコピーする{@link ExecutorService}を返します。
+     * <p>
+     * {@link ExecutorService}は最初に必要になった時に作成され、 {@link DisposableUtil#dispose()}
+     * で終了されます。
+     * </p>
+     * 
+     * @return 並行してコピーする{@link ExecutorService}
+     */
+    protected static synchronized ExecutorService getCopyExecutor() {
+        if (copyExecutor == null) {
+            final AtomicInteger threadNumber = new AtomicInteger();
+            copyExecutor =
+                Executors.newFixedThreadPool(PARALLELISM, new ThreadFactory() {
+                    @Override
+                    public Thread newThread(final Runnable r) {
+                        final Thread thread =
+                            new Thread(r, "BeanUtil-copy-"
+                                + threadNumber.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+            DisposableUtil.add(new Disposable() {
+                @Override
+                public void dispose() {
+                    shutdownCopyExecutor();
+                }
+            });
+        }
+        return copyExecutor;
+    }
+
+    /**
+     * 並行してコピーする{@link ExecutorService}を終了します。
+     */
+    protected static synchronized void shutdownCopyExecutor() {
+        if (copyExecutor != null) {
+            copyExecutor.shutdown();
+            copyExecutor = null;
+        }
+    }
+
+    /**
+     * 並行して行われるコピーの終了を待ちます。
+     * 
+     * @param future
+     *            コピーの{@link Future}
+     */
+    protected static void await(final Future<?> future) {
+        try {
+            future.get();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SIllegalStateException(e);
+        } catch (final ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new SIllegalStateException(cause);
+        }
+    }
+
+    /**
+     * Beanを新しいBeanのインスタンスに繰り返しコピーするためのクラスです。
+     * <p>
+     * コピー先のクラスのデフォルトコンストラクタとコピーの手順を一度だけ求めて使い回します。
+     * このクラスはスレッドセーフではありません。
+     * </p>
+     * 
+     * @author koichik
+     * @param <T>
+     *            コピー先となるBeanの型
+     */
+    protected static class BulkCopier<T> {
+
+        /** コピー先となるBeanの型 */
+        protected final Class<T> destClass;
+
+        /** コピーのオプション */
+        protected final CopyOptions options;
+
+        /** コピー先となるBeanのデフォルトコンストラクタ */
+        protected final ConstructorDesc constructorDesc;
+
+        /** 直前にコピーしたコピー元のBeanのクラス */
+        protected Class<?> srcClass;
+
+        /** 直前に使用した{@link CopyPlan} */
+        protected CopyPlan copyPlan;
+
+        /**
+         * インスタンスを構築します。
+         * 
+         * @param destClass
+         *            コピー先となるBeanの型
+         * @param options
+         *            コピーのオプション
+         */
+        public BulkCopier(final Class<T> destClass, final CopyOptions options) {
+            this.destClass = destClass;
+            this.options = options;
+            constructorDesc =
+                BeanDescFactory.getBeanDesc(destClass).getConstructorDesc();
+        }
+
+        /**
+         * Beanを新しいBeanのインスタンスにコピーして返します。
+         * 
+         * @param src
+         *            コピー元のBean
+         * @return コピーされた新しいBean。 コピー元のBeanが{@literal null}の場合は{@literal null}
+         */
+        public T copy(final Object src) {
+            if (src == null) {
+                return null;
+            }
+            final Class<?> clazz = src.getClass();
+            if (clazz != srcClass) {
+                copyPlan = CopyPlan.getCopyPlan(clazz, destClass, options);
+                srcClass = clazz;
+            }
+            final T dest = constructorDesc.<T> newInstance();
+            copyPlan.copy(src, dest, options);
+            return dest;
+        }
+
+        /**
+         * リストの範囲を新しいBeanのインスタンスにコピーして配列に格納します。
+         * 
+         * @param src
+         *            コピー元のBeanのリスト
+         * @param dest
+         *            コピーされた新しいBeanを格納する配列
+         * @param from
+         *            範囲の開始インデックス (これを含む)
+         * @param to
+         *            範囲の終了インデックス (これを含まない)
+         */
+        public void copy(final List<?> src, final Object[] dest,
+                final int from, final int to) {
+            for (int i = from; i < to; ++i) {
+                dest[i] = copy(src.get(i));
+            }
+        }
+
+    }
+
 }
@@ -16,15 +16,22 @@
 package org.seasar.util.beans.util;
 
 import java.sql.Time;
+import java.util.BitSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
 
+import org.seasar.util.beans.BeanDesc;
 import org.seasar.util.beans.Converter;
 import org.seasar.util.beans.converter.DateConverter;
 import org.seasar.util.beans.converter.NumberConverter;
 import org.seasar.util.beans.converter.SqlDateConverter;
 import org.seasar.util.beans.converter.TimeConverter;
 import org.seasar.util.beans.converter.TimestampConverter;
+import org.seasar.util.beans.factory.BeanDescFactory;
+import org.seasar.util.beans.factory.BeanDescFactory.ClearListener;
+import org.seasar.util.collection.ConcurrentLruCache;
 import org.seasar.util.convert.DateConversionUtil;
 import org.seasar.util.convert.TimeConversionUtil;
 import org.seasar.util.convert.TimestampConversionUtil;
@@ -37,11 +44,28 @@ import static org.seasar.util.misc.AssertionUtil.*;
 
 /**
  * {@link BeanUtil}でJavaBeansや{@link Map}をコピーする際に指定するオプションです。
+ * <p>
+ * {@link #freeze()}を呼び出すと以降は設定を変更できなくなり、 複数のスレッドで共有することができます。
+ * {@link #snapshot()}は現在の設定をコピーした変更できないインスタンスを返します。
+ * {@link CopyPlan}がキャッシュされるのは設定を変更できなくなったインスタンスを使った場合だけで、
+ * キャッシュのキーにはインスタンスの同一性が使われます。 エンドポイントごとなどに{@literal static}
+ * なフィールドで保持して使い回してください。
+ * </p>
+ * 
+ * <pre>
+ * private static final CopyOptions OPTIONS =
+ *     new CopyOptions().exclude(&quot;password&quot;).excludeNull().freeze();
+ * </pre>
  * 
  * @author higa
  */
 public class CopyOptions {
 
+    /**
+     * 対象のプロパティを表すビットセットをキャッシュするBeanのクラスの上限数です。
+     */
+    public static final int TARGET_PROPERTIES_CACHE_SIZE = 256;
+
     /**
      * 日付用のデフォルトコンバータです。
      */
@@ -60,6 +84,26 @@ public class CopyOptions {
     protected static final Converter DEFAULT_TIMESTAMP_CONVERTER =
         new DateConverter(TimestampConversionUtil.getMediumPattern());
 
+    /**
+     * 対応するコンバータがないことを表すマーカーです。
+     */
+    protected static final Converter NO_CONVERTER = new Converter() {
+        @Override
+        public Object getAsObject(final String value) {
+            throw new UnsupportedOperationException("getAsObject");
+        }
+
+        @Override
+        public String getAsString(final Object value) {
+            throw new UnsupportedOperationException("getAsString");
+        }
+
+        @Override
+        public boolean isTarget(final Class<?> clazz) {
+            return false;
+        }
+    };
+
     /**
      * 操作の対象に含めるプロパティ名の配列です。
      */
@@ -105,6 +149,88 @@ public class CopyOptions {
      */
     protected final List<Converter> converters = newArrayList();
 
+    /**
+     * 変換対象のクラスから{@link #converters}の中で対応するコンバータへのキャッシュです。
+     */
+    protected final ConcurrentMap<Class<?>, Converter> converterCache =
+        newConcurrentHashMap();
+
+    /**
+     * Beanのクラスごとに対象のプロパティをインデックスで表したビットセットのキャッシュです。
+     * <p>
+     * LRUで{@link #TARGET_PROPERTIES_CACHE_SIZE}件まで保持し、 {@link BeanDescFactory}
+     * のキャッシュがクリアされると同じクラスローダのエントリを削除します。
+     * </p>
+     */
+    protected final ConcurrentMap<Class<?>, BitSet> targetPropertiesCache =
+        new ConcurrentLruCache<Class<?>, BitSet>(TARGET_PROPERTIES_CACHE_SIZE);
+
+    /**
+     * {@link BeanDescFactory}のキャッシュのクリアに合わせて{@link #targetPropertiesCache}をクリアするリスナです。
+     */
+    protected final ClearListener clearListener = new ClearListener() {
+        @Override
+        public void clear(final ClassLoader classLoader) {
+            for (final Iterator<Class<?>> it =
+                targetPropertiesCache.keySet().iterator(); it.hasNext();) {
+                if (it.next().getClassLoader() == classLoader) {
+                    it.remove();
+                }
+            }
+        }
+
+        @Override
+        public void clearAll() {
+            targetPropertiesCache.clear();
+        }
+    };
+
+    /**
+     * {@link #clearListener}を{@link BeanDescFactory}に追加済みなら{@literal true}です。
+     */
+    protected volatile boolean clearListenerAdded;
+
+    /**
+     * 設定を変更できなくなっていれば{@literal true}です。
+     */
+    protected volatile boolean frozen;
+
+    /**
+     * インスタンスを構築します。
+     */
+    public CopyOptions() {
+    }
+
+    /**
+     * 設定をコピーして変更できないインスタンスを構築します。
+     * <p>
+     * 全ての設定とキャッシュはこのコンストラクタの中でコピーされます。
+     * </p>
+     * 
+     * @param src
+     *            コピー元の{@link CopyOptions}。{@literal null}であってはいけません
+     * @see #snapshot()
+     */
+    protected CopyOptions(final CopyOptions src) {
+        assertArgumentNotNull("src", src);
+
+        includePropertyNames.addAll(src.includePropertyNames);
+        excludePropertyNames.addAll(src.excludePropertyNames);
+        excludesNull = src.excludesNull;
+        excludesWhitespace = src.excludesWhitespace;
+        prefix = src.prefix;
+        beanDelimiter = src.beanDelimiter;
+        mapDelimiter = src.mapDelimiter;
+        converterMap.putAll(src.converterMap);
+        converters.addAll(src.converters);
+        converterCache.putAll(src.converterCache);
+        targetPropertiesCache.putAll(src.targetPropertiesCache);
+        if (!targetPropertiesCache.isEmpty()) {
+            addClearListener();
+        }
+        frozen = true;
+    }
+
     /**
      * 操作の対象に含めるプロパティ名を追加します。
      * 
@@ -114,8 +240,10 @@ public class CopyOptions {
      */
     public CopyOptions include(final CharSequence... propertyNames) {
         assertArgumentNotEmpty("propertyNames", propertyNames);
+        assertNotFrozen();
 
         this.includePropertyNames.addAll(toStringList(propertyNames));
+        clearTargetPropertiesCache();
         return this;
     }
 
@@ -128,8 +256,10 @@ public class CopyOptions {
      */
     public CopyOptions exclude(final CharSequence... propertyNames) {
         assertArgumentNotEmpty("propertyNames", propertyNames);
+        assertNotFrozen();
 
         this.excludePropertyNames.addAll(toStringList(propertyNames));
+        clearTargetPropertiesCache();
         return this;
     }
 
@@ -139,6 +269,7 @@ public class CopyOptions {
      * @return このインスタンス自身
      */
     public CopyOptions excludeNull() {
+        assertNotFrozen();
         this.excludesNull = true;
         return this;
     }
@@ -149,6 +280,7 @@ public class CopyOptions {
      * @return このインスタンス自身
      */
     public CopyOptions excludeWhitespace() {
+        assertNotFrozen();
         this.excludesWhitespace = true;
         return this;
     }
@@ -166,8 +298,10 @@ public class CopyOptions {
      */
     public CopyOptions prefix(final CharSequence prefix) {
         assertArgumentNotEmpty("propertyNames", prefix);
+        assertNotFrozen();
 
         this.prefix = prefix.toString();
+        clearTargetPropertiesCache();
         return this;
     }
 
@@ -202,6 +336,7 @@ public class CopyOptions {
      * @return このインスタンス自身
      */
     public CopyOptions beanDelimiter(final char beanDelimiter) {
+        assertNotFrozen();
         this.beanDelimiter = beanDelimiter;
         return this;
     }
@@ -237,6 +372,7 @@ public class CopyOptions {
      * @return このインスタンス自身
      */
     public CopyOptions mapDelimiter(final char mapDelimiter) {
+        assertNotFrozen();
         this.mapDelimiter = mapDelimiter;
         return this;
     }
@@ -253,9 +389,11 @@ public class CopyOptions {
     public CopyOptions converter(final Converter converter,
             final CharSequence... propertyNames) {
         assertArgumentNotNull("converter", converter);
+        assertNotFrozen();
 
         if (isEmpty(propertyNames)) {
             converters.add(converter);
+            converterCache.clear();
         } else {
             for (final CharSequence name : propertyNames) {
                 assertArgumentNotEmpty("element of propertyNames", name);
@@ -350,6 +488,56 @@ public class CopyOptions {
         return converter(new NumberConverter(pattern), propertyNames);
     }
 
+    /**
+     * 設定を変更できないようにします。
+     * <p>
+     * このメソッドを呼び出した後で設定を変更しようとすると{@link IllegalStateException}がスローされます。
+     * 設定を変更できなくなった{@link CopyOptions}は、 コンバータの解決結果などのキャッシュを含めて複数のスレッドで共有することができます。
+     * </p>
+     * 
+     * @return このインスタンス自身
+     */
+    public CopyOptions freeze() {
+        frozen = true;
+        return this;
+    }
+
+    /**
+     * 現在の設定をコピーした、設定を変更できない{@link CopyOptions}を返します。
+     * <p>
+     * 戻り値はこのインスタンスと独立しているため、 このインスタンスの設定を変更しても影響を受けません。
+     * このインスタンスが既に設定を変更できない場合はこのインスタンス自身を返します。
+     * </p>
+     * 
+     * @return 設定を変更できない{@link CopyOptions}
+     */
+    public CopyOptions snapshot() {
+        if (frozen) {
+            return this;
+        }
+        return new CopyOptions(this);
+    }
+
+    /**
+     * 設定を変更できなくなっていれば{@literal true}を返します。
+     * 
+     * @return 設定を変更できなくなっていれば{@literal true}
+     * @see #freeze()
+     */
+    public boolean isFrozen() {
+        return frozen;
+    }
+
+    /**
+     * 設定を変更できることを表明します。
+     * 
+     * @throws IllegalStateException
+     *             {@link #freeze()}が呼び出されている場合
+     */
+    protected void assertNotFrozen() {
+        assertState(!frozen, "CopyOptions is frozen.");
+    }
+
     /**
      * {@literal CharSequence}の配列を{@literal String}の{@literal List}に変換します。
      * 
@@ -400,6 +588,58 @@ public class CopyOptions {
         return true;
     }
 
+    /**
+     * {@link BeanDesc}のプロパティのうち、対象のプロパティをインデックスで表したビットセットを返します。
+     * <p>
+     * {@link BeanDesc#getPropertyDesc(int)}のインデックスに対応するビットが立っているプロパティが対象です。
+     * 結果はBeanのクラスごとにキャッシュされ、対象のプロパティの判定はビットのテストだけになります。
+     * 戻り値のビットセットを変更してはいけません。
+     * </p>
+     * 
+     * @param beanDesc
+     *            {@link BeanDesc}
+     * @return 対象のプロパティをインデックスで表したビットセット
+     * @see #isTargetProperty(String)
+     */
+    protected BitSet getTargetProperties(final BeanDesc beanDesc) {
+        final Class<?> beanClass = beanDesc.getBeanClass();
+        final BitSet cached = targetPropertiesCache.get(beanClass);
+        if (cached != null) {
+            return cached;
+        }
+        final int size = beanDesc.getPropertyDescSize();
+        final BitSet targetProperties = new BitSet(size);
+        for (int i = 0; i < size; ++i) {
+            if (isTargetProperty(beanDesc.getPropertyDesc(i).getPropertyName())) {
+                targetProperties.set(i);
+            }
+        }
+        addClearListener();
+        final BitSet existing =
+            targetPropertiesCache.putIfAbsent(beanClass, targetProperties);
+        return existing != null ? existing : targetProperties;
+    }
+
+    /**
+     * {@link #clearListener}を{@link BeanDescFactory}に追加します。
+     * <p>
+     * キャッシュを使わないインスタンスでは追加しないよう、 最初にキャッシュする時に呼び出されます。
+     * </p>
+     */
+    protected void addClearListener() {
+        if (!clearListenerAdded) {
+            BeanDescFactory.addClearListener(clearListener);
+            clearListenerAdded = true;
+        }
+    }
+
+    /**
+     * 対象のプロパティを表すビットセットのキャッシュをクリアします。
+     */
+    protected void clearTargetPropertiesCache() {
+        targetPropertiesCache.clear();
+    }
+
     /**
      * 値がコピーの対象なら{@literal true}を返します。
      * 
@@ -471,30 +711,36 @@ public class CopyOptions {
             && destPropertyClass != null && destPropertyClass != String.class) {
             return value;
         }
-        Converter converter = converterMap.get(destPropertyName);
+        final Class<?> targetClass;
+        if (value.getClass() != String.class) {
+            targetClass = value.getClass();
+        } else {
+            targetClass = destPropertyClass;
+        }
+        final Converter converter =
+            resolveConverter(
+                destPropertyName,
+                targetClass,
+                destPropertyClass != null);
         if (converter == null) {
-            final Class<?> targetClass;
-            if (value.getClass() != String.class) {
-                targetClass = value.getClass();
-            } else {
-                targetClass = destPropertyClass;
-            }
-            if (targetClass == null) {
-                return value;
-            }
-            for (Class<?> clazz : iterable(targetClass, false)) {
-                converter = findConverter(clazz);
-                if (converter != null) {
-                    break;
-                }
-            }
-            if (converter == null && destPropertyClass != null) {
-                converter = findDefaultConverter(targetClass);
-            }
-            if (converter == null) {
-                return value;
-            }
+            return value;
         }
+        return convertValue(converter, value, destPropertyName);
+    }
+
+    /**
+     * コンバータを使って値を変換します。
+     * 
+     * @param converter
+     *            コンバータ
+     * @param value
+     *            値。{@literal null}であってはいけません
+     * @param destPropertyName
+     *            コピー先のプロパティ名
+     * @return 変換後の値
+     */
+    protected Object convertValue(final Converter converter,
+            final Object value, final String destPropertyName) {
         try {
             if (value.getClass() == String.class) {
                 return converter.getAsObject((String) value);
@@ -505,6 +751,66 @@ public class CopyOptions {
         }
     }
 
+    /**
+     * コピー先のプロパティと変換対象のクラスに対応するコンバータを返します。
+     * 
+     * @param destPropertyName
+     *            コピー先のプロパティ名
+     * @param targetClass
+     *            変換対象のクラス
+     * @param useDefaultConverter
+     *            対応するコンバータがない場合にデフォルトのコンバータを使用するなら{@literal true}
+     * @return コンバータ。対応するコンバータがない場合は{@literal null}
+     */
+    protected Converter resolveConverter(final String destPropertyName,
+            final Class<?> targetClass, final boolean useDefaultConverter) {
+        final Converter converter = converterMap.get(destPropertyName);
+        if (converter != null) {
+            return converter;
+        }
+        if (targetClass == null) {
+            return null;
+        }
+        final Converter c = findConverterOfClassHierarchy(targetClass);
+        if (c != null) {
+            return c;
+        }
+        if (useDefaultConverter) {
+            return findDefaultConverter(targetClass);
+        }
+        return null;
+    }
+
+    /**
+     * クラスとそのスーパークラスに対応するコンバータを探します。
+     * <p>
+     * 結果はクラスごとにキャッシュされます。 コピー先のプロパティ名によらないため、キャッシュの大きさは変換対象のクラスの数までに限られます。
+     * </p>
+     * 
+     * @param targetClass
+     *            変換対象のクラス
+     * @return コンバータ。対応するコンバータがない場合は{@literal null}
+     */
+    protected Converter findConverterOfClassHierarchy(final Class<?> targetClass) {
+        if (converters.isEmpty()) {
+            return null;
+        }
+        final Converter cached = converterCache.get(targetClass);
+        if (cached != null) {
+            return cached == NO_CONVERTER ? null : cached;
+        }
+        Converter converter = null;
+        for (final Class<?> clazz : iterable(targetClass, false)) {
+            converter = findConverter(clazz);
+            if (converter != null) {
+                break;
+            }
+        }
+        converterCache.put(targetClass, converter == null ? NO_CONVERTER
+            : converter);
+        return converter;
+    }
+
     /**
      * クラスに対応するコンバータを探します。
      * 
@@ -0,0 +1,384 @@
+/*
+ * Copyright 2004-2012 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.util.beans.util;
+
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentMap;
+
+import org.seasar.util.beans.BeanDesc;
+import org.seasar.util.beans.Converter;
+import org.seasar.util.beans.PropertyDesc;
+import org.seasar.util.beans.factory.BeanDescFactory;
+import org.seasar.util.beans.factory.BeanDescFactory.ClearListener;
+import org.seasar.util.collection.ConcurrentLruCache;
+import org.seasar.util.misc.Disposable;
+import org.seasar.util.misc.DisposableUtil;
+
+import static org.seasar.util.collection.CollectionsUtil.*;
+import static org.seasar.util.misc.AssertionUtil.*;
+
+/**
+ * BeanからBeanへプロパティをコピーする手順をあらかじめ組み立てたものです。
+ * <p>
+ * コピー元とコピー先のクラス、および{@link CopyOptions}の組み合わせごとに、
+ * コピー対象となるプロパティの組と、文字列を変換するコンバータを一度だけ求めてキャッシュします。
+ * コピーの際には組み立て済みのプロパティの組を順に処理するだけになります。
+ * </p>
+ * 
+ * <pre>
+ * CopyPlan plan = CopyPlan.getCopyPlan(Src.class, Dest.class, options);
+ * plan.copy(src, dest, options);
+ * </pre>
+ * <p>
+ * {@link CopyPlan}がキャッシュされるのは{@link CopyOptions#freeze()}などで設定を変更できなくなった
+ * {@link CopyOptions}を使った場合だけで、 キャッシュのキーには{@link CopyOptions}の同一性が使われます。
+ * 設定を変更できる{@link CopyOptions}には呼び出しごとに新しい{@link CopyPlan}を組み立てます。
+ * キャッシュはLRUで{@link #CACHE_SIZE}件まで保持されます。 キャッシュをクリアするには
+ * {@link DisposableUtil#dispose()}を呼び出してください。 {@link BeanDescFactory#clear(ClassLoader)}
+ * でクラスローダのキャッシュをクリアすると、 そのクラスローダがロードしたクラスの{@link CopyPlan}も削除されます。
+ * </p>
+ * 
+ * @author koichik
+ * @see BeanUtil#copyBeanToBean(Object, Object, CopyOptions)
+ */
+public class CopyPlan {
+
+    /** キャッシュする{@link CopyPlan}の上限数 */
+    public static final int CACHE_SIZE = 1024;
+
+    /** 初期化済みなら{@literal true} */
+    private static volatile boolean initialized;
+
+    /** {@link CopyPlan}のキャッシュ */
+    private static final ConcurrentMap<Key, CopyPlan> copyPlanCache =
+        new ConcurrentLruCache<Key, CopyPlan>(CACHE_SIZE);
+
+    /** {@link BeanDescFactory}のキャッシュのクリアに合わせて{@link CopyPlan}のキャッシュをクリアするリスナ */
+    private static final ClearListener clearListener = new ClearListener() {
+        @Override
+        public void clear(final ClassLoader classLoader) {
+            for (final Iterator<Key> it = copyPlanCache.keySet().iterator(); it
+                .hasNext();) {
+                final Key key = it.next();
+                if (key.srcClass.getClassLoader() == classLoader
+                    || key.destClass.getClassLoader() == classLoader) {
+                    it.remove();
+                }
+            }
+        }
+
+        @Override
+        public void clearAll() {
+            copyPlanCache.clear();
+        }
+    };
+
+    static {
+        initialize();
+        BeanDescFactory.addClearListener(clearListener);
+    }
+
+    /** コピーするプロパティの組の配列 */
+    protected final Entry[] entries;
+
+    /**
+     * コピー元とコピー先のクラスと{@link CopyOptions}に対応する{@link CopyPlan}を返します。
+     * <p>
+     * {@link CopyOptions}の設定を変更できる場合は、キャッシュを使わずに新しい{@link CopyPlan}を組み立てて返します。
+     * </p>
+     * 
+     * @param srcClass
+     *            コピー元のBeanのクラス。{@literal null}であってはいけません
+     * @param destClass
+     *            コピー先のBeanのクラス。{@literal null}であってはいけません
+     * @param options
+     *            コピーのオプション。{@literal null}であってはいけません
+     * @return {@link CopyPlan}
+     */
+    public static CopyPlan getCopyPlan(final Class<?> srcClass,
+            final Class<?> destClass, final CopyOptions options) {
+        assertArgumentNotNull("srcClass", srcClass);
+        assertArgumentNotNull("destClass", destClass);
+        assertArgumentNotNull("options", options);
+
+        if (!options.isFrozen()) {
+            return new CopyPlan(
+                BeanDescFactory.getBeanDesc(srcClass),
+                BeanDescFactory.getBeanDesc(destClass),
+                options);
+        }
+        if (!initialized) {
+            initialize();
+        }
+        final Key key = new Key(srcClass, destClass, options);
+        final CopyPlan plan = copyPlanCache.get(key);
+        if (plan != null) {
+            return plan;
+        }
+        final CopyPlan newPlan =
+            new CopyPlan(
+                BeanDescFactory.getBeanDesc(srcClass),
+                BeanDescFactory.getBeanDesc(destClass),
+                options);
+        final CopyPlan existing = copyPlanCache.putIfAbsent(key, newPlan);
+        return existing != null ? existing : newPlan;
+    }
+
+    /**
+     * 初期化を行ないます。
+     */
+    public static void initialize() {
+        synchronized (CopyPlan.class) {
+            if (!initialized) {
+                DisposableUtil.add(new Disposable() {
+                    @Override
+                    public void dispose() {
+                        clear();
+                    }
+                });
+                initialized = true;
+            }
+        }
+    }
+
+    /**
+     * キャッシュをクリアします。
+     */
+    public static void clear() {
+        copyPlanCache.clear();
+        initialized = false;
+    }
+
+    /**
+     * インスタンスを構築します。
+     * 
+     * @param srcBeanDesc
+     *            コピー元の{@link BeanDesc}。{@literal null}であってはいけません
+     * @param destBeanDesc
+     *            コピー先の{@link BeanDesc}。{@literal null}であってはいけません
+     * @param options
+     *            コピーのオプション。{@literal null}であってはいけません
+     */
+    protected CopyPlan(final BeanDesc srcBeanDesc, final BeanDesc destBeanDesc,
+            final CopyOptions options) {
+        assertArgumentNotNull("srcBeanDesc", srcBeanDesc);
+        assertArgumentNotNull("destBeanDesc", destBeanDesc);
+        assertArgumentNotNull("options", options);
+
+        final List<Entry> list = newArrayList();
+        final BitSet targetProperties =
+            options.getTargetProperties(srcBeanDesc);
+        for (int i = targetProperties.nextSetBit(0); i >= 0; i =
+            targetProperties.nextSetBit(i + 1)) {
+            final PropertyDesc srcPropertyDesc =
+                srcBeanDesc.getPropertyDesc(i);
+            if (!srcPropertyDesc.isReadable()) {
+                continue;
+            }
+            final String srcPropertyName = srcPropertyDesc.getPropertyName();
+            final String destPropertyName = options.trimPrefix(srcPropertyName);
+            if (!destBeanDesc.hasPropertyDesc(destPropertyName)) {
+                continue;
+            }
+            final PropertyDesc destPropertyDesc =
+                destBeanDesc.getPropertyDesc(destPropertyName);
+            if (!destPropertyDesc.isWritable()) {
+                continue;
+            }
+            final Class<?> destPropertyType =
+                destPropertyDesc.getPropertyType();
+            list.add(new Entry(
+                srcPropertyDesc,
+                destPropertyDesc,
+                destPropertyName,
+                destPropertyType == String.class,
+                options.resolveConverter(
+                    destPropertyName,
+                    destPropertyType,
+                    true)));
+        }
+        entries = list.toArray(new Entry[list.size()]);
+    }
+
+    /**
+     * コピーするプロパティの組の数を返します。
+     * 
+     * @return コピーするプロパティの組の数
+     */
+    public int size() {
+        return entries.length;
+    }
+
+    /**
+     * BeanからBeanにコピーを行います。
+     * 
+     * @param src
+     *            コピー元のBean。{@literal null}であってはいけません
+     * @param dest
+     *            コピー先のBean。{@literal null}であってはいけません
+     * @param options
+     *            コピーのオプション。この{@link CopyPlan}を取得した際と同じ設定でなければいけません
+     */
+    public void copy(final Object src, final Object dest,
+            final CopyOptions options) {
+        for (final Entry entry : entries) {
+            final Object value = entry.srcPropertyDesc.getValue(src);
+            if (!options.isTargetValue(value)) {
+                continue;
+            }
+            entry.destPropertyDesc.setValue(dest, entry.convert(value, options));
+        }
+    }
+
+    /**
+     * コピーするプロパティの組です。
+     * 
+     * @author koichik
+     */
+    protected static class Entry {
+
+        /** コピー元の{@link PropertyDesc} */
+        protected final PropertyDesc srcPropertyDesc;
+
+        /** コピー先の{@link PropertyDesc} */
+        protected final PropertyDesc destPropertyDesc;
+
+        /** コピー先のプロパティ名 */
+        protected final String destPropertyName;
+
+        /** コピー先のプロパティが{@link String}型なら{@literal true} */
+        protected final boolean destString;
+
+        /** 文字列の値を変換するコンバータ */
+        protected final Converter stringConverter;
+
+        /**
+         * インスタンスを構築します。
+         * 
+         * @param srcPropertyDesc
+         *            コピー元の{@link PropertyDesc}
+         * @param destPropertyDesc
+         *            コピー先の{@link PropertyDesc}
+         * @param destPropertyName
+         *            コピー先のプロパティ名
+         * @param destString
+         *            コピー先のプロパティが{@link String}型なら{@literal true}
+         * @param stringConverter
+         *            文字列の値を変換するコンバータ
+         */
+        public Entry(final PropertyDesc srcPropertyDesc,
+                final PropertyDesc destPropertyDesc,
+                final String destPropertyName, final boolean destString,
+                final Converter stringConverter) {
+            this.srcPropertyDesc = srcPropertyDesc;
+            this.destPropertyDesc = destPropertyDesc;
+            this.destPropertyName = destPropertyName;
+            this.destString = destString;
+            this.stringConverter = stringConverter;
+        }
+
+        /**
+         * 値を変換します。
+         * 
+         * @param value
+         *            値
+         * @param options
+         *            コピーのオプション
+         * @return 変換後の値
+         */
+        protected Object convert(final Object value, final CopyOptions options) {
+            if (value == null) {
+                return null;
+            }
+            if (value.getClass() == String.class) {
+                if (stringConverter == null) {
+                    return value;
+                }
+                return options.convertValue(
+                    stringConverter,
+                    value,
+                    destPropertyName);
+            }
+            if (!destString) {
+                return value;
+            }
+            return options.convertValue(value, destPropertyName, String.class);
+        }
+
+    }
+
+    /**
+     * {@link CopyPlan}のキャッシュのキーです。
+     * 
+     * @author koichik
+     */
+    protected static class Key {
+
+        /** コピー元のクラス */
+        protected final Class<?> srcClass;
+
+        /** コピー先のクラス */
+        protected final Class<?> destClass;
+
+        /** 設定を変更できない{@link CopyOptions} */
+        protected final CopyOptions options;
+
+        /** ハッシュ値 */
+        protected final int hashCode;
+
+        /**
+         * インスタンスを構築します。
+         * 
+         * @param srcClass
+         *            コピー元のクラス
+         * @param destClass
+         *            コピー先のクラス
+         * @param options
+         *            設定を変更できない{@link CopyOptions}
+         */
+        public Key(final Class<?> srcClass, final Class<?> destClass,
+                final CopyOptions options) {
+            this.srcClass = srcClass;
+            this.destClass = destClass;
+            this.options = options;
+            hashCode =
+                (srcClass.hashCode() * 31 + destClass.hashCode()) * 31
+                    + System.identityHashCode(options);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            final Key other = (Key) obj;
+            return srcClass == other.srcClass && destClass == other.destClass
+                && options == other.options;
+        }
+
+    }
+
+}
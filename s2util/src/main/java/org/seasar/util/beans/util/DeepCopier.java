@@ -0,0 +1,758 @@
+/*
+ * Copyright 2004-2012 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.util.beans.util;
+
+import java.io.Serializable;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.net.URI;
+import java.net.URL;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Currency;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Pattern;
+
+import org.seasar.util.beans.BeanDesc;
+import org.seasar.util.beans.FieldDesc;
+import org.seasar.util.beans.factory.BeanDescFactory;
+import org.seasar.util.beans.factory.BeanDescFactory.ClearListener;
+import org.seasar.util.collection.ConcurrentLruCache;
+import org.seasar.util.exception.NoSuchConstructorRuntimeException;
+import org.seasar.util.exception.NoSuchMethodRuntimeException;
+import org.seasar.util.io.SerializeUtil;
+import org.seasar.util.lang.ClassUtil;
+import org.seasar.util.lang.ConstructorUtil;
+import org.seasar.util.lang.MethodUtil;
+import org.seasar.util.lang.ModifierUtil;
+
+import static org.seasar.util.collection.CollectionsUtil.*;
+import static org.seasar.util.misc.AssertionUtil.*;
+
+/**
+ * オブジェクトのグラフを深くコピーするクラスです。
+ * <p>
+ * {@link SerializeUtil#serialize(Object)}のようにシリアライズとデシリアライズを経由せず、
+ * {@link BeanDesc}と{@link FieldDesc}を使ってフィールドを直接コピーします。
+ * そのため{@link Serializable}でないオブジェクトもコピーできます。
+ * </p>
+ * <ul>
+ * <li>同じオブジェクトへの複数の参照や循環参照は、コピー先でも同じオブジェクトへの参照になります。</li>
+ * <li>{@link String}やプリミティブのラッパー、{@link BigDecimal}などの不変オブジェクトと列挙型はコピーせずに共有します。</li>
+ * <li>配列は要素をまとめてコピーします。要素が不変な型の配列は要素をコピーしません。</li>
+ * <li>{@literal java.util}などの{@link Collection}と{@link Map}は、新しいインスタンスに要素をコピーして追加します。</li>
+ * <li>{@link java.util.Date}や{@link java.util.Calendar}などの{@link Cloneable}な{@literal java.*}パッケージのクラスは、
+ * {@literal public}な{@literal clone()}メソッドでコピーします。</li>
+ * <li>それ以外のオブジェクトは引数のないコンストラクタで生成し、 {@literal static}でない全てのフィールドをコピーします。
+ * 引数のないコンストラクタがない{@link Serializable}なオブジェクトはシリアライズしてコピーします。</li>
+ * <li>シリアライズしてコピーしたオブジェクトの配下は、 グラフの他の部分とは独立にコピーされます。
+ * そのオブジェクトの配下とグラフの他の部分の両方から参照されるオブジェクトは、 コピー先では別々のオブジェクトになります。
+ * 参照を共有する必要がある場合は、 {@link #copier(Class, Copier)}でコピー方法を登録してください。</li>
+ * </ul>
+ * <p>
+ * クラスごとのコピー方法はLRUで{@link #CACHE_SIZE}件までキャッシュされます。
+ * {@link BeanDescFactory#clear(ClassLoader)}でクラスローダのキャッシュをクリアすると、
+ * そのクラスローダがロードしたクラスのコピー方法も削除されます。 {@link #copier(Class, Copier)}で独自のコピー方法を、
+ * {@link #immutable(Class...)}で共有する不変なクラスを追加することもできます。
+ * </p>
+ * 
+ * <pre>
+ * private static final DeepCopier COPIER = new DeepCopier();
+ * 
+ * Foo copy = COPIER.copy(foo);
+ * </pre>
+ * 
+ * @author koichik
+ */
+public class DeepCopier {
+
+    /** コピー方法をキャッシュするクラスの上限数 */
+    public static final int CACHE_SIZE = 1024;
+
+    /** コピーせずに共有する不変なクラスの配列 */
+    protected static final Class<?>[] IMMUTABLE_CLASSES = new Class<?>[] {
+        String.class, Boolean.class, Character.class, Byte.class,
+        Short.class, Integer.class, Long.class, Float.class, Double.class,
+        BigInteger.class, BigDecimal.class, Class.class, Locale.class,
+        Currency.class, UUID.class, URI.class, URL.class, Pattern.class };
+
+    /** 不変なオブジェクトをそのまま返す{@link Copier} */
+    protected static final Copier<Object> IMMUTABLE_COPIER =
+        new Copier<Object>() {
+            @Override
+            public Object copy(final Object src, final Context context) {
+                return src;
+            }
+        };
+
+    /** 独自に登録された{@link Copier}のマップ */
+    protected final ConcurrentMap<Class<?>, Copier<?>> customCopiers =
+        newConcurrentHashMap();
+
+    /** クラスから{@link Copier}へのキャッシュ */
+    protected final ConcurrentMap<Class<?>, Copier<?>> copierCache =
+        new ConcurrentLruCache<Class<?>, Copier<?>>(CACHE_SIZE);
+
+    /** {@link BeanDescFactory}のキャッシュのクリアに合わせて{@link #copierCache}をクリアするリスナ */
+    protected final ClearListener clearListener = new ClearListener() {
+        @Override
+        public void clear(final ClassLoader classLoader) {
+            for (final Iterator<Class<?>> it =
+                copierCache.keySet().iterator(); it.hasNext();) {
+                if (it.next().getClassLoader() == classLoader) {
+                    it.remove();
+                }
+            }
+        }
+
+        @Override
+        public void clearAll() {
+            copierCache.clear();
+        }
+    };
+
+    /** {@link #clearListener}を{@link BeanDescFactory}に追加済みなら{@literal true} */
+    protected volatile boolean clearListenerAdded;
+
+    /**
+     * インスタンスを構築します。
+     */
+    public DeepCopier() {
+        for (final Class<?> clazz : IMMUTABLE_CLASSES) {
+            customCopiers.put(clazz, IMMUTABLE_COPIER);
+        }
+    }
+
+    /**
+     * コピーせずに共有する不変なクラスを追加します。
+     * 
+     * @param classes
+     *            不変なクラスの並び。{@literal null}や空配列であってはいけません
+     * @return このインスタンス自身
+     */
+    public DeepCopier immutable(final Class<?>... classes) {
+        assertArgumentNotEmpty("classes", classes);
+
+        for (final Class<?> clazz : classes) {
+            customCopiers.put(clazz, IMMUTABLE_COPIER);
+        }
+        copierCache.clear();
+        return this;
+    }
+
+    /**
+     * クラスに独自の{@link Copier}を設定します。
+     * <p>
+     * {@link Copier}は設定したクラスのインスタンスにだけ使用され、サブクラスのインスタンスには使用されません。
+     * </p>
+     * 
+     * @param <T>
+     *            コピーするオブジェクトの型
+     * @param clazz
+     *            クラス。{@literal null}であってはいけません
+     * @param copier
+     *            {@link Copier}。{@literal null}であってはいけません
+     * @return このインスタンス自身
+     */
+    public <T> DeepCopier copier(final Class<T> clazz, final Copier<T> copier) {
+        assertArgumentNotNull("clazz", clazz);
+        assertArgumentNotNull("copier", copier);
+
+        customCopiers.put(clazz, copier);
+        copierCache.clear();
+        return this;
+    }
+
+    /**
+     * キャッシュしたクラスごとのコピー方法をクリアします。
+     */
+    public void clearCache() {
+        copierCache.clear();
+    }
+
+    /**
+     * オブジェクトを深くコピーして返します。
+     * 
+     * @param <T>
+     *            オブジェクトの型
+     * @param src
+     *            コピー元のオブジェクト
+     * @return コピーしたオブジェクト。{@code src}が{@literal null}の場合は{@literal null}
+     */
+    public <T> T copy(final T src) {
+        if (src == null) {
+            return null;
+        }
+        return new Context().copy(src);
+    }
+
+    /**
+     * クラスに対応する{@link Copier}を返します。
+     * 
+     * @param clazz
+     *            クラス
+     * @return {@link Copier}
+     */
+    protected Copier<?> getCopier(final Class<?> clazz) {
+        final Copier<?> cached = copierCache.get(clazz);
+        if (cached != null) {
+            return cached;
+        }
+        final Copier<?> copier = createCopier(clazz);
+        if (!clearListenerAdded) {
+            BeanDescFactory.addClearListener(clearListener);
+            clearListenerAdded = true;
+        }
+        copierCache.put(clazz, copier);
+        return copier;
+    }
+
+    /**
+     * クラスに対応する{@link Copier}を作成します。
+     * 
+     * @param clazz
+     *            クラス
+     * @return {@link Copier}
+     */
+    protected Copier<?> createCopier(final Class<?> clazz) {
+        final Copier<?> custom = customCopiers.get(clazz);
+        if (custom != null) {
+            return custom;
+        }
+        if (Enum.class.isAssignableFrom(clazz)) {
+            return IMMUTABLE_COPIER;
+        }
+        if (clazz.isArray()) {
+            final Class<?> componentType = clazz.getComponentType();
+            return new ArrayCopier(componentType.isPrimitive()
+                || isImmutable(componentType));
+        }
+        if (isStandardClass(clazz) && Cloneable.class.isAssignableFrom(clazz)
+            && !Collection.class.isAssignableFrom(clazz)
+            && !Map.class.isAssignableFrom(clazz)) {
+            final Method cloneMethod = getCloneMethod(clazz);
+            if (cloneMethod != null) {
+                return new CloneCopier(cloneMethod);
+            }
+        }
+        final Constructor<?> constructor = getDefaultConstructor(clazz);
+        if (constructor == null) {
+            if (Serializable.class.isAssignableFrom(clazz)) {
+                return new SerializationCopier();
+            }
+            throw new NoSuchConstructorRuntimeException(
+                clazz,
+                new Class<?>[0],
+                null);
+        }
+        if (isStandardClass(clazz)) {
+            if (SortedSet.class.isAssignableFrom(clazz)
+                || SortedMap.class.isAssignableFrom(clazz)) {
+                final Constructor<?> comparatorConstructor =
+                    getConstructor(clazz, Comparator.class);
+                if (comparatorConstructor != null) {
+                    return new SortedCopier(comparatorConstructor);
+                }
+            } else if (Collection.class.isAssignableFrom(clazz)) {
+                return new CollectionCopier(constructor);
+            } else if (Map.class.isAssignableFrom(clazz)) {
+                return new MapCopier(constructor);
+            }
+        }
+        return new FieldCopier(constructor, getFieldDescs(clazz));
+    }
+
+    /**
+     * コピーせずに共有する不変なクラスなら{@literal true}を返します。
+     * 
+     * @param clazz
+     *            クラス
+     * @return コピーせずに共有する不変なクラスなら{@literal true}
+     */
+    protected boolean isImmutable(final Class<?> clazz) {
+        return customCopiers.get(clazz) == IMMUTABLE_COPIER
+            || clazz.isEnum();
+    }
+
+    /**
+     * 要素を追加しなおしてコピーする{@literal java.*}パッケージのクラスなら{@literal true}を返します。
+     * 
+     * @param clazz
+     *            クラス
+     * @return {@literal java.*}パッケージのクラスなら{@literal true}
+     */
+    protected static boolean isStandardClass(final Class<?> clazz) {
+        return clazz.getName().startsWith("java.");
+    }
+
+    /**
+     * 引数のないコンストラクタを返します。
+     * 
+     * @param clazz
+     *            クラス
+     * @return 引数のないコンストラクタ。存在しない場合や抽象クラスの場合は{@literal null}
+     */
+    protected static Constructor<?> getDefaultConstructor(final Class<?> clazz) {
+        if (clazz.isInterface() || ModifierUtil.isAbstract(clazz)) {
+            return null;
+        }
+        return getConstructor(clazz);
+    }
+
+    /**
+     * コンストラクタを返します。
+     * 
+     * @param clazz
+     *            クラス
+     * @param argTypes
+     *            引数の型の並び
+     * @return コンストラクタ。存在しないか、アクセスできない場合は{@literal null}
+     */
+    protected static Constructor<?> getConstructor(final Class<?> clazz,
+            final Class<?>... argTypes) {
+        try {
+            final Constructor<?> constructor =
+                ClassUtil.getDeclaredConstructor(clazz, argTypes);
+            constructor.setAccessible(true);
+            return constructor;
+        } catch (final NoSuchConstructorRuntimeException e) {
+            return null;
+        } catch (final SecurityException e) {
+            return null;
+        }
+    }
+
+    /**
+     * {@literal public}な{@literal clone()}メソッドを返します。
+     * 
+     * @param clazz
+     *            クラス
+     * @return {@literal clone()}メソッド。{@literal public}でないか、アクセスできない場合は{@literal null}
+     */
+    protected static Method getCloneMethod(final Class<?> clazz) {
+        try {
+            final Method method = ClassUtil.getMethod(clazz, "clone");
+            method.setAccessible(true);
+            return method;
+        } catch (final NoSuchMethodRuntimeException e) {
+            return null;
+        } catch (final SecurityException e) {
+            return null;
+        }
+    }
+
+    /**
+     * クラスとそのスーパークラスで宣言された{@literal static}でないフィールドの{@link FieldDesc}を返します。
+     * <p>
+     * スーパークラスのフィールドと同じ名前のフィールドがあっても、両方のフィールドを返します。
+     * </p>
+     * 
+     * @param clazz
+     *            クラス
+     * @return {@link FieldDesc}の配列
+     */
+    protected static FieldDesc[] getFieldDescs(final Class<?> clazz) {
+        final List<FieldDesc> fieldDescs = newArrayList();
+        for (Class<?> c = clazz; c != null && c != Object.class; c =
+            c.getSuperclass()) {
+            final BeanDesc beanDesc = BeanDescFactory.getBeanDesc(c);
+            for (int i = 0; i < beanDesc.getFieldDescSize(); ++i) {
+                final FieldDesc fieldDesc = beanDesc.getFieldDesc(i);
+                if (fieldDesc.getField().getDeclaringClass() == c
+                    && !fieldDesc.isStatic()) {
+                    fieldDescs.add(fieldDesc);
+                }
+            }
+        }
+        return fieldDescs.toArray(new FieldDesc[fieldDescs.size()]);
+    }
+
+    /**
+     * オブジェクトをコピーするインターフェースです。
+     * 
+     * @param <T>
+     *            コピーするオブジェクトの型
+     * @author koichik
+     */
+    public interface Copier<T> {
+
+        /**
+         * オブジェクトをコピーして返します。
+         * <p>
+         * コピー先のオブジェクトを生成したら、 そのオブジェクトが参照するオブジェクトをコピーする前に
+         * {@link Context#register(Object, Object)}でコピー元と対応付けなければいけません。
+         * 参照するオブジェクトは{@link Context#copy(Object)}でコピーします。
+         * </p>
+         * 
+         * @param src
+         *            コピー元のオブジェクト
+         * @param context
+         *            コピーのコンテキスト
+         * @return コピーしたオブジェクト
+         */
+        T copy(T src, Context context);
+
+    }
+
+    /**
+     * 一回のコピーの間、コピー元とコピー先のオブジェクトの対応を保持するコンテキストです。
+     * 
+     * @author koichik
+     */
+    public class Context {
+
+        /** コピー元のオブジェクトからコピー先のオブジェクトへのマップ */
+        protected final Map<Object, Object> copies =
+            new IdentityHashMap<Object, Object>();
+
+        /**
+         * オブジェクトをコピーして返します。
+         * <p>
+         * このコンテキストで既にコピーしたオブジェクトの場合は、そのコピーを返します。
+         * </p>
+         * 
+         * @param <T>
+         *            オブジェクトの型
+         * @param src
+         *            コピー元のオブジェクト
+         * @return コピーしたオブジェクト
+         */
+        @SuppressWarnings("unchecked")
+        public <T> T copy(final T src) {
+            if (src == null) {
+                return null;
+            }
+            final Copier<T> copier = (Copier<T>) getCopier(src.getClass());
+            if (copier == IMMUTABLE_COPIER) {
+                return src;
+            }
+            final Object copied = copies.get(src);
+            if (copied != null) {
+                return (T) copied;
+            }
+            return copier.copy(src, this);
+        }
+
+        /**
+         * コピー元のオブジェクトとコピー先のオブジェクトを対応付けます。
+         * 
+         * @param src
+         *            コピー元のオブジェクト
+         * @param dest
+         *            コピー先のオブジェクト
+         */
+        public void register(final Object src, final Object dest) {
+            copies.put(src, dest);
+        }
+
+    }
+
+    /**
+     * 配列をコピーする{@link Copier}です。
+     * 
+     * @author koichik
+     */
+    protected static class ArrayCopier implements Copier<Object> {
+
+        /** 要素をコピーせずに共有するなら{@literal true} */
+        protected final boolean shallow;
+
+        /**
+         * インスタンスを構築します。
+         * 
+         * @param shallow
+         *            要素をコピーせずに共有するなら{@literal true}
+         */
+        public ArrayCopier(final boolean shallow) {
+            this.shallow = shallow;
+        }
+
+        @Override
+        public Object copy(final Object src, final Context context) {
+            final int length = Array.getLength(src);
+            final Object dest =
+                Array.newInstance(src.getClass().getComponentType(), length);
+            context.register(src, dest);
+            if (shallow) {
+                System.arraycopy(src, 0, dest, 0, length);
+            } else {
+                final Object[] srcArray = (Object[]) src;
+                final Object[] destArray = (Object[]) dest;
+                for (int i = 0; i < length; ++i) {
+                    destArray[i] = context.copy(srcArray[i]);
+                }
+            }
+            return dest;
+        }
+
+    }
+
+    /**
+     * {@link Collection}に要素をコピーして追加する{@link Copier}です。
+     * 
+     * @author koichik
+     */
+    protected static class CollectionCopier implements
+            Copier<Collection<Object>> {
+
+        /** 引数のないコンストラクタ */
+        protected final Constructor<?> constructor;
+
+        /**
+         * インスタンスを構築します。
+         * 
+         * @param constructor
+         *            引数のないコンストラクタ
+         */
+        public CollectionCopier(final Constructor<?> constructor) {
+            this.constructor = constructor;
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public Collection<Object> copy(final Collection<Object> src,
+                final Context context) {
+            final Collection<Object> dest =
+                (Collection<Object>) ConstructorUtil.newInstance(
+                    constructor,
+                    (Object[]) null);
+            context.register(src, dest);
+            for (final Object element : src) {
+                dest.add(context.copy(element));
+            }
+            return dest;
+        }
+
+    }
+
+    /**
+     * {@link Map}にキーと値をコピーして追加する{@link Copier}です。
+     * 
+     * @author koichik
+     */
+    protected static class MapCopier implements Copier<Map<Object, Object>> {
+
+        /** 引数のないコンストラクタ */
+        protected final Constructor<?> constructor;
+
+        /**
+         * インスタンスを構築します。
+         * 
+         * @param constructor
+         *            引数のないコンストラクタ
+         */
+        public MapCopier(final Constructor<?> constructor) {
+            this.constructor = constructor;
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public Map<Object, Object> copy(final Map<Object, Object> src,
+                final Context context) {
+            final Map<Object, Object> dest =
+                (Map<Object, Object>) ConstructorUtil.newInstance(
+                    constructor,
+                    (Object[]) null);
+            context.register(src, dest);
+            copyEntries(src, dest, context);
+            return dest;
+        }
+
+    }
+
+    /**
+     * {@link SortedSet}や{@link SortedMap}を{@link Comparator}を引き継いでコピーする{@link Copier}です。
+     * 
+     * @author koichik
+     */
+    protected static class SortedCopier implements Copier<Object> {
+
+        /** {@link Comparator}を受け取るコンストラクタ */
+        protected final Constructor<?> constructor;
+
+        /**
+         * インスタンスを構築します。
+         * 
+         * @param constructor
+         *            {@link Comparator}を受け取るコンストラクタ
+         */
+        public SortedCopier(final Constructor<?> constructor) {
+            this.constructor = constructor;
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public Object copy(final Object src, final Context context) {
+            final Comparator<?> comparator =
+                src instanceof SortedSet ? ((SortedSet<?>) src).comparator()
+                    : ((SortedMap<?, ?>) src).comparator();
+            final Object dest =
+                ConstructorUtil.newInstance(constructor, comparator);
+            context.register(src, dest);
+            if (src instanceof SortedSet) {
+                for (final Object element : (SortedSet<Object>) src) {
+                    ((SortedSet<Object>) dest).add(context.copy(element));
+                }
+            } else {
+                copyEntries(
+                    (Map<Object, Object>) src,
+                    (Map<Object, Object>) dest,
+                    context);
+            }
+            return dest;
+        }
+
+    }
+
+    /**
+     * {@link Map}のキーと値をコピーして追加します。
+     * 
+     * @param src
+     *            コピー元の{@link Map}
+     * @param dest
+     *            コピー先の{@link Map}
+     * @param context
+     *            コピーのコンテキスト
+     */
+    protected static void copyEntries(final Map<Object, Object> src,
+            final Map<Object, Object> dest, final Context context) {
+        for (final Map.Entry<Object, Object> entry : src.entrySet()) {
+            dest.put(
+                context.copy(entry.getKey()),
+                context.copy(entry.getValue()));
+        }
+    }
+
+    /**
+     * {@literal static}でない全てのフィールドをコピーする{@link Copier}です。
+     * 
+     * @author koichik
+     */
+    protected static class FieldCopier implements Copier<Object> {
+
+        /** 引数のないコンストラクタ */
+        protected final Constructor<?> constructor;
+
+        /** コピーするフィールドの{@link FieldDesc}の配列 */
+        protected final FieldDesc[] fieldDescs;
+
+        /**
+         * インスタンスを構築します。
+         * 
+         * @param constructor
+         *            引数のないコンストラクタ
+         * @param fieldDescs
+         *            コピーするフィールドの{@link FieldDesc}の配列
+         */
+        public FieldCopier(final Constructor<?> constructor,
+                final FieldDesc[] fieldDescs) {
+            this.constructor = constructor;
+            this.fieldDescs = fieldDescs;
+        }
+
+        @Override
+        public Object copy(final Object src, final Context context) {
+            final Object dest =
+                ConstructorUtil.newInstance(constructor, (Object[]) null);
+            context.register(src, dest);
+            for (final FieldDesc fieldDesc : fieldDescs) {
+                final Class<?> type = fieldDesc.getFieldType();
+                if (type == int.class) {
+                    fieldDesc.setInt(dest, fieldDesc.getInt(src));
+                } else if (type == long.class) {
+                    fieldDesc.setLong(dest, fieldDesc.getLong(src));
+                } else if (type == double.class) {
+                    fieldDesc.setDouble(dest, fieldDesc.getDouble(src));
+                } else if (type == boolean.class) {
+                    fieldDesc.setBoolean(dest, fieldDesc.getBoolean(src));
+                } else if (type.isPrimitive()) {
+                    fieldDesc.setFieldValue(dest, fieldDesc
+                        .getFieldValue(src));
+                } else {
+                    fieldDesc.setFieldValue(dest, context.copy(fieldDesc
+                        .getFieldValue(src)));
+                }
+            }
+            return dest;
+        }
+
+    }
+
+    /**
+     * {@literal clone()}メソッドでコピーする{@link Copier}です。
+     * <p>
+     * {@literal java.*}パッケージのクラスの非公開な内部状態をフィールドごとにたどらないために使用します。
+     * </p>
+     * 
+     * @author koichik
+     */
+    protected static class CloneCopier implements Copier<Object> {
+
+        /** {@literal clone()}メソッド */
+        protected final Method cloneMethod;
+
+        /**
+         * インスタンスを構築します。
+         * 
+         * @param cloneMethod
+         *            {@literal clone()}メソッド
+         */
+        public CloneCopier(final Method cloneMethod) {
+            this.cloneMethod = cloneMethod;
+        }
+
+        @Override
+        public Object copy(final Object src, final Context context) {
+            final Object dest =
+                MethodUtil.invoke(cloneMethod, src, (Object[]) null);
+            context.register(src, dest);
+            return dest;
+        }
+
+    }
+
+    /**
+     * シリアライズしてコピーする{@link Copier}です。
+     * <p>
+     * コピー元のオブジェクトの配下だけを単独でシリアライズするため、
+     * グラフの他の部分と共有されている参照はコピー先で共有されません。
+     * </p>
+     * 
+     * @author koichik
+     */
+    protected static class SerializationCopier implements Copier<Object> {
+
+        @Override
+        public Object copy(final Object src, final Context context) {
+            final Object dest = SerializeUtil.serialize(src);
+            context.register(src, dest);
+            return dest;
+        }
+
+    }
+
+}
@@ -0,0 +1,369 @@
+/*
+ * Copyright 2004-2012 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.util.beans.util;
+
+import java.util.concurrent.ConcurrentMap;
+
+import org.seasar.util.beans.BeanDesc;
+import org.seasar.util.beans.PropertyDesc;
+import org.seasar.util.beans.factory.BeanDescFactory;
+import org.seasar.util.collection.ConcurrentLruCache;
+import org.seasar.util.exception.PropertyNotFoundRuntimeException;
+import org.seasar.util.misc.Disposable;
+import org.seasar.util.misc.DisposableUtil;
+
+import static org.seasar.util.misc.AssertionUtil.*;
+
+/**
+ * {@literal order.customer.address.city}のようにピリオドで区切られたプロパティのパスをコンパイルしたものです。
+ * <p>
+ * ルートとなるクラスとパスの組み合わせごとに、 パスをたどる{@link PropertyDesc}の並びを一度だけ求めてキャッシュします。
+ * 値の読み書きでは文字列の分割やプロパティ名の検索を行わず、 {@link PropertyDesc}の並びを順にたどるだけになります。
+ * </p>
+ * <p>
+ * 途中のプロパティが{@literal null}の場合、 {@link #getValue(Object)}は{@literal null}を返します。
+ * {@link #setValue(Object, Object)}は途中のBeanを引数のないコンストラクタで生成して設定しますが、
+ * {@link #setValue(Object, Object, boolean)}で生成しないように指定することもできます。
+ * </p>
+ * 
+ * <pre>
+ * PropertyPath path = PropertyPath.getPropertyPath(Order.class, &quot;customer.address.city&quot;);
+ * String city = path.getValue(order);
+ * path.setValue(order, &quot;Tokyo&quot;);
+ * </pre>
+ * <p>
+ * キャッシュはLRUで{@link #CACHE_SIZE}件まで保持されます。 キャッシュをクリアするには
+ * {@link DisposableUtil#dispose()}を呼び出してください。
+ * </p>
+ * 
+ * @author koichik
+ */
+public class PropertyPath {
+
+    /** キャッシュする{@link PropertyPath}の上限数 */
+    public static final int CACHE_SIZE = 1024;
+
+    /** パスの区切り文字 */
+    public static final char DELIMITER = '.';
+
+    /** 初期化済みなら{@literal true} */
+    private static volatile boolean initialized;
+
+    /** {@link PropertyPath}のキャッシュ */
+    private static final ConcurrentMap<Key, PropertyPath> propertyPathCache =
+        new ConcurrentLruCache<Key, PropertyPath>(CACHE_SIZE);
+
+    static {
+        initialize();
+    }
+
+    /** ルートとなるクラス */
+    protected final Class<?> rootClass;
+
+    /** パス */
+    protected final String path;
+
+    /** パスをたどる各プロパティを所有するクラスの{@link BeanDesc}の配列 */
+    protected final BeanDesc[] beanDescs;
+
+    /** パスをたどる{@link PropertyDesc}の配列 */
+    protected final PropertyDesc[] propertyDescs;
+
+    /**
+     * ルートとなるクラスとパスに対応する{@link PropertyPath}を返します。
+     * 
+     * @param rootClass
+     *            ルートとなるクラス。{@literal null}であってはいけません
+     * @param path
+     *            ピリオドで区切られたプロパティのパス。{@literal null}や空文字列であってはいけません
+     * @return {@link PropertyPath}
+     * @throws PropertyNotFoundRuntimeException
+     *             パスの途中にプロパティが見つからなかった場合
+     */
+    public static PropertyPath getPropertyPath(final Class<?> rootClass,
+            final String path) throws PropertyNotFoundRuntimeException {
+        assertArgumentNotNull("rootClass", rootClass);
+        assertArgumentNotEmpty("path", path);
+
+        if (!initialized) {
+            initialize();
+        }
+        final Key key = new Key(rootClass, path);
+        final PropertyPath propertyPath = propertyPathCache.get(key);
+        if (propertyPath != null) {
+            return propertyPath;
+        }
+        final PropertyPath newPath = new PropertyPath(rootClass, path);
+        final PropertyPath existing =
+            propertyPathCache.putIfAbsent(key, newPath);
+        return existing != null ? existing : newPath;
+    }
+
+    /**
+     * 初期化を行ないます。
+     */
+    public static void initialize() {
+        synchronized (PropertyPath.class) {
+            if (!initialized) {
+                DisposableUtil.add(new Disposable() {
+                    @Override
+                    public void dispose() {
+                        clear();
+                    }
+                });
+                initialized = true;
+            }
+        }
+    }
+
+    /**
+     * キャッシュをクリアします。
+     */
+    public static void clear() {
+        propertyPathCache.clear();
+        initialized = false;
+    }
+
+    /**
+     * インスタンスを構築します。
+     * 
+     * @param rootClass
+     *            ルートとなるクラス。{@literal null}であってはいけません
+     * @param path
+     *            ピリオドで区切られたプロパティのパス。{@literal null}や空文字列であってはいけません
+     * @throws PropertyNotFoundRuntimeException
+     *             パスの途中にプロパティが見つからなかった場合
+     */
+    protected PropertyPath(final Class<?> rootClass, final String path)
+            throws PropertyNotFoundRuntimeException {
+        assertArgumentNotNull("rootClass", rootClass);
+        assertArgumentNotEmpty("path", path);
+
+        this.rootClass = rootClass;
+        this.path = path;
+        final String[] names = split(path);
+        beanDescs = new BeanDesc[names.length];
+        propertyDescs = new PropertyDesc[names.length];
+        Class<?> clazz = rootClass;
+        for (int i = 0; i < names.length; ++i) {
+            beanDescs[i] = BeanDescFactory.getBeanDesc(clazz);
+            propertyDescs[i] = beanDescs[i].getPropertyDesc(names[i]);
+            clazz = propertyDescs[i].getPropertyType();
+        }
+    }
+
+    /**
+     * パスをプロパティ名の配列に分割します。
+     * 
+     * @param path
+     *            ピリオドで区切られたプロパティのパス
+     * @return プロパティ名の配列
+     */
+    protected static String[] split(final String path) {
+        int count = 1;
+        for (int i = 0; i < path.length(); ++i) {
+            if (path.charAt(i) == DELIMITER) {
+                ++count;
+            }
+        }
+        final String[] names = new String[count];
+        int start = 0;
+        for (int i = 0; i < count; ++i) {
+            int end = path.indexOf(DELIMITER, start);
+            if (end < 0) {
+                end = path.length();
+            }
+            assertArgument("path", end > start, "empty property name in "
+                + path);
+            names[i] = path.substring(start, end);
+            start = end + 1;
+        }
+        return names;
+    }
+
+    /**
+     * ルートとなるクラスを返します。
+     * 
+     * @return ルートとなるクラス
+     */
+    public Class<?> getRootClass() {
+        return rootClass;
+    }
+
+    /**
+     * パスを返します。
+     * 
+     * @return パス
+     */
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * パスをたどるプロパティの数を返します。
+     * 
+     * @return パスをたどるプロパティの数
+     */
+    public int getDepth() {
+        return propertyDescs.length;
+    }
+
+    /**
+     * パスをたどる{@link PropertyDesc}を返します。
+     * 
+     * @param index
+     *            インデックス
+     * @return {@link PropertyDesc}
+     */
+    public PropertyDesc getPropertyDesc(final int index) {
+        return propertyDescs[index];
+    }
+
+    /**
+     * パスの末尾のプロパティの型を返します。
+     * 
+     * @return パスの末尾のプロパティの型
+     */
+    public Class<?> getPropertyType() {
+        return propertyDescs[propertyDescs.length - 1].getPropertyType();
+    }
+
+    /**
+     * パスの末尾のプロパティの値を返します。
+     * <p>
+     * 途中のプロパティが{@literal null}の場合は{@literal null}を返します。
+     * </p>
+     * 
+     * @param <T>
+     *            プロパティの型
+     * @param root
+     *            ルートとなるオブジェクト。{@literal null}であってはいけません
+     * @return パスの末尾のプロパティの値
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T getValue(final Object root) {
+        assertArgumentNotNull("root", root);
+
+        Object value = root;
+        for (final PropertyDesc propertyDesc : propertyDescs) {
+            value = propertyDesc.getValue(value);
+            if (value == null) {
+                return null;
+            }
+        }
+        return (T) value;
+    }
+
+    /**
+     * パスの末尾のプロパティに値を設定します。
+     * <p>
+     * 途中のプロパティが{@literal null}の場合は、 そのプロパティの型のインスタンスを引数のないコンストラクタで生成して設定します。
+     * </p>
+     * 
+     * @param root
+     *            ルートとなるオブジェクト。{@literal null}であってはいけません
+     * @param value
+     *            プロパティに設定する値
+     */
+    public void setValue(final Object root, final Object value) {
+        setValue(root, value, true);
+    }
+
+    /**
+     * パスの末尾のプロパティに値を設定します。
+     * 
+     * @param root
+     *            ルートとなるオブジェクト。{@literal null}であってはいけません
+     * @param value
+     *            プロパティに設定する値
+     * @param autoCreate
+     *            途中のプロパティが{@literal null}の場合にインスタンスを生成して設定するなら{@literal true}
+     * @return 値を設定した場合は{@literal true}、 途中のプロパティが{@literal null}だったため設定しなかった場合は
+     *         {@literal false}
+     */
+    public boolean setValue(final Object root, final Object value,
+            final boolean autoCreate) {
+        assertArgumentNotNull("root", root);
+
+        final int last = propertyDescs.length - 1;
+        Object target = root;
+        for (int i = 0; i < last; ++i) {
+            final PropertyDesc propertyDesc = propertyDescs[i];
+            Object next = propertyDesc.getValue(target);
+            if (next == null) {
+                if (!autoCreate) {
+                    return false;
+                }
+                next = beanDescs[i + 1].newInstance();
+                propertyDesc.setValue(target, next);
+            }
+            target = next;
+        }
+        propertyDescs[last].setValue(target, value);
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return rootClass.getName() + '#' + path;
+    }
+
+    /**
+     * {@link PropertyPath}のキャッシュのキーです。
+     * 
+     * @author koichik
+     */
+    protected static class Key {
+
+        /** ルートとなるクラス */
+        protected final Class<?> rootClass;
+
+        /** パス */
+        protected final String path;
+
+        /**
+         * インスタンスを構築します。
+         * 
+         * @param rootClass
+         *            ルートとなるクラス
+         * @param path
+         *            パス
+         */
+        public Key(final Class<?> rootClass, final String path) {
+            this.rootClass = rootClass;
+            this.path = path;
+        }
+
+        @Override
+        public int hashCode() {
+            return rootClass.hashCode() * 31 + path.hashCode();
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            final Key other = (Key) obj;
+            return rootClass == other.rootClass && path.equals(other.path);
+        }
+
+    }
+
+}
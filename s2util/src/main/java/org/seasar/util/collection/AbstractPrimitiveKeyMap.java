@@ -0,0 +1,286 @@
+/*
+ * Copyright 2004-2012 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.util.collection;
+
+import static org.seasar.util.misc.AssertionUtil.*;
+
+/**
+ * プリミティブ型をキーとするマップの抽象基底クラスです。
+ * <p>
+ * エントリは追加された順にキーと値の配列 (エントリの配列) に格納され、 {@literal getAt(int)}などでインデックスを指定して参照できます。
+ * キーの検索にはオープンアドレス法 (線形探索) の{@literal int}配列のテーブルを使用します。
+ * テーブルの要素はエントリの配列のインデックスに{@literal 1}を加えた値で、 {@literal 0}は空きを表します。
+ * エントリを削除する際は削除済みの印を残さず、後続の要素を前に詰めます (backward-shift deletion)。
+ * </p>
+ * <p>
+ * エントリの削除は{@link ArrayMap}と同じくエントリの配列を詰めるため、 エントリ数に比例した時間がかかります。
+ * このクラスはスレッドセーフではありません。
+ * </p>
+ * 
+ * @author koichik
+ */
+public abstract class AbstractPrimitiveKeyMap {
+
+    /** エントリの配列の初期容量 */
+    public static final int INITIAL_CAPACITY = 8;
+
+    /** テーブルの要素数に対するエントリ数の上限の割合の逆数 */
+    protected static final int TABLE_RATIO = 2;
+
+    /** エントリ数の上限 */
+    public static final int MAXIMUM_CAPACITY =
+        PowerOfTwoUtil.MAXIMUM_POWER_OF_TWO / TABLE_RATIO;
+
+    /** エントリの配列のインデックスに{@literal 1}を加えた値のテーブル */
+    protected int[] table;
+
+    /** テーブルのインデックスを求めるマスク */
+    protected int mask;
+
+    /** エントリ数 */
+    protected int size;
+
+    /**
+     * インスタンスを構築します。
+     * 
+     * @param initialCapacity
+     *            初期容量。{@link #MAXIMUM_CAPACITY}以下でなければいけません
+     */
+    protected AbstractPrimitiveKeyMap(final int initialCapacity) {
+        assertArgument(
+            "initialCapacity",
+            initialCapacity <= MAXIMUM_CAPACITY,
+            "initialCapacity > MAXIMUM_CAPACITY");
+
+        final int tableSize =
+            PowerOfTwoUtil.ceilingPowerOfTwo(Math.max(
+                initialCapacity,
+                INITIAL_CAPACITY) * TABLE_RATIO);
+        table = new int[tableSize];
+        mask = tableSize - 1;
+    }
+
+    /**
+     * エントリ数を返します。
+     * 
+     * @return エントリ数
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * エントリが存在しなければ{@literal true}を返します。
+     * 
+     * @return エントリが存在しなければ{@literal true}
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * すべてのエントリを削除します。
+     */
+    public void clear() {
+        for (int i = 0; i < table.length; ++i) {
+            table[i] = 0;
+        }
+        clearEntries();
+        size = 0;
+    }
+
+    /**
+     * {@literal int}のハッシュ値を攪拌します。
+     * 
+     * @param key
+     *            キー
+     * @return 攪拌したハッシュ値
+     */
+    protected static int hash(final int key) {
+        int h = key * 0x9e3779b9;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    /**
+     * {@literal long}のハッシュ値を攪拌します。
+     * 
+     * @param key
+     *            キー
+     * @return 攪拌したハッシュ値
+     */
+    protected static int hash(final long key) {
+        long h = key * 0x9e3779b97f4a7c15L;
+        h ^= h >>> 32;
+        return hash((int) h);
+    }
+
+    /**
+     * インデックスがエントリの範囲内であることを表明します。
+     * 
+     * @param index
+     *            インデックス
+     */
+    protected void checkIndex(final int index) {
+        assertIndex(index >= 0 && index < size, "Index:" + index + ", Size:"
+            + size);
+    }
+
+    /**
+     * エントリを追加できるように必要に応じてエントリの配列とテーブルを拡張します。
+     * 
+     * @param required
+     *            必要なエントリ数
+     */
+    protected void ensureCapacity(final int required) {
+        assertState(
+            required <= MAXIMUM_CAPACITY,
+            "size > MAXIMUM_CAPACITY");
+
+        final int capacity = getEntryCapacity();
+        if (required > capacity) {
+            growEntries(Math.max(required, capacity * 2));
+        }
+        if (required * TABLE_RATIO > table.length) {
+            rehash(table.length * 2);
+        }
+    }
+
+    /**
+     * テーブルを指定された大きさで作り直します。
+     * 
+     * @param tableSize
+     *            テーブルの要素数 (2のべき乗)
+     */
+    protected void rehash(final int tableSize) {
+        table = new int[tableSize];
+        mask = tableSize - 1;
+        for (int position = 0; position < size; ++position) {
+            int slot = hashAt(position) & mask;
+            while (table[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = position + 1;
+        }
+    }
+
+    /**
+     * エントリの配列の末尾に追加したエントリをテーブルに登録します。
+     * 
+     * @param slot
+     *            エントリを登録するテーブルのインデックス
+     */
+    protected void addEntry(final int slot) {
+        table[slot] = ++size;
+    }
+
+    /**
+     * テーブルのインデックスで指定されたエントリを削除します。
+     * <p>
+     * 後続の要素を前に詰めてテーブルに削除済みの印を残さないようにし、 エントリの配列を詰めます。
+     * 詰めたエントリはキーのハッシュ値からテーブルを探索して番号を振り直すため、
+     * テーブル全体は走査せず、 削除したエントリより後ろのエントリ数に比例した時間がかかります。
+     * 最後に追加されたエントリの削除は定数時間です。
+     * </p>
+     * 
+     * @param slot
+     *            削除するエントリのテーブルのインデックス
+     * @return 削除したエントリの配列のインデックス
+     */
+    protected int removeEntry(final int slot) {
+        final int position = table[slot] - 1;
+        int hole = slot;
+        for (int next = (hole + 1) & mask; table[next] != 0; next =
+            (next + 1) & mask) {
+            final int ideal = hashAt(table[next] - 1) & mask;
+            if (((next - ideal) & mask) >= ((next - hole) & mask)) {
+                table[hole] = table[next];
+                hole = next;
+            }
+        }
+        table[hole] = 0;
+
+        --size;
+        if (position < size) {
+            shiftEntries(position);
+            for (int moved = position; moved < size; ++moved) {
+                renumber(moved);
+            }
+        }
+        clearEntry(size);
+        return position;
+    }
+
+    /**
+     * エントリの配列で一つ前に詰めたエントリのテーブルの要素を振り直します。
+     * 
+     * @param position
+     *            詰めた後のエントリの配列のインデックス
+     */
+    protected void renumber(final int position) {
+        int slot = hashAt(position) & mask;
+        while (table[slot] != position + 2) {
+            slot = (slot + 1) & mask;
+        }
+        table[slot] = position + 1;
+    }
+
+    /**
+     * エントリの配列の容量を返します。
+     * 
+     * @return エントリの配列の容量
+     */
+    protected abstract int getEntryCapacity();
+
+    /**
+     * エントリの配列を拡張します。
+     * 
+     * @param capacity
+     *            新しい容量
+     */
+    protected abstract void growEntries(int capacity);
+
+    /**
+     * エントリの配列のインデックスで指定されたエントリのキーのハッシュ値を返します。
+     * 
+     * @param position
+     *            エントリの配列のインデックス
+     * @return キーのハッシュ値
+     */
+    protected abstract int hashAt(int position);
+
+    /**
+     * エントリの配列の指定された位置より後ろのエントリを一つ前に詰めます。
+     * 
+     * @param position
+     *            削除するエントリの配列のインデックス
+     */
+    protected abstract void shiftEntries(int position);
+
+    /**
+     * エントリの配列の指定された位置を空にします。
+     * 
+     * @param position
+     *            エントリの配列のインデックス
+     */
+    protected abstract void clearEntry(int position);
+
+    /**
+     * エントリの配列をすべて空にします。
+     */
+    protected abstract void clearEntries();
+
+}
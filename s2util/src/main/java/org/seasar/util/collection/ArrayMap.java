@@ -20,9 +20,11 @@ import java.io.IOException;
 import java.io.ObjectInput;
 import java.io.ObjectOutput;
 import java.lang.reflect.Array;
+import java.util.AbstractCollection;
 import java.util.AbstractMap;
 import java.util.AbstractSet;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
@@ -33,6 +35,16 @@ import static org.seasar.util.misc.AssertionUtil.*;
 
 /**
  * 配列の性質を併せ持つ {@link Map}です。
+ * <p>
+ * キーと値は追加された順に並列の配列に格納され、 キーのハッシュ値からその位置を引くために{@literal int}
+ * のインデックステーブルを使います (オープンアドレス法)。 マッピングごとにエントリのオブジェクトを生成しないため、
+ * {@link java.util.HashMap}よりメモリ効率が良く、 {@link #getAt(int)}や{@link #getKeyAt(int)}
+ * で配列のようにインデックスを指定して参照できます。 {@link java.util.Map.Entry}は{@link #entrySet()}
+ * を反復した時に初めて生成されます。
+ * </p>
+ * <p>
+ * エントリの削除は後続のエントリを詰めるため、要素数に比例した時間がかかります。
+ * </p>
  * 
  * @author higa
  * @param <K>
@@ -52,14 +64,25 @@ public class ArrayMap<K, V> extends AbstractMap<K, V> implements Map<K, V>,
     /** 負荷係数のデフォルト値 */
     public static final float LOAD_FACTOR = 0.75f;
 
-    /** 負荷係数 */
+    /** インデックステーブルを拡張する要素数の閾値 */
     protected transient int threshold;
 
-    /** マップとしてのエントリ */
-    protected transient Entry<K, V>[] mapTable;
+    /** 追加された順にキーを格納する配列 */
+    protected transient Object[] keys;
 
-    /** 配列としてのエントリ */
-    protected transient Entry<K, V>[] listTable;
+    /** 追加された順に値を格納する配列 */
+    protected transient Object[] values;
+
+    /** 追加された順にキーのハッシュ値を格納する配列 */
+    protected transient int[] hashCodes;
+
+    /**
+     * キーのハッシュ値からエントリの位置を引くテーブル
+     * <p>
+     * 長さは2のべき乗で、要素はエントリの位置に{@literal 1}を加えた値です。 {@literal 0}は空きを表します。
+     * </p>
+     */
+    protected transient int[] indexTable;
 
     /** 要素数 */
     protected transient int size = 0;
@@ -67,6 +90,12 @@ public class ArrayMap<K, V> extends AbstractMap<K, V> implements Map<K, V>,
     /** {@link Set}としてのビュー */
     protected transient Set<? extends Map.Entry<K, V>> entrySet = null;
 
+    /** キーの{@link Set}としてのビュー */
+    protected transient Set<K> keySetView = null;
+
+    /** 値の{@link Collection}としてのビュー */
+    protected transient Collection<V> valuesView = null;
+
     /**
      * デフォルトの初期容量を持つインスタンスを構築します。
      */
@@ -80,14 +109,11 @@ public class ArrayMap<K, V> extends AbstractMap<K, V> implements Map<K, V>,
      * @param initialCapacity
      *            初期容量
      */
-    @SuppressWarnings("unchecked")
     public ArrayMap(int initialCapacity) {
         if (initialCapacity <= 0) {
             initialCapacity = INITIAL_CAPACITY;
         }
-        mapTable = new Entry[initialCapacity];
-        listTable = new Entry[initialCapacity];
-        threshold = (int) (initialCapacity * LOAD_FACTOR);
+        allocate(initialCapacity);
     }
 
     /**
@@ -97,7 +123,7 @@ public class ArrayMap<K, V> extends AbstractMap<K, V> implements Map<K, V>,
      *            マッピングがこのマップに配置されるマップ
      */
     public ArrayMap(final Map<? extends K, ? extends V> map) {
-        this((int) (map.size() / LOAD_FACTOR) + 1);
+        this(map.size());
         putAll(map);
     }
 
@@ -124,15 +150,16 @@ public class ArrayMap<K, V> extends AbstractMap<K, V> implements Map<K, V>,
      * @return 値に対するインデックス。値が含まれていない場合は{@literal -1}
      */
     public int indexOf(final Object value) {
+        final Object[] vals = values;
         if (value != null) {
             for (int i = 0; i < size; i++) {
-                if (value.equals(listTable[i].value)) {
+                if (value.equals(vals[i])) {
                     return i;
                 }
             }
         } else {
             for (int i = 0; i < size; i++) {
-                if (listTable[i].value == null) {
+                if (vals[i] == null) {
                     return i;
                 }
             }
@@ -142,44 +169,13 @@ public class ArrayMap<K, V> extends AbstractMap<K, V> implements Map<K, V>,
 
     @Override
     public boolean containsKey(final Object key) {
-        final Entry<K, V>[] tbl = mapTable;
-        if (key != null) {
-            final int hashCode = key.hashCode();
-            final int index = (hashCode & 0x7FFFFFFF) % tbl.length;
-            for (Entry<K, V> e = tbl[index]; e != null; e = e.next) {
-                if (e.hashCode == hashCode && key.equals(e.key)) {
-                    return true;
-                }
-            }
-        } else {
-            for (Entry<K, V> e = tbl[0]; e != null; e = e.next) {
-                if (e.key == null) {
-                    return true;
-                }
-            }
-        }
-        return false;
+        return findSlot(key) >= 0;
     }
 
     @Override
     public V get(final Object key) {
-        final Entry<K, V>[] tbl = mapTable;
-        if (key != null) {
-            final int hashCode = key.hashCode();
-            final int index = (hashCode & 0x7FFFFFFF) % tbl.length;
-            for (Entry<K, V> e = tbl[index]; e != null; e = e.next) {
-                if (e.hashCode == hashCode && key.equals(e.key)) {
-                    return e.value;
-                }
-            }
-        } else {
-            for (Entry<K, V> e = tbl[0]; e != null; e = e.next) {
-                if (e.key == null) {
-                    return e.value;
-                }
-            }
-        }
-        return null;
+        final int slot = findSlot(key);
+        return slot < 0 ? null : valueAt(indexTable[slot] - 1);
     }
 
     /**
@@ -190,7 +186,8 @@ public class ArrayMap<K, V> extends AbstractMap<K, V> implements Map<K, V>,
      * @return インデックスで指定された位置の値
      */
     public V getAt(final int index) {
-        return getEntryAt(index).getValue();
+        checkIndex(index);
+        return valueAt(index);
     }
 
     /**
@@ -201,47 +198,44 @@ public class ArrayMap<K, V> extends AbstractMap<K, V> implements Map<K, V>,
      * @return インデックスで指定された位置のキー
      */
     public K getKeyAt(final int index) {
-        return getEntryAt(index).getKey();
+        checkIndex(index);
+        return keyAt(index);
     }
 
     /**
      * インデックスで指定された位置の{@link java.util.Map.Entry}を返します。
+     * <p>
+     * 返される{@link java.util.Map.Entry}は呼び出しのたびに生成されます。
+     * </p>
      * 
      * @param index
      *            インデックス
      * @return インデックスで指定された位置の{@link java.util.Map.Entry}
      */
     public Map.Entry<K, V> getEntryAt(final int index) {
-        assertIndex(index < size, "Index:" + index + ", Size:" + size);
-        return listTable[index];
+        checkIndex(index);
+        return new ArrayMapEntry(index);
     }
 
     @Override
     public V put(final K key, final V value) {
-        int hashCode = 0;
-        int index = 0;
-
-        if (key != null) {
-            hashCode = key.hashCode();
-            index = (hashCode & 0x7FFFFFFF) % mapTable.length;
-            for (Entry<K, V> e = mapTable[index]; e != null; e = e.next) {
-                if ((e.hashCode == hashCode) && key.equals(e.key)) {
-                    return swapValue(e, value);
-                }
-            }
-        } else {
-            for (Entry<K, V> e = mapTable[0]; e != null; e = e.next) {
-                if (e.key == null) {
-                    return swapValue(e, value);
-                }
-            }
+        final int hashCode = hashCodeOf(key);
+        int slot = findSlot(key, hashCode);
+        if (slot >= 0) {
+            final int position = indexTable[slot] - 1;
+            final V oldValue = valueAt(position);
+            values[position] = value;
+            return oldValue;
         }
+        final int[] table = indexTable;
         ensureCapacity();
-        index = (hashCode & 0x7FFFFFFF) % mapTable.length;
-        final Entry<K, V> e =
-            new Entry<K, V>(hashCode, key, value, mapTable[index]);
-        mapTable[index] = e;
-        listTable[size++] = e;
+        if (indexTable != table) {
+            slot = findSlot(key, hashCode);
+        }
+        keys[size] = key;
+        values[size] = value;
+        hashCodes[size] = hashCode;
+        indexTable[-slot - 1] = ++size;
         return null;
     }
 
@@ -254,19 +248,20 @@ public class ArrayMap<K, V> extends AbstractMap<K, V> implements Map<K, V>,
      *            値
      */
     public void setAt(final int index, final V value) {
-        getEntryAt(index).setValue(value);
+        checkIndex(index);
+        values[index] = value;
     }
 
     @Override
     public V remove(final Object key) {
-        final Entry<K, V> e = removeMap(key);
-        if (e != null) {
-            final V value = e.value;
-            removeList(entryIndexOf(e));
-            e.clear();
-            return value;
+        final int slot = findSlot(key);
+        if (slot < 0) {
+            return null;
         }
-        return null;
+        final int position = indexTable[slot] - 1;
+        final V value = valueAt(position);
+        removeEntry(slot, position);
+        return value;
     }
 
     /**
@@ -277,10 +272,9 @@ public class ArrayMap<K, V> extends AbstractMap<K, V> implements Map<K, V>,
      * @return インデックスで指定された位置にあったエントリの値
      */
     public V removeAt(final int index) {
-        final Entry<K, V> e = removeList(index);
-        final V value = e.value;
-        removeMap(e.key);
-        e.clear();
+        checkIndex(index);
+        final V value = valueAt(index);
+        removeEntry(slotOf(index), index);
         return value;
     }
 
@@ -293,12 +287,9 @@ public class ArrayMap<K, V> extends AbstractMap<K, V> implements Map<K, V>,
 
     @Override
     public void clear() {
-        for (int i = 0; i < mapTable.length; i++) {
-            mapTable[i] = null;
-        }
-        for (int i = 0; i < listTable.length; i++) {
-            listTable[i] = null;
-        }
+        Arrays.fill(indexTable, 0);
+        Arrays.fill(keys, 0, size, null);
+        Arrays.fill(values, 0, size, null);
         size = 0;
     }
 
@@ -308,11 +299,7 @@ public class ArrayMap<K, V> extends AbstractMap<K, V> implements Map<K, V>,
      * @return 配列
      */
     public Object[] toArray() {
-        final Object[] array = new Object[size];
-        for (int i = 0; i < array.length; i++) {
-            array[i] = getAt(i);
-        }
-        return array;
+        return Arrays.copyOf(values, size);
     }
 
     /**
@@ -328,9 +315,7 @@ public class ArrayMap<K, V> extends AbstractMap<K, V> implements Map<K, V>,
             proto.length >= size ? proto : (V[]) Array.newInstance(proto
                 .getClass()
                 .getComponentType(), size);
-        for (int i = 0; i < array.length; i++) {
-            array[i] = getAt(i);
-        }
+        System.arraycopy(values, 0, array, 0, size);
         if (array.length > size) {
             array[size] = null;
         }
@@ -345,13 +330,13 @@ public class ArrayMap<K, V> extends AbstractMap<K, V> implements Map<K, V>,
         if (!(o instanceof ArrayMap)) {
             return false;
         }
-        @SuppressWarnings("unchecked")
-        final ArrayMap<K, V> e = (ArrayMap<K, V>) o;
+        final ArrayMap<?, ?> e = (ArrayMap<?, ?>) o;
         if (size != e.size) {
             return false;
         }
         for (int i = 0; i < size; i++) {
-            if (!listTable[i].equals(e.listTable[i])) {
+            if (!isEqual(keys[i], e.keys[i])
+                || !isEqual(values[i], e.values[i])) {
                 return false;
             }
         }
@@ -362,7 +347,7 @@ public class ArrayMap<K, V> extends AbstractMap<K, V> implements Map<K, V>,
     public int hashCode() {
         int h = 0;
         for (int i = 0; i < size; i++) {
-            h += listTable[i].hashCode();
+            h += hashCodes[i];
         }
         return h;
     }
@@ -371,32 +356,32 @@ public class ArrayMap<K, V> extends AbstractMap<K, V> implements Map<K, V>,
     @Override
     public Set<Map.Entry<K, V>> entrySet() {
         if (entrySet == null) {
-            entrySet = new AbstractSet<Entry<K, V>>() {
+            entrySet = new AbstractSet<Map.Entry<K, V>>() {
                 @Override
-                public Iterator<Entry<K, V>> iterator() {
+                public Iterator<Map.Entry<K, V>> iterator() {
                     return new ArrayMapIterator();
                 }
 
                 @Override
                 public boolean contains(final Object o) {
-                    final Entry<K, V> entry = (Entry<K, V>) o;
-                    final int index =
-                        (entry.hashCode & 0x7FFFFFFF) % mapTable.length;
-                    for (Entry<K, V> e = mapTable[index]; e != null; e = e.next) {
-                        if (e.equals(entry)) {
-                            return true;
-                        }
+                    if (!(o instanceof Map.Entry)) {
+                        return false;
                     }
-                    return false;
+                    final Map.Entry<?, ?> entry = (Map.Entry<?, ?>) o;
+                    final int slot = findSlot(entry.getKey());
+                    return slot >= 0
+                        && isEqual(
+                            values[indexTable[slot] - 1],
+                            entry.getValue());
                 }
 
                 @Override
                 public boolean remove(final Object o) {
-                    if (!(o instanceof Entry)) {
+                    if (!contains(o)) {
                         return false;
                     }
-                    final Entry<K, V> entry = (Entry<K, V>) o;
-                    return ArrayMap.this.remove(entry.key) != null;
+                    ArrayMap.this.remove(((Map.Entry<?, ?>) o).getKey());
+                    return true;
                 }
 
                 @Override
@@ -413,13 +398,89 @@ public class ArrayMap<K, V> extends AbstractMap<K, V> implements Map<K, V>,
         return (Set<Map.Entry<K, V>>) entrySet;
     }
 
+    @Override
+    public Set<K> keySet() {
+        if (keySetView == null) {
+            keySetView = new AbstractSet<K>() {
+                @Override
+                public Iterator<K> iterator() {
+                    return new AbstractArrayMapIterator<K>() {
+                        @Override
+                        protected K get(final int index) {
+                            return keyAt(index);
+                        }
+                    };
+                }
+
+                @Override
+                public boolean contains(final Object o) {
+                    return containsKey(o);
+                }
+
+                @Override
+                public boolean remove(final Object o) {
+                    final int slot = findSlot(o);
+                    if (slot < 0) {
+                        return false;
+                    }
+                    removeEntry(slot, indexTable[slot] - 1);
+                    return true;
+                }
+
+                @Override
+                public int size() {
+                    return size;
+                }
+
+                @Override
+                public void clear() {
+                    ArrayMap.this.clear();
+                }
+            };
+        }
+        return keySetView;
+    }
+
+    @Override
+    public Collection<V> values() {
+        if (valuesView == null) {
+            valuesView = new AbstractCollection<V>() {
+                @Override
+                public Iterator<V> iterator() {
+                    return new AbstractArrayMapIterator<V>() {
+                        @Override
+                        protected V get(final int index) {
+                            return valueAt(index);
+                        }
+                    };
+                }
+
+                @Override
+                public boolean contains(final Object o) {
+                    return containsValue(o);
+                }
+
+                @Override
+                public int size() {
+                    return size;
+                }
+
+                @Override
+                public void clear() {
+                    ArrayMap.this.clear();
+                }
+            };
+        }
+        return valuesView;
+    }
+
     @Override
     public void writeExternal(final ObjectOutput out) throws IOException {
-        out.writeInt(listTable.length);
+        out.writeInt(keys.length);
         out.writeInt(size);
         for (int i = 0; i < size; i++) {
-            out.writeObject(listTable[i].key);
-            out.writeObject(listTable[i].value);
+            out.writeObject(keys[i]);
+            out.writeObject(values[i]);
         }
     }
 
@@ -428,9 +489,7 @@ public class ArrayMap<K, V> extends AbstractMap<K, V> implements Map<K, V>,
     public void readExternal(final ObjectInput in) throws IOException,
             ClassNotFoundException {
         final int num = in.readInt();
-        mapTable = new Entry[num];
-        listTable = new Entry[num];
-        threshold = (int) (num * LOAD_FACTOR);
+        allocate(num);
         final int size = in.readInt();
         for (int i = 0; i < size; i++) {
             final K key = (K) in.readObject();
@@ -443,131 +502,277 @@ public class ArrayMap<K, V> extends AbstractMap<K, V> implements Map<K, V>,
     public Object clone() {
         final ArrayMap<K, V> copy = new ArrayMap<K, V>();
         copy.threshold = threshold;
-        copy.mapTable = Arrays.copyOf(mapTable, size);
-        copy.listTable = Arrays.copyOf(listTable, size);
+        copy.keys = keys.clone();
+        copy.values = values.clone();
+        copy.hashCodes = hashCodes.clone();
+        copy.indexTable = indexTable.clone();
         copy.size = size;
         return copy;
     }
 
     /**
-     * エントリのインデックスを返します。
+     * 指定された容量の配列とインデックステーブルを割り当てます。
      * 
-     * @param entry
-     *            エントリ
-     * @return エントリのインデックス
+     * @param capacity
+     *            容量
      */
-    protected int entryIndexOf(final Entry<K, V> entry) {
-        for (int i = 0; i < size; i++) {
-            if (listTable[i] == entry) {
-                return i;
-            }
-        }
-        return -1;
+    protected void allocate(final int capacity) {
+        keys = new Object[capacity];
+        values = new Object[capacity];
+        hashCodes = new int[capacity];
+        indexTable = new int[tableSizeFor((int) (capacity / LOAD_FACTOR) + 1)];
+        threshold = (int) (indexTable.length * LOAD_FACTOR);
+        size = 0;
+    }
+
+    /**
+     * インデックスが範囲内であることを確認します。
+     * 
+     * @param index
+     *            インデックス
+     */
+    protected void checkIndex(final int index) {
+        assertIndex(index >= 0 && index < size, "Index:" + index + ", Size:"
+            + size);
+    }
+
+    /**
+     * 位置で指定されたキーを返します。
+     * 
+     * @param position
+     *            位置
+     * @return 位置で指定されたキー
+     */
+    @SuppressWarnings("unchecked")
+    protected K keyAt(final int position) {
+        return (K) keys[position];
+    }
+
+    /**
+     * 位置で指定された値を返します。
+     * 
+     * @param position
+     *            位置
+     * @return 位置で指定された値
+     */
+    @SuppressWarnings("unchecked")
+    protected V valueAt(final int position) {
+        return (V) values[position];
     }
 
     /**
-     * キーで指定されたエントリをマップのエントリから削除します。
+     * キーのハッシュ値を返します。
      * 
      * @param key
      *            キー
-     * @return 削除されたエントリ。キーに対応するエントリがなかった場合は{@literal null}
+     * @return キーのハッシュ値。キーが{@literal null}の場合は{@literal 0}
      */
-    protected Entry<K, V> removeMap(final Object key) {
-        int hashCode = 0;
-        int index = 0;
-
-        if (key != null) {
-            hashCode = key.hashCode();
-            index = (hashCode & 0x7FFFFFFF) % mapTable.length;
-            for (Entry<K, V> e = mapTable[index], prev = null; e != null; prev =
-                e, e = e.next) {
-                if ((e.hashCode == hashCode) && key.equals(e.key)) {
-                    if (prev != null) {
-                        prev.next = e.next;
-                    } else {
-                        mapTable[index] = e.next;
-                    }
-                    return e;
-                }
+    protected int hashCodeOf(final Object key) {
+        return key == null ? 0 : key.hashCode();
+    }
+
+    /**
+     * 格納されているキーと引数のキーが等しければ{@literal true}を返します。
+     * 
+     * @param key
+     *            引数のキー
+     * @param storedKey
+     *            格納されているキー
+     * @return 格納されているキーと引数のキーが等しければ{@literal true}
+     */
+    protected boolean isEqualKey(final Object key, final Object storedKey) {
+        return key == storedKey || key != null && key.equals(storedKey);
+    }
+
+    /**
+     * キーが格納されているインデックステーブルの位置を返します。
+     * 
+     * @param key
+     *            キー
+     * @return キーが格納されているインデックステーブルの位置。キーが存在しない場合は{@literal -(挿入位置 + 1)}
+     */
+    protected int findSlot(final Object key) {
+        return findSlot(key, hashCodeOf(key));
+    }
+
+    /**
+     * キーが格納されているインデックステーブルの位置を返します。
+     * 
+     * @param key
+     *            キー
+     * @param hashCode
+     *            キーのハッシュ値
+     * @return キーが格納されているインデックステーブルの位置。キーが存在しない場合は{@literal -(挿入位置 + 1)}
+     */
+    protected int findSlot(final Object key, final int hashCode) {
+        final int[] table = indexTable;
+        final int mask = table.length - 1;
+        for (int slot = spread(hashCode) & mask;; slot = (slot + 1) & mask) {
+            final int position = table[slot] - 1;
+            if (position < 0) {
+                return -slot - 1;
             }
-        } else {
-            for (Entry<K, V> e = mapTable[index], prev = null; e != null; prev =
-                e, e = e.next) {
-                if ((e.hashCode == hashCode) && e.key == null) {
-                    if (prev != null) {
-                        prev.next = e.next;
-                    } else {
-                        mapTable[index] = e.next;
-                    }
-                    return e;
-                }
+            if (hashCodes[position] == hashCode
+                && isEqualKey(key, keys[position])) {
+                return slot;
             }
         }
-        return null;
     }
 
     /**
-     * インデックスで指定されたエントリをリストのエントリから削除します。
+     * エントリの位置を格納しているインデックステーブルの位置を返します。
      * 
-     * @param index
-     *            削除するエントリのインデックス
-     * @return 削除されたエントリ
+     * @param position
+     *            エントリの位置
+     * @return エントリの位置を格納しているインデックステーブルの位置
      */
-    protected Entry<K, V> removeList(final int index) {
-        final Entry<K, V> e = listTable[index];
-        final int numMoved = size - index - 1;
+    protected int slotOf(final int position) {
+        final int[] table = indexTable;
+        final int mask = table.length - 1;
+        for (int slot = spread(hashCodes[position]) & mask;; slot =
+            (slot + 1) & mask) {
+            if (table[slot] == position + 1) {
+                return slot;
+            }
+        }
+    }
+
+    /**
+     * エントリを削除します。
+     * <p>
+     * インデックステーブルからは後方シフトで削除するため、削除済みの目印は残りません。
+     * 後続のエントリは前に詰められ、 詰めたエントリだけインデックステーブルの位置を振り直します。
+     * </p>
+     * 
+     * @param slot
+     *            エントリの位置を格納しているインデックステーブルの位置
+     * @param position
+     *            エントリの位置
+     */
+    protected void removeEntry(final int slot, final int position) {
+        final int[] table = indexTable;
+        final int mask = table.length - 1;
+        int hole = slot;
+        for (int i = (hole + 1) & mask;; i = (i + 1) & mask) {
+            final int entry = table[i];
+            if (entry == 0) {
+                break;
+            }
+            final int home = spread(hashCodes[entry - 1]) & mask;
+            if (((i - home) & mask) >= ((i - hole) & mask)) {
+                table[hole] = entry;
+                hole = i;
+            }
+        }
+        table[hole] = 0;
+
+        final int numMoved = size - position - 1;
         if (numMoved > 0) {
-            System.arraycopy(listTable, index + 1, listTable, index, numMoved);
+            System.arraycopy(keys, position + 1, keys, position, numMoved);
+            System.arraycopy(values, position + 1, values, position, numMoved);
+            System.arraycopy(
+                hashCodes,
+                position + 1,
+                hashCodes,
+                position,
+                numMoved);
+            for (int moved = position; moved < size - 1; ++moved) {
+                renumber(moved);
+            }
+        }
+        --size;
+        keys[size] = null;
+        values[size] = null;
+    }
+
+    /**
+     * 一つ前に詰めたエントリのインデックステーブルの位置を振り直します。
+     * 
+     * @param position
+     *            詰めた後のエントリの位置
+     */
+    protected void renumber(final int position) {
+        final int[] table = indexTable;
+        final int mask = table.length - 1;
+        int slot = spread(hashCodes[position]) & mask;
+        while (table[slot] != position + 2) {
+            slot = (slot + 1) & mask;
         }
-        listTable[--size] = null;
-        return e;
+        table[slot] = position + 1;
     }
 
     /**
-     * サイズが閾値を超えた場合に容量を確保します。
+     * エントリを一つ追加できるように必要に応じて配列とインデックステーブルを拡張します。
      */
     protected void ensureCapacity() {
+        if (size == keys.length) {
+            final int newCapacity = keys.length * 2 + 1;
+            keys = Arrays.copyOf(keys, newCapacity);
+            values = Arrays.copyOf(values, newCapacity);
+            hashCodes = Arrays.copyOf(hashCodes, newCapacity);
+        }
         if (size >= threshold) {
-            final Entry<K, V>[] oldTable = listTable;
-            final int newCapacity = oldTable.length * 2 + 1;
-            @SuppressWarnings("unchecked")
-            final Entry<K, V>[] newMapTable = new Entry[newCapacity];
-            @SuppressWarnings("unchecked")
-            final Entry<K, V>[] newListTable = new Entry[newCapacity];
-            threshold = (int) (newCapacity * LOAD_FACTOR);
-            System.arraycopy(oldTable, 0, newListTable, 0, size);
+            final int[] table = new int[indexTable.length * 2];
+            final int mask = table.length - 1;
             for (int i = 0; i < size; i++) {
-                Entry<K, V> old = oldTable[i];
-                final int index = (old.hashCode & 0x7FFFFFFF) % newCapacity;
-                final Entry<K, V> e = old;
-                old = old.next;
-                e.next = newMapTable[index];
-                newMapTable[index] = e;
+                int slot = spread(hashCodes[i]) & mask;
+                while (table[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                table[slot] = i + 1;
             }
-            mapTable = newMapTable;
-            listTable = newListTable;
+            indexTable = table;
+            threshold = (int) (table.length * LOAD_FACTOR);
         }
     }
 
     /**
-     * エントリの値を新しい値で置き換えます。
+     * ハッシュ値の上位ビットを下位ビットに拡散します。
      * 
-     * @param entry
-     *            エントリ
-     * @param value
-     *            エントリの新しい値
-     * @return エントリの置き換えられる前の値
+     * @param hashCode
+     *            ハッシュ値
+     * @return 拡散されたハッシュ値
      */
-    protected V swapValue(final Entry<K, V> entry, final V value) {
-        final V old = entry.value;
-        entry.value = value;
-        return old;
+    protected static int spread(final int hashCode) {
+        return hashCode ^ (hashCode >>> 16);
     }
 
     /**
-     * {@link ArrayMap}用の{@link Iterator}です。
+     * 指定された値以上で最小の2のべき乗を返します。
+     * 
+     * @param capacity
+     *            値
+     * @return 指定された値以上で最小の2のべき乗
+     */
+    protected static int tableSizeFor(final int capacity) {
+        int n = 1;
+        while (n < capacity) {
+            n <<= 1;
+        }
+        return n;
+    }
+
+    /**
+     * 二つのオブジェクトが等しければ{@literal true}を返します。
+     * 
+     * @param o1
+     *            オブジェクト1
+     * @param o2
+     *            オブジェクト2
+     * @return 二つのオブジェクトが等しければ{@literal true}
      */
-    protected class ArrayMapIterator implements Iterator<Entry<K, V>> {
+    protected static boolean isEqual(final Object o1, final Object o2) {
+        return o1 == null ? o2 == null : o1.equals(o2);
+    }
+
+    /**
+     * {@link ArrayMap}の要素を追加された順に反復する{@link Iterator}の基底クラスです。
+     * 
+     * @param <E>
+     *            要素の型
+     */
+    protected abstract class AbstractArrayMapIterator<E> implements
+            Iterator<E> {
 
         /** 現在のインデックス */
         protected int current = 0;
@@ -581,76 +786,78 @@ public class ArrayMap<K, V> extends AbstractMap<K, V> implements Map<K, V>,
         }
 
         @Override
-        public Entry<K, V> next() {
-            try {
-                final Entry<K, V> n = listTable[current];
-                last = current++;
-                return n;
-            } catch (final IndexOutOfBoundsException e) {
+        public E next() {
+            if (current >= size) {
                 throw new SNoSuchElementException("current=" + current);
             }
+            last = current++;
+            return get(last);
         }
 
         @Override
         public void remove() {
             assertState(last != -1, "last == -1");
-            ArrayMap.this.remove(last);
+            removeAt(last);
             if (last < current) {
                 current--;
             }
             last = -1;
         }
+
+        /**
+         * インデックスで指定された位置の要素を返します。
+         * 
+         * @param index
+         *            インデックス
+         * @return インデックスで指定された位置の要素
+         */
+        protected abstract E get(int index);
+
     }
 
     /**
-     * {@link ArrayMap}の{@link Map.Entry}です。
-     * 
-     * @param <K>
-     *            キーの型
-     * @param <V>
-     *            キーの値
+     * {@link ArrayMap}用の{@link Iterator}です。
+     * <p>
+     * {@link java.util.Map.Entry}は{@link #next()}が呼び出されるたびに生成されます。
+     * </p>
      */
-    protected static class Entry<K, V> implements Map.Entry<K, V>,
-            Externalizable {
+    protected class ArrayMapIterator extends
+            AbstractArrayMapIterator<Map.Entry<K, V>> {
 
-        private static final long serialVersionUID = -6625980241350717177L;
+        @Override
+        protected Map.Entry<K, V> get(final int index) {
+            return new ArrayMapEntry(index);
+        }
 
-        /** ハッシュ値 */
-        protected transient int hashCode;
+    }
+
+    /**
+     * {@link ArrayMap}の{@link java.util.Map.Entry}です。
+     * <p>
+     * キーと位置を保持し、値は{@link ArrayMap}の配列を参照します。 エントリが削除された後は最後に参照した値を返します。
+     * </p>
+     */
+    protected class ArrayMapEntry implements Map.Entry<K, V> {
 
         /** キー */
-        protected transient K key;
+        protected final K key;
 
-        /** 値 */
-        protected transient V value;
+        /** 最後に参照した値 */
+        protected V value;
 
-        /** 次のエントリ */
-        protected transient Entry<K, V> next;
-
-        /**
-         * インスタンスを構築します。
-         */
-        public Entry() {
-        }
+        /** エントリの位置 */
+        protected int position;
 
         /**
          * インスタンスを構築します。
          * 
-         * @param hashCode
-         *            ハッシュ値
-         * @param key
-         *            キー
-         * @param value
-         *            値
-         * @param next
-         *            次のエントリ
+         * @param position
+         *            エントリの位置
          */
-        public Entry(final int hashCode, final K key, final V value,
-                final Entry<K, V> next) {
-            this.hashCode = hashCode;
-            this.key = key;
-            this.value = value;
-            this.next = next;
+        protected ArrayMapEntry(final int position) {
+            this.key = keyAt(position);
+            this.value = valueAt(position);
+            this.position = position;
         }
 
         @Override
@@ -660,66 +867,63 @@ public class ArrayMap<K, V> extends AbstractMap<K, V> implements Map<K, V>,
 
         @Override
         public V getValue() {
+            if (locate()) {
+                value = valueAt(position);
+            }
             return value;
         }
 
         @Override
         public V setValue(final V value) {
-            final V oldValue = value;
+            final V oldValue = getValue();
+            if (locate()) {
+                values[position] = value;
+            }
             this.value = value;
             return oldValue;
         }
 
-        /**
-         * 状態をクリアします。
-         */
-        public void clear() {
-            key = null;
-            value = null;
-            next = null;
-        }
-
         @Override
         public boolean equals(final Object o) {
             if (this == o) {
                 return true;
             }
-            if (!(o instanceof Entry)) {
+            if (!(o instanceof Map.Entry)) {
                 return false;
             }
-            @SuppressWarnings("unchecked")
-            final Entry<K, V> e = (Entry<K, V>) o;
-            return (key != null ? key.equals(e.key) : e.key == null)
-                && (value != null ? value.equals(e.value) : e.value == null);
+            final Map.Entry<?, ?> e = (Map.Entry<?, ?>) o;
+            return isEqual(key, e.getKey()) && isEqual(getValue(), e.getValue());
         }
 
         @Override
         public int hashCode() {
-            return hashCode;
+            final V v = getValue();
+            return (key == null ? 0 : key.hashCode())
+                ^ (v == null ? 0 : v.hashCode());
         }
 
         @Override
         public String toString() {
-            return key + "=" + value;
+            return key + "=" + getValue();
         }
 
-        @Override
-        public void writeExternal(final ObjectOutput s) throws IOException {
-            s.writeInt(hashCode);
-            s.writeObject(key);
-            s.writeObject(value);
-            s.writeObject(next);
+        /**
+         * エントリの現在の位置を求めます。
+         * 
+         * @return エントリがまだ{@link ArrayMap}に含まれていれば{@literal true}
+         */
+        protected boolean locate() {
+            if (position < size && keys[position] == key) {
+                return true;
+            }
+            final int slot = findSlot(key);
+            if (slot < 0) {
+                return false;
+            }
+            position = indexTable[slot] - 1;
+            return true;
         }
 
-        @SuppressWarnings("unchecked")
-        @Override
-        public void readExternal(final ObjectInput s) throws IOException,
-                ClassNotFoundException {
-            hashCode = s.readInt();
-            key = (K) s.readObject();
-            value = (V) s.readObject();
-            next = (Entry<K, V>) s.readObject();
-        }
     }
 
 }
@@ -336,6 +336,9 @@ public abstract class ArrayUtil {
 
     /**
      * {@literal int}配列の末尾に{@literal int}の値を追加した配列を返します。
+     * <p>
+     * 要素を追加するたびに配列全体をコピーします。 ループの中で要素を追加する場合は{@link IntArrayBuilder}を使用してください。
+     * </p>
      * 
      * @param array
      *            配列。{@literal null}であってはいけません
@@ -355,6 +358,9 @@ public abstract class ArrayUtil {
 
     /**
      * {@literal long}配列の末尾に{@literal long}の値を追加した配列を返します。
+     * <p>
+     * 要素を追加するたびに配列全体をコピーします。 ループの中で要素を追加する場合は{@link LongArrayBuilder}を使用してください。
+     * </p>
      * 
      * @param array
      *            配列。{@literal null}であってはいけません
@@ -393,6 +399,9 @@ public abstract class ArrayUtil {
 
     /**
      * {@literal double}配列の末尾に{@literal double}の値を追加した配列を返します。
+     * <p>
+     * 要素を追加するたびに配列全体をコピーします。 ループの中で要素を追加する場合は{@link DoubleArrayBuilder}を使用してください。
+     * </p>
      * 
      * @param array
      *            配列。{@literal null}であってはいけません
@@ -711,6 +720,102 @@ public abstract class ArrayUtil {
         return array;
     }
 
+    /**
+     * {@link IntArrayBuilder}の末尾に複数の配列のすべての要素を追加します。
+     * <p>
+     * 追加する要素数の合計だけ先に容量を確保するため、内部の配列の拡張は高々一回です。 {@literal null}の配列は無視されます。
+     * </p>
+     * 
+     * @param builder
+     *            {@link IntArrayBuilder}。{@literal null}であってはいけません
+     * @param arrays
+     *            追加する要素の配列
+     * @return 引数で渡された{@link IntArrayBuilder}
+     */
+    public static IntArrayBuilder addAll(final IntArrayBuilder builder,
+            final int[]... arrays) {
+        assertArgumentNotNull("builder", builder);
+        assertArgumentNotNull("arrays", arrays);
+
+        int length = builder.size();
+        for (final int[] array : arrays) {
+            if (array != null) {
+                length += array.length;
+            }
+        }
+        builder.ensureCapacity(length);
+        for (final int[] array : arrays) {
+            if (array != null) {
+                builder.addAll(array);
+            }
+        }
+        return builder;
+    }
+
+    /**
+     * {@link LongArrayBuilder}の末尾に複数の配列のすべての要素を追加します。
+     * <p>
+     * 追加する要素数の合計だけ先に容量を確保するため、内部の配列の拡張は高々一回です。 {@literal null}の配列は無視されます。
+     * </p>
+     * 
+     * @param builder
+     *            {@link LongArrayBuilder}。{@literal null}であってはいけません
+     * @param arrays
+     *            追加する要素の配列
+     * @return 引数で渡された{@link LongArrayBuilder}
+     */
+    public static LongArrayBuilder addAll(final LongArrayBuilder builder,
+            final long[]... arrays) {
+        assertArgumentNotNull("builder", builder);
+        assertArgumentNotNull("arrays", arrays);
+
+        int length = builder.size();
+        for (final long[] array : arrays) {
+            if (array != null) {
+                length += array.length;
+            }
+        }
+        builder.ensureCapacity(length);
+        for (final long[] array : arrays) {
+            if (array != null) {
+                builder.addAll(array);
+            }
+        }
+        return builder;
+    }
+
+    /**
+     * {@link DoubleArrayBuilder}の末尾に複数の配列のすべての要素を追加します。
+     * <p>
+     * 追加する要素数の合計だけ先に容量を確保するため、内部の配列の拡張は高々一回です。 {@literal null}の配列は無視されます。
+     * </p>
+     * 
+     * @param builder
+     *            {@link DoubleArrayBuilder}。{@literal null}であってはいけません
+     * @param arrays
+     *            追加する要素の配列
+     * @return 引数で渡された{@link DoubleArrayBuilder}
+     */
+    public static DoubleArrayBuilder addAll(final DoubleArrayBuilder builder,
+            final double[]... arrays) {
+        assertArgumentNotNull("builder", builder);
+        assertArgumentNotNull("arrays", arrays);
+
+        int length = builder.size();
+        for (final double[] array : arrays) {
+            if (array != null) {
+                length += array.length;
+            }
+        }
+        builder.ensureCapacity(length);
+        for (final double[] array : arrays) {
+            if (array != null) {
+                builder.addAll(array);
+            }
+        }
+        return builder;
+    }
+
     /**
      * 配列中からオジェクトが最初に見つかったインデックスを返します。
      * 
@@ -0,0 +1,278 @@
+/*
+ * Copyright 2004-2012 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.util.collection;
+
+import java.util.Arrays;
+
+/**
+ * キャッシュの統計情報のスナップショットです。
+ * <p>
+ * ヒット数、ミス数、値の構築回数と構築に要した時間、破棄されたエントリ数、エントリ数を保持します。
+ * 値の構築に要した時間はマイクロ秒単位の2のべき乗ごとに区切ったヒストグラムでも保持します。
+ * ヒストグラムの{@literal 0}番目の要素は{@literal 1}マイクロ秒未満の構築回数、 {@literal i}番目の要素は
+ * {@literal 2}<sup>{@literal i-1}</sup>マイクロ秒以上{@literal 2}<sup>{@literal i}</sup>
+ * マイクロ秒未満の構築回数です。 最後の要素にはそれ以上の時間を要した構築回数も含まれます。
+ * </p>
+ * <p>
+ * このクラスのインスタンスは不変です。 複数のキャッシュの統計情報は{@link #plus(CacheStats)}で合算できます。
+ * </p>
+ * 
+ * @author koichik
+ */
+public class CacheStats {
+
+    /** ヒストグラムの要素数 */
+    public static final int HISTOGRAM_SIZE = 24;
+
+    /** 空の統計情報 */
+    public static final CacheStats EMPTY = new CacheStats(
+        0L,
+        0L,
+        0L,
+        0L,
+        0L,
+        0L,
+        0L,
+        0,
+        new long[HISTOGRAM_SIZE]);
+
+    /** ヒット数 */
+    protected final long hitCount;
+
+    /** ミス数 */
+    protected final long missCount;
+
+    /** 値を構築した回数 */
+    protected final long loadCount;
+
+    /** 値の構築に失敗した回数 */
+    protected final long loadFailureCount;
+
+    /** 値の構築に要した時間の合計 (ナノ秒) */
+    protected final long totalLoadTime;
+
+    /** 値の構築に要した時間の最大値 (ナノ秒) */
+    protected final long maxLoadTime;
+
+    /** 破棄されたエントリ数 */
+    protected final long evictionCount;
+
+    /** エントリ数 */
+    protected final int size;
+
+    /** 値の構築に要した時間のヒストグラム */
+    protected final long[] loadTimeHistogram;
+
+    /**
+     * インスタンスを構築します。
+     * 
+     * @param hitCount
+     *            ヒット数
+     * @param missCount
+     *            ミス数
+     * @param loadCount
+     *            値を構築した回数
+     * @param loadFailureCount
+     *            値の構築に失敗した回数
+     * @param totalLoadTime
+     *            値の構築に要した時間の合計 (ナノ秒)
+     * @param maxLoadTime
+     *            値の構築に要した時間の最大値 (ナノ秒)
+     * @param evictionCount
+     *            破棄されたエントリ数
+     * @param size
+     *            エントリ数
+     * @param loadTimeHistogram
+     *            値の構築に要した時間のヒストグラム。要素数は{@link #HISTOGRAM_SIZE}でなければなりません
+     */
+    public CacheStats(final long hitCount, final long missCount,
+            final long loadCount, final long loadFailureCount,
+            final long totalLoadTime, final long maxLoadTime,
+            final long evictionCount, final int size,
+            final long[] loadTimeHistogram) {
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.loadCount = loadCount;
+        this.loadFailureCount = loadFailureCount;
+        this.totalLoadTime = totalLoadTime;
+        this.maxLoadTime = maxLoadTime;
+        this.evictionCount = evictionCount;
+        this.size = size;
+        this.loadTimeHistogram = loadTimeHistogram.clone();
+    }
+
+    /**
+     * 値の構築に要した時間に対応するヒストグラムのインデックスを返します。
+     * 
+     * @param elapsed
+     *            値の構築に要した時間 (ナノ秒)
+     * @return ヒストグラムのインデックス
+     */
+    public static int getHistogramIndex(final long elapsed) {
+        final long micros = elapsed / 1000L;
+        if (micros <= 0L) {
+            return 0;
+        }
+        return Math.min(
+            64 - Long.numberOfLeadingZeros(micros),
+            HISTOGRAM_SIZE - 1);
+    }
+
+    /**
+     * ヒット数を返します。
+     * 
+     * @return ヒット数
+     */
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * ミス数を返します。
+     * 
+     * @return ミス数
+     */
+    public long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * ヒット数とミス数の合計を返します。
+     * 
+     * @return ヒット数とミス数の合計
+     */
+    public long getRequestCount() {
+        return hitCount + missCount;
+    }
+
+    /**
+     * ヒット率を返します。
+     * 
+     * @return ヒット率。要求がなかった場合は{@literal 1.0}
+     */
+    public double getHitRate() {
+        final long requestCount = getRequestCount();
+        return requestCount == 0L ? 1.0 : (double) hitCount / requestCount;
+    }
+
+    /**
+     * 値を構築した回数を返します。
+     * 
+     * @return 値を構築した回数
+     */
+    public long getLoadCount() {
+        return loadCount;
+    }
+
+    /**
+     * 値の構築に失敗した回数を返します。
+     * 
+     * @return 値の構築に失敗した回数
+     */
+    public long getLoadFailureCount() {
+        return loadFailureCount;
+    }
+
+    /**
+     * 値の構築に要した時間の合計をナノ秒単位で返します。
+     * 
+     * @return 値の構築に要した時間の合計 (ナノ秒)
+     */
+    public long getTotalLoadTime() {
+        return totalLoadTime;
+    }
+
+    /**
+     * 値の構築に要した時間の最大値をナノ秒単位で返します。
+     * 
+     * @return 値の構築に要した時間の最大値 (ナノ秒)
+     */
+    public long getMaxLoadTime() {
+        return maxLoadTime;
+    }
+
+    /**
+     * 値の構築に要した時間の平均をナノ秒単位で返します。
+     * 
+     * @return 値の構築に要した時間の平均 (ナノ秒)。値を構築していない場合は{@literal 0.0}
+     */
+    public double getAverageLoadTime() {
+        return loadCount == 0L ? 0.0 : (double) totalLoadTime / loadCount;
+    }
+
+    /**
+     * 破棄されたエントリ数を返します。
+     * 
+     * @return 破棄されたエントリ数
+     */
+    public long getEvictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * エントリ数を返します。
+     * 
+     * @return エントリ数
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * 値の構築に要した時間のヒストグラムを返します。
+     * 
+     * @return 値の構築に要した時間のヒストグラム
+     * @see #getHistogramIndex(long)
+     */
+    public long[] getLoadTimeHistogram() {
+        return loadTimeHistogram.clone();
+    }
+
+    /**
+     * この統計情報と別の統計情報を合算した統計情報を返します。
+     * 
+     * @param other
+     *            別の統計情報
+     * @return 合算した統計情報
+     */
+    public CacheStats plus(final CacheStats other) {
+        final long[] histogram = new long[HISTOGRAM_SIZE];
+        for (int i = 0; i < HISTOGRAM_SIZE; ++i) {
+            histogram[i] = loadTimeHistogram[i] + other.loadTimeHistogram[i];
+        }
+        return new CacheStats(
+            hitCount + other.hitCount,
+            missCount + other.missCount,
+            loadCount + other.loadCount,
+            loadFailureCount + other.loadFailureCount,
+            totalLoadTime + other.totalLoadTime,
+            Math.max(maxLoadTime, other.maxLoadTime),
+            evictionCount + other.evictionCount,
+            size + other.size,
+            histogram);
+    }
+
+    @Override
+    public String toString() {
+        return "CacheStats[hitCount=" + hitCount + ", missCount=" + missCount
+            + ", loadCount=" + loadCount + ", loadFailureCount="
+            + loadFailureCount + ", totalLoadTime=" + totalLoadTime
+            + ", maxLoadTime=" + maxLoadTime + ", evictionCount="
+            + evictionCount + ", size=" + size + ", loadTimeHistogram="
+            + Arrays.toString(loadTimeHistogram) + "]";
+    }
+
+}
@@ -15,10 +15,16 @@
  */
 package org.seasar.util.collection;
 
+import java.util.Locale;
 import java.util.Map;
 
 /**
  * キーで大文字小文字を気にしない {@link ArrayMap}です。
+ * <p>
+ * キーは小文字に変換して格納されます。 キーが{@link CharSequence}の場合、 参照時のハッシュ値の計算と比較は小文字に変換した文字列を生成せずに
+ * 引数の文字列に対して直接行います。 ASCII以外の文字を含むキーは従来どおり{@link String#toLowerCase()}
+ * で変換した文字列で比較します。
+ * </p>
  * 
  * @author higa 値の型
  * @param <V>
@@ -52,12 +58,7 @@ public class CaseInsensitiveMap<V> extends ArrayMap<String, V> {
      * @return キーが含まれているかどうか
      */
     public boolean containsKey(final String key) {
-        return super.containsKey(convertKey(key));
-    }
-
-    @Override
-    public V get(final Object key) {
-        return super.get(convertKey(key));
+        return super.containsKey(key);
     }
 
     @Override
@@ -74,17 +75,67 @@ public class CaseInsensitiveMap<V> extends ArrayMap<String, V> {
     }
 
     @Override
-    public final V remove(final Object key) {
-        return super.remove(convertKey(key));
+    protected int hashCodeOf(final Object key) {
+        if (key instanceof CharSequence && isAsciiFoldable()) {
+            final CharSequence cs = (CharSequence) key;
+            final int length = cs.length();
+            int h = 0;
+            for (int i = 0; i < length; ++i) {
+                final char c = cs.charAt(i);
+                if (c >= 0x80) {
+                    return convertKey(key).hashCode();
+                }
+                h = 31 * h + toLowerCase(c);
+            }
+            return h;
+        }
+        return convertKey(key).hashCode();
     }
 
     @Override
-    public boolean containsKey(final Object key) {
-        return super.containsKey(convertKey(key));
+    protected boolean isEqualKey(final Object key, final Object storedKey) {
+        if (key == storedKey) {
+            return true;
+        }
+        final String s = (String) storedKey;
+        if (key instanceof CharSequence && isAsciiFoldable()) {
+            final CharSequence cs = (CharSequence) key;
+            final int length = cs.length();
+            for (int i = 0; i < length; ++i) {
+                final char c = cs.charAt(i);
+                if (c >= 0x80) {
+                    return convertKey(key).equals(s);
+                }
+                if (i >= s.length() || toLowerCase(c) != s.charAt(i)) {
+                    return false;
+                }
+            }
+            return length == s.length();
+        }
+        return convertKey(key).equals(s);
     }
 
     private static String convertKey(final Object key) {
         return key.toString().toLowerCase();
     }
 
+    /**
+     * ASCII文字の大文字小文字の変換がデフォルトロケールに依存しなければ{@literal true}を返します。
+     * <p>
+     * トルコ語などでは{@literal 'I'}が{@literal 'i'}以外に変換されるため、 {@link String#toLowerCase()}
+     * と同じ結果になるように高速な変換を使いません。
+     * </p>
+     * 
+     * @return ASCII文字の大文字小文字の変換がデフォルトロケールに依存しなければ{@literal true}
+     */
+    private static boolean isAsciiFoldable() {
+        final String language = Locale.getDefault().getLanguage();
+        return !"tr".equals(language) && !"az".equals(language)
+            && !"lt".equals(language);
+    }
+
+    private static char toLowerCase(final char c) {
+        return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+    }
+
 }
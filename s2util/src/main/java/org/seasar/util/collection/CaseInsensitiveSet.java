@@ -24,6 +24,10 @@ import java.util.Set;
 
 /**
  * 大文字小文字を気にしない {@link Set}です。
+ * <p>
+ * 要素は{@link CaseInsensitiveMap}のキーとして保持されるため、 {@link #contains(Object)}
+ * は小文字に変換した文字列を生成せずに判定します。
+ * </p>
  * 
  * @author higa
  */
@@ -32,8 +36,7 @@ public class CaseInsensitiveSet extends AbstractSet<String> implements
 
     static final long serialVersionUID = 0L;
 
-    private transient Map<String, Object> map =
-        new CaseInsensitiveMap<Object>();
+    private transient Map<String, Object> map;
 
     private static final Object PRESENT = new Object();
 
@@ -51,10 +54,7 @@ public class CaseInsensitiveSet extends AbstractSet<String> implements
      *            コピー元のコレクション
      */
     public CaseInsensitiveSet(final Collection<String> c) {
-        map =
-            new CaseInsensitiveMap<Object>(Math.max(
-                (int) (c.size() / .75f) + 1,
-                16));
+        map = new CaseInsensitiveMap<Object>(Math.max(c.size(), 16));
         addAll(c);
     }
 
@@ -291,6 +291,23 @@ public abstract class CollectionsUtil {
         return new ConcurrentLinkedQueue<E>(c);
     }
 
+    /**
+     * {@link ConcurrentLruCache}の新しいインスタンスを作成して返します。
+     * 
+     * @param <K>
+     *            {@link ConcurrentLruCache}のキーの型
+     * @param <V>
+     *            {@link ConcurrentLruCache}の値の型
+     * @param limitSize
+     *            エントリ数の上限
+     * @return {@link ConcurrentLruCache}の新しいインスタンス
+     * @see ConcurrentLruCache#ConcurrentLruCache(int)
+     */
+    public static <K, V> ConcurrentLruCache<K, V> newConcurrentLruCache(
+            final int limitSize) {
+        return new ConcurrentLruCache<K, V>(limitSize);
+    }
+
     /**
      * {@link ConcurrentSkipListMap}の新しいインスタンスを作成して返します。
      * 
@@ -1034,6 +1051,44 @@ public abstract class CollectionsUtil {
         return new LinkedList<E>(c);
     }
 
+    /**
+     * {@link MemoizingLoader}の新しいインスタンスを作成して返します。
+     * 
+     * @param <K>
+     *            {@link MemoizingLoader}のキーの型
+     * @param <V>
+     *            {@link MemoizingLoader}の値の型
+     * @param loader
+     *            値を構築する{@link MemoizingLoader.Loader}
+     * @return {@link MemoizingLoader}の新しいインスタンス
+     * @see MemoizingLoader#MemoizingLoader(MemoizingLoader.Loader)
+     */
+    public static <K, V> MemoizingLoader<K, V> newMemoizingLoader(
+            final MemoizingLoader.Loader<? super K, ? extends V> loader) {
+        return new MemoizingLoader<K, V>(loader);
+    }
+
+    /**
+     * {@link MemoizingLoader}の新しいインスタンスを作成して返します。
+     * 
+     * @param <K>
+     *            {@link MemoizingLoader}のキーの型
+     * @param <V>
+     *            {@link MemoizingLoader}の値の型
+     * @param cache
+     *            値をキャッシュするマップ
+     * @param loader
+     *            値を構築する{@link MemoizingLoader.Loader}
+     * @return {@link MemoizingLoader}の新しいインスタンス
+     * @see MemoizingLoader#MemoizingLoader(ConcurrentMap,
+     *      MemoizingLoader.Loader)
+     */
+    public static <K, V> MemoizingLoader<K, V> newMemoizingLoader(
+            final ConcurrentMap<K, V> cache,
+            final MemoizingLoader.Loader<? super K, ? extends V> loader) {
+        return new MemoizingLoader<K, V>(cache, loader);
+    }
+
     /**
      * {@link PriorityBlockingQueue}の新しいインスタンスを作成して返します。
      * 
@@ -0,0 +1,431 @@
+/*
+ * Copyright 2004-2012 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.util.collection;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static org.seasar.util.collection.CollectionsUtil.*;
+import static org.seasar.util.misc.AssertionUtil.*;
+
+/**
+ * エントリ数の上限を持ち、上限を超えるとLRUで古いエントリを破棄する並行アクセス可能なキャッシュです。
+ * <p>
+ * {@link LruHashMap}と同じく、 エントリ数が上限 ({@literal limitSize}) を超えると最も長く参照されていないエントリから破棄します。
+ * {@link LruHashMap}と異なり、複数のスレッドから外部で同期せずに使用できます。
+ * </p>
+ * <p>
+ * {@link #get(Object)}はロックを取得しません。 参照の記録はスレッドごとに分散したバッファに書き込まれ、
+ * バッファが一定数に達した時点でロックを取得できた場合にだけ、 まとめてLRUの順序に反映されます。
+ * ロックを取得できなかった場合やバッファが溢れた場合は参照の記録が失われることがあるため、 破棄の順序は近似的なLRUになります。
+ * エントリの追加や削除はロックを取得して行われます。 エントリを破棄する前にはバッファに溜まった参照の記録を反映します。
+ * 書き込みはひとつのロックで直列化されます。 このキャッシュは参照が書き込みより十分に多い用途
+ * ({@link org.seasar.util.beans.BeanDesc}などのメタデータのキャッシュ) を想定しているため、
+ * ロックを分割せず、 書き込みをバッファすることもしません。
+ * </p>
+ * <p>
+ * 破棄されたエントリ数を記録します。 {@link #setRecordStats(boolean)}で有効にすると、ヒット数とミス数も記録します。
+ * 記録した統計情報は{@link #getStats()}で参照できます。 ヒット数とミス数のカウンタもスレッドごとに分散しています。
+ * </p>
+ * <p>
+ * {@link java.util.concurrent.ConcurrentHashMap}と同じく、キーと値に{@literal null}は使用できません。
+ * {@link #entrySet()}などのビューの反復はLRUの順序ではなく、 参照の記録もしません。
+ * </p>
+ * 
+ * @author koichik
+ * @param <K>
+ *            キーの型
+ * @param <V>
+ *            値の型
+ * @see LruHashMap
+ */
+public class ConcurrentLruCache<K, V> extends AbstractMap<K, V> implements
+        ConcurrentMap<K, V> {
+
+    /** エントリ数の上限 */
+    protected final int limitSize;
+
+    /** エントリのマップ */
+    protected final ConcurrentMap<K, Node<K, V>> data;
+
+    /** LRUの順序と破棄を保護するロック */
+    protected final ReentrantLock evictionLock = new ReentrantLock();
+
+    /** LRUの順序で並んだエントリのリストと参照を記録するバッファ */
+    final LruList<Node<K, V>> lruList =
+        new LruList<Node<K, V>>(new Node<K, V>(null, null));
+
+    /** 破棄されたエントリ数 */
+    protected final AtomicLong evictionCount = new AtomicLong();
+
+    /** ヒット数とミス数を記録する場合は{@literal true} */
+    protected volatile boolean recordStats;
+
+    /**
+     * インスタンスを構築します。
+     * 
+     * @param limitSize
+     *            エントリ数の上限。{@literal 0}より大きくなければいけません
+     */
+    public ConcurrentLruCache(final int limitSize) {
+        assertArgument("limitSize", limitSize > 0, "limitSize <= 0");
+
+        this.limitSize = limitSize;
+        data = newConcurrentHashMap();
+    }
+
+    /**
+     * エントリ数の上限を返します。
+     * 
+     * @return エントリ数の上限
+     */
+    public int getLimitSize() {
+        return limitSize;
+    }
+
+    /**
+     * ヒット数とミス数を記録する場合は{@literal true}を返します。
+     * 
+     * @return ヒット数とミス数を記録する場合は{@literal true}
+     */
+    public boolean isRecordStats() {
+        return recordStats;
+    }
+
+    /**
+     * ヒット数とミス数を記録するかどうかを設定します。
+     * <p>
+     * デフォルトは記録しません。 記録する場合は{@link #get(Object)}の呼び出しごとにカウンタを更新します。
+     * </p>
+     * 
+     * @param recordStats
+     *            ヒット数とミス数を記録する場合は{@literal true}
+     */
+    public void setRecordStats(final boolean recordStats) {
+        this.recordStats = recordStats;
+    }
+
+    /**
+     * 統計情報のスナップショットを返します。
+     * 
+     * @return 統計情報のスナップショット
+     * @see #setRecordStats(boolean)
+     */
+    public CacheStats getStats() {
+        long hitCount = 0L;
+        long missCount = 0L;
+        for (final LruList.ReadBuffer buffer : lruList.readBuffers) {
+            hitCount += buffer.hitCount.get();
+            missCount += buffer.missCount.get();
+        }
+        return new CacheStats(
+            hitCount,
+            missCount,
+            0L,
+            0L,
+            0L,
+            0L,
+            evictionCount.get(),
+            size(),
+            new long[CacheStats.HISTOGRAM_SIZE]);
+    }
+
+    @Override
+    public int size() {
+        return data.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return data.isEmpty();
+    }
+
+    @Override
+    public boolean containsKey(final Object key) {
+        return data.containsKey(key);
+    }
+
+    /**
+     * キーに対応する値を返します。
+     * <p>
+     * ロックを取得せず、参照をバッファに記録します。
+     * </p>
+     * 
+     * @param key
+     *            キー
+     * @return キーに対応する値。キャッシュされていない場合は{@literal null}
+     */
+    @Override
+    public V get(final Object key) {
+        final Node<K, V> node = data.get(key);
+        if (node == null) {
+            if (recordStats) {
+                lruList.getReadBuffer().missCount.incrementAndGet();
+            }
+            return null;
+        }
+        final LruList.ReadBuffer buffer = lruList.getReadBuffer();
+        if (recordStats) {
+            buffer.hitCount.incrementAndGet();
+        }
+        if (lruList.recordRead(buffer, node) && evictionLock.tryLock()) {
+            try {
+                lruList.drainReadBuffers();
+            } finally {
+                evictionLock.unlock();
+            }
+        }
+        return node.value;
+    }
+
+    @Override
+    public V put(final K key, final V value) {
+        return put(key, value, false);
+    }
+
+    @Override
+    public V putIfAbsent(final K key, final V value) {
+        return put(key, value, true);
+    }
+
+    /**
+     * エントリを追加します。
+     * 
+     * @param key
+     *            キー。{@literal null}であってはいけません
+     * @param value
+     *            値。{@literal null}であってはいけません
+     * @param onlyIfAbsent
+     *            キーに対応する値が存在しない場合だけ追加する場合は{@literal true}
+     * @return キーに対応していた以前の値。存在しなかった場合は{@literal null}
+     */
+    protected V put(final K key, final V value, final boolean onlyIfAbsent) {
+        assertArgumentNotNull("key", key);
+        assertArgumentNotNull("value", value);
+
+        evictionLock.lock();
+        try {
+            final Node<K, V> node = data.get(key);
+            if (node != null) {
+                final V oldValue = node.value;
+                if (!onlyIfAbsent) {
+                    node.value = value;
+                }
+                lruList.moveToTail(node);
+                return oldValue;
+            }
+            final Node<K, V> newNode = new Node<K, V>(key, value);
+            data.put(key, newNode);
+            lruList.linkLast(newNode);
+            if (data.size() > limitSize) {
+                lruList.drainReadBuffers();
+                while (data.size() > limitSize) {
+                    final Node<K, V> eldest = lruList.head.next;
+                    lruList.unlink(eldest);
+                    data.remove(eldest.key, eldest);
+                    evictionCount.incrementAndGet();
+                }
+            }
+            return null;
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    @Override
+    public V remove(final Object key) {
+        evictionLock.lock();
+        try {
+            final Node<K, V> node = data.remove(key);
+            if (node == null) {
+                return null;
+            }
+            lruList.unlink(node);
+            return node.value;
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    @Override
+    public boolean remove(final Object key, final Object value) {
+        evictionLock.lock();
+        try {
+            final Node<K, V> node = data.get(key);
+            if (node == null || !node.value.equals(value)) {
+                return false;
+            }
+            data.remove(key, node);
+            lruList.unlink(node);
+            return true;
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    @Override
+    public V replace(final K key, final V value) {
+        assertArgumentNotNull("value", value);
+
+        evictionLock.lock();
+        try {
+            final Node<K, V> node = data.get(key);
+            if (node == null) {
+                return null;
+            }
+            final V oldValue = node.value;
+            node.value = value;
+            lruList.moveToTail(node);
+            return oldValue;
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    @Override
+    public boolean replace(final K key, final V oldValue, final V newValue) {
+        assertArgumentNotNull("newValue", newValue);
+
+        evictionLock.lock();
+        try {
+            final Node<K, V> node = data.get(key);
+            if (node == null || !node.value.equals(oldValue)) {
+                return false;
+            }
+            node.value = newValue;
+            lruList.moveToTail(node);
+            return true;
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    @Override
+    public void clear() {
+        evictionLock.lock();
+        try {
+            lruList.clear();
+            data.clear();
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    @Override
+    public Set<Map.Entry<K, V>> entrySet() {
+        return new EntrySet();
+    }
+
+    /**
+     * エントリを保持するノードです。
+     * 
+     * @author koichik
+     * @param <K>
+     *            キーの型
+     * @param <V>
+     *            値の型
+     */
+    protected static class Node<K, V> extends LruList.Link<Node<K, V>> {
+
+        /** キー */
+        protected final K key;
+
+        /** 値 */
+        protected volatile V value;
+
+        /**
+         * インスタンスを構築します。
+         * 
+         * @param key
+         *            キー
+         * @param value
+         *            値
+         */
+        public Node(final K key, final V value) {
+            this.key = key;
+            this.value = value;
+        }
+
+    }
+
+    /**
+     * エントリのセットです。
+     * 
+     * @author koichik
+     */
+    protected class EntrySet extends AbstractSet<Map.Entry<K, V>> {
+
+        @Override
+        public int size() {
+            return data.size();
+        }
+
+        @Override
+        public void clear() {
+            ConcurrentLruCache.this.clear();
+        }
+
+        @Override
+        public Iterator<Map.Entry<K, V>> iterator() {
+            return new EntryIterator();
+        }
+
+    }
+
+    /**
+     * エントリの{@link Iterator}です。
+     * 
+     * @author koichik
+     */
+    protected class EntryIterator implements Iterator<Map.Entry<K, V>> {
+
+        /** ノードの{@link Iterator} */
+        protected final Iterator<Node<K, V>> iterator = data
+            .values()
+            .iterator();
+
+        /** 最後に返したノード */
+        protected Node<K, V> current;
+
+        @Override
+        public boolean hasNext() {
+            return iterator.hasNext();
+        }
+
+        @Override
+        public Map.Entry<K, V> next() {
+            current = iterator.next();
+            return new SimpleImmutableEntry<K, V>(current.key, current.value);
+        }
+
+        @Override
+        public void remove() {
+            if (current == null) {
+                throw new IllegalStateException();
+            }
+            ConcurrentLruCache.this.remove(current.key);
+            current = null;
+        }
+
+    }
+
+}
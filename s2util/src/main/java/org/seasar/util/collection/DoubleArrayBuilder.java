@@ -0,0 +1,329 @@
+/*
+ * Copyright 2004-2012 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.util.collection;
+
+import java.util.Arrays;
+
+import static org.seasar.util.misc.AssertionUtil.*;
+
+/**
+ * {@literal double}の配列を構築するためのクラスです。
+ * <p>
+ * {@link ArrayUtil#add(double[], double)}は要素を追加するたびに配列全体をコピーするため、
+ * ループの中で使うと要素数の二乗に比例する時間がかかります。 このクラスは内部の配列を必要に応じて拡張するため、
+ * 要素の追加は償却定数時間で行えます。
+ * </p>
+ * <p>
+ * {@link #toArray()}は内部の配列の長さと要素数が等しい場合、 コピーせずに内部の配列をそのまま返します。
+ * その後にこのインスタンスを変更した場合は内部の配列がコピーされるため、 返された配列が変更されることはありません。
+ * </p>
+ * 
+ * <pre>
+ * DoubleArrayBuilder builder = new DoubleArrayBuilder();
+ * for (...) {
+ *     builder.add(value);
+ * }
+ * double[] array = builder.sort().toArray();
+ * </pre>
+ * 
+ * @author koichik
+ */
+public class DoubleArrayBuilder {
+
+    /** デフォルトの初期容量 */
+    protected static final int INITIAL_CAPACITY = 10;
+
+    /** 要素の配列 */
+    protected double[] elements;
+
+    /** 要素数 */
+    protected int size;
+
+    /** 内部の配列を{@link #toArray()}で返したことを示すフラグ */
+    protected boolean shared;
+
+    /**
+     * インスタンスを構築します。
+     */
+    public DoubleArrayBuilder() {
+        this(INITIAL_CAPACITY);
+    }
+
+    /**
+     * インスタンスを構築します。
+     * 
+     * @param initialCapacity
+     *            初期容量
+     */
+    public DoubleArrayBuilder(final int initialCapacity) {
+        assertArgument(
+            "initialCapacity",
+            initialCapacity >= 0,
+            "initialCapacity < 0");
+        elements = new double[initialCapacity];
+    }
+
+    /**
+     * 要素数を返します。
+     * 
+     * @return 要素数
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 要素がなければ{@literal true}を返します。
+     * 
+     * @return 要素がなければ{@literal true}
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * 内部の配列の容量を返します。
+     * 
+     * @return 内部の配列の容量
+     */
+    public int capacity() {
+        return elements.length;
+    }
+
+    /**
+     * インデックスで指定された位置の要素を返します。
+     * 
+     * @param index
+     *            インデックス
+     * @return インデックスで指定された位置の要素
+     */
+    public double get(final int index) {
+        checkIndex(index);
+        return elements[index];
+    }
+
+    /**
+     * インデックスで指定された位置に要素を設定します。
+     * 
+     * @param index
+     *            インデックス
+     * @param value
+     *            値
+     * @return このインスタンス自身
+     */
+    public DoubleArrayBuilder set(final int index, final double value) {
+        checkIndex(index);
+        unshare();
+        elements[index] = value;
+        return this;
+    }
+
+    /**
+     * 末尾に要素を追加します。
+     * 
+     * @param value
+     *            値
+     * @return このインスタンス自身
+     */
+    public DoubleArrayBuilder add(final double value) {
+        if (shared || size == elements.length) {
+            grow(size + 1);
+        }
+        elements[size++] = value;
+        return this;
+    }
+
+    /**
+     * 末尾に配列のすべての要素を追加します。
+     * 
+     * @param values
+     *            値の配列。{@literal null}であってはいけません
+     * @return このインスタンス自身
+     */
+    public DoubleArrayBuilder addAll(final double... values) {
+        assertArgumentNotNull("values", values);
+        return addAll(values, 0, values.length);
+    }
+
+    /**
+     * 末尾に配列の指定された範囲の要素を追加します。
+     * 
+     * @param values
+     *            値の配列。{@literal null}であってはいけません
+     * @param offset
+     *            追加する範囲の開始位置
+     * @param length
+     *            追加する要素数
+     * @return このインスタンス自身
+     */
+    public DoubleArrayBuilder addAll(final double[] values, final int offset,
+            final int length) {
+        assertArgumentNotNull("values", values);
+        assertIndex(
+            offset >= 0 && length >= 0 && offset + length <= values.length,
+            "Offset:" + offset + ", Length:" + length + ", Size:"
+                + values.length);
+        if (shared || size + length > elements.length) {
+            grow(size + length);
+        }
+        System.arraycopy(values, offset, elements, size, length);
+        size += length;
+        return this;
+    }
+
+    /**
+     * 末尾に他の{@link DoubleArrayBuilder}のすべての要素を追加します。
+     * 
+     * @param other
+     *            追加する要素を持つ{@link DoubleArrayBuilder}。{@literal null}であってはいけません
+     * @return このインスタンス自身
+     */
+    public DoubleArrayBuilder addAll(final DoubleArrayBuilder other) {
+        assertArgumentNotNull("other", other);
+        return addAll(other.elements, 0, other.size);
+    }
+
+    /**
+     * すべての要素を削除します。
+     * <p>
+     * 内部の配列の容量は変わりません。
+     * </p>
+     * 
+     * @return このインスタンス自身
+     */
+    public DoubleArrayBuilder clear() {
+        if (shared) {
+            elements = new double[elements.length];
+            shared = false;
+        }
+        size = 0;
+        return this;
+    }
+
+    /**
+     * 少なくとも指定された数の要素を格納できるように内部の配列を拡張します。
+     * 
+     * @param minCapacity
+     *            必要な容量
+     * @return このインスタンス自身
+     */
+    public DoubleArrayBuilder ensureCapacity(final int minCapacity) {
+        if (minCapacity > elements.length) {
+            grow(minCapacity);
+        }
+        return this;
+    }
+
+    /**
+     * 内部の配列の容量を要素数まで縮小します。
+     * <p>
+     * 縮小後の{@link #toArray()}は配列をコピーしません。
+     * </p>
+     * 
+     * @return このインスタンス自身
+     */
+    public DoubleArrayBuilder trimToSize() {
+        if (size < elements.length) {
+            elements = Arrays.copyOf(elements, size);
+            shared = false;
+        }
+        return this;
+    }
+
+    /**
+     * 要素を昇順にソートします。
+     * 
+     * @return このインスタンス自身
+     * @see Arrays#sort(double[], int, int)
+     */
+    public DoubleArrayBuilder sort() {
+        unshare();
+        Arrays.sort(elements, 0, size);
+        return this;
+    }
+
+    /**
+     * 昇順にソートされた要素から二分探索で値を検索します。
+     * 
+     * @param value
+     *            検索する値
+     * @return 値が見つかった場合はそのインデックス、 見つからなかった場合は{@literal -(挿入位置 + 1)}
+     * @see Arrays#binarySearch(double[], int, int, double)
+     */
+    public int binarySearch(final double value) {
+        return Arrays.binarySearch(elements, 0, size, value);
+    }
+
+    /**
+     * すべての要素を格納した配列を返します。
+     * <p>
+     * 内部の配列の長さと要素数が等しい場合は内部の配列をコピーせずに返します。
+     * </p>
+     * 
+     * @return すべての要素を格納した配列
+     */
+    public double[] toArray() {
+        if (size == elements.length) {
+            shared = true;
+            return elements;
+        }
+        return Arrays.copyOf(elements, size);
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(Arrays.copyOf(elements, size));
+    }
+
+    /**
+     * インデックスが範囲内であることを確認します。
+     * 
+     * @param index
+     *            インデックス
+     */
+    protected void checkIndex(final int index) {
+        assertIndex(index >= 0 && index < size, "Index:" + index + ", Size:"
+            + size);
+    }
+
+    /**
+     * 内部の配列を{@link #toArray()}で返している場合はコピーします。
+     */
+    protected void unshare() {
+        if (shared) {
+            elements = elements.clone();
+            shared = false;
+        }
+    }
+
+    /**
+     * 内部の配列を少なくとも指定された容量に拡張します。
+     * <p>
+     * 償却定数時間で要素を追加できるように、容量は現在の1.5倍以上に拡張されます。
+     * </p>
+     * 
+     * @param minCapacity
+     *            必要な容量
+     */
+    protected void grow(final int minCapacity) {
+        final int capacity = elements.length;
+        final int newCapacity =
+            Math.max(minCapacity, capacity + (capacity >> 1) + 1);
+        elements = Arrays.copyOf(elements, newCapacity);
+        shared = false;
+    }
+
+}
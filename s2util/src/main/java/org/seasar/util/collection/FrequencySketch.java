@@ -0,0 +1,149 @@
+/*
+ * Copyright 2004-2012 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.util.collection;
+
+import static org.seasar.util.misc.AssertionUtil.*;
+
+/**
+ * 要素の出現頻度を近似的に数えるCount-Min Sketchです。
+ * <p>
+ * 4ビットのカウンタを{@literal long}の配列に詰めて保持し、 要素ごとに4つのカウンタを使用します。
+ * 出現頻度は4つのカウンタの最小値で、最大で{@literal 15}です。 カウンタの増加が一定数に達すると、
+ * すべてのカウンタを半分にして古い出現頻度の影響を減らします。
+ * </p>
+ * <p>
+ * このクラスはスレッドセーフではありません。
+ * </p>
+ * 
+ * @author koichik
+ * @see TinyLfuCache
+ */
+public class FrequencySketch {
+
+    /** カウンタの最大値 */
+    public static final int MAX_FREQUENCY = 15;
+
+    /** カウンタの位置を求めるハッシュ関数の種 */
+    protected static final long[] SEEDS = new long[] { 0xc3a5c85c97cb3127L,
+        0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L };
+
+    /** 各{@literal long}の下位ビットを除いたカウンタのマスク */
+    protected static final long RESET_MASK = 0x7777777777777777L;
+
+    /** 各カウンタの最下位ビットのマスク */
+    protected static final long ONE_MASK = 0x1111111111111111L;
+
+    /** カウンタの配列の要素数の上限 */
+    protected static final int MAXIMUM_TABLE_SIZE = 1 << 22;
+
+    /** カウンタの配列 (要素数は出現頻度を数える要素数の目安以上の2のべき乗) */
+    protected final long[] table;
+
+    /** カウンタの位置を求めるマスク */
+    protected final int counterMask;
+
+    /** カウンタを半分にするまでの増加数 */
+    protected final int sampleSize;
+
+    /** 前回カウンタを半分にしてからの増加数 */
+    protected int size;
+
+    /**
+     * インスタンスを構築します。
+     * 
+     * @param maximumSize
+     *            出現頻度を数える要素数の目安。{@literal 0}より大きくなければいけません
+     */
+    public FrequencySketch(final int maximumSize) {
+        assertArgument("maximumSize", maximumSize > 0, "maximumSize <= 0");
+
+        final int length =
+            PowerOfTwoUtil.ceilingPowerOfTwo(Math.max(Math.min(
+                maximumSize,
+                MAXIMUM_TABLE_SIZE), 8));
+        table = new long[length];
+        counterMask = length * 16 - 1;
+        sampleSize = (int) Math.min(10L * maximumSize, Integer.MAX_VALUE);
+    }
+
+    /**
+     * 要素の出現頻度を返します。
+     * 
+     * @param hash
+     *            要素のハッシュ値
+     * @return 要素の出現頻度
+     */
+    public int frequency(final int hash) {
+        int frequency = MAX_FREQUENCY;
+        for (int i = 0; i < SEEDS.length; ++i) {
+            final int index = indexOf(hash, i);
+            final int count =
+                (int) (table[index >>> 4] >>> ((index & 15) << 2)) & 0xf;
+            frequency = Math.min(frequency, count);
+        }
+        return frequency;
+    }
+
+    /**
+     * 要素の出現頻度を増やします。
+     * 
+     * @param hash
+     *            要素のハッシュ値
+     */
+    public void increment(final int hash) {
+        boolean added = false;
+        for (int i = 0; i < SEEDS.length; ++i) {
+            final int index = indexOf(hash, i);
+            final int offset = (index & 15) << 2;
+            final long value = table[index >>> 4];
+            if (((value >>> offset) & 0xfL) != MAX_FREQUENCY) {
+                table[index >>> 4] = value + (1L << offset);
+                added = true;
+            }
+        }
+        if (added && ++size >= sampleSize) {
+            reset();
+        }
+    }
+
+    /**
+     * すべてのカウンタを半分にします。
+     */
+    protected void reset() {
+        int odd = 0;
+        for (int i = 0; i < table.length; ++i) {
+            odd += Long.bitCount(table[i] & ONE_MASK);
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+        size = (size >>> 1) - (odd >>> 2);
+    }
+
+    /**
+     * カウンタの位置を返します。
+     * 
+     * @param hash
+     *            要素のハッシュ値
+     * @param depth
+     *            何番目のカウンタか
+     * @return カウンタの位置
+     */
+    protected int indexOf(final int hash, final int depth) {
+        long h = (hash + SEEDS[depth]) * SEEDS[depth];
+        h += h >>> 32;
+        return (int) h & counterMask;
+    }
+
+}
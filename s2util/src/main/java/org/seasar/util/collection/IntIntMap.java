@@ -0,0 +1,363 @@
+/*
+ * Copyright 2004-2012 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.util.collection;
+
+import java.util.Arrays;
+
+/**
+ * {@literal int}をキーと値とするマップです。
+ * <p>
+ * キーと値を{@literal int}の配列に格納するため、 {@literal Map<Integer, Integer>}
+ * と異なりキーと値のボクシングやエントリごとのオブジェクトの生成を行いません。 エントリは{@link ArrayMap}
+ * と同じく追加された順に保持され、 {@link #getAt(int)}や{@link #getKeyAt(int)}でインデックスを指定して参照できます。
+ * すべてのエントリは{@link #forEach(Procedure)}で反復子を生成せずに処理できます。
+ * </p>
+ * 
+ * <pre>
+ * IntIntMap counts = new IntIntMap();
+ * counts.addTo(id, 1);
+ * int count = counts.get(id);
+ * </pre>
+ * 
+ * @author koichik
+ * @see AbstractPrimitiveKeyMap
+ */
+public class IntIntMap extends AbstractPrimitiveKeyMap {
+
+    /** キーの配列 */
+    protected int[] keys;
+
+    /** 値の配列 */
+    protected int[] values;
+
+    /**
+     * インスタンスを構築します。
+     */
+    public IntIntMap() {
+        this(INITIAL_CAPACITY);
+    }
+
+    /**
+     * インスタンスを構築します。
+     * 
+     * @param initialCapacity
+     *            初期容量。{@link #MAXIMUM_CAPACITY}以下でなければいけません
+     */
+    public IntIntMap(final int initialCapacity) {
+        super(initialCapacity);
+        final int capacity = Math.max(initialCapacity, INITIAL_CAPACITY);
+        keys = new int[capacity];
+        values = new int[capacity];
+    }
+
+    /**
+     * キーが存在すれば{@literal true}を返します。
+     * 
+     * @param key
+     *            キー
+     * @return キーが存在すれば{@literal true}
+     */
+    public boolean containsKey(final int key) {
+        return findSlot(key) >= 0;
+    }
+
+    /**
+     * キーに対応する値を返します。
+     * 
+     * @param key
+     *            キー
+     * @return キーに対応する値。キーが存在しない場合は{@literal 0}
+     */
+    public int get(final int key) {
+        return get(key, 0);
+    }
+
+    /**
+     * キーに対応する値を返します。
+     * 
+     * @param key
+     *            キー
+     * @param defaultValue
+     *            キーが存在しない場合に返す値
+     * @return キーに対応する値。キーが存在しない場合は{@code defaultValue}
+     */
+    public int get(final int key, final int defaultValue) {
+        final int slot = findSlot(key);
+        return slot < 0 ? defaultValue : values[table[slot] - 1];
+    }
+
+    /**
+     * キーに対応するエントリのインデックスを返します。
+     * 
+     * @param key
+     *            キー
+     * @return キーに対応するエントリのインデックス。キーが存在しない場合は{@literal -1}
+     */
+    public int indexOfKey(final int key) {
+        final int slot = findSlot(key);
+        return slot < 0 ? -1 : table[slot] - 1;
+    }
+
+    /**
+     * インデックスで指定された位置の値を返します。
+     * 
+     * @param index
+     *            インデックス
+     * @return インデックスで指定された位置の値
+     */
+    public int getAt(final int index) {
+        checkIndex(index);
+        return values[index];
+    }
+
+    /**
+     * インデックスで指定された位置のキーを返します。
+     * 
+     * @param index
+     *            インデックス
+     * @return インデックスで指定された位置のキー
+     */
+    public int getKeyAt(final int index) {
+        checkIndex(index);
+        return keys[index];
+    }
+
+    /**
+     * インデックスで指定された位置に値を設定します。
+     * 
+     * @param index
+     *            インデックス
+     * @param value
+     *            値
+     */
+    public void setAt(final int index, final int value) {
+        checkIndex(index);
+        values[index] = value;
+    }
+
+    /**
+     * キーに値を関連付けます。
+     * 
+     * @param key
+     *            キー
+     * @param value
+     *            値
+     * @return キーに関連付けられていた以前の値。キーが存在しなかった場合は{@literal 0}
+     */
+    public int put(final int key, final int value) {
+        final int slot = findSlot(key);
+        if (slot >= 0) {
+            final int position = table[slot] - 1;
+            final int oldValue = values[position];
+            values[position] = value;
+            return oldValue;
+        }
+        add(key, value);
+        return 0;
+    }
+
+    /**
+     * キーに対応する値に加算します。
+     * <p>
+     * キーが存在しない場合は{@literal 0}に加算した値を関連付けます。
+     * </p>
+     * 
+     * @param key
+     *            キー
+     * @param delta
+     *            加算する値
+     * @return 加算後の値
+     */
+    public int addTo(final int key, final int delta) {
+        final int slot = findSlot(key);
+        if (slot >= 0) {
+            return values[table[slot] - 1] += delta;
+        }
+        add(key, delta);
+        return delta;
+    }
+
+    /**
+     * キーに対応するエントリを削除します。
+     * 
+     * @param key
+     *            キー
+     * @return 削除されたエントリの値。キーが存在しなかった場合は{@literal 0}
+     */
+    public int remove(final int key) {
+        final int slot = findSlot(key);
+        if (slot < 0) {
+            return 0;
+        }
+        final int value = values[table[slot] - 1];
+        removeEntry(slot);
+        return value;
+    }
+
+    /**
+     * インデックスで指定された位置のエントリを削除します。
+     * 
+     * @param index
+     *            インデックス
+     * @return 削除されたエントリの値
+     */
+    public int removeAt(final int index) {
+        checkIndex(index);
+        return remove(keys[index]);
+    }
+
+    /**
+     * すべてのエントリを追加された順に処理します。
+     * <p>
+     * 処理中にエントリを追加・削除してはいけません。
+     * </p>
+     * 
+     * @param procedure
+     *            エントリを処理する{@link Procedure}
+     * @return すべてのエントリを処理した場合は{@literal true}、
+     *         {@link Procedure#apply(int, int)}が{@literal false}を返して中断した場合は
+     *         {@literal false}
+     */
+    public boolean forEach(final Procedure procedure) {
+        for (int i = 0; i < size; ++i) {
+            if (!procedure.apply(keys[i], values[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * すべてのキーを追加された順に格納した配列を返します。
+     * 
+     * @return すべてのキーを追加された順に格納した配列
+     */
+    public int[] keys() {
+        return Arrays.copyOf(keys, size);
+    }
+
+    /**
+     * すべての値を追加された順に格納した配列を返します。
+     * 
+     * @return すべての値を追加された順に格納した配列
+     */
+    public int[] values() {
+        return Arrays.copyOf(values, size);
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder buf = new StringBuilder(size * 16).append('{');
+        for (int i = 0; i < size; ++i) {
+            if (i > 0) {
+                buf.append(", ");
+            }
+            buf.append(keys[i]).append('=').append(values[i]);
+        }
+        return buf.append('}').toString();
+    }
+
+    /**
+     * 存在しないキーのエントリを追加します。
+     * 
+     * @param key
+     *            キー
+     * @param value
+     *            値
+     */
+    protected void add(final int key, final int value) {
+        ensureCapacity(size + 1);
+        final int slot = findSlot(key);
+        keys[size] = key;
+        values[size] = value;
+        addEntry(-slot - 1);
+    }
+
+    /**
+     * キーが格納されているテーブルのインデックスを返します。
+     * 
+     * @param key
+     *            キー
+     * @return キーが格納されているテーブルのインデックス。 キーが存在しない場合は{@literal -(挿入位置 + 1)}
+     */
+    protected int findSlot(final int key) {
+        for (int slot = hash(key) & mask;; slot = (slot + 1) & mask) {
+            final int position = table[slot];
+            if (position == 0) {
+                return -slot - 1;
+            }
+            if (keys[position - 1] == key) {
+                return slot;
+            }
+        }
+    }
+
+    @Override
+    protected int getEntryCapacity() {
+        return keys.length;
+    }
+
+    @Override
+    protected void growEntries(final int capacity) {
+        keys = Arrays.copyOf(keys, capacity);
+        values = Arrays.copyOf(values, capacity);
+    }
+
+    @Override
+    protected int hashAt(final int position) {
+        return hash(keys[position]);
+    }
+
+    @Override
+    protected void shiftEntries(final int position) {
+        System.arraycopy(keys, position + 1, keys, position, size - position);
+        System.arraycopy(
+            values,
+            position + 1,
+            values,
+            position,
+            size - position);
+    }
+
+    @Override
+    protected void clearEntry(final int position) {
+    }
+
+    @Override
+    protected void clearEntries() {
+    }
+
+    /**
+     * エントリを処理するインタフェースです。
+     * 
+     * @author koichik
+     */
+    public interface Procedure {
+
+        /**
+         * エントリを処理します。
+         * 
+         * @param key
+         *            キー
+         * @param value
+         *            値
+         * @return 次のエントリを処理する場合は{@literal true}、中断する場合は{@literal false}
+         */
+        boolean apply(int key, int value);
+
+    }
+
+}
@@ -0,0 +1,327 @@
+/*
+ * Copyright 2004-2012 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.util.collection;
+
+import java.util.Arrays;
+
+/**
+ * {@literal long}をキーとするマップです。
+ * <p>
+ * キーを{@literal long}の配列に格納するため、 {@literal Map<Long, V>}と異なりキーのボクシングやエントリごとのオブジェクトの生成を行いません。
+ * エントリは{@link ArrayMap}と同じく追加された順に保持され、 {@link #getAt(int)}や{@link #getKeyAt(int)}
+ * でインデックスを指定して参照できます。 すべてのエントリは{@link #forEach(Procedure)}で反復子を生成せずに処理できます。
+ * </p>
+ * 
+ * <pre>
+ * LongObjectMap&lt;String&gt; map = new LongObjectMap&lt;String&gt;();
+ * map.put(1, "one");
+ * String value = map.get(1);
+ * </pre>
+ * 
+ * @author koichik
+ * @param <V>
+ *            値の型
+ * @see AbstractPrimitiveKeyMap
+ */
+public class LongObjectMap<V> extends AbstractPrimitiveKeyMap {
+
+    /** キーの配列 */
+    protected long[] keys;
+
+    /** 値の配列 */
+    protected Object[] values;
+
+    /**
+     * インスタンスを構築します。
+     */
+    public LongObjectMap() {
+        this(INITIAL_CAPACITY);
+    }
+
+    /**
+     * インスタンスを構築します。
+     * 
+     * @param initialCapacity
+     *            初期容量。{@link #MAXIMUM_CAPACITY}以下でなければいけません
+     */
+    public LongObjectMap(final int initialCapacity) {
+        super(initialCapacity);
+        final int capacity = Math.max(initialCapacity, INITIAL_CAPACITY);
+        keys = new long[capacity];
+        values = new Object[capacity];
+    }
+
+    /**
+     * キーが存在すれば{@literal true}を返します。
+     * 
+     * @param key
+     *            キー
+     * @return キーが存在すれば{@literal true}
+     */
+    public boolean containsKey(final long key) {
+        return findSlot(key) >= 0;
+    }
+
+    /**
+     * キーに対応する値を返します。
+     * 
+     * @param key
+     *            キー
+     * @return キーに対応する値。キーが存在しない場合は{@literal null}
+     */
+    public V get(final long key) {
+        final int slot = findSlot(key);
+        return slot < 0 ? null : this.<V> valueAt(table[slot] - 1);
+    }
+
+    /**
+     * キーに対応するエントリのインデックスを返します。
+     * 
+     * @param key
+     *            キー
+     * @return キーに対応するエントリのインデックス。キーが存在しない場合は{@literal -1}
+     */
+    public int indexOfKey(final long key) {
+        final int slot = findSlot(key);
+        return slot < 0 ? -1 : table[slot] - 1;
+    }
+
+    /**
+     * インデックスで指定された位置の値を返します。
+     * 
+     * @param index
+     *            インデックス
+     * @return インデックスで指定された位置の値
+     */
+    public V getAt(final int index) {
+        checkIndex(index);
+        return this.<V> valueAt(index);
+    }
+
+    /**
+     * インデックスで指定された位置のキーを返します。
+     * 
+     * @param index
+     *            インデックス
+     * @return インデックスで指定された位置のキー
+     */
+    public long getKeyAt(final int index) {
+        checkIndex(index);
+        return keys[index];
+    }
+
+    /**
+     * インデックスで指定された位置に値を設定します。
+     * 
+     * @param index
+     *            インデックス
+     * @param value
+     *            値
+     */
+    public void setAt(final int index, final V value) {
+        checkIndex(index);
+        values[index] = value;
+    }
+
+    /**
+     * キーに値を関連付けます。
+     * 
+     * @param key
+     *            キー
+     * @param value
+     *            値
+     * @return キーに関連付けられていた以前の値。キーが存在しなかった場合は{@literal null}
+     */
+    public V put(final long key, final V value) {
+        int slot = findSlot(key);
+        if (slot >= 0) {
+            final int position = table[slot] - 1;
+            final V oldValue = this.<V> valueAt(position);
+            values[position] = value;
+            return oldValue;
+        }
+        ensureCapacity(size + 1);
+        slot = findSlot(key);
+        keys[size] = key;
+        values[size] = value;
+        addEntry(-slot - 1);
+        return null;
+    }
+
+    /**
+     * キーに対応するエントリを削除します。
+     * 
+     * @param key
+     *            キー
+     * @return 削除されたエントリの値。キーが存在しなかった場合は{@literal null}
+     */
+    public V remove(final long key) {
+        final int slot = findSlot(key);
+        if (slot < 0) {
+            return null;
+        }
+        final V value = this.<V> valueAt(table[slot] - 1);
+        removeEntry(slot);
+        return value;
+    }
+
+    /**
+     * インデックスで指定された位置のエントリを削除します。
+     * 
+     * @param index
+     *            インデックス
+     * @return 削除されたエントリの値
+     */
+    public V removeAt(final int index) {
+        checkIndex(index);
+        return remove(keys[index]);
+    }
+
+    /**
+     * すべてのエントリを追加された順に処理します。
+     * <p>
+     * 処理中にエントリを追加・削除してはいけません。
+     * </p>
+     * 
+     * @param procedure
+     *            エントリを処理する{@link Procedure}
+     * @return すべてのエントリを処理した場合は{@literal true}、
+     *         {@link Procedure#apply(long, Object)}が{@literal false}を返して中断した場合は
+     *         {@literal false}
+     */
+    public boolean forEach(final Procedure<? super V> procedure) {
+        for (int i = 0; i < size; ++i) {
+            if (!procedure.apply(keys[i], this.<V> valueAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * すべてのキーを追加された順に格納した配列を返します。
+     * 
+     * @return すべてのキーを追加された順に格納した配列
+     */
+    public long[] keys() {
+        return Arrays.copyOf(keys, size);
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder buf = new StringBuilder(size * 16).append('{');
+        for (int i = 0; i < size; ++i) {
+            if (i > 0) {
+                buf.append(", ");
+            }
+            buf.append(keys[i]).append('=').append(values[i]);
+        }
+        return buf.append('}').toString();
+    }
+
+    /**
+     * キーが格納されているテーブルのインデックスを返します。
+     * 
+     * @param key
+     *            キー
+     * @return キーが格納されているテーブルのインデックス。 キーが存在しない場合は{@literal -(挿入位置 + 1)}
+     */
+    protected int findSlot(final long key) {
+        for (int slot = hash(key) & mask;; slot = (slot + 1) & mask) {
+            final int position = table[slot];
+            if (position == 0) {
+                return -slot - 1;
+            }
+            if (keys[position - 1] == key) {
+                return slot;
+            }
+        }
+    }
+
+    /**
+     * エントリの配列のインデックスで指定された位置の値を返します。
+     * 
+     * @param <T>
+     *            値の型
+     * @param position
+     *            エントリの配列のインデックス
+     * @return 値
+     */
+    @SuppressWarnings("unchecked")
+    protected <T> T valueAt(final int position) {
+        return (T) values[position];
+    }
+
+    @Override
+    protected int getEntryCapacity() {
+        return keys.length;
+    }
+
+    @Override
+    protected void growEntries(final int capacity) {
+        keys = Arrays.copyOf(keys, capacity);
+        values = Arrays.copyOf(values, capacity);
+    }
+
+    @Override
+    protected int hashAt(final int position) {
+        return hash(keys[position]);
+    }
+
+    @Override
+    protected void shiftEntries(final int position) {
+        System.arraycopy(keys, position + 1, keys, position, size - position);
+        System.arraycopy(
+            values,
+            position + 1,
+            values,
+            position,
+            size - position);
+    }
+
+    @Override
+    protected void clearEntry(final int position) {
+        values[position] = null;
+    }
+
+    @Override
+    protected void clearEntries() {
+        Arrays.fill(values, 0, size, null);
+    }
+
+    /**
+     * エントリを処理するインタフェースです。
+     * 
+     * @author koichik
+     * @param <V>
+     *            値の型
+     */
+    public interface Procedure<V> {
+
+        /**
+         * エントリを処理します。
+         * 
+         * @param key
+         *            キー
+         * @param value
+         *            値
+         * @return 次のエントリを処理する場合は{@literal true}、中断する場合は{@literal false}
+         */
+        boolean apply(long key, V value);
+
+    }
+
+}
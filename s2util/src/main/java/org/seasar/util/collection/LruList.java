@@ -0,0 +1,250 @@
+/*
+ * Copyright 2004-2012 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.util.collection;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * LRUの順序で並んだノードの循環リストと、 参照を記録するバッファです。
+ * <p>
+ * {@link ConcurrentLruCache}と{@link TinyLfuCache}が共有します。
+ * 参照はロックを取得せずに{@link #recordRead(ReadBuffer, Link)}でスレッドごとに分散したバッファに書き込まれ、
+ * {@link #drainReadBuffers()}でまとめてLRUの順序に反映されます。
+ * </p>
+ * <p>
+ * {@link #getReadBuffer()}と{@link #recordRead(ReadBuffer, Link)}以外のメソッドは、
+ * このリストを所有するキャッシュのロックを取得した状態で呼び出さなければなりません。
+ * </p>
+ * 
+ * @author koichik
+ * @param <N>
+ *            ノードの型
+ */
+class LruList<N extends LruList.Link<N>> {
+
+    /** 参照を記録するバッファの要素数 (2のべき乗) */
+    static final int READ_BUFFER_SIZE = 64;
+
+    /** バッファの要素数から求めるインデックスのマスク */
+    static final int READ_BUFFER_MASK = READ_BUFFER_SIZE - 1;
+
+    /** バッファに溜まった参照の記録をLRUの順序に反映する間隔 (2のべき乗) */
+    static final int DRAIN_THRESHOLD = 32;
+
+    /** 参照の記録を反映する間隔から求めるマスク */
+    static final int DRAIN_MASK = DRAIN_THRESHOLD - 1;
+
+    /** 参照を記録するバッファの数 */
+    static final int READ_BUFFERS = PowerOfTwoUtil
+        .ceilingPowerOfTwo(Runtime.getRuntime().availableProcessors() * 4);
+
+    /** 循環リストの番兵 (最も古いノードは{@literal head.next}) */
+    final N head;
+
+    /** 参照を記録するバッファ */
+    final ReadBuffer[] readBuffers;
+
+    /**
+     * インスタンスを構築します。
+     * 
+     * @param head
+     *            循環リストの番兵となるノード
+     */
+    LruList(final N head) {
+        this.head = head;
+        head.prev = head;
+        head.next = head;
+        readBuffers = new ReadBuffer[READ_BUFFERS];
+        for (int i = 0; i < READ_BUFFERS; ++i) {
+            readBuffers[i] = new ReadBuffer();
+        }
+    }
+
+    /**
+     * 現在のスレッドが参照を記録するバッファを返します。
+     * 
+     * @return 現在のスレッドが参照を記録するバッファ
+     */
+    ReadBuffer getReadBuffer() {
+        return readBuffers[(int) Thread.currentThread().getId()
+            & (READ_BUFFERS - 1)];
+    }
+
+    /**
+     * ノードの参照をバッファに記録します。
+     * <p>
+     * ロックを取得せずに呼び出すことができます。
+     * </p>
+     * 
+     * @param buffer
+     *            現在のスレッドが参照を記録するバッファ
+     * @param node
+     *            参照されたノード
+     * @return バッファに溜まった参照の記録を反映する時期なら{@literal true}
+     */
+    boolean recordRead(final ReadBuffer buffer, final N node) {
+        final long index = buffer.writeCount.getAndIncrement();
+        buffer.slots.lazySet((int) (index & READ_BUFFER_MASK), node);
+        return (index & DRAIN_MASK) == DRAIN_MASK;
+    }
+
+    /**
+     * バッファに溜まった参照の記録を反映します。
+     */
+    void drainReadBuffers() {
+        for (final ReadBuffer buffer : readBuffers) {
+            final AtomicReferenceArray<N> slots = buffer.slots();
+            for (int i = 0; i < READ_BUFFER_SIZE; ++i) {
+                final N node = slots.get(i);
+                if (node != null) {
+                    slots.lazySet(i, null);
+                    onRead(node);
+                }
+            }
+        }
+    }
+
+    /**
+     * バッファに記録されていた参照を反映します。
+     * <p>
+     * リストに含まれているノードをリストの末尾に移動します。
+     * </p>
+     * 
+     * @param node
+     *            参照されたノード
+     */
+    void onRead(final N node) {
+        if (node.prev != null) {
+            moveToTail(node);
+        }
+    }
+
+    /**
+     * バッファに溜まった参照の記録を捨て、 すべてのノードをリストから取り除きます。
+     */
+    void clear() {
+        for (final ReadBuffer buffer : readBuffers) {
+            for (int i = 0; i < READ_BUFFER_SIZE; ++i) {
+                buffer.slots.lazySet(i, null);
+            }
+        }
+        for (N node = head.next; node != head;) {
+            final N next = node.next;
+            node.prev = null;
+            node.next = null;
+            node = next;
+        }
+        head.prev = head;
+        head.next = head;
+    }
+
+    /**
+     * ノードをリストの末尾 (最も新しい位置) に追加します。
+     * 
+     * @param node
+     *            ノード
+     */
+    void linkLast(final N node) {
+        node.prev = head.prev;
+        node.next = head;
+        head.prev.next = node;
+        head.prev = node;
+    }
+
+    /**
+     * ノードをリストから取り除きます。
+     * 
+     * @param node
+     *            ノード
+     */
+    void unlink(final N node) {
+        node.prev.next = node.next;
+        node.next.prev = node.prev;
+        node.prev = null;
+        node.next = null;
+    }
+
+    /**
+     * ノードをリストの末尾 (最も新しい位置) に移動します。
+     * 
+     * @param node
+     *            ノード
+     */
+    void moveToTail(final N node) {
+        if (head.prev != node) {
+            unlink(node);
+            linkLast(node);
+        }
+    }
+
+    /**
+     * リストにつながれるノードです。
+     * <p>
+     * {@literal prev}と{@literal next}はロックを取得した状態でだけ参照・更新されます。
+     * リストから取り除かれたノードの{@literal prev}は{@literal null}です。
+     * </p>
+     * 
+     * @author koichik
+     * @param <N>
+     *            ノードの型
+     */
+    static class Link<N extends Link<N>> {
+
+        /** LRUの順序で一つ古いノード */
+        N prev;
+
+        /** LRUの順序で一つ新しいノード */
+        N next;
+
+    }
+
+    /**
+     * 参照を記録するバッファです。
+     * 
+     * @author koichik
+     */
+    static class ReadBuffer {
+
+        /** 参照されたノード */
+        final AtomicReferenceArray<Object> slots =
+            new AtomicReferenceArray<Object>(READ_BUFFER_SIZE);
+
+        /** 参照を記録した回数 */
+        final AtomicLong writeCount = new AtomicLong();
+
+        /** ヒット数 */
+        final AtomicLong hitCount = new AtomicLong();
+
+        /** ミス数 */
+        final AtomicLong missCount = new AtomicLong();
+
+        /**
+         * 参照されたノードを返します。
+         * 
+         * @param <N>
+         *            ノードの型
+         * @return 参照されたノード
+         */
+        @SuppressWarnings("unchecked")
+        <N> AtomicReferenceArray<N> slots() {
+            final AtomicReferenceArray<?> array = slots;
+            return (AtomicReferenceArray<N>) array;
+        }
+
+    }
+
+}
@@ -0,0 +1,501 @@
+/*
+ * Copyright 2004-2012 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.util.collection;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static org.seasar.util.collection.CollectionsUtil.*;
+import static org.seasar.util.misc.AssertionUtil.*;
+
+/**
+ * キーに対応する値を一度だけ構築してキャッシュするローダです。
+ * <p>
+ * キャッシュに値が存在しない場合は{@link Loader}を使って値を構築します。
+ * 同じキーに対して複数のスレッドが同時に値を要求した場合、値を構築するのは最初のスレッドだけで、
+ * 他のスレッドはその構築が終わるのを待って同じ値を受け取ります。
+ * </p>
+ * <p>
+ * 値の構築に要した時間を記録します。 構築ごとの時間は{@link LoadListener}で受け取ることができます。
+ * {@link #setRecordStats(boolean)}で有効にすると、ヒット数とミス数も記録します。
+ * 記録した統計情報は{@link #getStats()}で参照できます。
+ * </p>
+ * 
+ * <pre>
+ * MemoizingLoader&lt;Class&lt;?&gt;, Foo&gt; loader =
+ *     CollectionsUtil.newMemoizingLoader(new Loader&lt;Class&lt;?&gt;, Foo&gt;() {
+ *         public Foo load(Class&lt;?&gt; key) {
+ *             return new Foo(key);
+ *         }
+ *     });
+ * Foo foo = loader.get(Bar.class);
+ * </pre>
+ * 
+ * @author koichik
+ * @param <K>
+ *            キーの型
+ * @param <V>
+ *            値の型
+ */
+public class MemoizingLoader<K, V> {
+
+    /** 値のキャッシュ */
+    protected final ConcurrentMap<K, V> cache;
+
+    /** 構築中の値 */
+    protected final ConcurrentMap<K, FutureTask<V>> loadingTasks =
+        newConcurrentHashMap();
+
+    /** 値を構築する{@link Loader} */
+    protected final Loader<? super K, ? extends V> loader;
+
+    /** 値の構築が完了したことを通知される{@link LoadListener} */
+    protected volatile LoadListener<? super K, ? super V> loadListener;
+
+    /** 値を構築した回数 */
+    protected final AtomicLong loadCount = new AtomicLong();
+
+    /** 値の構築に失敗した回数 */
+    protected final AtomicLong loadFailureCount = new AtomicLong();
+
+    /** 値の構築に要した時間の合計 (ナノ秒) */
+    protected final AtomicLong totalLoadTime = new AtomicLong();
+
+    /** 値の構築に要した時間の最大値 (ナノ秒) */
+    protected final AtomicLong maxLoadTime = new AtomicLong();
+
+    /** 値の構築に要した時間のヒストグラム */
+    protected final AtomicLongArray loadTimeHistogram = new AtomicLongArray(
+        CacheStats.HISTOGRAM_SIZE);
+
+    /** ヒット数とミス数を記録する場合は{@literal true} */
+    protected volatile boolean recordStats;
+
+    /** ヒット数 */
+    protected final AtomicLong hitCount = new AtomicLong();
+
+    /** ミス数 */
+    protected final AtomicLong missCount = new AtomicLong();
+
+    /** 破棄されたエントリ数 */
+    protected final AtomicLong evictionCount = new AtomicLong();
+
+    /**
+     * インスタンスを構築します。
+     * 
+     * @param loader
+     *            値を構築する{@link Loader}。{@literal null}であってはいけません
+     */
+    public MemoizingLoader(final Loader<? super K, ? extends V> loader) {
+        this(CollectionsUtil.<K, V> newConcurrentHashMap(), loader);
+    }
+
+    /**
+     * インスタンスを構築します。
+     * 
+     * @param cache
+     *            値をキャッシュするマップ。{@literal null}であってはいけません
+     * @param loader
+     *            値を構築する{@link Loader}。{@literal null}であってはいけません
+     */
+    public MemoizingLoader(final ConcurrentMap<K, V> cache,
+            final Loader<? super K, ? extends V> loader) {
+        assertArgumentNotNull("cache", cache);
+        assertArgumentNotNull("loader", loader);
+
+        this.cache = cache;
+        this.loader = loader;
+    }
+
+    /**
+     * キーに対応する値を返します。
+     * <p>
+     * 値がキャッシュされていない場合は構築してキャッシュします。
+     * 他のスレッドが同じキーの値を構築中の場合は、その構築が終わるまで待機します。
+     * 値の構築中に例外が発生した場合は、待機していたすべてのスレッドにその例外がスローされ、値はキャッシュされません。
+     * </p>
+     * 
+     * @param key
+     *            キー。{@literal null}であってはいけません
+     * @return キーに対応する値
+     */
+    public V get(final K key) {
+        assertArgumentNotNull("key", key);
+
+        final V value = cache.get(key);
+        if (value != null) {
+            if (recordStats) {
+                hitCount.incrementAndGet();
+            }
+            return value;
+        }
+        if (recordStats) {
+            missCount.incrementAndGet();
+        }
+
+        FutureTask<V> task = loadingTasks.get(key);
+        if (task == null) {
+            final FutureTask<V> newTask =
+                new FutureTask<V>(new Callable<V>() {
+                    @Override
+                    public V call() {
+                        return load(key);
+                    }
+                });
+            task = loadingTasks.putIfAbsent(key, newTask);
+            if (task == null) {
+                task = newTask;
+                try {
+                    newTask.run();
+                } finally {
+                    loadingTasks.remove(key, newTask);
+                }
+            }
+        }
+        return getResult(task);
+    }
+
+    /**
+     * キーに対応する値がキャッシュされていればそれを返します。
+     * <p>
+     * 値は構築しません。 ヒット数やミス数にも数えません。
+     * </p>
+     * 
+     * @param key
+     *            キー
+     * @return キーに対応する値。キャッシュされていない場合は{@literal null}
+     */
+    public V getIfPresent(final K key) {
+        return cache.get(key);
+    }
+
+    /**
+     * キーに対応するキャッシュを削除します。
+     * 
+     * @param key
+     *            キー
+     * @return 削除された値。キャッシュされていなかった場合は{@literal null}
+     */
+    public V remove(final K key) {
+        return cache.remove(key);
+    }
+
+    /**
+     * キャッシュをクリアします。
+     * <p>
+     * 記録された構築時間などの統計情報もクリアされます。
+     * </p>
+     */
+    public void clear() {
+        cache.clear();
+        loadCount.set(0L);
+        loadFailureCount.set(0L);
+        totalLoadTime.set(0L);
+        maxLoadTime.set(0L);
+        for (int i = 0; i < loadTimeHistogram.length(); ++i) {
+            loadTimeHistogram.set(i, 0L);
+        }
+        hitCount.set(0L);
+        missCount.set(0L);
+        evictionCount.set(0L);
+    }
+
+    /**
+     * キャッシュされている値の数を返します。
+     * 
+     * @return キャッシュされている値の数
+     */
+    public int size() {
+        return cache.size();
+    }
+
+    /**
+     * 値の構築が完了したことを通知される{@link LoadListener}を返します。
+     * 
+     * @return 値の構築が完了したことを通知される{@link LoadListener}
+     */
+    public LoadListener<? super K, ? super V> getLoadListener() {
+        return loadListener;
+    }
+
+    /**
+     * 値の構築が完了したことを通知される{@link LoadListener}を設定します。
+     * 
+     * @param loadListener
+     *            値の構築が完了したことを通知される{@link LoadListener}。{@literal null}の場合は通知しません
+     */
+    public void setLoadListener(
+            final LoadListener<? super K, ? super V> loadListener) {
+        this.loadListener = loadListener;
+    }
+
+    /**
+     * ヒット数とミス数を記録する場合は{@literal true}を返します。
+     * 
+     * @return ヒット数とミス数を記録する場合は{@literal true}
+     */
+    public boolean isRecordStats() {
+        return recordStats;
+    }
+
+    /**
+     * ヒット数とミス数を記録するかどうかを設定します。
+     * <p>
+     * デフォルトは記録しません。 記録する場合は{@link #get(Object)}の呼び出しごとにカウンタを更新します。
+     * </p>
+     * 
+     * @param recordStats
+     *            ヒット数とミス数を記録する場合は{@literal true}
+     */
+    public void setRecordStats(final boolean recordStats) {
+        this.recordStats = recordStats;
+    }
+
+    /**
+     * ヒット数を返します。
+     * 
+     * @return ヒット数
+     * @see #setRecordStats(boolean)
+     */
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * ミス数を返します。
+     * 
+     * @return ミス数
+     * @see #setRecordStats(boolean)
+     */
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * 破棄されたエントリ数を返します。
+     * 
+     * @return 破棄されたエントリ数
+     */
+    public long getEvictionCount() {
+        return evictionCount.get();
+    }
+
+    /**
+     * 値を構築した回数を返します。
+     * 
+     * @return 値を構築した回数
+     */
+    public long getLoadCount() {
+        return loadCount.get();
+    }
+
+    /**
+     * 値の構築に失敗した回数を返します。
+     * 
+     * @return 値の構築に失敗した回数
+     */
+    public long getLoadFailureCount() {
+        return loadFailureCount.get();
+    }
+
+    /**
+     * 値の構築に要した時間の合計をナノ秒単位で返します。
+     * 
+     * @return 値の構築に要した時間の合計 (ナノ秒)
+     */
+    public long getTotalLoadTime() {
+        return totalLoadTime.get();
+    }
+
+    /**
+     * 値の構築に要した時間の最大値をナノ秒単位で返します。
+     * 
+     * @return 値の構築に要した時間の最大値 (ナノ秒)
+     */
+    public long getMaxLoadTime() {
+        return maxLoadTime.get();
+    }
+
+    /**
+     * 統計情報のスナップショットを返します。
+     * 
+     * @return 統計情報のスナップショット
+     */
+    public CacheStats getStats() {
+        final long[] histogram = new long[CacheStats.HISTOGRAM_SIZE];
+        for (int i = 0; i < histogram.length; ++i) {
+            histogram[i] = loadTimeHistogram.get(i);
+        }
+        return new CacheStats(
+            hitCount.get(),
+            missCount.get(),
+            loadCount.get(),
+            loadFailureCount.get(),
+            totalLoadTime.get(),
+            maxLoadTime.get(),
+            evictionCount.get(),
+            cache.size(),
+            histogram);
+    }
+
+    /**
+     * 値を構築してキャッシュします。
+     * <p>
+     * 他のスレッドが構築を終えた直後に呼び出された場合は、キャッシュされている値を返します。
+     * </p>
+     * 
+     * @param key
+     *            キー
+     * @return キーに対応する値
+     */
+    protected V load(final K key) {
+        final V cached = cache.get(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        final long start = System.nanoTime();
+        final V value;
+        try {
+            value = loader.load(key);
+        } catch (final RuntimeException e) {
+            loadFailureCount.incrementAndGet();
+            throw e;
+        } catch (final Error e) {
+            loadFailureCount.incrementAndGet();
+            throw e;
+        }
+        final long elapsed = System.nanoTime() - start;
+        assertState(value != null, "loader returned null for " + key);
+
+        final V result = putIfAbsent(cache, key, value);
+        recordLoadTime(elapsed);
+        final LoadListener<? super K, ? super V> listener = loadListener;
+        if (listener != null) {
+            listener.loaded(key, result, elapsed);
+        }
+        return result;
+    }
+
+    /**
+     * 値の構築に要した時間を記録します。
+     * 
+     * @param elapsed
+     *            値の構築に要した時間 (ナノ秒)
+     */
+    protected void recordLoadTime(final long elapsed) {
+        loadCount.incrementAndGet();
+        totalLoadTime.addAndGet(elapsed);
+        loadTimeHistogram.incrementAndGet(CacheStats
+            .getHistogramIndex(elapsed));
+        for (;;) {
+            final long max = maxLoadTime.get();
+            if (elapsed <= max || maxLoadTime.compareAndSet(max, elapsed)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * 構築中の値を待機して返します。
+     * <p>
+     * 待機中に割り込まれても構築が終わるまで待機を続け、 その後で割り込み状態を再設定します。
+     * </p>
+     * 
+     * @param <T>
+     *            値の型
+     * @param task
+     *            値を構築するタスク
+     * @return 構築された値
+     */
+    protected static <T> T getResult(final FutureTask<T> task) {
+        boolean interrupted = false;
+        try {
+            for (;;) {
+                try {
+                    return task.get();
+                } catch (final InterruptedException e) {
+                    interrupted = true;
+                } catch (final ExecutionException e) {
+                    final Throwable cause = e.getCause();
+                    if (cause instanceof RuntimeException) {
+                        throw (RuntimeException) cause;
+                    }
+                    if (cause instanceof Error) {
+                        throw (Error) cause;
+                    }
+                    throw new IllegalStateException(cause);
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * キーに対応する値を構築するインタフェースです。
+     * 
+     * @author koichik
+     * @param <K>
+     *            キーの型
+     * @param <V>
+     *            値の型
+     */
+    public interface Loader<K, V> {
+
+        /**
+         * キーに対応する値を構築して返します。
+         * 
+         * @param key
+         *            キー
+         * @return キーに対応する値。{@literal null}であってはいけません
+         */
+        V load(K key);
+
+    }
+
+    /**
+     * 値の構築が完了したことを通知されるインタフェースです。
+     * 
+     * @author koichik
+     * @param <K>
+     *            キーの型
+     * @param <V>
+     *            値の型
+     */
+    public interface LoadListener<K, V> {
+
+        /**
+         * 値の構築が完了したことを通知します。
+         * 
+         * @param key
+         *            キー
+         * @param value
+         *            構築された値
+         * @param elapsed
+         *            値の構築に要した時間 (ナノ秒)
+         */
+        void loaded(K key, V value, long elapsed);
+
+    }
+
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2004-2012 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.util.collection;
+
+import static org.seasar.util.misc.AssertionUtil.*;
+
+/**
+ * 2のべき乗の大きさを持つテーブルのためのユーティリティです。
+ * <p>
+ * {@link ConcurrentLruCache}、 {@link FrequencySketch}、 {@link AbstractPrimitiveKeyMap}などが使用します。
+ * </p>
+ * 
+ * @author koichik
+ */
+abstract class PowerOfTwoUtil {
+
+    /** {@literal int}で表せる最大の2のべき乗 */
+    static final int MAXIMUM_POWER_OF_TWO = 1 << 30;
+
+    /**
+     * 指定された値以上で最小の2のべき乗を返します。
+     * 
+     * @param value
+     *            値。{@link #MAXIMUM_POWER_OF_TWO}以下でなければいけません
+     * @return 指定された値以上で最小の2のべき乗
+     */
+    static int ceilingPowerOfTwo(final int value) {
+        assertArgument(
+            "value",
+            value <= MAXIMUM_POWER_OF_TWO,
+            "value > MAXIMUM_POWER_OF_TWO");
+
+        if (value <= 1) {
+            return 1;
+        }
+        return Integer.highestOneBit(value - 1) << 1;
+    }
+
+}
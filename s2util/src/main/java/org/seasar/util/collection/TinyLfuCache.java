@@ -0,0 +1,994 @@
+/*
+ * Copyright 2004-2012 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.util.collection;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.seasar.util.collection.MemoizingLoader.Loader;
+import org.seasar.util.log.Logger;
+
+import static org.seasar.util.collection.CollectionsUtil.*;
+import static org.seasar.util.log.Logger.*;
+import static org.seasar.util.misc.AssertionUtil.*;
+
+/**
+ * 出現頻度によって新しいエントリを受け入れるかどうかを決める (TinyLFU) 上限付きのキャッシュです。
+ * <p>
+ * エントリの重みの合計が上限を超える場合、LRUで破棄の候補となるエントリを選び、
+ * 新しいエントリのキーの出現頻度が破棄の候補のキーの出現頻度より大きい場合だけ候補を破棄して新しいエントリを受け入れます。
+ * そうでない場合は新しいエントリを受け入れません。 出現頻度は{@link FrequencySketch}で近似的に数えるため、
+ * 一度しか参照されないキーを大量に走査しても、 頻繁に参照されるエントリが破棄されることはありません。
+ * </p>
+ * <p>
+ * エントリの重みは{@link #weigher(Weigher)}で設定した{@link Weigher}で求めます。 デフォルトではすべてのエントリの重みは
+ * {@literal 1}で、上限はエントリ数の上限になります。
+ * </p>
+ * <p>
+ * {@link #expireAfterWrite(long, TimeUnit)}や{@link #expireAfterAccess(long, TimeUnit)}
+ * でエントリの有効期限を設定できます。 期限切れのエントリは参照された時や、 エントリの追加時にLRUの古い側から一定数を走査して削除されるため、
+ * キャッシュごとにバックグラウンドのスレッドを必要としません。 {@link #cleanUp()}で明示的に削除することもできます。
+ * </p>
+ * <p>
+ * {@link #loader(Loader)}で{@link Loader}を設定すると、{@link #get(Object)}
+ * はキャッシュに存在しない値を構築してキャッシュします。 同じキーの値を構築するのは一つのスレッドだけで、
+ * 他のスレッドはその構築が終わるまで待機します。 さらに{@link #refreshAfterWrite(long, TimeUnit)}
+ * を設定すると、書き込みから指定した時間が経過したエントリを参照した時に、 古い値を返しつつ値を再構築します (リフレッシュ)。
+ * 再構築は{@link #refreshExecutor(Executor)}で設定した{@link Executor}で行われます。
+ * 設定されていない場合は参照したスレッドで再構築し、新しい値を返します。 再構築に失敗した場合は古い値を残してログに出力します。
+ * </p>
+ * <p>
+ * 破棄されたエントリ数や値の構築に関する統計情報は常に記録します。 {@link #recordStats(boolean)}
+ * で有効にすると、ヒット数とミス数も記録します。
+ * </p>
+ * <p>
+ * 参照はロックを取得せずに{@link ConcurrentLruCache}と同様のバッファに記録され、 まとめてLRUの順序と出現頻度に反映されます。
+ * 設定を変更するメソッドはキャッシュを使い始める前に呼び出してください。 キーと値に{@literal null}は使用できません。
+ * </p>
+ * 
+ * <pre>
+ * TinyLfuCache&lt;String, byte[]&gt; cache =
+ *     new TinyLfuCache&lt;String, byte[]&gt;(64 * 1024 * 1024)
+ *         .weigher(new Weigher&lt;String, byte[]&gt;() {
+ *             public int weigh(String key, byte[] value) {
+ *                 return value.length;
+ *             }
+ *         })
+ *         .expireAfterAccess(10, TimeUnit.MINUTES);
+ * </pre>
+ * 
+ * @author koichik
+ * @param <K>
+ *            キーの型
+ * @param <V>
+ *            値の型
+ * @see FrequencySketch
+ * @see ConcurrentLruCache
+ */
+public class TinyLfuCache<K, V> {
+
+    /** ロガー */
+    private static final Logger logger = Logger.getLogger(TinyLfuCache.class);
+
+    /** エントリの追加時に期限切れを調べる有効なエントリの数 */
+    protected static final int EXPIRE_SCAN_LIMIT = 16;
+
+    /** {@link FrequencySketch}の初期の大きさの上限 */
+    protected static final int INITIAL_SKETCH_SIZE = 1024;
+
+    /** すべてのエントリの重みを{@literal 1}とする{@link Weigher} */
+    protected static final Weigher<Object, Object> SINGLETON_WEIGHER =
+        new Weigher<Object, Object>() {
+            @Override
+            public int weigh(final Object key, final Object value) {
+                return 1;
+            }
+        };
+
+    /** エントリの重みの合計の上限 */
+    protected final long maximumWeight;
+
+    /** エントリの重みを求める{@link Weigher} */
+    protected Weigher<? super K, ? super V> weigher = SINGLETON_WEIGHER;
+
+    /** 書き込みからの有効期限 (ナノ秒、{@literal 0}の場合は無期限) */
+    protected long expireAfterWriteNanos;
+
+    /** 参照からの有効期限 (ナノ秒、{@literal 0}の場合は無期限) */
+    protected long expireAfterAccessNanos;
+
+    /** 書き込みからリフレッシュするまでの時間 (ナノ秒、{@literal 0}の場合はリフレッシュしない) */
+    protected long refreshAfterWriteNanos;
+
+    /** 値を構築する{@link Loader} */
+    protected Loader<? super K, ? extends V> loader;
+
+    /** リフレッシュを行う{@link Executor} */
+    protected Executor refreshExecutor;
+
+    /** ヒット数とミス数を記録する場合は{@literal true} */
+    protected volatile boolean recordStats;
+
+    /** エントリのマップ */
+    protected final ConcurrentMap<K, Node<K, V>> data = newConcurrentHashMap();
+
+    /** 構築中の値のタスク */
+    protected final ConcurrentMap<K, FutureTask<V>> loadingTasks =
+        newConcurrentHashMap();
+
+    /** LRUの順序と出現頻度、破棄を保護するロック */
+    protected final ReentrantLock evictionLock = new ReentrantLock();
+
+    /** LRUの順序で並んだエントリのリストと参照を記録するバッファ */
+    final LruList<Node<K, V>> lruList = new LruList<Node<K, V>>(
+        new Node<K, V>(null, null, 0, 0L)) {
+        @Override
+        void onRead(final Node<K, V> node) {
+            sketch.increment(spread(node.key.hashCode()));
+            super.onRead(node);
+        }
+    };
+
+    /** キーの出現頻度 */
+    protected FrequencySketch sketch;
+
+    /** {@link #sketch}が出現頻度を数える要素数の目安 */
+    protected int sketchSize;
+
+    /** エントリの重みの合計 */
+    protected long totalWeight;
+
+    /** 破棄されたエントリ数 */
+    protected final AtomicLong evictionCount = new AtomicLong();
+
+    /** 受け入れなかったエントリ数 */
+    protected final AtomicLong rejectionCount = new AtomicLong();
+
+    /** 値を構築した回数 */
+    protected final AtomicLong loadCount = new AtomicLong();
+
+    /** 値の構築に失敗した回数 */
+    protected final AtomicLong loadFailureCount = new AtomicLong();
+
+    /** 値の構築に要した時間の合計 (ナノ秒) */
+    protected final AtomicLong totalLoadTime = new AtomicLong();
+
+    /** 値の構築に要した時間の最大値 (ナノ秒) */
+    protected final AtomicLong maxLoadTime = new AtomicLong();
+
+    /** 値の構築に要した時間のヒストグラム */
+    protected final AtomicLongArray loadTimeHistogram = new AtomicLongArray(
+        CacheStats.HISTOGRAM_SIZE);
+
+    /**
+     * インスタンスを構築します。
+     * 
+     * @param maximumWeight
+     *            エントリの重みの合計の上限。{@literal 0}より大きくなければいけません
+     */
+    public TinyLfuCache(final long maximumWeight) {
+        assertArgument(
+            "maximumWeight",
+            maximumWeight > 0L,
+            "maximumWeight <= 0");
+
+        this.maximumWeight = maximumWeight;
+        sketchSize = (int) Math.min(maximumWeight, INITIAL_SKETCH_SIZE);
+        sketch = new FrequencySketch(sketchSize);
+    }
+
+    /**
+     * エントリの重みを求める{@link Weigher}を設定します。
+     * 
+     * @param weigher
+     *            エントリの重みを求める{@link Weigher}。{@literal null}であってはいけません
+     * @return このインスタンス自身
+     */
+    public TinyLfuCache<K, V> weigher(
+            final Weigher<? super K, ? super V> weigher) {
+        assertArgumentNotNull("weigher", weigher);
+
+        this.weigher = weigher;
+        return this;
+    }
+
+    /**
+     * 書き込みからの有効期限を設定します。
+     * 
+     * @param duration
+     *            有効期限。{@literal 0}の場合は無期限
+     * @param unit
+     *            有効期限の単位。{@literal null}であってはいけません
+     * @return このインスタンス自身
+     */
+    public TinyLfuCache<K, V> expireAfterWrite(final long duration,
+            final TimeUnit unit) {
+        assertArgument("duration", duration >= 0L, "duration < 0");
+        assertArgumentNotNull("unit", unit);
+
+        expireAfterWriteNanos = unit.toNanos(duration);
+        return this;
+    }
+
+    /**
+     * 参照からの有効期限を設定します。
+     * <p>
+     * 書き込みも参照とみなします。
+     * </p>
+     * 
+     * @param duration
+     *            有効期限。{@literal 0}の場合は無期限
+     * @param unit
+     *            有効期限の単位。{@literal null}であってはいけません
+     * @return このインスタンス自身
+     */
+    public TinyLfuCache<K, V> expireAfterAccess(final long duration,
+            final TimeUnit unit) {
+        assertArgument("duration", duration >= 0L, "duration < 0");
+        assertArgumentNotNull("unit", unit);
+
+        expireAfterAccessNanos = unit.toNanos(duration);
+        return this;
+    }
+
+    /**
+     * 書き込みからリフレッシュするまでの時間を設定します。
+     * <p>
+     * リフレッシュには{@link #loader(Loader)}で設定した{@link Loader}が使われます。
+     * </p>
+     * 
+     * @param duration
+     *            リフレッシュするまでの時間。{@literal 0}の場合はリフレッシュしません
+     * @param unit
+     *            時間の単位。{@literal null}であってはいけません
+     * @return このインスタンス自身
+     */
+    public TinyLfuCache<K, V> refreshAfterWrite(final long duration,
+            final TimeUnit unit) {
+        assertArgument("duration", duration >= 0L, "duration < 0");
+        assertArgumentNotNull("unit", unit);
+
+        refreshAfterWriteNanos = unit.toNanos(duration);
+        return this;
+    }
+
+    /**
+     * キャッシュに存在しない値の構築とリフレッシュに使う{@link Loader}を設定します。
+     * 
+     * @param loader
+     *            値を構築する{@link Loader}。{@literal null}の場合は値を構築しません
+     * @return このインスタンス自身
+     */
+    public TinyLfuCache<K, V> loader(
+            final Loader<? super K, ? extends V> loader) {
+        this.loader = loader;
+        return this;
+    }
+
+    /**
+     * リフレッシュを行う{@link Executor}を設定します。
+     * 
+     * @param executor
+     *            リフレッシュを行う{@link Executor}。{@literal null}の場合は参照したスレッドでリフレッシュします
+     * @return このインスタンス自身
+     */
+    public TinyLfuCache<K, V> refreshExecutor(final Executor executor) {
+        refreshExecutor = executor;
+        return this;
+    }
+
+    /**
+     * ヒット数とミス数を記録するかどうかを設定します。
+     * <p>
+     * デフォルトは記録しません。 記録する場合は{@link #get(Object)}などの呼び出しごとにカウンタを更新します。
+     * </p>
+     * 
+     * @param recordStats
+     *            ヒット数とミス数を記録する場合は{@literal true}
+     * @return このインスタンス自身
+     */
+    public TinyLfuCache<K, V> recordStats(final boolean recordStats) {
+        this.recordStats = recordStats;
+        return this;
+    }
+
+    /**
+     * ヒット数とミス数を記録する場合は{@literal true}を返します。
+     * 
+     * @return ヒット数とミス数を記録する場合は{@literal true}
+     */
+    public boolean isRecordStats() {
+        return recordStats;
+    }
+
+    /**
+     * エントリの重みの合計の上限を返します。
+     * 
+     * @return エントリの重みの合計の上限
+     */
+    public long getMaximumWeight() {
+        return maximumWeight;
+    }
+
+    /**
+     * エントリ数を返します。
+     * <p>
+     * まだ削除されていない期限切れのエントリも含みます。
+     * </p>
+     * 
+     * @return エントリ数
+     */
+    public int size() {
+        return data.size();
+    }
+
+    /**
+     * エントリの重みの合計を返します。
+     * 
+     * @return エントリの重みの合計
+     */
+    public long getWeightedSize() {
+        evictionLock.lock();
+        try {
+            return totalWeight;
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * 受け入れなかったエントリ数を返します。
+     * 
+     * @return 受け入れなかったエントリ数
+     */
+    public long getRejectionCount() {
+        return rejectionCount.get();
+    }
+
+    /**
+     * 統計情報のスナップショットを返します。
+     * <p>
+     * 期限切れで削除されたエントリ数は破棄されたエントリ数に含まれます。
+     * </p>
+     * 
+     * @return 統計情報のスナップショット
+     */
+    public CacheStats getStats() {
+        long hitCount = 0L;
+        long missCount = 0L;
+        for (final LruList.ReadBuffer buffer : lruList.readBuffers) {
+            hitCount += buffer.hitCount.get();
+            missCount += buffer.missCount.get();
+        }
+        final long[] histogram = new long[CacheStats.HISTOGRAM_SIZE];
+        for (int i = 0; i < histogram.length; ++i) {
+            histogram[i] = loadTimeHistogram.get(i);
+        }
+        return new CacheStats(
+            hitCount,
+            missCount,
+            loadCount.get(),
+            loadFailureCount.get(),
+            totalLoadTime.get(),
+            maxLoadTime.get(),
+            evictionCount.get(),
+            size(),
+            histogram);
+    }
+
+    /**
+     * キーに対応する値を返します。
+     * <p>
+     * {@link Loader}が設定されている場合、 キャッシュに存在しない値は構築してキャッシュします。
+     * 他のスレッドが同じキーの値を構築中の場合は、その構築が終わるまで待機します。 リフレッシュが設定されている場合、 書き込みから一定時間が経過したエントリはリフレッシュされます。
+     * </p>
+     * 
+     * @param key
+     *            キー。{@literal null}であってはいけません
+     * @return キーに対応する値。キャッシュに存在せず{@link Loader}も設定されていない場合は{@literal null}
+     */
+    public V get(final K key) {
+        assertArgumentNotNull("key", key);
+
+        final Node<K, V> node = getNode(key);
+        final Loader<? super K, ? extends V> loader = this.loader;
+        if (node == null) {
+            if (loader == null) {
+                return null;
+            }
+            return loadAndPut(loader, key);
+        }
+        if (loader != null && refreshAfterWriteNanos > 0L
+            && currentTime() - node.writeTime >= refreshAfterWriteNanos
+            && node.refreshing.compareAndSet(false, true)) {
+            return refresh(loader, node);
+        }
+        return node.value;
+    }
+
+    /**
+     * キーに対応する値がキャッシュされていればそれを返します。
+     * <p>
+     * 値の構築やリフレッシュは行いません。
+     * </p>
+     * 
+     * @param key
+     *            キー。{@literal null}であってはいけません
+     * @return キーに対応する値。キャッシュされていない場合は{@literal null}
+     */
+    public V getIfPresent(final K key) {
+        assertArgumentNotNull("key", key);
+
+        final Node<K, V> node = getNode(key);
+        return node == null ? null : node.value;
+    }
+
+    /**
+     * エントリを追加します。
+     * <p>
+     * エントリの重みの合計が上限を超える場合、 キーの出現頻度が破棄の候補より小さければエントリを受け入れません。
+     * 既に存在するキーの値は常に置き換えます。
+     * </p>
+     * 
+     * @param key
+     *            キー。{@literal null}であってはいけません
+     * @param value
+     *            値。{@literal null}であってはいけません
+     * @return エントリを受け入れた場合は{@literal true}
+     */
+    public boolean put(final K key, final V value) {
+        assertArgumentNotNull("key", key);
+        assertArgumentNotNull("value", value);
+
+        final int weight = weigher.weigh(key, value);
+        assertArgument("value", weight >= 0, "weight < 0");
+        final long now = currentTime();
+        evictionLock.lock();
+        try {
+            lruList.drainReadBuffers();
+            final int hash = spread(key.hashCode());
+            sketch.increment(hash);
+            final Node<K, V> node = data.get(key);
+            if (node != null) {
+                totalWeight += weight - node.weight;
+                node.value = value;
+                node.weight = weight;
+                node.writeTime = now;
+                node.accessTime = now;
+                lruList.moveToTail(node);
+                expireEntries(now);
+                return evictExcess(node);
+            }
+
+            expireEntries(now);
+            if (weight > maximumWeight || !admit(hash, weight)) {
+                rejectionCount.incrementAndGet();
+                return false;
+            }
+            final Node<K, V> newNode = new Node<K, V>(key, value, weight, now);
+            data.put(key, newNode);
+            lruList.linkLast(newNode);
+            totalWeight += weight;
+            ensureSketchCapacity();
+            return true;
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * エントリを削除します。
+     * 
+     * @param key
+     *            キー。{@literal null}であってはいけません
+     * @return 削除された値。キャッシュされていなかった場合は{@literal null}
+     */
+    public V remove(final K key) {
+        assertArgumentNotNull("key", key);
+
+        evictionLock.lock();
+        try {
+            final Node<K, V> node = data.remove(key);
+            if (node == null) {
+                return null;
+            }
+            lruList.unlink(node);
+            totalWeight -= node.weight;
+            return node.value;
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * すべてのエントリを削除します。
+     * <p>
+     * キーの出現頻度はクリアしません。
+     * </p>
+     */
+    public void clear() {
+        evictionLock.lock();
+        try {
+            lruList.drainReadBuffers();
+            lruList.clear();
+            data.clear();
+            totalWeight = 0L;
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * バッファに溜まった参照の記録を反映し、期限切れのエントリをすべて削除します。
+     */
+    public void cleanUp() {
+        final long now = currentTime();
+        evictionLock.lock();
+        try {
+            lruList.drainReadBuffers();
+            final Node<K, V> head = lruList.head;
+            for (Node<K, V> node = head.next; node != head;) {
+                final Node<K, V> next = node.next;
+                if (isExpired(node, now)) {
+                    evict(node);
+                }
+                node = next;
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * 現在時刻をナノ秒単位で返します。
+     * 
+     * @return 現在時刻 (ナノ秒)
+     * @see System#nanoTime()
+     */
+    protected long currentTime() {
+        return System.nanoTime();
+    }
+
+    /**
+     * キーに対応する有効なノードを返し、 参照を記録します。
+     * <p>
+     * ロックを取得しません。 期限切れのノードは削除します。
+     * </p>
+     * 
+     * @param key
+     *            キー
+     * @return キーに対応する有効なノード。存在しない場合は{@literal null}
+     */
+    protected Node<K, V> getNode(final K key) {
+        final LruList.ReadBuffer buffer = lruList.getReadBuffer();
+        final Node<K, V> node = data.get(key);
+        if (node == null) {
+            if (recordStats) {
+                buffer.missCount.incrementAndGet();
+            }
+            return null;
+        }
+        if (expireAfterWriteNanos > 0L || expireAfterAccessNanos > 0L) {
+            final long now = currentTime();
+            if (isExpired(node, now)) {
+                if (recordStats) {
+                    buffer.missCount.incrementAndGet();
+                }
+                evictionLock.lock();
+                try {
+                    if (node.prev != null) {
+                        evict(node);
+                    }
+                } finally {
+                    evictionLock.unlock();
+                }
+                return null;
+            }
+            if (expireAfterAccessNanos > 0L) {
+                node.accessTime = now;
+            }
+        }
+        if (recordStats) {
+            buffer.hitCount.incrementAndGet();
+        }
+        if (lruList.recordRead(buffer, node) && evictionLock.tryLock()) {
+            try {
+                lruList.drainReadBuffers();
+            } finally {
+                evictionLock.unlock();
+            }
+        }
+        return node;
+    }
+
+    /**
+     * 値を構築してキャッシュします。
+     * <p>
+     * 他のスレッドが同じキーの値を構築中の場合は、その構築が終わるまで待機してその値を返します。
+     * 値の構築中に例外が発生した場合は、待機していたすべてのスレッドにその例外がスローされます。
+     * </p>
+     * 
+     * @param loader
+     *            値を構築する{@link Loader}
+     * @param key
+     *            キー
+     * @return 構築した値
+     */
+    protected V loadAndPut(final Loader<? super K, ? extends V> loader,
+            final K key) {
+        FutureTask<V> task = loadingTasks.get(key);
+        if (task == null) {
+            final FutureTask<V> newTask =
+                new FutureTask<V>(new Callable<V>() {
+                    @Override
+                    public V call() {
+                        final V value = load(loader, key);
+                        put(key, value);
+                        return value;
+                    }
+                });
+            task = loadingTasks.putIfAbsent(key, newTask);
+            if (task == null) {
+                task = newTask;
+                try {
+                    newTask.run();
+                } finally {
+                    loadingTasks.remove(key, newTask);
+                }
+            }
+        }
+        return MemoizingLoader.getResult(task);
+    }
+
+    /**
+     * 値を構築します。
+     * 
+     * @param loader
+     *            値を構築する{@link Loader}
+     * @param key
+     *            キー
+     * @return 構築した値
+     */
+    protected V load(final Loader<? super K, ? extends V> loader, final K key) {
+        final long start = System.nanoTime();
+        final V value;
+        try {
+            value = loader.load(key);
+        } catch (final RuntimeException e) {
+            loadFailureCount.incrementAndGet();
+            throw e;
+        } catch (final Error e) {
+            loadFailureCount.incrementAndGet();
+            throw e;
+        }
+        final long elapsed = System.nanoTime() - start;
+        assertState(value != null, "loader returned null for " + key);
+        loadCount.incrementAndGet();
+        totalLoadTime.addAndGet(elapsed);
+        loadTimeHistogram.incrementAndGet(CacheStats
+            .getHistogramIndex(elapsed));
+        for (;;) {
+            final long max = maxLoadTime.get();
+            if (elapsed <= max || maxLoadTime.compareAndSet(max, elapsed)) {
+                break;
+            }
+        }
+        return value;
+    }
+
+    /**
+     * ノードの値をリフレッシュします。
+     * <p>
+     * {@link Executor}が設定されている場合はリフレッシュを依頼して古い値を返します。
+     * 設定されていない場合はこのスレッドでリフレッシュして新しい値を返します。
+     * リフレッシュに失敗した場合や{@link Executor}が依頼を拒否した場合はログに出力します。 古い値が残り、 次の参照で再びリフレッシュされます。
+     * 新しい値で重みが増えてエントリの重みの合計が上限を超えた場合は、 {@link #put(Object, Object)}と同じくLRUの古い側から破棄します。
+     * </p>
+     * 
+     * @param loader
+     *            値を構築する{@link Loader}
+     * @param node
+     *            ノード
+     * @return ノードの値
+     */
+    protected V refresh(final Loader<? super K, ? extends V> loader,
+            final Node<K, V> node) {
+        final Runnable task = new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    final V value = load(loader, node.key);
+                    final int weight = weigher.weigh(node.key, value);
+                    assertState(weight >= 0, "weight < 0");
+                    evictionLock.lock();
+                    try {
+                        if (data.get(node.key) == node) {
+                            totalWeight += weight - node.weight;
+                            node.value = value;
+                            node.weight = weight;
+                            node.writeTime = currentTime();
+                            evictExcess(node);
+                        }
+                    } finally {
+                        evictionLock.unlock();
+                    }
+                } catch (final RuntimeException e) {
+                    logger.log(format("WUTL0015", node.key), e);
+                } finally {
+                    node.refreshing.set(false);
+                }
+            }
+        };
+        final Executor executor = refreshExecutor;
+        if (executor == null) {
+            task.run();
+        } else {
+            try {
+                executor.execute(task);
+            } catch (final RuntimeException e) {
+                node.refreshing.set(false);
+                logger.log(format("WUTL0015", node.key), e);
+            }
+        }
+        return node.value;
+    }
+
+    /**
+     * 出現頻度を比較して新しいエントリを受け入れるかどうかを決め、 受け入れる場合は破棄の候補を破棄します。
+     * <p>
+     * ロックを取得した状態で呼び出さなければなりません。
+     * </p>
+     * 
+     * @param hash
+     *            新しいエントリのキーのハッシュ値
+     * @param weight
+     *            新しいエントリの重み
+     * @return 新しいエントリを受け入れる場合は{@literal true}
+     */
+    protected boolean admit(final int hash, final int weight) {
+        final long excess = totalWeight + weight - maximumWeight;
+        if (excess <= 0L) {
+            return true;
+        }
+        final int candidateFrequency = sketch.frequency(hash);
+        long freed = 0L;
+        Node<K, V> victim = lruList.head.next;
+        while (freed < excess) {
+            final int victimFrequency =
+                sketch.frequency(spread(victim.key.hashCode()));
+            if (victimFrequency >= candidateFrequency) {
+                return false;
+            }
+            freed += victim.weight;
+            victim = victim.next;
+        }
+        while (totalWeight + weight > maximumWeight) {
+            evict(lruList.head.next);
+        }
+        return true;
+    }
+
+    /**
+     * エントリの重みの合計が上限以下になるまで、 LRUの古い側からエントリを破棄します。
+     * <p>
+     * ロックを取得した状態で呼び出さなければなりません。 重みが変わったノードは最後に破棄します。
+     * </p>
+     * 
+     * @param node
+     *            重みが変わったノード
+     * @return 重みが変わったノードが破棄されなかった場合は{@literal true}
+     */
+    protected boolean evictExcess(final Node<K, V> node) {
+        final Node<K, V> head = lruList.head;
+        while (totalWeight > maximumWeight && head.next != node) {
+            evict(head.next);
+        }
+        if (totalWeight > maximumWeight) {
+            evict(node);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * LRUの古い側から期限切れのエントリを削除します。
+     * <p>
+     * ロックを取得した状態で呼び出さなければなりません。 有効なエントリを{@link #EXPIRE_SCAN_LIMIT}
+     * 件見つけた時点で走査を終了します。
+     * </p>
+     * 
+     * @param now
+     *            現在時刻 (ナノ秒)
+     */
+    protected void expireEntries(final long now) {
+        if (expireAfterWriteNanos == 0L && expireAfterAccessNanos == 0L) {
+            return;
+        }
+        int live = 0;
+        final Node<K, V> head = lruList.head;
+        for (Node<K, V> node = head.next; node != head
+            && live < EXPIRE_SCAN_LIMIT;) {
+            final Node<K, V> next = node.next;
+            if (isExpired(node, now)) {
+                evict(node);
+            } else {
+                ++live;
+            }
+            node = next;
+        }
+    }
+
+    /**
+     * ノードが期限切れなら{@literal true}を返します。
+     * 
+     * @param node
+     *            ノード
+     * @param now
+     *            現在時刻 (ナノ秒)
+     * @return ノードが期限切れなら{@literal true}
+     */
+    protected boolean isExpired(final Node<K, V> node, final long now) {
+        return expireAfterWriteNanos > 0L
+            && now - node.writeTime >= expireAfterWriteNanos
+            || expireAfterAccessNanos > 0L
+            && now - node.accessTime >= expireAfterAccessNanos;
+    }
+
+    /**
+     * ノードを破棄します。
+     * <p>
+     * ロックを取得した状態で呼び出さなければなりません。
+     * </p>
+     * 
+     * @param node
+     *            ノード
+     */
+    protected void evict(final Node<K, V> node) {
+        lruList.unlink(node);
+        data.remove(node.key, node);
+        totalWeight -= node.weight;
+        evictionCount.incrementAndGet();
+    }
+
+    /**
+     * エントリ数に合わせて{@link FrequencySketch}を大きくします。
+     * <p>
+     * ロックを取得した状態で呼び出さなければなりません。 作り直した場合、
+     * キャッシュされているエントリのキーの出現頻度は新しい{@link FrequencySketch}に引き継がれるため、
+     * 作り直した直後に一度しか参照されないキーを大量に走査しても、 頻繁に参照されるエントリが破棄されることはありません。
+     * キャッシュされていないキーの出現頻度は失われます。
+     * </p>
+     */
+    protected void ensureSketchCapacity() {
+        final int size = data.size();
+        if (size > sketchSize && sketchSize < maximumWeight) {
+            sketchSize =
+                (int) Math.min(
+                    Math.min(maximumWeight, Integer.MAX_VALUE),
+                    Math.max((long) sketchSize * 2, size));
+            final FrequencySketch oldSketch = sketch;
+            sketch = new FrequencySketch(sketchSize);
+            final Node<K, V> head = lruList.head;
+            for (Node<K, V> node = head.next; node != head; node = node.next) {
+                final int hash = spread(node.key.hashCode());
+                for (int i = oldSketch.frequency(hash); i > 0; --i) {
+                    sketch.increment(hash);
+                }
+            }
+        }
+    }
+
+    /**
+     * ハッシュ値を攪拌します。
+     * 
+     * @param hash
+     *            ハッシュ値
+     * @return 攪拌したハッシュ値
+     */
+    protected static int spread(final int hash) {
+        int h = hash;
+        h = ((h >>> 16) ^ h) * 0x45d9f3b;
+        h = ((h >>> 16) ^ h) * 0x45d9f3b;
+        return (h >>> 16) ^ h;
+    }
+
+    /**
+     * エントリの重みを求めるインタフェースです。
+     * 
+     * @author koichik
+     * @param <K>
+     *            キーの型
+     * @param <V>
+     *            値の型
+     */
+    public interface Weigher<K, V> {
+
+        /**
+         * エントリの重みを返します。
+         * 
+         * @param key
+         *            キー
+         * @param value
+         *            値
+         * @return エントリの重み。{@literal 0}以上でなければいけません
+         */
+        int weigh(K key, V value);
+
+    }
+
+    /**
+     * エントリを保持するノードです。
+     * <p>
+     * {@literal weight}はロックを取得した状態でだけ参照・更新されます。
+     * </p>
+     * 
+     * @author koichik
+     * @param <K>
+     *            キーの型
+     * @param <V>
+     *            値の型
+     */
+    protected static class Node<K, V> extends LruList.Link<Node<K, V>> {
+
+        /** キー */
+        protected final K key;
+
+        /** 値 */
+        protected volatile V value;
+
+        /** 重み */
+        protected int weight;
+
+        /** 書き込んだ時刻 (ナノ秒) */
+        protected volatile long writeTime;
+
+        /** 参照した時刻 (ナノ秒) */
+        protected volatile long accessTime;
+
+        /** リフレッシュ中なら{@literal true} */
+        protected final AtomicBoolean refreshing = new AtomicBoolean();
+
+        /**
+         * インスタンスを構築します。
+         * 
+         * @param key
+         *            キー
+         * @param value
+         *            値
+         * @param weight
+         *            重み
+         * @param now
+         *            現在時刻 (ナノ秒)
+         */
+        public Node(final K key, final V value, final int weight,
+                final long now) {
+            this.key = key;
+            this.value = value;
+            this.weight = weight;
+            writeTime = now;
+            accessTime = now;
+        }
+
+    }
+
+}
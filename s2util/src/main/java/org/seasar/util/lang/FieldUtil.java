@@ -123,6 +123,81 @@ public abstract class FieldUtil {
         }
     }
 
+    /**
+     * {@link Field}の値をlongとして取得します。
+     * 
+     * @param field
+     *            フィールド。{@literal null}であってはいけません
+     * @param target
+     *            ターゲットオブジェクト。フィールドが{@literal static}の場合は{@literal null}
+     * @return フィールドの値
+     * @throws IllegalAccessRuntimeException
+     *             {@link IllegalAccessException}が発生した場合
+     * @see Field#getLong(Object)
+     */
+    public static long getLong(final Field field, final Object target)
+            throws IllegalAccessRuntimeException {
+        assertArgumentNotNull("field", field);
+
+        try {
+            return field.getLong(target);
+        } catch (final IllegalAccessException ex) {
+            throw new IllegalAccessRuntimeException(
+                field.getDeclaringClass(),
+                ex);
+        }
+    }
+
+    /**
+     * {@link Field}の値をdoubleとして取得します。
+     * 
+     * @param field
+     *            フィールド。{@literal null}であってはいけません
+     * @param target
+     *            ターゲットオブジェクト。フィールドが{@literal static}の場合は{@literal null}
+     * @return フィールドの値
+     * @throws IllegalAccessRuntimeException
+     *             {@link IllegalAccessException}が発生した場合
+     * @see Field#getDouble(Object)
+     */
+    public static double getDouble(final Field field, final Object target)
+            throws IllegalAccessRuntimeException {
+        assertArgumentNotNull("field", field);
+
+        try {
+            return field.getDouble(target);
+        } catch (final IllegalAccessException ex) {
+            throw new IllegalAccessRuntimeException(
+                field.getDeclaringClass(),
+                ex);
+        }
+    }
+
+    /**
+     * {@link Field}の値をbooleanとして取得します。
+     * 
+     * @param field
+     *            フィールド。{@literal null}であってはいけません
+     * @param target
+     *            ターゲットオブジェクト。フィールドが{@literal static}の場合は{@literal null}
+     * @return フィールドの値
+     * @throws IllegalAccessRuntimeException
+     *             {@link IllegalAccessException}が発生した場合
+     * @see Field#getBoolean(Object)
+     */
+    public static boolean getBoolean(final Field field, final Object target)
+            throws IllegalAccessRuntimeException {
+        assertArgumentNotNull("field", field);
+
+        try {
+            return field.getBoolean(target);
+        } catch (final IllegalAccessException ex) {
+            throw new IllegalAccessRuntimeException(
+                field.getDeclaringClass(),
+                ex);
+        }
+    }
+
     /**
      * {@literal static}な {@link Field}の値を {@link String}として取得します。
      * 
@@ -226,6 +301,110 @@ public abstract class FieldUtil {
         }
     }
 
+    /**
+     * {@link Field}オブジェクトによって表される指定されたオブジェクト引数のフィールドを、指定されたintの値に設定します。
+     * 
+     * @param field
+     *            フィールド。{@literal null}であってはいけません
+     * @param target
+     *            フィールドを変更するオブジェクト。フィールドが{@literal static}の場合は{@literal null}
+     * @param value
+     *            変更中の{@code target}の新しいフィールド値
+     * @throws IllegalAccessRuntimeException
+     *             基本となるフィールドにアクセスできない場合
+     * @see Field#setInt(Object, int)
+     */
+    public static void setInt(final Field field, final Object target,
+            final int value) throws IllegalAccessRuntimeException {
+        assertArgumentNotNull("field", field);
+
+        try {
+            field.setInt(target, value);
+        } catch (final IllegalAccessException e) {
+            throw new IllegalAccessRuntimeException(
+                field.getDeclaringClass(),
+                e);
+        }
+    }
+
+    /**
+     * {@link Field}オブジェクトによって表される指定されたオブジェクト引数のフィールドを、指定されたlongの値に設定します。
+     * 
+     * @param field
+     *            フィールド。{@literal null}であってはいけません
+     * @param target
+     *            フィールドを変更するオブジェクト。フィールドが{@literal static}の場合は{@literal null}
+     * @param value
+     *            変更中の{@code target}の新しいフィールド値
+     * @throws IllegalAccessRuntimeException
+     *             基本となるフィールドにアクセスできない場合
+     * @see Field#setLong(Object, long)
+     */
+    public static void setLong(final Field field, final Object target,
+            final long value) throws IllegalAccessRuntimeException {
+        assertArgumentNotNull("field", field);
+
+        try {
+            field.setLong(target, value);
+        } catch (final IllegalAccessException e) {
+            throw new IllegalAccessRuntimeException(
+                field.getDeclaringClass(),
+                e);
+        }
+    }
+
+    /**
+     * {@link Field}オブジェクトによって表される指定されたオブジェクト引数のフィールドを、指定されたdoubleの値に設定します。
+     * 
+     * @param field
+     *            フィールド。{@literal null}であってはいけません
+     * @param target
+     *            フィールドを変更するオブジェクト。フィールドが{@literal static}の場合は{@literal null}
+     * @param value
+     *            変更中の{@code target}の新しいフィールド値
+     * @throws IllegalAccessRuntimeException
+     *             基本となるフィールドにアクセスできない場合
+     * @see Field#setDouble(Object, double)
+     */
+    public static void setDouble(final Field field, final Object target,
+            final double value) throws IllegalAccessRuntimeException {
+        assertArgumentNotNull("field", field);
+
+        try {
+            field.setDouble(target, value);
+        } catch (final IllegalAccessException e) {
+            throw new IllegalAccessRuntimeException(
+                field.getDeclaringClass(),
+                e);
+        }
+    }
+
+    /**
+     * {@link Field}オブジェクトによって表される指定されたオブジェクト引数のフィールドを、指定されたbooleanの値に設定します。
+     * 
+     * @param field
+     *            フィールド。{@literal null}であってはいけません
+     * @param target
+     *            フィールドを変更するオブジェクト。フィールドが{@literal static}の場合は{@literal null}
+     * @param value
+     *            変更中の{@code target}の新しいフィールド値
+     * @throws IllegalAccessRuntimeException
+     *             基本となるフィールドにアクセスできない場合
+     * @see Field#setBoolean(Object, boolean)
+     */
+    public static void setBoolean(final Field field, final Object target,
+            final boolean value) throws IllegalAccessRuntimeException {
+        assertArgumentNotNull("field", field);
+
+        try {
+            field.setBoolean(target, value);
+        } catch (final IllegalAccessException e) {
+            throw new IllegalAccessRuntimeException(
+                field.getDeclaringClass(),
+                e);
+        }
+    }
+
     /**
      * インスタンスフィールドかどうか返します。
      * 
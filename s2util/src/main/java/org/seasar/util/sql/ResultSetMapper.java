@@ -0,0 +1,829 @@
+/*
+ * Copyright 2004-2012 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.util.sql;
+
+import java.lang.ref.WeakReference;
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+
+import org.seasar.util.beans.BeanDesc;
+import org.seasar.util.beans.ConstructorDesc;
+import org.seasar.util.beans.PropertyDesc;
+import org.seasar.util.beans.factory.BeanDescFactory;
+import org.seasar.util.beans.factory.BeanDescFactory.ClearListener;
+import org.seasar.util.collection.ConcurrentLruCache;
+import org.seasar.util.exception.SQLRuntimeException;
+import org.seasar.util.misc.Disposable;
+import org.seasar.util.misc.DisposableUtil;
+
+import static org.seasar.util.collection.CollectionsUtil.*;
+import static org.seasar.util.misc.AssertionUtil.*;
+
+/**
+ * {@link ResultSet}の行をBeanにマッピングするクラスです。
+ * <p>
+ * 列のラベルは大文字小文字を区別せず、アンダースコアを無視してBeanのプロパティ名と照合します。 例えば{@literal USER_ID}列は
+ * {@literal userId}プロパティにマッピングされます。 対応するプロパティがない列は無視されます。
+ * {@literal USER_ID}列と{@literal USERID}列のように複数の列が同じプロパティに対応する場合や、
+ * {@literal userId}と{@literal user_id}のように一つの列が複数のプロパティに対応する場合は、
+ * どちらを優先するか決められないため{@link org.seasar.util.exception.SIllegalStateException}をスローします。
+ * </p>
+ * <p>
+ * 列の構成 ({@link ResultSetMetaData}の列のラベル) とBeanのクラスの組み合わせごとに、
+ * 列のインデックスから{@link PropertyDesc}へのマッピングを一度だけ求めてキャッシュします。
+ * {@link #map(ResultSet)}は直前に使用した結果セットのマッピングを覚えているため、
+ * 同じ結果セットの行を続けてマッピングする場合はメタデータの取得やキャッシュの検索を行いません。
+ * 値はプロパティの型に応じた{@literal ResultSet#getXxx()}メソッドで読み出し、
+ * {@literal int}などのプリミティブ型のプロパティにはボクシングせずに設定します。
+ * </p>
+ * <p>
+ * 行は{@link #iterator(ResultSet)}や{@link #handle(ResultSet, RowHandler)}で一行ずつ処理するため、
+ * 全ての行をメモリに保持することはありません。 {@link ResultSet}のクローズは呼び出し側で行ってください。
+ * </p>
+ * 
+ * <pre>
+ * ResultSetMapper&lt;Employee&gt; mapper = new ResultSetMapper&lt;Employee&gt;(Employee.class);
+ * for (Iterator&lt;Employee&gt; it = mapper.iterator(resultSet); it.hasNext();) {
+ *     Employee employee = it.next();
+ *     ...
+ * }
+ * </pre>
+ * <p>
+ * キャッシュはLRUで{@link #CACHE_SIZE}件まで保持されます。 キャッシュをクリアするには
+ * {@link DisposableUtil#dispose()}を呼び出してください。 {@link BeanDescFactory#clear(ClassLoader)}
+ * でクラスローダのキャッシュをクリアすると、 そのクラスローダがロードしたBeanのクラスのマッピングも削除されます。
+ * </p>
+ * 
+ * @param <T>
+ *            Beanの型
+ * @author koichik
+ */
+public class ResultSetMapper<T> {
+
+    /** キャッシュする{@link Plan}の上限数 */
+    public static final int CACHE_SIZE = 256;
+
+    /** 初期化済みなら{@literal true} */
+    private static volatile boolean initialized;
+
+    /** {@link Plan}のキャッシュ */
+    private static final ConcurrentMap<Key, Plan> planCache =
+        new ConcurrentLruCache<Key, Plan>(CACHE_SIZE);
+
+    /** {@link BeanDescFactory}のキャッシュのクリアに合わせて{@link Plan}のキャッシュをクリアするリスナ */
+    private static final ClearListener clearListener = new ClearListener() {
+        @Override
+        public void clear(final ClassLoader classLoader) {
+            for (final Iterator<Key> it = planCache.keySet().iterator(); it
+                .hasNext();) {
+                if (it.next().beanClass.getClassLoader() == classLoader) {
+                    it.remove();
+                }
+            }
+        }
+
+        @Override
+        public void clearAll() {
+            planCache.clear();
+        }
+    };
+
+    static {
+        initialize();
+        BeanDescFactory.addClearListener(clearListener);
+    }
+
+    /** Beanのクラス */
+    protected final Class<T> beanClass;
+
+    /** {@link #map(ResultSet)}で直前に使用した結果セットとその{@link Plan} */
+    protected volatile ResolvedPlan lastPlan;
+
+    /**
+     * インスタンスを構築します。
+     * 
+     * @param beanClass
+     *            Beanのクラス。{@literal null}であってはいけません
+     */
+    public ResultSetMapper(final Class<T> beanClass) {
+        assertArgumentNotNull("beanClass", beanClass);
+
+        this.beanClass = beanClass;
+    }
+
+    /**
+     * 初期化を行ないます。
+     */
+    public static void initialize() {
+        synchronized (ResultSetMapper.class) {
+            if (!initialized) {
+                DisposableUtil.add(new Disposable() {
+                    @Override
+                    public void dispose() {
+                        clear();
+                    }
+                });
+                initialized = true;
+            }
+        }
+    }
+
+    /**
+     * キャッシュをクリアします。
+     */
+    public static void clear() {
+        planCache.clear();
+        initialized = false;
+    }
+
+    /**
+     * Beanのクラスを返します。
+     * 
+     * @return Beanのクラス
+     */
+    public Class<T> getBeanClass() {
+        return beanClass;
+    }
+
+    /**
+     * 結果セットの現在の行をBeanにマッピングして返します。
+     * 
+     * @param resultSet
+     *            結果セット。{@literal null}であってはいけません
+     * @return 現在の行をマッピングしたBean
+     * @throws SQLRuntimeException
+     *             SQL例外が発生した場合
+     */
+    public T map(final ResultSet resultSet) throws SQLRuntimeException {
+        assertArgumentNotNull("resultSet", resultSet);
+
+        try {
+            return getPlan(resultSet).<T> map(resultSet);
+        } catch (final SQLException e) {
+            throw new SQLRuntimeException(e);
+        }
+    }
+
+    /**
+     * 結果セットの残りの行を順にBeanにマッピングして返す{@link Iterator}を返します。
+     * <p>
+     * 結果セットは{@link Iterator#hasNext()}が呼び出されるまで次の行に進められません。
+     * </p>
+     * 
+     * @param resultSet
+     *            結果セット。{@literal null}であってはいけません
+     * @return 行をBeanにマッピングして返す{@link Iterator}
+     * @throws SQLRuntimeException
+     *             SQL例外が発生した場合
+     */
+    public Iterator<T> iterator(final ResultSet resultSet)
+            throws SQLRuntimeException {
+        assertArgumentNotNull("resultSet", resultSet);
+
+        try {
+            return new RowIterator<T>(
+                resultSet,
+                getPlan(resultSet.getMetaData()));
+        } catch (final SQLException e) {
+            throw new SQLRuntimeException(e);
+        }
+    }
+
+    /**
+     * 結果セットの残りの行を順にBeanにマッピングしてハンドラに渡します。
+     * 
+     * @param resultSet
+     *            結果セット。{@literal null}であってはいけません
+     * @param handler
+     *            行をマッピングしたBeanを処理するハンドラ。{@literal null}であってはいけません
+     * @return 処理した行数
+     * @throws SQLRuntimeException
+     *             SQL例外が発生した場合
+     */
+    public int handle(final ResultSet resultSet,
+            final RowHandler<? super T> handler) throws SQLRuntimeException {
+        assertArgumentNotNull("resultSet", resultSet);
+        assertArgumentNotNull("handler", handler);
+
+        try {
+            final Plan plan = getPlan(resultSet.getMetaData());
+            int count = 0;
+            while (resultSet.next()) {
+                ++count;
+                if (!handler.handle(plan.<T> map(resultSet))) {
+                    break;
+                }
+            }
+            return count;
+        } catch (final SQLException e) {
+            throw new SQLRuntimeException(e);
+        }
+    }
+
+    /**
+     * 結果セットに対応する{@link Plan}を返します。
+     * <p>
+     * 直前に呼び出された時と同じ結果セットの場合は、 その時の{@link Plan}を返します。
+     * </p>
+     * 
+     * @param resultSet
+     *            結果セット
+     * @return {@link Plan}
+     * @throws SQLException
+     *             SQL例外が発生した場合
+     */
+    protected Plan getPlan(final ResultSet resultSet) throws SQLException {
+        final ResolvedPlan resolved = lastPlan;
+        if (resolved != null && resolved.resultSet.get() == resultSet) {
+            return resolved.plan;
+        }
+        final Plan plan = getPlan(resultSet.getMetaData());
+        lastPlan = new ResolvedPlan(resultSet, plan);
+        return plan;
+    }
+
+    /**
+     * 結果セットの列の構成に対応する{@link Plan}を返します。
+     * 
+     * @param metaData
+     *            結果セットのメタデータ
+     * @return {@link Plan}
+     * @throws SQLException
+     *             SQL例外が発生した場合
+     */
+    protected Plan getPlan(final ResultSetMetaData metaData)
+            throws SQLException {
+        if (!initialized) {
+            initialize();
+        }
+        final int columnCount = metaData.getColumnCount();
+        final String[] labels = new String[columnCount];
+        for (int i = 0; i < columnCount; ++i) {
+            labels[i] = metaData.getColumnLabel(i + 1);
+        }
+        final Key key = new Key(beanClass, labels);
+        final Plan plan = planCache.get(key);
+        if (plan != null) {
+            return plan;
+        }
+        final Plan newPlan =
+            new Plan(BeanDescFactory.getBeanDesc(beanClass), labels);
+        final Plan existing = planCache.putIfAbsent(key, newPlan);
+        return existing != null ? existing : newPlan;
+    }
+
+    /**
+     * 列のラベルやプロパティ名を照合するために正規化します。
+     * <p>
+     * アンダースコアを取り除き、小文字に変換します。
+     * </p>
+     * 
+     * @param name
+     *            列のラベルまたはプロパティ名
+     * @return 正規化した名前
+     */
+    protected static String normalize(final String name) {
+        final StringBuilder buf = new StringBuilder(name.length());
+        for (int i = 0; i < name.length(); ++i) {
+            final char ch = name.charAt(i);
+            if (ch != '_') {
+                buf.append(ch);
+            }
+        }
+        return buf.toString().toLowerCase(Locale.ENGLISH);
+    }
+
+    /**
+     * 行をマッピングしたBeanを処理するハンドラです。
+     * 
+     * @param <T>
+     *            Beanの型
+     * @author koichik
+     */
+    public interface RowHandler<T> {
+
+        /**
+         * 行をマッピングしたBeanを処理します。
+         * 
+         * @param bean
+         *            行をマッピングしたBean
+         * @return 次の行を処理する場合は{@literal true}、処理を打ち切る場合は{@literal false}
+         */
+        boolean handle(T bean);
+
+    }
+
+    /**
+     * 列の構成とBeanのクラスに対応するマッピングの手順です。
+     * 
+     * @author koichik
+     */
+    protected static class Plan {
+
+        /** Beanの引数のないコンストラクタ */
+        protected final ConstructorDesc constructorDesc;
+
+        /** マッピングする列の配列 */
+        protected final Column[] columns;
+
+        /**
+         * インスタンスを構築します。
+         * 
+         * @param beanDesc
+         *            Beanの{@link BeanDesc}
+         * @param labels
+         *            列のラベルの配列
+         * @throws org.seasar.util.exception.SIllegalStateException
+         *             列とプロパティの対応が一意に決まらない場合
+         */
+        public Plan(final BeanDesc beanDesc, final String[] labels) {
+            constructorDesc = beanDesc.getConstructorDesc();
+            final Map<String, PropertyDesc> propertyDescs = newHashMap();
+            final Set<String> ambiguousNames = newHashSet();
+            for (int i = 0; i < beanDesc.getPropertyDescSize(); ++i) {
+                final PropertyDesc propertyDesc = beanDesc.getPropertyDesc(i);
+                if (propertyDesc.isWritable()) {
+                    final String name =
+                        normalize(propertyDesc.getPropertyName());
+                    if (propertyDescs.put(name, propertyDesc) != null) {
+                        ambiguousNames.add(name);
+                    }
+                }
+            }
+            final Map<PropertyDesc, String> mappedLabels = newHashMap();
+            final List<Column> list = newArrayList();
+            for (int i = 0; i < labels.length; ++i) {
+                final String name = normalize(labels[i]);
+                assertState(!ambiguousNames.contains(name), "column "
+                    + labels[i] + " matches more than one property of "
+                    + beanDesc.getBeanClass().getName());
+                final PropertyDesc propertyDesc = propertyDescs.get(name);
+                if (propertyDesc != null) {
+                    final String other =
+                        mappedLabels.put(propertyDesc, labels[i]);
+                    assertState(other == null, "columns " + other + " and "
+                        + labels[i] + " both match property "
+                        + propertyDesc.getPropertyName());
+                    list.add(new Column(i + 1, propertyDesc));
+                }
+            }
+            columns = list.toArray(new Column[list.size()]);
+        }
+
+        /**
+         * 結果セットの現在の行をBeanにマッピングして返します。
+         * 
+         * @param <T>
+         *            Beanの型
+         * @param resultSet
+         *            結果セット
+         * @return 現在の行をマッピングしたBean
+         * @throws SQLException
+         *             SQL例外が発生した場合
+         */
+        public <T> T map(final ResultSet resultSet) throws SQLException {
+            final T bean = constructorDesc.<T> newInstance();
+            for (final Column column : columns) {
+                column.reader.read(
+                    resultSet,
+                    column.index,
+                    bean,
+                    column.propertyDesc);
+            }
+            return bean;
+        }
+
+    }
+
+    /**
+     * プロパティにマッピングする列です。
+     * 
+     * @author koichik
+     */
+    protected static class Column {
+
+        /** 列のインデックス (1から始まります) */
+        protected final int index;
+
+        /** 列をマッピングするプロパティの{@link PropertyDesc} */
+        protected final PropertyDesc propertyDesc;
+
+        /** 列の値を読み出してプロパティに設定する{@link ColumnReader} */
+        protected final ColumnReader reader;
+
+        /**
+         * インスタンスを構築します。
+         * 
+         * @param index
+         *            列のインデックス
+         * @param propertyDesc
+         *            列をマッピングするプロパティの{@link PropertyDesc}
+         */
+        public Column(final int index, final PropertyDesc propertyDesc) {
+            this.index = index;
+            this.propertyDesc = propertyDesc;
+            reader = ColumnReader.of(propertyDesc.getPropertyType());
+        }
+
+    }
+
+    /**
+     * 列の値をプロパティの型に応じたメソッドで読み出してプロパティに設定するクラスです。
+     * 
+     * @author koichik
+     */
+    protected abstract static class ColumnReader {
+
+        /** {@literal int}型のプロパティ用 */
+        protected static final ColumnReader INT = new ColumnReader() {
+            @Override
+            public void read(final ResultSet rs, final int index,
+                    final Object bean, final PropertyDesc pd)
+                    throws SQLException {
+                pd.setInt(bean, rs.getInt(index));
+            }
+        };
+
+        /** {@literal long}型のプロパティ用 */
+        protected static final ColumnReader LONG = new ColumnReader() {
+            @Override
+            public void read(final ResultSet rs, final int index,
+                    final Object bean, final PropertyDesc pd)
+                    throws SQLException {
+                pd.setLong(bean, rs.getLong(index));
+            }
+        };
+
+        /** {@literal double}型のプロパティ用 */
+        protected static final ColumnReader DOUBLE = new ColumnReader() {
+            @Override
+            public void read(final ResultSet rs, final int index,
+                    final Object bean, final PropertyDesc pd)
+                    throws SQLException {
+                pd.setDouble(bean, rs.getDouble(index));
+            }
+        };
+
+        /** {@literal boolean}型のプロパティ用 */
+        protected static final ColumnReader BOOLEAN = new ColumnReader() {
+            @Override
+            public void read(final ResultSet rs, final int index,
+                    final Object bean, final PropertyDesc pd)
+                    throws SQLException {
+                pd.setBoolean(bean, rs.getBoolean(index));
+            }
+        };
+
+        /** {@link Integer}型のプロパティ用 */
+        protected static final ColumnReader INTEGER_WRAPPER =
+            new ColumnReader() {
+                @Override
+                public void read(final ResultSet rs, final int index,
+                        final Object bean, final PropertyDesc pd)
+                        throws SQLException {
+                    final int value = rs.getInt(index);
+                    pd.setValue(bean, rs.wasNull() ? null : Integer
+                        .valueOf(value));
+                }
+            };
+
+        /** {@link Long}型のプロパティ用 */
+        protected static final ColumnReader LONG_WRAPPER = new ColumnReader() {
+            @Override
+            public void read(final ResultSet rs, final int index,
+                    final Object bean, final PropertyDesc pd)
+                    throws SQLException {
+                final long value = rs.getLong(index);
+                pd.setValue(bean, rs.wasNull() ? null : Long.valueOf(value));
+            }
+        };
+
+        /** {@link Double}型のプロパティ用 */
+        protected static final ColumnReader DOUBLE_WRAPPER =
+            new ColumnReader() {
+                @Override
+                public void read(final ResultSet rs, final int index,
+                        final Object bean, final PropertyDesc pd)
+                        throws SQLException {
+                    final double value = rs.getDouble(index);
+                    pd.setValue(bean, rs.wasNull() ? null : Double
+                        .valueOf(value));
+                }
+            };
+
+        /** {@link Boolean}型のプロパティ用 */
+        protected static final ColumnReader BOOLEAN_WRAPPER =
+            new ColumnReader() {
+                @Override
+                public void read(final ResultSet rs, final int index,
+                        final Object bean, final PropertyDesc pd)
+                        throws SQLException {
+                    final boolean value = rs.getBoolean(index);
+                    pd.setValue(bean, rs.wasNull() ? null : Boolean
+                        .valueOf(value));
+                }
+            };
+
+        /** {@link String}型のプロパティ用 */
+        protected static final ColumnReader STRING = new ColumnReader() {
+            @Override
+            public void read(final ResultSet rs, final int index,
+                    final Object bean, final PropertyDesc pd)
+                    throws SQLException {
+                pd.setValue(bean, rs.getString(index));
+            }
+        };
+
+        /** {@link BigDecimal}型のプロパティ用 */
+        protected static final ColumnReader BIG_DECIMAL = new ColumnReader() {
+            @Override
+            public void read(final ResultSet rs, final int index,
+                    final Object bean, final PropertyDesc pd)
+                    throws SQLException {
+                pd.setValue(bean, rs.getBigDecimal(index));
+            }
+        };
+
+        /** {@link Timestamp}型と{@link java.util.Date}型のプロパティ用 */
+        protected static final ColumnReader TIMESTAMP = new ColumnReader() {
+            @Override
+            public void read(final ResultSet rs, final int index,
+                    final Object bean, final PropertyDesc pd)
+                    throws SQLException {
+                pd.setValue(bean, rs.getTimestamp(index));
+            }
+        };
+
+        /** {@link java.sql.Date}型のプロパティ用 */
+        protected static final ColumnReader SQL_DATE = new ColumnReader() {
+            @Override
+            public void read(final ResultSet rs, final int index,
+                    final Object bean, final PropertyDesc pd)
+                    throws SQLException {
+                pd.setValue(bean, rs.getDate(index));
+            }
+        };
+
+        /** {@link Time}型のプロパティ用 */
+        protected static final ColumnReader TIME = new ColumnReader() {
+            @Override
+            public void read(final ResultSet rs, final int index,
+                    final Object bean, final PropertyDesc pd)
+                    throws SQLException {
+                pd.setValue(bean, rs.getTime(index));
+            }
+        };
+
+        /** {@literal byte[]}型のプロパティ用 */
+        protected static final ColumnReader BYTES = new ColumnReader() {
+            @Override
+            public void read(final ResultSet rs, final int index,
+                    final Object bean, final PropertyDesc pd)
+                    throws SQLException {
+                pd.setValue(bean, rs.getBytes(index));
+            }
+        };
+
+        /** その他の型のプロパティ用 */
+        protected static final ColumnReader OBJECT = new ColumnReader() {
+            @Override
+            public void read(final ResultSet rs, final int index,
+                    final Object bean, final PropertyDesc pd)
+                    throws SQLException {
+                pd.setValue(bean, rs.getObject(index));
+            }
+        };
+
+        /**
+         * プロパティの型に対応する{@link ColumnReader}を返します。
+         * 
+         * @param type
+         *            プロパティの型
+         * @return {@link ColumnReader}
+         */
+        public static ColumnReader of(final Class<?> type) {
+            if (type == int.class) {
+                return INT;
+            } else if (type == long.class) {
+                return LONG;
+            } else if (type == double.class) {
+                return DOUBLE;
+            } else if (type == boolean.class) {
+                return BOOLEAN;
+            } else if (type == Integer.class) {
+                return INTEGER_WRAPPER;
+            } else if (type == Long.class) {
+                return LONG_WRAPPER;
+            } else if (type == Double.class) {
+                return DOUBLE_WRAPPER;
+            } else if (type == Boolean.class) {
+                return BOOLEAN_WRAPPER;
+            } else if (type == String.class) {
+                return STRING;
+            } else if (type == BigDecimal.class) {
+                return BIG_DECIMAL;
+            } else if (type == Timestamp.class
+                || type == java.util.Date.class) {
+                return TIMESTAMP;
+            } else if (type == java.sql.Date.class) {
+                return SQL_DATE;
+            } else if (type == Time.class) {
+                return TIME;
+            } else if (type == byte[].class) {
+                return BYTES;
+            }
+            return OBJECT;
+        }
+
+        /**
+         * 列の値を読み出してプロパティに設定します。
+         * 
+         * @param rs
+         *            結果セット
+         * @param index
+         *            列のインデックス
+         * @param bean
+         *            Bean
+         * @param pd
+         *            プロパティの{@link PropertyDesc}
+         * @throws SQLException
+         *             SQL例外が発生した場合
+         */
+        public abstract void read(ResultSet rs, int index, Object bean,
+                PropertyDesc pd) throws SQLException;
+
+    }
+
+    /**
+     * 結果セットの行をBeanにマッピングして返す{@link Iterator}です。
+     * 
+     * @param <T>
+     *            Beanの型
+     * @author koichik
+     */
+    protected static class RowIterator<T> implements Iterator<T> {
+
+        /** 結果セット */
+        protected final ResultSet resultSet;
+
+        /** マッピングの手順 */
+        protected final Plan plan;
+
+        /** 結果セットを次の行に進めたがまだ返していない場合は{@literal true} */
+        protected boolean fetched;
+
+        /** 結果セットの終わりに達した場合は{@literal true} */
+        protected boolean finished;
+
+        /**
+         * インスタンスを構築します。
+         * 
+         * @param resultSet
+         *            結果セット
+         * @param plan
+         *            マッピングの手順
+         */
+        public RowIterator(final ResultSet resultSet, final Plan plan) {
+            this.resultSet = resultSet;
+            this.plan = plan;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (!fetched && !finished) {
+                if (ResultSetUtil.next(resultSet)) {
+                    fetched = true;
+                } else {
+                    finished = true;
+                }
+            }
+            return fetched;
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            fetched = false;
+            try {
+                return plan.<T> map(resultSet);
+            } catch (final SQLException e) {
+                throw new SQLRuntimeException(e);
+            }
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException("remove");
+        }
+
+    }
+
+    /**
+     * {@link Plan}のキャッシュのキーです。
+     * 
+     * @author koichik
+     */
+    protected static class Key {
+
+        /** Beanのクラス */
+        protected final Class<?> beanClass;
+
+        /** 列のラベルの配列 */
+        protected final String[] labels;
+
+        /** ハッシュ値 */
+        protected final int hashCode;
+
+        /**
+         * インスタンスを構築します。
+         * 
+         * @param beanClass
+         *            Beanのクラス
+         * @param labels
+         *            列のラベルの配列
+         */
+        public Key(final Class<?> beanClass, final String[] labels) {
+            this.beanClass = beanClass;
+            this.labels = labels;
+            hashCode = beanClass.hashCode() * 31 + Arrays.hashCode(labels);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            final Key other = (Key) obj;
+            return beanClass == other.beanClass
+                && Arrays.equals(labels, other.labels);
+        }
+
+    }
+
+    /**
+     * 結果セットとそれに対応する{@link Plan}の組です。
+     * <p>
+     * 結果セットは弱参照で保持するため、 マッパーが結果セットの解放を妨げることはありません。
+     * </p>
+     * 
+     * @author koichik
+     */
+    protected static class ResolvedPlan {
+
+        /** 結果セットへの弱参照 */
+        protected final WeakReference<ResultSet> resultSet;
+
+        /** 結果セットに対応する{@link Plan} */
+        protected final Plan plan;
+
+        /**
+         * インスタンスを構築します。
+         * 
+         * @param resultSet
+         *            結果セット
+         * @param plan
+         *            結果セットに対応する{@link Plan}
+         */
+        public ResolvedPlan(final ResultSet resultSet, final Plan plan) {
+            this.resultSet = new WeakReference<ResultSet>(resultSet);
+            this.plan = plan;
+        }
+
+    }
+
+}
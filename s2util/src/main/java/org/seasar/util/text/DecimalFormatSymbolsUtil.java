@@ -17,20 +17,32 @@ package org.seasar.util.text;
 
 import java.text.DecimalFormatSymbols;
 import java.util.Locale;
-import java.util.Map;
+
+import org.seasar.util.collection.CacheStats;
+import org.seasar.util.collection.MemoizingLoader;
+import org.seasar.util.collection.MemoizingLoader.Loader;
 
 import static org.seasar.util.collection.CollectionsUtil.*;
 import static org.seasar.util.misc.AssertionUtil.*;
 
 /**
  * {@link DecimalFormatSymbols}用のユーティリティクラスです。
+ * <p>
+ * {@link DecimalFormatSymbols}はロケールごとにキャッシュされます。 キャッシュの統計情報は{@link #getStats()}
+ * で参照できます。
+ * </p>
  * 
  * @author higa
  */
 public abstract class DecimalFormatSymbolsUtil {
 
-    private static final Map<Locale, DecimalFormatSymbols> CACHE =
-        newConcurrentHashMap();
+    private static final MemoizingLoader<Locale, DecimalFormatSymbols> CACHE =
+        newMemoizingLoader(new Loader<Locale, DecimalFormatSymbols>() {
+            @Override
+            public DecimalFormatSymbols load(final Locale locale) {
+                return new DecimalFormatSymbols(locale);
+            }
+        });
 
     /**
      * {@link DecimalFormatSymbols}を返します。
@@ -52,12 +64,27 @@ public abstract class DecimalFormatSymbolsUtil {
             final Locale locale) {
         assertArgumentNotNull("locale", locale);
 
-        DecimalFormatSymbols symbols = CACHE.get(locale);
-        if (symbols == null) {
-            symbols = new DecimalFormatSymbols(locale);
-            CACHE.put(locale, symbols);
-        }
-        return symbols;
+        return CACHE.get(locale);
+    }
+
+    /**
+     * ヒット数とミス数を記録するかどうかを設定します。
+     * 
+     * @param recordStats
+     *            ヒット数とミス数を記録する場合は{@literal true}
+     * @see MemoizingLoader#setRecordStats(boolean)
+     */
+    public static void setRecordStats(final boolean recordStats) {
+        CACHE.setRecordStats(recordStats);
+    }
+
+    /**
+     * キャッシュの統計情報のスナップショットを返します。
+     * 
+     * @return キャッシュの統計情報のスナップショット
+     */
+    public static CacheStats getStats() {
+        return CACHE.getStats();
     }
 
 }
@@ -15,17 +15,36 @@
  */
 package org.seasar.util.beans.factory;
 
+import java.io.InputStream;
+import java.util.List;
+
+import org.junit.After;
 import org.junit.Test;
 import org.seasar.util.beans.BeanDesc;
+import org.seasar.util.collection.CacheStats;
+import org.seasar.util.collection.MemoizingLoader.LoadListener;
+import org.seasar.util.io.InputStreamUtil;
 
 import static org.hamcrest.CoreMatchers.*;
 import static org.junit.Assert.*;
+import static org.seasar.util.TestUtil.*;
+import static org.seasar.util.collection.CollectionsUtil.*;
 
 /**
  * @author higa
  */
 public class BeanDescFactoryTest {
 
+    /**
+     * @throws Exception
+     */
+    @After
+    public void tearDown() throws Exception {
+        BeanDescFactory.setLimitSize(0);
+        BeanDescFactory.setRecordStats(false);
+        BeanDescFactory.setLoadListener(null);
+    }
+
     /**
      * @throws Exception
      */
@@ -49,6 +68,117 @@ public class BeanDescFactoryTest {
             is(not(sameInstance(beanDesc))));
     }
 
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void testClearClassLoader() throws Exception {
+        BeanDesc beanDesc = BeanDescFactory.getBeanDesc(MyBean.class);
+        IsolatedClassLoader loader = new IsolatedClassLoader();
+        Class<?> isolatedClass = loader.loadClass(MyBean.class.getName());
+        assertThat(isolatedClass, is(not(sameClass(MyBean.class))));
+        BeanDesc isolatedBeanDesc =
+            BeanDescFactory.getBeanDesc(isolatedClass);
+        assertThat(
+            isolatedBeanDesc.getBeanClass(),
+            is(sameClass(isolatedClass)));
+        assertThat(
+            BeanDescFactory.getBeanDescLoader(loader).size(),
+            is(1));
+
+        assertThat(BeanDescFactory.clear(loader), is(1));
+        assertThat(
+            BeanDescFactory.getBeanDescLoader(loader),
+            is(nullValue()));
+        assertThat(
+            BeanDescFactory.getBeanDesc(MyBean.class),
+            is(sameInstance(beanDesc)));
+        assertThat(
+            BeanDescFactory.getBeanDesc(isolatedClass),
+            is(not(sameInstance(isolatedBeanDesc))));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void testLimitSize() throws Exception {
+        BeanDescFactory.setLimitSize(2);
+        IsolatedClassLoader loader = new IsolatedClassLoader();
+        Class<?> clazz1 = loader.loadClass(MyBean.class.getName());
+        Class<?> clazz2 = loader.loadClass(Foo.class.getName());
+        Class<?> clazz3 = loader.loadClass(Bar.class.getName());
+        BeanDesc beanDesc1 = BeanDescFactory.getBeanDesc(clazz1);
+        BeanDescFactory.getBeanDesc(clazz2);
+        BeanDescFactory.getBeanDesc(clazz3);
+        assertThat(
+            BeanDescFactory.getBeanDescLoader(loader).size(),
+            is(2));
+        assertThat(
+            BeanDescFactory.getBeanDescLoader(loader).getEvictionCount(),
+            is(1L));
+        assertThat(
+            BeanDescFactory.getBeanDesc(clazz1),
+            is(not(sameInstance(beanDesc1))));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void testLimitSize_afterLoad() throws Exception {
+        IsolatedClassLoader loader = new IsolatedClassLoader();
+        BeanDescFactory.getBeanDesc(loader.loadClass(MyBean.class.getName()));
+        BeanDescFactory.getBeanDesc(loader.loadClass(Foo.class.getName()));
+        BeanDescFactory.getBeanDesc(loader.loadClass(Bar.class.getName()));
+        assertThat(BeanDescFactory.getBeanDescLoader(loader).size(), is(3));
+
+        BeanDescFactory.setLimitSize(1);
+        assertThat(BeanDescFactory.getBeanDescLoader(loader).size(), is(1));
+        assertThat(
+            BeanDescFactory.getBeanDescLoader(loader).getEvictionCount(),
+            is(2L));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void testStats() throws Exception {
+        final List<Class<?>> loaded = newArrayList();
+        BeanDescFactory.setLoadListener(new LoadListener<Object, Object>() {
+            @Override
+            public void loaded(Object key, Object value, long elapsed) {
+                loaded.add((Class<?>) key);
+            }
+        });
+        BeanDescFactory.setRecordStats(true);
+        IsolatedClassLoader loader = new IsolatedClassLoader();
+        Class<?> clazz = loader.loadClass(MyBean.class.getName());
+        CacheStats before = BeanDescFactory.getStats();
+        BeanDescFactory.getBeanDesc(clazz);
+        BeanDescFactory.getBeanDesc(clazz);
+        BeanDescFactory.getBeanDesc(clazz);
+
+        CacheStats stats =
+            BeanDescFactory.getBeanDescLoader(loader).getStats();
+        assertThat(stats.getHitCount(), is(2L));
+        assertThat(stats.getMissCount(), is(1L));
+        assertThat(stats.getLoadCount(), is(1L));
+        assertThat(stats.getSize(), is(1));
+        long histogramTotal = 0L;
+        for (long count : stats.getLoadTimeHistogram()) {
+            histogramTotal += count;
+        }
+        assertThat(histogramTotal, is(1L));
+        assertThat(loaded.size(), is(1));
+        assertThat(loaded.get(0), is(sameClass(clazz)));
+
+        CacheStats after = BeanDescFactory.getStats();
+        assertThat(after.getLoadCount() - before.getLoadCount(), is(1L));
+        assertThat(after.getHitCount() - before.getHitCount(), is(2L));
+    }
+
     /**
      *
      */
@@ -98,4 +228,50 @@ public class BeanDescFactoryTest {
         }
     }
 
+    /**
+     *
+     */
+    public static class Foo {
+    }
+
+    /**
+     *
+     */
+    public static class Bar {
+    }
+
+    /**
+     * このテストクラスのネストしたクラスを親に委譲せずにロードするクラスローダです。
+     */
+    public static class IsolatedClassLoader extends ClassLoader {
+
+        /**
+         * インスタンスを構築します。
+         */
+        public IsolatedClassLoader() {
+            super(BeanDescFactoryTest.class.getClassLoader());
+        }
+
+        @Override
+        protected synchronized Class<?> loadClass(String name, boolean resolve)
+                throws ClassNotFoundException {
+            if (!name.startsWith(BeanDescFactoryTest.class.getName() + "$")) {
+                return super.loadClass(name, resolve);
+            }
+            Class<?> clazz = findLoadedClass(name);
+            if (clazz == null) {
+                InputStream is =
+                    getParent().getResourceAsStream(
+                        name.replace('.', '/') + ".class");
+                byte[] bytes = InputStreamUtil.getBytes(is);
+                clazz = defineClass(name, bytes, 0, bytes.length);
+            }
+            if (resolve) {
+                resolveClass(clazz);
+            }
+            return clazz;
+        }
+
+    }
+
 }
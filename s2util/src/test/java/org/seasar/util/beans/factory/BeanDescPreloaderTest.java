@@ -0,0 +1,189 @@
+/*
+ * Copyright 2004-2012 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.util.beans.factory;
+
+import java.io.File;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.seasar.util.beans.BeanDesc;
+import org.seasar.util.collection.MemoizingLoader;
+import org.seasar.util.collection.MemoizingLoader.LoadListener;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+/**
+ * @author koichik
+ */
+public class BeanDescPreloaderTest {
+
+    private static final String ROOT_PACKAGE =
+        BeanDescPreloaderTest.class.getPackage().getName();
+
+    private File snapshotFile;
+
+    /**
+     * @throws Exception
+     */
+    @Before
+    public void setUp() throws Exception {
+        snapshotFile = File.createTempFile("BeanDescSnapshot", ".txt");
+        snapshotFile.delete();
+        BeanDescFactory.clear();
+    }
+
+    /**
+     * @throws Exception
+     */
+    @After
+    public void tearDown() throws Exception {
+        snapshotFile.delete();
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void testGetClassNames() throws Exception {
+        List<String> classNames =
+            BeanDescPreloader.getClassNames(ROOT_PACKAGE);
+        assertThat(
+            classNames.contains(BeanDescPreloaderTest.class.getName()),
+            is(true));
+        assertThat(
+            classNames.contains(BeanDescFactoryTest.MyBean.class.getName()),
+            is(true));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void testPreload() throws Exception {
+        int count = BeanDescPreloader.preload(ROOT_PACKAGE);
+        assertThat(count > 0, is(true));
+        MemoizingLoader<Class<?>, BeanDesc> loader =
+            BeanDescFactory.getBeanDescLoader(BeanDescPreloaderTest.class
+                .getClassLoader());
+        assertThat(
+            loader.getIfPresent(BeanDescFactoryTest.MyBean.class),
+            is(notNullValue()));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void testPreload_failure() throws Exception {
+        BeanDescFactory.setLoadListener(new LoadListener<Class<?>, Object>() {
+            @Override
+            public void loaded(Class<?> key, Object value, long elapsed) {
+                if (key == BeanDescFactoryTest.MyBean.class) {
+                    throw new TypeNotPresentException("Dummy", null);
+                }
+            }
+        });
+        try {
+            ClassLoader loader = BeanDescPreloaderTest.class.getClassLoader();
+            assertThat(BeanDescPreloader.preload(
+                loader,
+                BeanDescFactoryTest.MyBean.class.getName(),
+                null), is(false));
+            BeanDescFactory.clear();
+            assertThat(BeanDescPreloader.preload(ROOT_PACKAGE) > 0, is(true));
+        } finally {
+            BeanDescFactory.setLoadListener(null);
+        }
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void testSnapshot() throws Exception {
+        int count = BeanDescPreloader.preload(snapshotFile, ROOT_PACKAGE);
+        assertThat(snapshotFile.exists(), is(true));
+
+        ClassLoader loader = Thread.currentThread().getContextClassLoader();
+        BeanDescSnapshot snapshot = BeanDescSnapshot.read(snapshotFile);
+        assertThat(snapshot, is(notNullValue()));
+        assertThat(snapshot.isValid(loader, ROOT_PACKAGE), is(true));
+        assertThat(
+            snapshot.isValid(loader, ROOT_PACKAGE, "java.lang"),
+            is(false));
+        assertThat(snapshot.getClassNames().size(), is(count));
+        assertThat(snapshot.getClassNames().contains(
+            BeanDescFactoryTest.MyBean.class.getName()), is(true));
+
+        long lastModified = snapshotFile.lastModified();
+        BeanDescFactory.clear();
+        assertThat(
+            BeanDescPreloader.preload(snapshotFile, ROOT_PACKAGE),
+            is(count));
+        assertThat(snapshotFile.lastModified(), is(lastModified));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void testSnapshot_subPackage() throws Exception {
+        File root = File.createTempFile("BeanDescSnapshot", "");
+        root.delete();
+        File subPackage = new File(root, "foo/bar");
+        subPackage.mkdirs();
+        File classFile = new File(subPackage, "Baz.class");
+        classFile.createNewFile();
+        try {
+            ClassLoader loader =
+                new URLClassLoader(
+                    new URL[] { root.toURI().toURL() },
+                    null);
+            BeanDescSnapshot snapshot = new BeanDescSnapshot("foo");
+            snapshot.addRoots(loader);
+            assertThat(snapshot.isValid(loader, "foo"), is(true));
+
+            classFile.setLastModified(classFile.lastModified() - 10000L);
+            assertThat(snapshot.isValid(loader, "foo"), is(true));
+
+            subPackage.setLastModified(subPackage.lastModified() - 10000L);
+            assertThat(snapshot.isValid(loader, "foo"), is(false));
+        } finally {
+            classFile.delete();
+            subPackage.delete();
+            subPackage.getParentFile().delete();
+            root.delete();
+        }
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void testReadInvalidSnapshot() throws Exception {
+        assertThat(BeanDescSnapshot.read(snapshotFile), is(nullValue()));
+        new BeanDescSnapshot("foo").write(snapshotFile);
+        BeanDescSnapshot snapshot = BeanDescSnapshot.read(snapshotFile);
+        assertThat(snapshot.getRootPackages(), is(new String[] { "foo" }));
+        assertThat(snapshot.getClassNames().isEmpty(), is(true));
+    }
+
+}
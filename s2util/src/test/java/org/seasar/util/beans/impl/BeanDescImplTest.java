@@ -23,6 +23,7 @@ import java.util.Set;
 
 import org.junit.Test;
 import org.seasar.util.beans.BeanDesc;
+import org.seasar.util.beans.ConstructorDesc;
 import org.seasar.util.beans.FieldDesc;
 import org.seasar.util.beans.MethodDesc;
 import org.seasar.util.beans.ParameterizedClassDesc;
@@ -93,6 +94,58 @@ public class BeanDescImplTest {
         assertThat((Integer) beanDesc.newInstance(new BigDecimal(10)), is(10));
     }
 
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void testGetSuitableConstructorDescCached() throws Exception {
+        BeanDescImpl beanDesc = new BeanDescImpl(Integer.class);
+        Object[] args = new Object[] { new BigDecimal(10) };
+        ConstructorDesc constructorDesc =
+            beanDesc.getSuitableConstructorDesc(args);
+        assertThat(args[0], is((Object) 10));
+        assertThat(beanDesc.suitableCache.size(), is(1));
+
+        args = new Object[] { new BigDecimal(20) };
+        assertThat(
+            beanDesc.getSuitableConstructorDesc(args),
+            is(sameInstance(constructorDesc)));
+        assertThat(args[0], is((Object) 20));
+        assertThat(beanDesc.suitableCache.size(), is(1));
+
+        args = new Object[] { 30 };
+        assertThat(
+            beanDesc.getSuitableConstructorDesc(args),
+            is(sameInstance(constructorDesc)));
+        assertThat(beanDesc.suitableCache.size(), is(2));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void testGetSuitableMethodDescCached() throws Exception {
+        BeanDescImpl beanDesc = new BeanDescImpl(Integer.class);
+        Object[] args = new Object[] { new BigDecimal(10) };
+        MethodDesc methodDesc = beanDesc.getSuitableMethodDesc("valueOf", args);
+        assertThat(
+            methodDesc.getParameterTypes(),
+            is(new Class<?>[] { int.class }));
+        assertThat(args[0], is((Object) 10));
+
+        args = new Object[] { new BigDecimal(20) };
+        assertThat(
+            beanDesc.getSuitableMethodDesc("valueOf", args),
+            is(sameInstance(methodDesc)));
+        assertThat(args[0], is((Object) 20));
+        assertThat(beanDesc.suitableCache.size(), is(1));
+
+        assertThat(
+            beanDesc.getSuitableMethodDesc("valueOf", "30"),
+            is(not(sameInstance(methodDesc))));
+        assertThat(beanDesc.suitableCache.size(), is(2));
+    }
+
     /**
      * @throws Exception
      */
@@ -177,6 +230,40 @@ public class BeanDescImplTest {
         assertThat(pd.getPropertyType(), is(sameClass(String.class)));
     }
 
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void testLazyPreparation() throws Exception {
+        BeanDescImpl beanDesc = new BeanDescImpl(MyBean.class);
+        assertThat(beanDesc.constructorDescsPrepared, is(false));
+        assertThat(beanDesc.propertyDescsPrepared, is(false));
+        assertThat(beanDesc.methodDescsPrepared, is(false));
+        assertThat(beanDesc.fieldDescsPrepared, is(false));
+
+        assertThat(beanDesc.hasPropertyDesc("ggg"), is(true));
+        assertThat(beanDesc.propertyDescsPrepared, is(true));
+        assertThat(beanDesc.constructorDescsPrepared, is(false));
+        assertThat(beanDesc.methodDescsPrepared, is(false));
+        assertThat(beanDesc.fieldDescsPrepared, is(false));
+
+        assertThat(beanDesc.hasFieldDesc("eee"), is(true));
+        assertThat(beanDesc.fieldDescsPrepared, is(true));
+        assertThat(beanDesc.methodDescsPrepared, is(false));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void testPreparedByFactory() throws Exception {
+        BeanDescFactory.clear();
+        BeanDescImpl beanDesc =
+            (BeanDescImpl) BeanDescFactory.getBeanDesc(MyBean.class);
+        assertThat(beanDesc.propertyDescsPrepared, is(true));
+        assertThat(beanDesc.methodDescsPrepared, is(false));
+    }
+
     /**
      * @throws Exception
      */
@@ -0,0 +1,386 @@
+/*
+ * Copyright 2004-2012 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.util.beans.impl;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+import org.seasar.util.beans.BeanDesc;
+import org.seasar.util.beans.PropertyAccessor;
+import org.seasar.util.beans.impl.ReflectionPropertyAccessorFactory.ReflectionPropertyAccessor;
+
+import static java.util.Arrays.*;
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+/**
+ * @author koichik
+ */
+public class BytecodePropertyAccessorFactoryTest {
+
+    BytecodePropertyAccessorFactory factory =
+        new BytecodePropertyAccessorFactory();
+
+    BeanDesc beanDesc = new BeanDescImpl(PublicBean.class, factory);
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void testPrimitiveProperty() throws Exception {
+        PublicBean bean = new PublicBean();
+        PropertyAccessor accessor = createAccessor("intValue");
+        assertThat(isGenerated(accessor), is(true));
+        accessor.setValue(bean, 10);
+        assertThat(bean.getIntValue(), is(10));
+        assertThat(accessor.getValue(bean), is((Object) 10));
+
+        accessor = createAccessor("longValue");
+        assertThat(isGenerated(accessor), is(true));
+        accessor.setValue(bean, 20);
+        assertThat(bean.getLongValue(), is(20L));
+        assertThat(accessor.getValue(bean), is((Object) 20L));
+
+        accessor = createAccessor("booleanValue");
+        assertThat(isGenerated(accessor), is(true));
+        accessor.setValue(bean, true);
+        assertThat(bean.isBooleanValue(), is(true));
+        assertThat(accessor.getValue(bean), is((Object) true));
+
+        accessor = createAccessor("doubleValue");
+        assertThat(isGenerated(accessor), is(true));
+        accessor.setValue(bean, 1.5d);
+        assertThat(accessor.getValue(bean), is((Object) 1.5d));
+
+        accessor = createAccessor("charValue");
+        assertThat(isGenerated(accessor), is(true));
+        accessor.setValue(bean, 'a');
+        assertThat(accessor.getValue(bean), is((Object) 'a'));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void testPrimitiveAccess() throws Exception {
+        PublicBean bean = new PublicBean();
+        PropertyAccessor accessor = createAccessor("intValue");
+        accessor.setInt(bean, 10);
+        assertThat(bean.getIntValue(), is(10));
+        assertThat(accessor.getInt(bean), is(10));
+        assertThat(getDeclaredMethodNames(accessor), is(asList(
+            "getInt",
+            "setInt")));
+
+        accessor = createAccessor("longValue");
+        accessor.setLong(bean, 20L);
+        assertThat(bean.getLongValue(), is(20L));
+        assertThat(accessor.getLong(bean), is(20L));
+
+        accessor = createAccessor("booleanValue");
+        accessor.setBoolean(bean, true);
+        assertThat(bean.isBooleanValue(), is(true));
+        assertThat(accessor.getBoolean(bean), is(true));
+
+        accessor = createAccessor("doubleValue");
+        accessor.setDouble(bean, 1.5d);
+        assertThat(bean.getDoubleValue(), is(1.5d));
+        assertThat(accessor.getDouble(bean), is(1.5d));
+
+        accessor = createAccessor("publicField");
+        accessor.setInt(bean, 5);
+        assertThat(bean.publicField, is(5));
+        assertThat(accessor.getInt(bean), is(5));
+
+        accessor = createAccessor("charValue");
+        assertThat(getDeclaredMethodNames(accessor).isEmpty(), is(true));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void testReferenceProperty() throws Exception {
+        PublicBean bean = new PublicBean();
+        PropertyAccessor accessor = createAccessor("stringValue");
+        assertThat(isGenerated(accessor), is(true));
+        accessor.setValue(bean, "hoge");
+        assertThat(bean.getStringValue(), is("hoge"));
+        assertThat(accessor.getValue(bean), is((Object) "hoge"));
+        accessor.setValue(bean, null);
+        assertThat(accessor.getValue(bean), is(nullValue()));
+
+        accessor = createAccessor("arrayValue");
+        assertThat(isGenerated(accessor), is(true));
+        String[] array = new String[] { "a" };
+        accessor.setValue(bean, array);
+        assertThat(accessor.getValue(bean), is(sameInstance((Object) array)));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void testPublicField() throws Exception {
+        PublicBean bean = new PublicBean();
+        PropertyAccessor accessor = createAccessor("publicField");
+        assertThat(isGenerated(accessor), is(true));
+        accessor.setValue(bean, 5);
+        assertThat(bean.publicField, is(5));
+        assertThat(accessor.getValue(bean), is((Object) 5));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void testReadOnlyProperty() throws Exception {
+        PublicBean bean = new PublicBean();
+        PropertyAccessor accessor = createAccessor("readOnly");
+        assertThat(isGenerated(accessor), is(true));
+        assertThat(accessor.getValue(bean), is((Object) "readOnly"));
+        try {
+            accessor.setValue(bean, "hoge");
+            fail();
+        } catch (UnsupportedOperationException expected) {
+        }
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void testInterface() throws Exception {
+        BeanDesc interfaceDesc = new BeanDescImpl(List.class, factory);
+        PropertyAccessor accessor =
+            factory.createPropertyAccessor(interfaceDesc
+                .getPropertyDesc("empty"));
+        assertThat(isGenerated(accessor), is(true));
+        assertThat(
+            accessor.getValue(new java.util.ArrayList<String>()),
+            is((Object) true));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void testFallback() throws Exception {
+        BeanDesc nonPublicDesc = new BeanDescImpl(NonPublicBean.class, factory);
+        PropertyAccessor accessor =
+            factory.createPropertyAccessor(nonPublicDesc
+                .getPropertyDesc("aaa"));
+        assertThat(accessor, is(instanceOf(ReflectionPropertyAccessor.class)));
+        NonPublicBean bean = new NonPublicBean();
+        accessor.setValue(bean, "hoge");
+        assertThat(accessor.getValue(bean), is((Object) "hoge"));
+
+        accessor = createAccessor("finalField");
+        assertThat(accessor, is(instanceOf(ReflectionPropertyAccessor.class)));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void testPropertyDesc() throws Exception {
+        PublicBean bean = new PublicBean();
+        beanDesc.getPropertyDesc("intValue").setValue(bean, "100");
+        assertThat(bean.getIntValue(), is(100));
+        assertThat(
+            beanDesc.getPropertyDesc("intValue").getValue(bean),
+            is((Object) 100));
+        assertThat(isGenerated(beanDesc
+            .getPropertyDesc("intValue")
+            .getPropertyAccessor()), is(true));
+    }
+
+    private PropertyAccessor createAccessor(String propertyName) {
+        return factory.createPropertyAccessor(beanDesc
+            .getPropertyDesc(propertyName));
+    }
+
+    private static boolean isGenerated(PropertyAccessor accessor) {
+        return accessor.getClass().getName().startsWith(
+            BytecodePropertyAccessorFactory.GENERATED_CLASS_NAME_PREFIX);
+    }
+
+    private static List<String> getDeclaredMethodNames(
+            PropertyAccessor accessor) {
+        List<String> names = new ArrayList<String>();
+        for (Method method : accessor.getClass().getDeclaredMethods()) {
+            if (!method.getName().endsWith("Value")) {
+                names.add(method.getName());
+            }
+        }
+        Collections.sort(names);
+        return names;
+    }
+
+    /**
+     * 
+     */
+    public static class PublicBean {
+
+        /** */
+        public int publicField;
+
+        /** */
+        public final String finalField = "final";
+
+        private int intValue;
+
+        private long longValue;
+
+        private boolean booleanValue;
+
+        private double doubleValue;
+
+        private char charValue;
+
+        private String stringValue;
+
+        private String[] arrayValue;
+
+        /**
+         * @return intValue
+         */
+        public int getIntValue() {
+            return intValue;
+        }
+
+        /**
+         * @param intValue
+         */
+        public void setIntValue(int intValue) {
+            this.intValue = intValue;
+        }
+
+        /**
+         * @return longValue
+         */
+        public long getLongValue() {
+            return longValue;
+        }
+
+        /**
+         * @param longValue
+         */
+        public void setLongValue(long longValue) {
+            this.longValue = longValue;
+        }
+
+        /**
+         * @return booleanValue
+         */
+        public boolean isBooleanValue() {
+            return booleanValue;
+        }
+
+        /**
+         * @param booleanValue
+         */
+        public void setBooleanValue(boolean booleanValue) {
+            this.booleanValue = booleanValue;
+        }
+
+        /**
+         * @return doubleValue
+         */
+        public double getDoubleValue() {
+            return doubleValue;
+        }
+
+        /**
+         * @param doubleValue
+         */
+        public void setDoubleValue(double doubleValue) {
+            this.doubleValue = doubleValue;
+        }
+
+        /**
+         * @return charValue
+         */
+        public char getCharValue() {
+            return charValue;
+        }
+
+        /**
+         * @param charValue
+         */
+        public void setCharValue(char charValue) {
+            this.charValue = charValue;
+        }
+
+        /**
+         * @return stringValue
+         */
+        public String getStringValue() {
+            return stringValue;
+        }
+
+        /**
+         * @param stringValue
+         */
+        public void setStringValue(String stringValue) {
+            this.stringValue = stringValue;
+        }
+
+        /**
+         * @return arrayValue
+         */
+        public String[] getArrayValue() {
+            return arrayValue;
+        }
+
+        /**
+         * @param arrayValue
+         */
+        public void setArrayValue(String[] arrayValue) {
+            this.arrayValue = arrayValue;
+        }
+
+        /**
+         * @return readOnly
+         */
+        public String getReadOnly() {
+            return "readOnly";
+        }
+    }
+
+    static class NonPublicBean {
+
+        private String aaa;
+
+        /**
+         * @return aaa
+         */
+        public String getAaa() {
+            return aaa;
+        }
+
+        /**
+         * @param aaa
+         */
+        public void setAaa(String aaa) {
+            this.aaa = aaa;
+        }
+    }
+
+}
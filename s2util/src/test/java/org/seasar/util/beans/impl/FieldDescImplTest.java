@@ -104,6 +104,54 @@ public class FieldDescImplTest {
         aaa.setStaticFieldValue(String.class);
     }
 
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void testPrimitiveAccess() throws Exception {
+        BeanDesc beanDesc = new BeanDescImpl(MyBean.class);
+        MyBean myBean = new MyBean();
+        FieldDesc intValue = beanDesc.getFieldDesc("intValue");
+        intValue.setInt(myBean, 1);
+        assertThat(intValue.getInt(myBean), is(1));
+        assertThat(intValue.getLong(myBean), is(1L));
+        FieldDesc longValue = beanDesc.getFieldDesc("longValue");
+        longValue.setLong(myBean, 2L);
+        assertThat(longValue.getLong(myBean), is(2L));
+        FieldDesc doubleValue = beanDesc.getFieldDesc("doubleValue");
+        doubleValue.setDouble(myBean, 1.5d);
+        assertThat(doubleValue.getDouble(myBean), is(1.5d));
+        FieldDesc booleanValue = beanDesc.getFieldDesc("booleanValue");
+        booleanValue.setBoolean(myBean, true);
+        assertThat(booleanValue.getBoolean(myBean), is(true));
+        assertThat(booleanValue.<Boolean> getFieldValue(myBean), is(true));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void testPrimitiveAccess_conversion() throws Exception {
+        BeanDesc beanDesc = new BeanDescImpl(MyBean.class);
+        MyBean myBean = new MyBean();
+        FieldDesc integerValue = beanDesc.getFieldDesc("integerValue");
+        integerValue.setInt(myBean, 1);
+        assertThat(integerValue.<Integer> getFieldValue(myBean), is(1));
+        assertThat(integerValue.getInt(myBean), is(1));
+        assertThat(integerValue.getLong(myBean), is(1L));
+        assertThat(integerValue.getDouble(myBean), is(1.0d));
+        FieldDesc stringValue = beanDesc.getFieldDesc("stringValue");
+        assertThat(stringValue.getInt(myBean), is(3));
+        assertThat(stringValue.getLong(myBean), is(3L));
+        assertThat(stringValue.getDouble(myBean), is(3.0d));
+        FieldDesc intValue = beanDesc.getFieldDesc("intValue");
+        intValue.setInt(myBean, 2);
+        assertThat(intValue.getDouble(myBean), is(2.0d));
+        FieldDesc longValue = beanDesc.getFieldDesc("longValue");
+        longValue.setInt(myBean, 4);
+        assertThat(longValue.getInt(myBean), is(4));
+    }
+
     /**
      * @throws Exception
      */
@@ -140,6 +188,18 @@ public class FieldDescImplTest {
         private List<String> list;
 
         private Map<String, Integer> map;
+
+        private int intValue;
+
+        private long longValue;
+
+        private double doubleValue;
+
+        private boolean booleanValue;
+
+        private Integer integerValue;
+
+        private String stringValue = "3";
     }
 
 }
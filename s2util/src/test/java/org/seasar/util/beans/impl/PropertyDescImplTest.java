@@ -15,6 +15,9 @@
  */
 package org.seasar.util.beans.impl;
 
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
 import java.math.BigDecimal;
 import java.net.URL;
 import java.sql.Timestamp;
@@ -50,6 +53,40 @@ public class PropertyDescImplTest {
         assertThat(myBean.getFff(), is(2));
     }
 
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void testSetValue_otherBeanDesc() throws Exception {
+        BeanDesc beanDesc =
+            (BeanDesc) Proxy.newProxyInstance(
+                getClass().getClassLoader(),
+                new Class<?>[] { BeanDesc.class },
+                new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method,
+                            Object[] args) throws Throwable {
+                        if (method.getName().equals("getBeanClass")) {
+                            return MyBean.class;
+                        }
+                        throw new UnsupportedOperationException(method
+                            .getName());
+                    }
+                });
+        PropertyDesc propDesc =
+            new PropertyDescImpl(
+                "fff",
+                int.class,
+                MyBean.class.getMethod("getFff"),
+                MyBean.class.getMethod("setFff", int.class),
+                null,
+                beanDesc);
+        MyBean myBean = new MyBean();
+        propDesc.setValue(myBean, new BigDecimal(2));
+        assertThat((Integer) propDesc.getValue(myBean), is(2));
+        assertThat(propDesc.getPropertyAccessor(), is(notNullValue()));
+    }
+
     /**
      * @throws Exception
      */
@@ -200,6 +237,65 @@ public class PropertyDescImplTest {
         assertThat(myBean.getURL(), is(notNullValue()));
     }
 
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void testConvertIfNeed() throws Exception {
+        BeanDesc beanDesc = new BeanDescImpl(MyBean.class);
+        PropertyDesc fff = beanDesc.getPropertyDesc("fff");
+        assertThat(fff.<Integer> convertIfNeed(null), is(0));
+        assertThat(fff.<Integer> convertIfNeed("5"), is(5));
+        assertThat(fff.<Integer> convertIfNeed(new BigDecimal(6)), is(6));
+
+        PropertyDesc ggg = beanDesc.getPropertyDesc("ggg");
+        BigDecimal decimal = new BigDecimal("1.5");
+        assertThat(
+            ggg.<BigDecimal> convertIfNeed(decimal),
+            is(sameInstance(decimal)));
+        assertThat(ggg.<BigDecimal> convertIfNeed(null), is(nullValue()));
+
+        PropertyDesc hhh = beanDesc.getPropertyDesc("hhh");
+        Timestamp timestamp = new Timestamp(0L);
+        assertThat(
+            hhh.<Timestamp> convertIfNeed(timestamp),
+            is(sameInstance(timestamp)));
+        assertThat(
+            hhh.<Timestamp> convertIfNeed(new Date(0L)),
+            is(timestamp));
+
+        PropertyDesc str = beanDesc.getPropertyDesc("str");
+        assertThat(str.<String> convertIfNeed("abc"), is("abc"));
+        assertThat(str.<String> convertIfNeed(1), is("1"));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void testPrimitiveAccess() throws Exception {
+        MyBean myBean = new MyBean();
+        BeanDesc beanDesc = new BeanDescImpl(MyBean.class);
+        PropertyDesc fff = beanDesc.getPropertyDesc("fff");
+        fff.setInt(myBean, 3);
+        assertThat(myBean.getFff(), is(3));
+        assertThat(fff.getInt(myBean), is(3));
+        assertThat(fff.getLong(myBean), is(3L));
+        fff.setDouble(myBean, 4d);
+        assertThat(fff.getInt(myBean), is(4));
+
+        PropertyDesc ggg = beanDesc.getPropertyDesc("ggg");
+        assertThat(ggg.getInt(myBean), is(0));
+        ggg.setInt(myBean, 5);
+        assertThat(myBean.getGgg(), is(new BigDecimal(5)));
+        assertThat(ggg.getDouble(myBean), is(5d));
+
+        PropertyDesc str = beanDesc.getPropertyDesc("str");
+        str.setBoolean(myBean, true);
+        assertThat(str.<String> getValue(myBean), is("true"));
+        assertThat(str.getBoolean(myBean), is(true));
+    }
+
     /**
      * 
      */
@@ -0,0 +1,198 @@
+/*
+ * Copyright 2004-2012 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.util.beans.util;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.seasar.util.exception.IllegalKeyOfBeanMapException;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+import static org.seasar.util.collection.CollectionsUtil.*;
+
+/**
+ * @author koichik
+ */
+public class BeanPropertyMapTest {
+
+    /**
+     * @see org.junit.rules.ExpectedException
+     */
+    @Rule
+    public ExpectedException exception = ExpectedException.none();
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void testGet() throws Exception {
+        Hoge hoge = new Hoge();
+        hoge.setAaa("1");
+        Map<String, Object> map = new BeanPropertyMap(hoge);
+        assertThat(map.size(), is(3));
+        assertThat(map.containsKey("aaa"), is(true));
+        assertThat(map.containsKey("AAA"), is(not(true)));
+        assertThat(map.containsKey("ddd"), is(not(true)));
+        assertThat(map.get("aaa"), is((Object) "1"));
+        hoge.setAaa("2");
+        assertThat(map.get("aaa"), is((Object) "2"));
+        assertThat(map.get("ccc"), is((Object) "ccc"));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void testGet_NotContains() throws Exception {
+        exception.expect(IllegalKeyOfBeanMapException.class);
+        Map<String, Object> map = new BeanPropertyMap(new Hoge());
+        map.get("xxx");
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void testPut() throws Exception {
+        Hoge hoge = new Hoge();
+        Map<String, Object> map = new BeanPropertyMap(hoge);
+        assertThat(map.put("aaa", "1"), is(nullValue()));
+        assertThat(hoge.getAaa(), is("1"));
+        assertThat(map.put("aaa", "2"), is((Object) "1"));
+        map.put("bbb", "3");
+        assertThat(hoge.getBbb(), is(3));
+        assertThat(map.containsKey("bbb"), is(true));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void testPut_ReadOnly() throws Exception {
+        exception.expect(IllegalKeyOfBeanMapException.class);
+        Map<String, Object> map = new BeanPropertyMap(new Hoge());
+        map.put("ccc", "1");
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void testPut_WriteOnly() throws Exception {
+        Hoge hoge = new Hoge();
+        Map<String, Object> map = new BeanPropertyMap(hoge);
+        assertThat(map.containsKey("ddd"), is(not(true)));
+        try {
+            map.put("ddd", "4");
+            fail();
+        } catch (IllegalKeyOfBeanMapException expected) {
+        }
+        assertThat(hoge.ddd, is(nullValue()));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void testEntrySet() throws Exception {
+        Hoge hoge = new Hoge();
+        hoge.setAaa("1");
+        hoge.setBbb(2);
+        Map<String, Object> map = new BeanPropertyMap(hoge);
+        Set<String> keys = newHashSet();
+        for (Iterator<Map.Entry<String, Object>> it =
+            map.entrySet().iterator(); it.hasNext();) {
+            Map.Entry<String, Object> entry = it.next();
+            keys.add(entry.getKey());
+            if (entry.getKey().equals("aaa")) {
+                assertThat(entry.getValue(), is((Object) "1"));
+                entry.setValue("3");
+                assertThat(hoge.getAaa(), is("3"));
+            } else if (entry.getKey().equals("bbb")) {
+                assertThat(entry.getValue(), is((Object) 2));
+            }
+        }
+        assertThat(keys.size(), is(3));
+        assertThat(
+            keys.containsAll(Arrays.asList("aaa", "bbb", "ccc")),
+            is(true));
+        assertThat(
+            map.toString(),
+            is(BeanUtil.copyBeanToNewMap(hoge).toString()));
+        assertThat(map, is((Object) BeanUtil.copyBeanToNewMap(hoge)));
+    }
+
+    /**
+     * 
+     */
+    public static class Hoge {
+
+        private String aaa;
+
+        private int bbb;
+
+        String ddd;
+
+        /**
+         * @return aaa
+         */
+        public String getAaa() {
+            return aaa;
+        }
+
+        /**
+         * @param aaa
+         */
+        public void setAaa(String aaa) {
+            this.aaa = aaa;
+        }
+
+        /**
+         * @return bbb
+         */
+        public int getBbb() {
+            return bbb;
+        }
+
+        /**
+         * @param bbb
+         */
+        public void setBbb(int bbb) {
+            this.bbb = bbb;
+        }
+
+        /**
+         * @return ccc
+         */
+        public String getCcc() {
+            return "ccc";
+        }
+
+        /**
+         * @param ddd
+         */
+        public void setDdd(String ddd) {
+            this.ddd = ddd;
+        }
+    }
+
+}
@@ -15,16 +15,24 @@
  */
 package org.seasar.util.beans.util;
 
+import java.util.BitSet;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
+import org.seasar.util.beans.BeanDesc;
 import org.seasar.util.beans.converter.DateConverter;
 import org.seasar.util.beans.converter.NumberConverter;
+import org.seasar.util.beans.factory.BeanDescFactory;
 import org.seasar.util.exception.NullArgumentException;
+import org.seasar.util.exception.SIllegalArgumentException;
 
 import static org.hamcrest.CoreMatchers.*;
 import static org.junit.Assert.*;
@@ -906,6 +914,190 @@ public class BeanUtilTest {
         BeanUtil.copyMapToNewBean(null, Bean.class);
     }
 
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void testCopyAll() throws Exception {
+        List<Object> src = newArrayList();
+        for (int i = 0; i < 10; ++i) {
+            Bean bean = new Bean();
+            bean.aaa = String.valueOf(i);
+            src.add(bean);
+        }
+        src.add(null);
+        List<Bean2> dest = BeanUtil.copyAll(src, Bean2.class);
+        assertThat(dest.size(), is(11));
+        for (int i = 0; i < 10; ++i) {
+            assertThat(dest.get(i).aaa, is(i));
+        }
+        assertThat(dest.get(10), is(nullValue()));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void testCopyAllParallel() throws Exception {
+        List<Bean> src = new LinkedList<Bean>();
+        for (int i = 0; i < 20000; ++i) {
+            Bean bean = new Bean();
+            bean.aaa = String.valueOf(i);
+            src.add(bean);
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Bean2> dest =
+                BeanUtil.copyAllParallel(
+                    src,
+                    Bean2.class,
+                    excludeNull(),
+                    executor);
+            assertThat(dest.size(), is(20000));
+            for (int i = 0; i < 20000; ++i) {
+                assertThat(dest.get(i).aaa, is(i));
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test(timeout = 10000)
+    public void testCopyAllParallel_nested() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            List<Bean> nestedSrc = newArrayList();
+            for (int i = 0; i < 3000; ++i) {
+                Bean bean = new Bean();
+                bean.aaa = String.valueOf(i);
+                nestedSrc.add(bean);
+            }
+            List<NestedBean> src = newArrayList();
+            for (int i = 0; i < 3000; ++i) {
+                src.add(new NestedBean(String.valueOf(i), null, executor));
+            }
+            NestedBean nested = new NestedBean("-1", nestedSrc, executor);
+            src.set(1500, nested);
+
+            List<Bean2> dest =
+                BeanUtil.copyAllParallel(
+                    src,
+                    Bean2.class,
+                    excludeNull(),
+                    executor);
+            assertThat(dest.size(), is(3000));
+            assertThat(dest.get(1500).aaa, is(-1));
+            assertThat(nested.nestedDest.size(), is(3000));
+            assertThat(nested.nestedDest.get(2999).aaa, is(2999));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void testCopyAllParallel_failure() throws Exception {
+        List<Bean> src = newArrayList();
+        for (int i = 0; i < 3000; ++i) {
+            Bean bean = new Bean();
+            bean.aaa = String.valueOf(i);
+            src.add(bean);
+        }
+        src.get(2000).aaa = "xxx";
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            exception.expect(RuntimeException.class);
+            BeanUtil.copyAllParallel(src, Bean2.class, excludeNull(), executor);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void testDiff() throws Exception {
+        Entity a = new Entity();
+        a.id = 1;
+        a.score = 1.5;
+        a.name = "foo";
+        a.count = 1000;
+        Entity b = new Entity();
+        b.id = 1;
+        b.score = 1.5;
+        b.name = new String("foo");
+        b.count = 1000;
+        assertThat(BeanUtil.diff(a, b).isEmpty(), is(true));
+
+        BitSet changed = BeanUtil.diff(a, b, true);
+        assertThat(changed.cardinality(), is(2));
+        assertThat(changed.get(indexOf("name")), is(true));
+        assertThat(changed.get(indexOf("count")), is(true));
+
+        b.id = 2;
+        b.active = true;
+        b.name = "foo";
+        b.count = a.count;
+        b.color = Color.RED;
+        changed = BeanUtil.diff(a, b);
+        assertThat(changed.cardinality(), is(3));
+        assertThat(changed.get(indexOf("id")), is(true));
+        assertThat(changed.get(indexOf("active")), is(true));
+        assertThat(changed.get(indexOf("color")), is(true));
+        assertThat(BeanUtil.diff(a, b, true), is(changed));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void testDiff_differentClass() throws Exception {
+        exception.expect(SIllegalArgumentException.class);
+        BeanUtil.diff(new Entity(), new Bean());
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void testSnapshot() throws Exception {
+        Entity entity = new Entity();
+        entity.id = 1;
+        entity.count = 1000;
+        BeanSnapshot snapshot = BeanUtil.snapshot(entity);
+        assertThat(snapshot.getValue(indexOf("id")), is((Object) 1));
+        assertThat(snapshot.diff(entity).isEmpty(), is(true));
+        assertThat(snapshot.diff(entity, true).isEmpty(), is(true));
+
+        entity.id = 1;
+        entity.score = 2.0;
+        entity.count = 1000;
+        BitSet changed = snapshot.diff(entity);
+        assertThat(changed.cardinality(), is(1));
+        assertThat(changed.get(indexOf("score")), is(true));
+
+        changed = snapshot.diff(entity, true);
+        assertThat(changed.cardinality(), is(2));
+        assertThat(changed.get(indexOf("count")), is(true));
+    }
+
+    private static int indexOf(String propertyName) {
+        BeanDesc beanDesc = BeanDescFactory.getBeanDesc(Entity.class);
+        for (int i = 0; i < beanDesc.getPropertyDescSize(); ++i) {
+            if (beanDesc.getPropertyDesc(i).getPropertyName().equals(
+                propertyName)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException(propertyName);
+    }
+
     /**
      * 
      */
@@ -1230,6 +1422,50 @@ public class BeanUtilTest {
 
     }
 
+    /**
+     * 
+     */
+    public static class NestedBean {
+
+        private final String aaa;
+
+        private final List<Bean> nestedSrc;
+
+        private final ExecutorService executor;
+
+        /**
+         * 
+         */
+        public List<Bean2> nestedDest;
+
+        /**
+         * @param aaa
+         * @param nestedSrc
+         * @param executor
+         */
+        public NestedBean(String aaa, List<Bean> nestedSrc,
+                ExecutorService executor) {
+            this.aaa = aaa;
+            this.nestedSrc = nestedSrc;
+            this.executor = executor;
+        }
+
+        /**
+         * @return aaa
+         */
+        public String getAaa() {
+            if (nestedSrc != null) {
+                nestedDest =
+                    BeanUtil.copyAllParallel(
+                        nestedSrc,
+                        Bean2.class,
+                        excludeNull(),
+                        executor);
+            }
+            return aaa;
+        }
+    }
+
     /**
      * 
      */
@@ -1242,6 +1478,41 @@ public class BeanUtilTest {
 
     }
 
+    /**
+     * 
+     */
+    public enum Color {
+        /** */
+        RED,
+        /** */
+        GREEN
+    }
+
+    /**
+     * 
+     */
+    public static class Entity {
+
+        /** */
+        public int id;
+
+        /** */
+        public boolean active;
+
+        /** */
+        public double score;
+
+        /** */
+        public String name;
+
+        /** */
+        public Integer count;
+
+        /** */
+        public Color color;
+
+    }
+
     /**
      * @author kato
      */
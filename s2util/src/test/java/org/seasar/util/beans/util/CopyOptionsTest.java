@@ -17,9 +17,12 @@ package org.seasar.util.beans.util;
 
 import java.sql.Time;
 import java.sql.Timestamp;
+import java.util.BitSet;
 import java.util.Date;
 
 import org.junit.Test;
+import org.seasar.util.beans.BeanDesc;
+import org.seasar.util.beans.factory.BeanDescFactory;
 import org.seasar.util.beans.converter.DateConverter;
 import org.seasar.util.beans.converter.NumberConverter;
 import org.seasar.util.exception.ConverterRuntimeException;
@@ -84,6 +87,35 @@ public class CopyOptionsTest {
         assertThat(option.mapDelimiter, is('#'));
     }
 
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void testSnapshot() throws Exception {
+        CopyOptions option =
+            new CopyOptions()
+                .include(BeanNames.aaa(), BeanNames.bbb())
+                .excludeNull()
+                .dateConverter("yyyyMMdd", BeanNames.aaa());
+        CopyOptions snapshot = option.snapshot();
+        assertThat(snapshot, is(not(sameInstance(option))));
+        assertThat(snapshot.isFrozen(), is(true));
+        assertThat(option.isFrozen(), is(not(true)));
+        assertThat(snapshot.snapshot(), is(sameInstance(snapshot)));
+        assertThat(snapshot.includePropertyNames.size(), is(2));
+        assertThat(snapshot.excludesNull, is(true));
+        assertThat(snapshot.converterMap.get("aaa"), is(notNullValue()));
+
+        option.include(BeanNames.ccc());
+        assertThat(snapshot.includePropertyNames.size(), is(2));
+        assertThat(snapshot.isTargetProperty("ccc"), is(not(true)));
+        try {
+            snapshot.include(BeanNames.ccc());
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+    }
+
     /**
      * @throws Exception
      */
@@ -116,6 +148,56 @@ public class CopyOptionsTest {
         assertThat(option.isTargetProperty("bbb"), is(not(true)));
     }
 
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void testGetTargetProperties() throws Exception {
+        BeanDesc beanDesc = BeanDescFactory.getBeanDesc(MyBean.class);
+        CopyOptions option = new CopyOptions().exclude(BeanNames.bbb());
+        BitSet targetProperties = option.getTargetProperties(beanDesc);
+        for (int i = 0; i < beanDesc.getPropertyDescSize(); ++i) {
+            String name = beanDesc.getPropertyDesc(i).getPropertyName();
+            assertThat(name, targetProperties.get(i), is(!"bbb".equals(name)));
+        }
+        assertThat(
+            option.getTargetProperties(beanDesc),
+            is(sameInstance(targetProperties)));
+
+        option.include(BeanNames.aaa());
+        targetProperties = option.getTargetProperties(beanDesc);
+        assertThat(targetProperties.cardinality(), is(1));
+        assertThat(
+            beanDesc
+                .getPropertyDesc(targetProperties.nextSetBit(0))
+                .getPropertyName(),
+            is("aaa"));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void testGetTargetProperties_clearBeanDescFactory()
+            throws Exception {
+        BeanDesc beanDesc = BeanDescFactory.getBeanDesc(MyBean.class);
+        CopyOptions option =
+            new CopyOptions().exclude(BeanNames.bbb()).freeze();
+        BitSet targetProperties = option.getTargetProperties(beanDesc);
+        assertThat(
+            option.targetPropertiesCache.get(MyBean.class),
+            is(sameInstance(targetProperties)));
+
+        BeanDescFactory.clear(String.class.getClassLoader());
+        assertThat(option.targetPropertiesCache.size(), is(1));
+        BeanDescFactory.clear(MyBean.class.getClassLoader());
+        assertThat(option.targetPropertiesCache.isEmpty(), is(true));
+        beanDesc = BeanDescFactory.getBeanDesc(MyBean.class);
+        assertThat(
+            option.getTargetProperties(beanDesc),
+            is(not(sameInstance(targetProperties))));
+    }
+
     /**
      * @throws Exception
      */
@@ -234,6 +316,56 @@ public class CopyOptionsTest {
             is((Object) "19700101"));
     }
 
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void testConvertValue_converterCache() throws Exception {
+        NumberConverter converter = new NumberConverter("##0");
+        CopyOptions option = new CopyOptions().converter(converter);
+        assertThat(
+            option.convertValue(new Integer(1), "aaa", null),
+            is((Object) "1"));
+        assertThat(
+            option.converterCache.get(Integer.class),
+            is(sameInstance((Object) converter)));
+        assertThat(
+            option.convertValue(new Timestamp(0), "aaa", String.class),
+            is(not((Object) "19700101")));
+        assertThat(
+            option.converterCache.get(Timestamp.class),
+            is(sameInstance(CopyOptions.NO_CONVERTER)));
+
+        option.converter(new DateConverter("yyyyMMdd"));
+        assertThat(option.converterCache.isEmpty(), is(true));
+        assertThat(
+            option.convertValue(new Timestamp(0), "aaa", String.class),
+            is((Object) "19700101"));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void testFreeze() throws Exception {
+        CopyOptions option = new CopyOptions().exclude(BeanNames.aaa());
+        assertThat(option.isFrozen(), is(not(true)));
+        assertThat(option.freeze(), is(sameInstance(option)));
+        assertThat(option.isFrozen(), is(true));
+        try {
+            option.exclude(BeanNames.bbb());
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+        try {
+            option.dateConverter("yyyyMMdd");
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+        assertThat(option.excludePropertyNames.size(), is(1));
+        assertThat(option.isTargetProperty("aaa"), is(not(true)));
+    }
+
     /**
      * @throws Exception
      */
@@ -0,0 +1,206 @@
+/*
+ * Copyright 2004-2012 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.util.beans.util;
+
+import java.util.Date;
+
+import org.junit.After;
+import org.junit.Test;
+import org.seasar.util.beans.factory.BeanDescFactory;
+import org.seasar.util.beans.util.BeanUtilTest.DestBean;
+import org.seasar.util.beans.util.BeanUtilTest.SrcBean;
+import org.seasar.util.beans.util.BeanUtilTest.MyClass;
+import org.seasar.util.beans.util.BeanUtilTest.MyClass2;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+import static org.seasar.util.beans.util.CopyOptionsUtil.*;
+
+/**
+ * @author koichik
+ */
+public class CopyPlanTest {
+
+    /**
+     * @throws Exception
+     */
+    @After
+    public void tearDown() throws Exception {
+        CopyPlan.clear();
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void testGetCopyPlan() throws Exception {
+        CopyOptions options = excludeNull();
+        CopyPlan plan =
+            CopyPlan.getCopyPlan(SrcBean.class, DestBean.class, options);
+        assertThat(plan.size(), is(2));
+        assertThat(
+            CopyPlan.getCopyPlan(SrcBean.class, DestBean.class, options),
+            is(not(sameInstance(plan))));
+        options.dateConverter("yyyy/MM/dd");
+        assertThat(
+            CopyPlan.getCopyPlan(SrcBean.class, DestBean.class, options).size(),
+            is(2));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void testGetCopyPlan_frozen() throws Exception {
+        CopyOptions options = excludeNull().freeze();
+        CopyPlan plan =
+            CopyPlan.getCopyPlan(SrcBean.class, DestBean.class, options);
+        assertThat(plan.size(), is(2));
+        assertThat(
+            CopyPlan.getCopyPlan(SrcBean.class, DestBean.class, options),
+            is(sameInstance(plan)));
+        assertThat(CopyPlan.getCopyPlan(
+            SrcBean.class,
+            DestBean.class,
+            excludeNull().freeze()), is(not(sameInstance(plan))));
+        assertThat(
+            CopyPlan.getCopyPlan(SrcBean.class, MyClass2.class, options),
+            is(not(sameInstance(plan))));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void testGetCopyPlan_include() throws Exception {
+        CopyPlan plan =
+            CopyPlan.getCopyPlan(SrcBean.class, DestBean.class, include("ccc"));
+        assertThat(plan.size(), is(1));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void testClear() throws Exception {
+        CopyOptions options = new CopyOptions().freeze();
+        CopyPlan plan =
+            CopyPlan.getCopyPlan(SrcBean.class, DestBean.class, options);
+        CopyPlan.clear();
+        assertThat(
+            CopyPlan.getCopyPlan(SrcBean.class, DestBean.class, options),
+            is(not(sameInstance(plan))));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void testClear_beanDescFactory() throws Exception {
+        CopyOptions options = new CopyOptions().freeze();
+        CopyPlan plan =
+            CopyPlan.getCopyPlan(SrcBean.class, DestBean.class, options);
+        BeanDescFactory.clear(String.class.getClassLoader());
+        assertThat(
+            CopyPlan.getCopyPlan(SrcBean.class, DestBean.class, options),
+            is(sameInstance(plan)));
+        BeanDescFactory.clear(SrcBean.class.getClassLoader());
+        assertThat(
+            CopyPlan.getCopyPlan(SrcBean.class, DestBean.class, options),
+            is(not(sameInstance(plan))));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void testCopy() throws Exception {
+        SrcBean src = new SrcBean();
+        src.setAaa("aaa");
+        src.eee = "1";
+        DestBean dest = new DestBean();
+        dest.setDdd("ddd");
+        CopyOptions options = new CopyOptions();
+        CopyPlan.getCopyPlan(SrcBean.class, DestBean.class, options).copy(
+            src,
+            dest,
+            options);
+        assertThat(dest.eee, is(1));
+        assertThat(dest.getDdd(), is("ddd"));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void testCopy_converter() throws Exception {
+        DateBean src = new DateBean();
+        src.date = "2010/01/02";
+        DateBean2 dest = new DateBean2();
+        CopyOptions options = dateConverter("yyyy/MM/dd", "date");
+        CopyPlan.getCopyPlan(DateBean.class, DateBean2.class, options).copy(
+            src,
+            dest,
+            options);
+        assertThat(dest.date, is(notNullValue()));
+
+        DateBean dest2 = new DateBean();
+        CopyPlan.getCopyPlan(DateBean2.class, DateBean.class, options).copy(
+            dest,
+            dest2,
+            options);
+        assertThat(dest2.date, is("2010/01/02"));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void testCopy_excludeNull() throws Exception {
+        MyClass src = new MyClass();
+        src.setAaa("aaa");
+        MyClass2 dest = new MyClass2();
+        dest.setBbb("bbb");
+        CopyOptions options = excludeNull();
+        CopyPlan.getCopyPlan(MyClass.class, MyClass2.class, options).copy(
+            src,
+            dest,
+            options);
+        assertThat(dest.getAaa(), is("aaa"));
+        assertThat(dest.getBbb(), is("bbb"));
+    }
+
+    /**
+     * 
+     */
+    public static class DateBean {
+
+        /** */
+        public String date;
+
+    }
+
+    /**
+     * 
+     */
+    public static class DateBean2 {
+
+        /** */
+        public Date date;
+
+    }
+
+}
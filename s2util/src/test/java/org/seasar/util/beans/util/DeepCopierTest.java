@@ -0,0 +1,281 @@
+/*
+ * Copyright 2004-2012 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.util.beans.util;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.GregorianCalendar;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+import org.junit.Test;
+import org.seasar.util.beans.factory.BeanDescFactory;
+import org.seasar.util.beans.util.DeepCopier.Context;
+import org.seasar.util.beans.util.DeepCopier.Copier;
+import org.seasar.util.exception.NoSuchConstructorRuntimeException;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+/**
+ * @author koichik
+ */
+public class DeepCopierTest {
+
+    DeepCopier copier = new DeepCopier();
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void testCopy() throws Exception {
+        Node node = new Node("aaa", 1);
+        node.amount = new BigDecimal("1.5");
+        node.next = new Node("bbb", 2);
+        node.next.next = node;
+        node.values = new int[] { 1, 2 };
+        node.names = new String[] { "x", "y" };
+        node.shadowed = "n";
+        ((Base) node).shadowed = "b";
+
+        Node copy = copier.copy(node);
+        assertThat(copy, is(not(sameInstance(node))));
+        assertThat(copy.name, is(sameInstance(node.name)));
+        assertThat(copy.amount, is(sameInstance(node.amount)));
+        assertThat(copy.id, is(1L));
+        assertThat(copy.next, is(not(sameInstance(node.next))));
+        assertThat(copy.next.name, is("bbb"));
+        assertThat(copy.next.next, is(sameInstance(copy)));
+        assertThat(copy.values, is(not(sameInstance(node.values))));
+        assertThat(copy.values[1], is(2));
+        assertThat(copy.names, is(not(sameInstance(node.names))));
+        assertThat(copy.names[0], is(sameInstance(node.names[0])));
+        assertThat(copy.getShadowed(), is("n"));
+        assertThat(((Base) copy).shadowed, is("b"));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void testClearBeanDescFactory() throws Exception {
+        copier.copy(new Node("aaa", 1));
+        assertThat(copier.copierCache.containsKey(Node.class), is(true));
+        BeanDescFactory.clear(String.class.getClassLoader());
+        assertThat(copier.copierCache.containsKey(Node.class), is(true));
+        BeanDescFactory.clear(Node.class.getClassLoader());
+        assertThat(copier.copierCache.containsKey(Node.class), is(false));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void testCopy_null() throws Exception {
+        assertThat(copier.copy(null), is(nullValue()));
+        assertThat(copier.copy("aaa"), is("aaa"));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void testCopy_cloneable() throws Exception {
+        Date date = new Date(1000L);
+        Timestamp timestamp = new Timestamp(2000L);
+        timestamp.setNanos(123456789);
+        GregorianCalendar calendar = new GregorianCalendar(2010, 0, 1);
+        Object[] array = new Object[] { date, timestamp, calendar, date };
+
+        Object[] copy = copier.copy(array);
+        assertThat(copy[0], is(not(sameInstance((Object) date))));
+        assertThat(copy[0], is((Object) date));
+        assertThat(copy[1], is(not(sameInstance((Object) timestamp))));
+        assertThat(((Timestamp) copy[1]).getNanos(), is(123456789));
+        assertThat(copy[2], is(not(sameInstance((Object) calendar))));
+        assertThat(copy[2], is((Object) calendar));
+        assertThat(copy[3], is(sameInstance(copy[0])));
+        assertThat(
+            copier.getCopier(Date.class),
+            is(instanceOf(DeepCopier.CloneCopier.class)));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void testCopy_collections() throws Exception {
+        Node node = new Node("aaa", 1);
+        List<Object> list = new ArrayList<Object>();
+        list.add(node);
+        list.add(node);
+        Map<String, Object> map = new HashMap<String, Object>();
+        map.put("list", list);
+        map.put("fixed", Arrays.asList("a", "b"));
+        TreeSet<String> set =
+            new TreeSet<String>(Collections.reverseOrder());
+        set.add("a");
+        set.add("b");
+        map.put("set", set);
+        Object[] array = new Object[] { map, node };
+
+        Object[] copy = copier.copy(array);
+        @SuppressWarnings("unchecked")
+        Map<String, Object> copiedMap = (Map<String, Object>) copy[0];
+        assertThat(copiedMap, is(instanceOf(HashMap.class)));
+        assertThat(copiedMap, is(not(sameInstance((Object) map))));
+        List<?> copiedList = (List<?>) copiedMap.get("list");
+        assertThat(copiedList, is(instanceOf(ArrayList.class)));
+        assertThat(copiedList.get(0), is(not(sameInstance((Object) node))));
+        assertThat(copiedList.get(1), is(sameInstance(copiedList.get(0))));
+        assertThat(copy[1], is(sameInstance(copiedList.get(0))));
+        assertThat(
+            copiedMap.get("fixed"),
+            is((Object) Arrays.asList("a", "b")));
+        @SuppressWarnings("unchecked")
+        TreeSet<String> copiedSet = (TreeSet<String>) copiedMap.get("set");
+        assertThat(copiedSet, is(not(sameInstance(set))));
+        assertThat(copiedSet.first(), is("b"));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void testCustomCopier() throws Exception {
+        copier.copier(Node.class, new Copier<Node>() {
+            @Override
+            public Node copy(Node src, Context context) {
+                Node dest = new Node(src.name + "'", src.id);
+                context.register(src, dest);
+                return dest;
+            }
+        });
+        Node node = new Node("aaa", 1);
+        assertThat(copier.copy(node).name, is("aaa'"));
+
+        copier.immutable(Node.class);
+        assertThat(copier.copy(node), is(sameInstance(node)));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test(expected = NoSuchConstructorRuntimeException.class)
+    public void testCopy_noDefaultConstructor() throws Exception {
+        copier.copy(new NoDefaultConstructor("aaa"));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void testCopy_serializable() throws Exception {
+        List<String> shared = new ArrayList<String>(Arrays.asList("aaa"));
+        List<Object> src = new ArrayList<Object>();
+        src.add(shared);
+        src.add(new SerializableNoDefaultConstructor(shared));
+
+        List<Object> dest = copier.copy(src);
+        List<?> sharedCopy = (List<?>) dest.get(0);
+        SerializableNoDefaultConstructor serialized =
+            (SerializableNoDefaultConstructor) dest.get(1);
+        assertThat(sharedCopy, is(not(sameInstance((Object) shared))));
+        assertThat(serialized.values, is((Object) Arrays.asList("aaa")));
+        // シリアライズしてコピーしたオブジェクトの配下は独立にコピーされる
+        assertThat(
+            serialized.values,
+            is(not(sameInstance((Object) sharedCopy))));
+    }
+
+    /**
+     * 
+     */
+    public static class Base {
+        String shadowed = "base";
+    }
+
+    /**
+     * 
+     */
+    public static class Node extends Base {
+        final String name;
+
+        final long id;
+
+        BigDecimal amount;
+
+        Node next;
+
+        int[] values;
+
+        String[] names;
+
+        String shadowed = "node";
+
+        Node() {
+            this(null, 0);
+        }
+
+        Node(String name, long id) {
+            this.name = name;
+            this.id = id;
+        }
+
+        String getShadowed() {
+            return shadowed;
+        }
+    }
+
+    /**
+     * 
+     */
+    public static class NoDefaultConstructor {
+        String value;
+
+        /**
+         * @param value
+         */
+        public NoDefaultConstructor(String value) {
+            this.value = value;
+        }
+    }
+
+    /**
+     * 
+     */
+    public static class SerializableNoDefaultConstructor implements
+            Serializable {
+        private static final long serialVersionUID = 1L;
+
+        List<String> values;
+
+        /**
+         * @param values
+         */
+        public SerializableNoDefaultConstructor(List<String> values) {
+            this.values = values;
+        }
+    }
+
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2004-2012 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.util.beans.util;
+
+import org.junit.After;
+import org.junit.Test;
+import org.seasar.util.exception.PropertyNotFoundRuntimeException;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+/**
+ * @author koichik
+ */
+public class PropertyPathTest {
+
+    /**
+     * @throws Exception
+     */
+    @After
+    public void tearDown() throws Exception {
+        PropertyPath.clear();
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void testGetPropertyPath() throws Exception {
+        PropertyPath path =
+            PropertyPath.getPropertyPath(Order.class, "customer.address.city");
+        assertThat(path.getRootClass(), is(sameInstance((Object) Order.class)));
+        assertThat(path.getPath(), is("customer.address.city"));
+        assertThat(path.getDepth(), is(3));
+        assertThat(path.getPropertyDesc(1).getPropertyName(), is("address"));
+        assertThat(
+            path.getPropertyType(),
+            is(sameInstance((Object) String.class)));
+        assertThat(
+            PropertyPath.getPropertyPath(Order.class, "customer.address.city"),
+            is(sameInstance(path)));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test(expected = PropertyNotFoundRuntimeException.class)
+    public void testGetPropertyPath_notFound() throws Exception {
+        PropertyPath.getPropertyPath(Order.class, "customer.xxx.city");
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testGetPropertyPath_emptyName() throws Exception {
+        PropertyPath.getPropertyPath(Order.class, "customer..city");
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void testGetValue() throws Exception {
+        PropertyPath path =
+            PropertyPath.getPropertyPath(Order.class, "customer.address.city");
+        Order order = new Order();
+        assertThat(path.getValue(order), is(nullValue()));
+        order.customer = new Customer();
+        assertThat(path.getValue(order), is(nullValue()));
+        order.customer.address = new Address();
+        order.customer.address.city = "Tokyo";
+        assertThat(path.<String> getValue(order), is("Tokyo"));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void testSetValue() throws Exception {
+        PropertyPath path =
+            PropertyPath.getPropertyPath(Order.class, "customer.address.city");
+        Order order = new Order();
+        assertThat(path.setValue(order, "Tokyo", false), is(not(true)));
+        assertThat(order.customer, is(nullValue()));
+
+        path.setValue(order, "Tokyo");
+        assertThat(order.customer.address.city, is("Tokyo"));
+        Address address = order.customer.address;
+        assertThat(path.setValue(order, "Osaka", false), is(true));
+        assertThat(order.customer.address, is(sameInstance(address)));
+        assertThat(address.city, is("Osaka"));
+    }
+
+    /**
+     * 
+     */
+    public static class Order {
+        /** */
+        public Customer customer;
+    }
+
+    /**
+     * 
+     */
+    public static class Customer {
+        /** */
+        public Address address;
+    }
+
+    /**
+     * 
+     */
+    public static class Address {
+        /** */
+        public String city;
+    }
+
+}
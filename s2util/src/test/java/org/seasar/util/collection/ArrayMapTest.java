@@ -269,6 +269,7 @@ public class ArrayMapTest {
         exception.expect(SNoSuchElementException.class);
         exception.expectMessage(is("current=1"));
         ArrayMap<String, String> m = new ArrayMap<String, String>(1);
+        m.put("1", "a");
         Iterator<Map.Entry<String, String>> i = m.entrySet().iterator();
         i.next();
         i.next();
@@ -299,6 +300,122 @@ public class ArrayMapTest {
         assertThat(map.equals(copy), is(true));
     }
 
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void testRemove_collision() throws Exception {
+        ArrayMap<MyKey, Integer> m = new ArrayMap<MyKey, Integer>(2);
+        for (int i = 0; i < 50; i++) {
+            m.put(new MyKey(i), i);
+        }
+        for (int i = 0; i < 50; i += 2) {
+            assertThat(m.remove(new MyKey(i)), is(i));
+        }
+        assertThat(m.size(), is(25));
+        for (int i = 0; i < 50; i++) {
+            assertThat(m.get(new MyKey(i)), is(i % 2 == 0 ? null : i));
+        }
+        for (int i = 0; i < 25; i++) {
+            assertThat(m.getAt(i), is(i * 2 + 1));
+        }
+        assertThat(m.removeAt(0), is(1));
+        assertThat(m.getAt(0), is(3));
+        assertThat(m.get(new MyKey(3)), is(3));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void testRemove_renumber() throws Exception {
+        ArrayMap<String, Integer> m = new ArrayMap<String, Integer>();
+        for (int i = 0; i < 100; i++) {
+            m.put(String.valueOf(i), i);
+        }
+        assertThat(m.remove("50"), is(50));
+        assertThat(m.removeAt(0), is(0));
+        assertThat(m.size(), is(98));
+        for (int i = 0; i < 98; i++) {
+            String key = m.getKeyAt(i);
+            assertThat(m.get(key), is(m.getAt(i)));
+            assertThat(m.indexOf(m.getAt(i)), is(i));
+        }
+        for (int i = 1; i < 100; i++) {
+            assertThat(m.get(String.valueOf(i)), is(i == 50 ? null : i));
+        }
+        m.put("50", 50);
+        assertThat(m.getAt(98), is(50));
+        assertThat(m.get("99"), is(99));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void testGrow() throws Exception {
+        ArrayMap<String, Integer> m = new ArrayMap<String, Integer>(1);
+        for (int i = 0; i < 1000; i++) {
+            m.put(String.valueOf(i), i);
+        }
+        for (int i = 0; i < 1000; i++) {
+            assertThat(m.get(String.valueOf(i)), is(i));
+            assertThat(m.getKeyAt(i), is(String.valueOf(i)));
+        }
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void testEntrySet_setValue() throws Exception {
+        Iterator<Map.Entry<String, String>> i = map.entrySet().iterator();
+        i.next();
+        Map.Entry<String, String> entry = i.next();
+        assertThat(entry.setValue("TEST"), is("test"));
+        assertThat(map.get("1"), is("TEST"));
+        map.remove(null);
+        assertThat(entry.getValue(), is("TEST"));
+        assertThat(entry.setValue("test"), is("TEST"));
+        assertThat(map.getAt(0), is("test"));
+        assertThat(map.entrySet().contains(entry), is(true));
+        assertThat(map.getEntryAt(1).toString(), is("2=test2"));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void testIteratorRemove() throws Exception {
+        Iterator<String> i = map.keySet().iterator();
+        assertThat(i.next(), is(nullValue()));
+        i.remove();
+        assertThat(i.next(), is("1"));
+        assertThat(map.size(), is(2));
+        assertThat(map.containsKey(null), is(false));
+        assertThat(map.getKeyAt(0), is("1"));
+
+        Iterator<String> v = map.values().iterator();
+        assertThat(v.next(), is("test"));
+        assertThat(v.next(), is("test2"));
+        assertThat(v.hasNext(), is(false));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void testClone() throws Exception {
+        @SuppressWarnings("unchecked")
+        ArrayMap<String, String> copy = (ArrayMap<String, String>) map.clone();
+        copy.put("3", "test3");
+        copy.remove("1");
+        assertThat(map.size(), is(3));
+        assertThat(map.get("1"), is("test"));
+        assertThat(map.containsKey("3"), is(false));
+        assertThat(copy.get("2"), is("test2"));
+    }
+
     /**
      * @throws Exception
      */
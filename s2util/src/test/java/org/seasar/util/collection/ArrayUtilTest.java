@@ -114,6 +114,22 @@ public class ArrayUtilTest {
         assertThat(ArrayUtil.addAll(array, emptyArray), is(sameInstance(array)));
     }
 
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void testAddAll_intBuilder() throws Exception {
+        IntArrayBuilder builder = new IntArrayBuilder(0).add(1);
+        assertThat(ArrayUtil.addAll(
+            builder,
+            new int[] { 2, 3 },
+            null,
+            new int[0],
+            new int[] { 4 }), is(sameInstance(builder)));
+        assertThat(builder.capacity(), is(4));
+        assertThat(builder.toString(), is("[1, 2, 3, 4]"));
+    }
+
     /**
      * @throws Exception
      */
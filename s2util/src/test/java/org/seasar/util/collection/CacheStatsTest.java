@@ -0,0 +1,71 @@
+/*
+ * Copyright 2004-2012 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.util.collection;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+/**
+ * @author koichik
+ */
+public class CacheStatsTest {
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void testGetHistogramIndex() throws Exception {
+        assertThat(CacheStats.getHistogramIndex(0L), is(0));
+        assertThat(CacheStats.getHistogramIndex(999L), is(0));
+        assertThat(CacheStats.getHistogramIndex(1000L), is(1));
+        assertThat(CacheStats.getHistogramIndex(2000L), is(2));
+        assertThat(CacheStats.getHistogramIndex(3999L), is(2));
+        assertThat(CacheStats.getHistogramIndex(4000L), is(3));
+        assertThat(
+            CacheStats.getHistogramIndex(Long.MAX_VALUE),
+            is(CacheStats.HISTOGRAM_SIZE - 1));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void testPlus() throws Exception {
+        long[] histogram = new long[CacheStats.HISTOGRAM_SIZE];
+        histogram[1] = 2L;
+        CacheStats stats1 =
+            new CacheStats(3L, 1L, 2L, 0L, 3000L, 2000L, 0L, 2, histogram);
+        CacheStats stats2 =
+            new CacheStats(1L, 3L, 1L, 1L, 5000L, 5000L, 1L, 1, histogram);
+        CacheStats stats = stats1.plus(stats2).plus(CacheStats.EMPTY);
+        assertThat(stats.getHitCount(), is(4L));
+        assertThat(stats.getMissCount(), is(4L));
+        assertThat(stats.getRequestCount(), is(8L));
+        assertThat(stats.getHitRate(), is(0.5));
+        assertThat(stats.getLoadCount(), is(3L));
+        assertThat(stats.getLoadFailureCount(), is(1L));
+        assertThat(stats.getTotalLoadTime(), is(8000L));
+        assertThat(stats.getMaxLoadTime(), is(5000L));
+        assertThat(stats.getAverageLoadTime(), is(8000.0 / 3));
+        assertThat(stats.getEvictionCount(), is(1L));
+        assertThat(stats.getSize(), is(3));
+        assertThat(stats.getLoadTimeHistogram()[1], is(4L));
+        assertThat(CacheStats.EMPTY.getHitRate(), is(1.0));
+    }
+
+}
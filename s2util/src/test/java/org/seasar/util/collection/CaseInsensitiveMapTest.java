@@ -16,6 +16,7 @@
 package org.seasar.util.collection;
 
 import java.util.HashMap;
+import java.util.Locale;
 import java.util.Map;
 
 import org.junit.After;
@@ -103,6 +104,52 @@ public class CaseInsensitiveMapTest {
         assertThat(map.size(), is(4));
     }
 
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void testGet_charSequence() throws Exception {
+        assertThat(map.get(new StringBuilder("TWO")), is("2"));
+        assertThat(map.containsKey(new StringBuilder("oNe")), is(true));
+        assertThat(map.get(new StringBuilder("TW")), is(nullValue()));
+        assertThat(map.get(new StringBuilder("TWOO")), is(nullValue()));
+        assertThat(map.remove(new StringBuilder("Two")), is("2"));
+        assertThat(map.size(), is(1));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void testGet_nonAscii() throws Exception {
+        map.put("\u00c4pfel", "3");
+        assertThat(map.getKeyAt(2), is("\u00e4pfel"));
+        assertThat(map.get("\u00c4PFEL"), is("3"));
+        assertThat(map.get("\u00e4pfel"), is("3"));
+        assertThat(map.get("APFEL"), is(nullValue()));
+        map.put("\u212a", "4");
+        assertThat(map.get("K"), is("4"));
+        assertThat(map.get("k"), is("4"));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void testGet_turkishLocale() throws Exception {
+        Locale locale = Locale.getDefault();
+        Locale.setDefault(new Locale("tr", "TR"));
+        try {
+            CaseInsensitiveMap<String> m = new CaseInsensitiveMap<String>();
+            m.put("ID", "1");
+            assertThat(m.getKeyAt(0), is("ID".toLowerCase()));
+            assertThat(m.get("Id"), is("1"));
+            assertThat(m.get("iD"), is(nullValue()));
+        } finally {
+            Locale.setDefault(locale);
+        }
+    }
+
     /**
      * @throws Exception
      */
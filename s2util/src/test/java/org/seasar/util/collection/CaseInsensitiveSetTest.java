@@ -19,6 +19,7 @@ import java.util.Set;
 
 import org.junit.Test;
 
+import static java.util.Arrays.*;
 import static org.hamcrest.CoreMatchers.*;
 import static org.junit.Assert.*;
 
@@ -37,4 +38,16 @@ public class CaseInsensitiveSetTest {
         assertThat(set.contains("ONE"), is(true));
     }
 
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void testContains_charSequence() throws Exception {
+        Set<String> set = new CaseInsensitiveSet(asList("One", "Two"));
+        assertThat(set.contains(new StringBuilder("ONE")), is(true));
+        assertThat(set.contains(new StringBuilder("three")), is(false));
+        assertThat(set.remove("TWO"), is(true));
+        assertThat(set.size(), is(1));
+    }
+
 }
@@ -0,0 +1,199 @@
+/*
+ * Copyright 2004-2012 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.util.collection;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.seasar.util.collection.MemoizingLoader.Loader;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+import static org.seasar.util.collection.CollectionsUtil.*;
+
+/**
+ * @author koichik
+ */
+public class ConcurrentLruCacheTest {
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void testPut() throws Exception {
+        ConcurrentLruCache<String, String> cache = newConcurrentLruCache(3);
+        assertThat(cache.getLimitSize(), is(3));
+        cache.put("a", "A");
+        cache.put("b", "B");
+        cache.put("c", "C");
+        cache.get("a");
+        cache.put("d", "D");
+        assertThat(cache.size(), is(3));
+        assertThat(cache.containsKey("a"), is(true));
+        assertThat(cache.containsKey("b"), is(not(true)));
+        assertThat(cache.get("c"), is("C"));
+        assertThat(cache.get("d"), is("D"));
+
+        assertThat(cache.put("a", "AA"), is("A"));
+        assertThat(cache.get("a"), is("AA"));
+        assertThat(cache.size(), is(3));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void testConcurrentMap() throws Exception {
+        ConcurrentLruCache<String, String> cache = newConcurrentLruCache(10);
+        assertThat(cache.putIfAbsent("a", "A"), is(nullValue()));
+        assertThat(cache.putIfAbsent("a", "B"), is("A"));
+        assertThat(cache.replace("a", "B", "C"), is(not(true)));
+        assertThat(cache.replace("a", "A", "C"), is(true));
+        assertThat(cache.replace("a", "D"), is("C"));
+        assertThat(cache.replace("b", "D"), is(nullValue()));
+        assertThat(cache.remove("a", "C"), is(not(true)));
+        assertThat(cache.remove("a", "D"), is(true));
+        assertThat(cache.isEmpty(), is(true));
+
+        cache.put("a", "A");
+        cache.put("b", "B");
+        assertThat(cache.remove("a"), is("A"));
+        assertThat(cache.remove("a"), is(nullValue()));
+        cache.clear();
+        assertThat(cache.size(), is(0));
+        assertThat(cache.get("b"), is(nullValue()));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void testEntrySet() throws Exception {
+        ConcurrentLruCache<String, String> cache = newConcurrentLruCache(10);
+        cache.put("a", "A");
+        cache.put("b", "B");
+        Map<String, String> map = newHashMap(cache);
+        assertThat(map.size(), is(2));
+        assertThat(map.get("b"), is("B"));
+        for (Iterator<Map.Entry<String, String>> it =
+            cache.entrySet().iterator(); it.hasNext();) {
+            if (it.next().getKey().equals("a")) {
+                it.remove();
+            }
+        }
+        assertThat(cache.size(), is(1));
+        assertThat(cache.containsKey("a"), is(not(true)));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void testStats() throws Exception {
+        ConcurrentLruCache<String, String> cache = newConcurrentLruCache(2);
+        cache.put("a", "A");
+        cache.get("a");
+        assertThat(cache.getStats().getHitCount(), is(0L));
+
+        cache.setRecordStats(true);
+        cache.get("a");
+        cache.get("a");
+        cache.get("b");
+        cache.put("b", "B");
+        cache.put("c", "C");
+        CacheStats stats = cache.getStats();
+        assertThat(stats.getHitCount(), is(2L));
+        assertThat(stats.getMissCount(), is(1L));
+        assertThat(stats.getEvictionCount(), is(1L));
+        assertThat(stats.getSize(), is(2));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void testMemoizingLoader() throws Exception {
+        MemoizingLoader<Integer, String> loader =
+            newMemoizingLoader(
+                CollectionsUtil.<Integer, String> newConcurrentLruCache(10),
+                new Loader<Integer, String>() {
+                    @Override
+                    public String load(Integer key) {
+                        return String.valueOf(key);
+                    }
+                });
+        for (int i = 0; i < 100; ++i) {
+            assertThat(loader.get(i), is(String.valueOf(i)));
+        }
+        assertThat(loader.size(), is(10));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void testConcurrentAccess() throws Exception {
+        final ConcurrentLruCache<Integer, Integer> cache =
+            newConcurrentLruCache(100);
+        cache.setRecordStats(true);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Object>> futures = newArrayList();
+            for (int i = 0; i < 8; ++i) {
+                final int seed = i;
+                futures.add(executor.submit(new Callable<Object>() {
+                    @Override
+                    public Object call() throws Exception {
+                        for (int j = 0; j < 10000; ++j) {
+                            Integer key = (j * 31 + seed) % 300;
+                            Integer value = cache.get(key);
+                            if (value == null) {
+                                cache.putIfAbsent(key, key);
+                            } else {
+                                assertThat(value, is(key));
+                            }
+                        }
+                        return null;
+                    }
+                }));
+            }
+            for (Future<Object> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertThat(cache.size() <= 100, is(true));
+        int linked = 0;
+        ConcurrentLruCache.Node<Integer, Integer> node = cache.lruList.head.next;
+        while (node != cache.lruList.head) {
+            assertThat(cache.data.get(node.key), is(sameInstance(node)));
+            node = node.next;
+            ++linked;
+        }
+        assertThat(linked, is(cache.size()));
+        CacheStats stats = cache.getStats();
+        assertThat(stats.getRequestCount(), is(80000L));
+    }
+
+}
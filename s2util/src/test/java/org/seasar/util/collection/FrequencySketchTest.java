@@ -0,0 +1,64 @@
+/*
+ * Copyright 2004-2012 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.util.collection;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+/**
+ * @author koichik
+ */
+public class FrequencySketchTest {
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void testIncrement() throws Exception {
+        FrequencySketch sketch = new FrequencySketch(512);
+        assertThat(sketch.frequency(123), is(0));
+        sketch.increment(123);
+        sketch.increment(123);
+        sketch.increment(456);
+        assertThat(sketch.frequency(123), is(2));
+        assertThat(sketch.frequency(456), is(1));
+        for (int i = 0; i < 100; ++i) {
+            sketch.increment(123);
+        }
+        assertThat(sketch.frequency(123), is(FrequencySketch.MAX_FREQUENCY));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void testReset() throws Exception {
+        FrequencySketch sketch = new FrequencySketch(16);
+        for (int i = 0; i < 8; ++i) {
+            sketch.increment(1);
+        }
+        sketch.reset();
+        assertThat(sketch.frequency(1), is(4));
+
+        for (int i = 0; i < sketch.sampleSize; ++i) {
+            sketch.increment(i + 100);
+        }
+        assertThat(sketch.size < sketch.sampleSize, is(true));
+    }
+
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2004-2012 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.util.collection;
+
+import org.junit.Test;
+import org.seasar.util.exception.SIndexOutOfBoundsException;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+/**
+ * @author koichik
+ */
+public class IntArrayBuilderTest {
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void testAdd() throws Exception {
+        IntArrayBuilder builder = new IntArrayBuilder(0);
+        assertThat(builder.isEmpty(), is(true));
+        for (int i = 0; i < 1000; ++i) {
+            builder.add(i);
+        }
+        assertThat(builder.size(), is(1000));
+        assertThat(builder.capacity() >= 1000, is(true));
+        assertThat(builder.get(999), is(999));
+        int[] array = builder.toArray();
+        assertThat(array.length, is(1000));
+        assertThat(array[500], is(500));
+        try {
+            builder.get(1000);
+            fail();
+        } catch (SIndexOutOfBoundsException expected) {
+            System.out.println(expected);
+        }
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void testAddAll() throws Exception {
+        IntArrayBuilder builder = new IntArrayBuilder(2);
+        builder.addAll(1, 2, 3).addAll(new int[] { 4, 5, 6 }, 1, 2);
+        builder.addAll(new IntArrayBuilder().add(7));
+        assertThat(builder.toString(), is("[1, 2, 3, 5, 6, 7]"));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void testToArray_zeroCopy() throws Exception {
+        IntArrayBuilder builder = new IntArrayBuilder(3).add(3).add(1).add(2);
+        int[] array = builder.toArray();
+        assertThat(builder.toArray(), is(sameInstance(array)));
+        builder.sort();
+        assertThat(array[0], is(3));
+        assertThat(builder.get(0), is(1));
+        int[] sorted = builder.toArray();
+        builder.set(0, 10);
+        assertThat(sorted[0], is(1));
+        builder.clear().add(4);
+        assertThat(sorted[0], is(1));
+        assertThat(builder.toString(), is("[4]"));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void testTrimToSize() throws Exception {
+        IntArrayBuilder builder = new IntArrayBuilder().add(1).add(2);
+        assertThat(builder.capacity(), is(10));
+        builder.trimToSize();
+        assertThat(builder.capacity(), is(2));
+        assertThat(builder.toArray(), is(sameInstance(builder.toArray())));
+        builder.ensureCapacity(100);
+        assertThat(builder.capacity(), is(100));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void testBinarySearch() throws Exception {
+        IntArrayBuilder builder = new IntArrayBuilder().addAll(5, 1, 9, 3);
+        builder.sort();
+        assertThat(builder.binarySearch(5), is(2));
+        assertThat(builder.binarySearch(4), is(-3));
+        assertThat(builder.binarySearch(10), is(-5));
+    }
+
+}
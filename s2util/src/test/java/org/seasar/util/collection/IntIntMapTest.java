@@ -0,0 +1,94 @@
+/*
+ * Copyright 2004-2012 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.util.collection;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+/**
+ * @author koichik
+ */
+public class IntIntMapTest {
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void testPutAndGet() throws Exception {
+        IntIntMap map = new IntIntMap();
+        assertThat(map.isEmpty(), is(true));
+        assertThat(map.put(1, 10), is(0));
+        assertThat(map.put(-1, 20), is(0));
+        assertThat(map.put(1, 30), is(10));
+        assertThat(map.get(1), is(30));
+        assertThat(map.get(-1), is(20));
+        assertThat(map.get(2), is(0));
+        assertThat(map.get(2, -1), is(-1));
+        assertThat(map.containsKey(-1), is(true));
+        assertThat(map.containsKey(2), is(false));
+        assertThat(map.size(), is(2));
+        assertThat(map.toString(), is("{1=30, -1=20}"));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void testAddTo() throws Exception {
+        IntIntMap map = new IntIntMap();
+        for (int i = 0; i < 1000; ++i) {
+            map.addTo(i % 10, 1);
+        }
+        assertThat(map.size(), is(10));
+        for (int i = 0; i < 10; ++i) {
+            assertThat(map.get(i), is(100));
+        }
+        assertThat(map.addTo(5, -50), is(50));
+        assertThat(map.remove(5), is(50));
+        assertThat(map.containsKey(5), is(false));
+        assertThat(map.keys().length, is(9));
+        assertThat(map.values()[5], is(100));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void testRemove() throws Exception {
+        IntIntMap map = new IntIntMap(2);
+        // 同じスロットに衝突するキーを含めて後方シフトを確認する
+        for (int i = 0; i < 1000; ++i) {
+            map.put(i << 16, i);
+        }
+        for (int i = 0; i < 1000; i += 3) {
+            assertThat(map.remove(i << 16), is(i));
+        }
+        assertThat(map.remove(0), is(0));
+        for (int i = 0; i < 1000; ++i) {
+            assertThat(map.get(i << 16, -1), is(i % 3 == 0 ? -1 : i));
+        }
+        for (int i = 0; i < map.size(); ++i) {
+            assertThat(map.indexOfKey(map.getKeyAt(i)), is(i));
+        }
+        assertThat(map.removeAt(map.size() - 1), is(998));
+        assertThat(map.removeAt(0), is(1));
+        assertThat(map.getKeyAt(0), is(2 << 16));
+        assertThat(map.indexOfKey(997 << 16), is(map.size() - 1));
+    }
+
+}
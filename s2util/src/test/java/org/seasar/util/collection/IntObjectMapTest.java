@@ -0,0 +1,153 @@
+/*
+ * Copyright 2004-2012 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.util.collection;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.seasar.util.exception.SIndexOutOfBoundsException;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+/**
+ * @author koichik
+ */
+public class IntObjectMapTest {
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void testPutAndGet() throws Exception {
+        IntObjectMap<String> map = new IntObjectMap<String>();
+        assertThat(map.isEmpty(), is(true));
+        assertThat(map.put(1, "a"), is(nullValue()));
+        assertThat(map.put(-1, "b"), is(nullValue()));
+        assertThat(map.put(0, "c"), is(nullValue()));
+        assertThat(map.put(1, "d"), is("a"));
+        assertThat(map.size(), is(3));
+        assertThat(map.get(1), is("d"));
+        assertThat(map.get(-1), is("b"));
+        assertThat(map.get(0), is("c"));
+        assertThat(map.get(2), is(nullValue()));
+        assertThat(map.containsKey(0), is(true));
+        assertThat(map.containsKey(2), is(false));
+        assertThat(map.toString(), is("{1=d, -1=b, 0=c}"));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void testGetAt() throws Exception {
+        IntObjectMap<String> map = new IntObjectMap<String>();
+        map.put(10, "a");
+        map.put(20, "b");
+        assertThat(map.getKeyAt(0), is(10));
+        assertThat(map.getAt(1), is("b"));
+        assertThat(map.indexOfKey(20), is(1));
+        assertThat(map.indexOfKey(30), is(-1));
+        map.setAt(0, "c");
+        assertThat(map.get(10), is("c"));
+        try {
+            map.getAt(2);
+            fail();
+        } catch (SIndexOutOfBoundsException expected) {
+            System.out.println(expected);
+        }
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void testRemove() throws Exception {
+        IntObjectMap<String> map = new IntObjectMap<String>();
+        // 同じスロットに衝突するキーを含めて後方シフトを確認する
+        for (int i = 0; i < 100; ++i) {
+            map.put(i << 16, String.valueOf(i));
+        }
+        for (int i = 0; i < 100; i += 2) {
+            assertThat(map.remove(i << 16), is(String.valueOf(i)));
+        }
+        assertThat(map.remove(0), is(nullValue()));
+        assertThat(map.size(), is(50));
+        for (int i = 0; i < 100; ++i) {
+            assertThat(
+                map.get(i << 16),
+                is(i % 2 == 0 ? null : String.valueOf(i)));
+        }
+        for (int i = 0; i < 50; ++i) {
+            assertThat(map.getKeyAt(i), is((i * 2 + 1) << 16));
+            assertThat(map.indexOfKey((i * 2 + 1) << 16), is(i));
+        }
+        assertThat(map.removeAt(0), is("1"));
+        assertThat(map.getKeyAt(0), is(3 << 16));
+        map.clear();
+        assertThat(map.size(), is(0));
+        assertThat(map.get(3 << 16), is(nullValue()));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void testGrow() throws Exception {
+        IntObjectMap<Integer> map = new IntObjectMap<Integer>(2);
+        for (int i = 0; i < 10000; ++i) {
+            map.put(i * 31, i);
+        }
+        assertThat(map.size(), is(10000));
+        for (int i = 0; i < 10000; ++i) {
+            assertThat(map.get(i * 31), is(i));
+            assertThat(map.getKeyAt(i), is(i * 31));
+        }
+        assertThat(map.keys().length, is(10000));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void testForEach() throws Exception {
+        IntObjectMap<String> map = new IntObjectMap<String>();
+        map.put(3, "a");
+        map.put(1, "b");
+        map.put(2, "c");
+        final List<String> list = new ArrayList<String>();
+        assertThat(map.forEach(new IntObjectMap.Procedure<Object>() {
+            @Override
+            public boolean apply(int key, Object value) {
+                list.add(key + "=" + value);
+                return key != 1;
+            }
+        }), is(false));
+        assertThat(list.size(), is(2));
+        assertThat(list.get(0), is("3=a"));
+        assertThat(list.get(1), is("1=b"));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testTooLargeCapacity() throws Exception {
+        new IntObjectMap<String>(600000000);
+    }
+
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2004-2012 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.util.collection;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+/**
+ * @author koichik
+ */
+public class LongLongMapTest {
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void testPutAndGet() throws Exception {
+        LongLongMap map = new LongLongMap();
+        assertThat(map.put(1L << 40, 10L), is(0L));
+        assertThat(map.put(2L << 40, 20L), is(0L));
+        assertThat(map.put(1L << 40, 30L), is(10L));
+        assertThat(map.get(1L << 40), is(30L));
+        assertThat(map.get(3L << 40), is(0L));
+        assertThat(map.get(3L << 40, -1L), is(-1L));
+        assertThat(map.size(), is(2));
+        assertThat(map.toString(), is("{" + (1L << 40) + "=30, "
+            + (2L << 40) + "=20}"));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void testAddTo() throws Exception {
+        LongLongMap map = new LongLongMap();
+        for (int i = 0; i < 1000; ++i) {
+            map.addTo(i % 10, 1L);
+        }
+        assertThat(map.size(), is(10));
+        for (int i = 0; i < 10; ++i) {
+            assertThat(map.get(i), is(100L));
+        }
+        assertThat(map.addTo(5L, -50L), is(50L));
+        assertThat(map.remove(5L), is(50L));
+        assertThat(map.containsKey(5L), is(false));
+        assertThat(map.keys().length, is(9));
+        assertThat(map.values()[5], is(100L));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void testRemove() throws Exception {
+        LongLongMap map = new LongLongMap(2);
+        for (long i = 0; i < 1000; ++i) {
+            map.put(i << 32, i);
+        }
+        for (long i = 0; i < 1000; i += 3) {
+            assertThat(map.remove(i << 32), is(i));
+        }
+        for (long i = 0; i < 1000; ++i) {
+            assertThat(map.get(i << 32, -1L), is(i % 3 == 0 ? -1L : i));
+        }
+    }
+
+}
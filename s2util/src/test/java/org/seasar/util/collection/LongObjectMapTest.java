@@ -0,0 +1,125 @@
+/*
+ * Copyright 2004-2012 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.util.collection;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.seasar.util.exception.SIndexOutOfBoundsException;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+/**
+ * @author koichik
+ */
+public class LongObjectMapTest {
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void testPutAndGet() throws Exception {
+        LongObjectMap<String> map = new LongObjectMap<String>();
+        assertThat(map.isEmpty(), is(true));
+        assertThat(map.put(1L << 40, "a"), is(nullValue()));
+        assertThat(map.put(-1L, "b"), is(nullValue()));
+        assertThat(map.put(1L << 40, "c"), is("a"));
+        assertThat(map.size(), is(2));
+        assertThat(map.get(1L << 40), is("c"));
+        assertThat(map.get(-1L), is("b"));
+        assertThat(map.get(2L << 40), is(nullValue()));
+        assertThat(map.containsKey(-1L), is(true));
+        assertThat(map.containsKey(2L << 40), is(false));
+        assertThat(map.toString(), is("{" + (1L << 40) + "=c, -1=b}"));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void testGetAt() throws Exception {
+        LongObjectMap<String> map = new LongObjectMap<String>();
+        map.put(10L, "a");
+        map.put(20L, "b");
+        assertThat(map.getKeyAt(0), is(10L));
+        assertThat(map.getAt(1), is("b"));
+        assertThat(map.indexOfKey(20L), is(1));
+        assertThat(map.indexOfKey(30L), is(-1));
+        map.setAt(0, "c");
+        assertThat(map.get(10L), is("c"));
+        try {
+            map.getAt(2);
+            fail();
+        } catch (SIndexOutOfBoundsException expected) {
+            System.out.println(expected);
+        }
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void testRemove() throws Exception {
+        LongObjectMap<String> map = new LongObjectMap<String>(2);
+        for (long i = 0; i < 1000; ++i) {
+            map.put(i << 32, String.valueOf(i));
+        }
+        for (long i = 0; i < 1000; i += 2) {
+            assertThat(map.remove(i << 32), is(String.valueOf(i)));
+        }
+        assertThat(map.remove(0L), is(nullValue()));
+        assertThat(map.size(), is(500));
+        for (long i = 0; i < 1000; ++i) {
+            assertThat(
+                map.get(i << 32),
+                is(i % 2 == 0 ? null : String.valueOf(i)));
+        }
+        for (int i = 0; i < 500; ++i) {
+            assertThat(map.getKeyAt(i), is((i * 2 + 1L) << 32));
+            assertThat(map.indexOfKey((i * 2 + 1L) << 32), is(i));
+        }
+        assertThat(map.removeAt(0), is("1"));
+        assertThat(map.getKeyAt(0), is(3L << 32));
+        map.clear();
+        assertThat(map.size(), is(0));
+        assertThat(map.get(3L << 32), is(nullValue()));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void testForEach() throws Exception {
+        LongObjectMap<String> map = new LongObjectMap<String>();
+        map.put(3L, "a");
+        map.put(1L, "b");
+        map.put(2L, "c");
+        final List<String> list = new ArrayList<String>();
+        assertThat(map.forEach(new LongObjectMap.Procedure<Object>() {
+            @Override
+            public boolean apply(long key, Object value) {
+                list.add(key + "=" + value);
+                return key != 1L;
+            }
+        }), is(false));
+        assertThat(list.size(), is(2));
+        assertThat(list.get(0), is("3=a"));
+        assertThat(list.get(1), is("1=b"));
+    }
+
+}
@@ -0,0 +1,216 @@
+/*
+ * Copyright 2004-2012 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.util.collection;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.seasar.util.collection.MemoizingLoader.LoadListener;
+import org.seasar.util.collection.MemoizingLoader.Loader;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+import static org.seasar.util.collection.CollectionsUtil.*;
+
+/**
+ * @author koichik
+ */
+public class MemoizingLoaderTest {
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void testGet() throws Exception {
+        final AtomicInteger count = new AtomicInteger();
+        MemoizingLoader<String, String> loader =
+            newMemoizingLoader(new Loader<String, String>() {
+                @Override
+                public String load(String key) {
+                    count.incrementAndGet();
+                    return key.toUpperCase();
+                }
+            });
+        assertThat(loader.getIfPresent("aaa"), is(nullValue()));
+        assertThat(loader.get("aaa"), is("AAA"));
+        assertThat(loader.get("aaa"), is("AAA"));
+        assertThat(loader.getIfPresent("aaa"), is("AAA"));
+        assertThat(count.get(), is(1));
+        assertThat(loader.size(), is(1));
+        assertThat(loader.getLoadCount(), is(1L));
+
+        loader.clear();
+        assertThat(loader.size(), is(0));
+        assertThat(loader.getLoadCount(), is(0L));
+        assertThat(loader.get("aaa"), is("AAA"));
+        assertThat(count.get(), is(2));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void testStats() throws Exception {
+        MemoizingLoader<String, String> loader =
+            newMemoizingLoader(new Loader<String, String>() {
+                @Override
+                public String load(String key) {
+                    return key.toUpperCase();
+                }
+            });
+        loader.get("aaa");
+        loader.get("aaa");
+        assertThat(loader.getHitCount(), is(0L));
+        assertThat(loader.getMissCount(), is(0L));
+
+        loader.setRecordStats(true);
+        loader.get("aaa");
+        loader.get("aaa");
+        loader.get("bbb");
+        loader.getIfPresent("ccc");
+        CacheStats stats = loader.getStats();
+        assertThat(stats.getHitCount(), is(2L));
+        assertThat(stats.getMissCount(), is(1L));
+        assertThat(stats.getLoadCount(), is(2L));
+        assertThat(stats.getSize(), is(2));
+        long histogramTotal = 0L;
+        for (long count : stats.getLoadTimeHistogram()) {
+            histogramTotal += count;
+        }
+        assertThat(histogramTotal, is(2L));
+
+        loader.clear();
+        stats = loader.getStats();
+        assertThat(stats.getHitCount(), is(0L));
+        assertThat(stats.getLoadCount(), is(0L));
+        assertThat(stats.getLoadTimeHistogram()[0], is(0L));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void testSingleFlight() throws Exception {
+        final AtomicInteger count = new AtomicInteger();
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final MemoizingLoader<String, Object> loader =
+            newMemoizingLoader(new Loader<String, Object>() {
+                @Override
+                public Object load(String key) {
+                    count.incrementAndGet();
+                    started.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        throw new RuntimeException(e);
+                    }
+                    return new Object();
+                }
+            });
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Object>> futures = newArrayList();
+            for (int i = 0; i < 8; ++i) {
+                futures.add(executor.submit(new Callable<Object>() {
+                    @Override
+                    public Object call() throws Exception {
+                        return loader.get("aaa");
+                    }
+                }));
+            }
+            assertThat(started.await(10, TimeUnit.SECONDS), is(true));
+            Thread.sleep(100);
+            release.countDown();
+            Object first = futures.get(0).get(10, TimeUnit.SECONDS);
+            for (Future<Object> future : futures) {
+                assertThat(
+                    future.get(10, TimeUnit.SECONDS),
+                    is(sameInstance(first)));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertThat(count.get(), is(1));
+        assertThat(loader.getLoadCount(), is(1L));
+        assertThat(loader.getTotalLoadTime() > 0L, is(true));
+        assertThat(loader.getMaxLoadTime(), is(loader.getTotalLoadTime()));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void testLoadFailure() throws Exception {
+        final AtomicInteger count = new AtomicInteger();
+        MemoizingLoader<String, String> loader =
+            newMemoizingLoader(new Loader<String, String>() {
+                @Override
+                public String load(String key) {
+                    if (count.incrementAndGet() == 1) {
+                        throw new IllegalStateException(key);
+                    }
+                    return key;
+                }
+            });
+        try {
+            loader.get("aaa");
+            fail();
+        } catch (IllegalStateException expected) {
+            assertThat(expected.getMessage(), is("aaa"));
+        }
+        assertThat(loader.size(), is(0));
+        assertThat(loader.getLoadFailureCount(), is(1L));
+        assertThat(loader.get("aaa"), is("aaa"));
+        assertThat(count.get(), is(2));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void testLoadListener() throws Exception {
+        final List<String> keys = newArrayList();
+        MemoizingLoader<String, String> loader =
+            newMemoizingLoader(new Loader<String, String>() {
+                @Override
+                public String load(String key) {
+                    return key;
+                }
+            });
+        loader.setLoadListener(new LoadListener<Object, Object>() {
+            @Override
+            public void loaded(Object key, Object value, long elapsed) {
+                assertThat(elapsed >= 0L, is(true));
+                keys.add((String) key);
+            }
+        });
+        loader.get("aaa");
+        loader.get("bbb");
+        loader.get("aaa");
+        assertThat(keys.size(), is(2));
+        assertThat(keys.get(0), is("aaa"));
+        assertThat(keys.get(1), is("bbb"));
+    }
+
+}
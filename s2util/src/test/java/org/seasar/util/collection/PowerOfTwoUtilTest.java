@@ -0,0 +1,54 @@
+/*
+ * Copyright 2004-2012 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.util.collection;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+/**
+ * @author koichik
+ */
+public class PowerOfTwoUtilTest {
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void testCeilingPowerOfTwo() throws Exception {
+        assertThat(PowerOfTwoUtil.ceilingPowerOfTwo(-1), is(1));
+        assertThat(PowerOfTwoUtil.ceilingPowerOfTwo(0), is(1));
+        assertThat(PowerOfTwoUtil.ceilingPowerOfTwo(1), is(1));
+        assertThat(PowerOfTwoUtil.ceilingPowerOfTwo(2), is(2));
+        assertThat(PowerOfTwoUtil.ceilingPowerOfTwo(3), is(4));
+        assertThat(PowerOfTwoUtil.ceilingPowerOfTwo(1000), is(1024));
+        assertThat(PowerOfTwoUtil.ceilingPowerOfTwo(1024), is(1024));
+        assertThat(
+            PowerOfTwoUtil.ceilingPowerOfTwo((1 << 29) + 1),
+            is(1 << 30));
+        assertThat(PowerOfTwoUtil.ceilingPowerOfTwo(1 << 30), is(1 << 30));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testCeilingPowerOfTwo_tooLarge() throws Exception {
+        PowerOfTwoUtil.ceilingPowerOfTwo((1 << 30) + 1);
+    }
+
+}
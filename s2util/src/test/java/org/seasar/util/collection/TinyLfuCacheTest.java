@@ -0,0 +1,437 @@
+/*
+ * Copyright 2004-2012 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.util.collection;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.seasar.util.collection.MemoizingLoader.Loader;
+import org.seasar.util.collection.TinyLfuCache.Weigher;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+import static org.seasar.util.collection.CollectionsUtil.*;
+
+/**
+ * @author koichik
+ */
+public class TinyLfuCacheTest {
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void testPut() throws Exception {
+        TinyLfuCache<String, String> cache =
+            new TinyLfuCache<String, String>(3);
+        assertThat(cache.getMaximumWeight(), is(3L));
+        assertThat(cache.put("a", "A"), is(true));
+        assertThat(cache.put("b", "B"), is(true));
+        assertThat(cache.put("c", "C"), is(true));
+        assertThat(cache.get("a"), is("A"));
+        assertThat(cache.put("a", "AA"), is(true));
+        assertThat(cache.getIfPresent("a"), is("AA"));
+        assertThat(cache.size(), is(3));
+        assertThat(cache.remove("b"), is("B"));
+        assertThat(cache.remove("b"), is(nullValue()));
+        assertThat(cache.getWeightedSize(), is(2L));
+        cache.clear();
+        assertThat(cache.size(), is(0));
+        assertThat(cache.getWeightedSize(), is(0L));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void testAdmission() throws Exception {
+        TinyLfuCache<String, String> cache =
+            new TinyLfuCache<String, String>(3);
+        cache.put("a", "A");
+        cache.put("b", "B");
+        cache.put("c", "C");
+        assertThat(cache.put("x", "X"), is(not(true)));
+        assertThat(cache.getRejectionCount(), is(1L));
+        assertThat(cache.getIfPresent("x"), is(nullValue()));
+
+        assertThat(cache.put("x", "X"), is(true));
+        assertThat(cache.getIfPresent("x"), is("X"));
+        assertThat(cache.getIfPresent("a"), is(nullValue()));
+        assertThat(cache.size(), is(3));
+        assertThat(cache.getStats().getEvictionCount(), is(1L));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void testScanResistance() throws Exception {
+        TinyLfuCache<Integer, Integer> cache =
+            new TinyLfuCache<Integer, Integer>(10);
+        for (int i = 0; i < 10; ++i) {
+            cache.put(i, i);
+        }
+        for (int j = 0; j < 10; ++j) {
+            for (int i = 0; i < 10; ++i) {
+                cache.get(i);
+            }
+        }
+        for (int i = 100; i < 1100; ++i) {
+            cache.get(i % 10);
+            cache.put(i, i);
+        }
+        for (int i = 0; i < 10; ++i) {
+            assertThat(cache.getIfPresent(i), is(i));
+        }
+        assertThat(cache.getRejectionCount(), is(1000L));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void testScanResistance_afterGrowth() throws Exception {
+        int hot = TinyLfuCache.INITIAL_SKETCH_SIZE;
+        TinyLfuCache<Integer, Integer> cache =
+            new TinyLfuCache<Integer, Integer>(hot * 2);
+        for (int i = 0; i < hot; ++i) {
+            cache.put(i, i);
+        }
+        for (int j = 0; j < 5; ++j) {
+            for (int i = 0; i < hot; ++i) {
+                cache.get(i);
+            }
+        }
+        cache.cleanUp();
+        FrequencySketch sketch = cache.sketch;
+        cache.put(-1, -1);
+        assertThat(cache.sketch, is(not(sameInstance(sketch))));
+
+        for (int i = hot; i < hot * 10; ++i) {
+            cache.put(i, i);
+        }
+        // 出現頻度は近似値のため、衝突でわずかに破棄されることは許容する
+        int survived = 0;
+        for (int i = 0; i < hot; ++i) {
+            if (cache.getIfPresent(i) != null) {
+                ++survived;
+            }
+        }
+        assertThat(survived >= hot - hot / 100, is(true));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void testWeigher() throws Exception {
+        TinyLfuCache<String, String> cache =
+            new TinyLfuCache<String, String>(10)
+                .weigher(new Weigher<Object, String>() {
+                    @Override
+                    public int weigh(Object key, String value) {
+                        return value.length();
+                    }
+                });
+        cache.put("a", "12345");
+        cache.put("b", "12345");
+        assertThat(cache.getWeightedSize(), is(10L));
+        assertThat(cache.put("c", "1"), is(not(true)));
+        assertThat(cache.put("d", "12345678901"), is(not(true)));
+
+        assertThat(cache.put("b", "1234567"), is(true));
+        assertThat(cache.getIfPresent("a"), is(nullValue()));
+        assertThat(cache.getWeightedSize(), is(7L));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void testExpireAfterWrite() throws Exception {
+        ManualClockCache<String, String> cache =
+            new ManualClockCache<String, String>(10);
+        cache.expireAfterWrite(10, TimeUnit.NANOSECONDS);
+        cache.put("a", "A");
+        cache.now = 5L;
+        cache.put("b", "B");
+        assertThat(cache.get("a"), is("A"));
+        cache.now = 10L;
+        assertThat(cache.get("a"), is(nullValue()));
+        assertThat(cache.get("b"), is("B"));
+        assertThat(cache.size(), is(1));
+        cache.now = 15L;
+        cache.put("c", "C");
+        assertThat(cache.size(), is(1));
+        assertThat(cache.getStats().getEvictionCount(), is(2L));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void testExpireAfterAccess() throws Exception {
+        ManualClockCache<String, String> cache =
+            new ManualClockCache<String, String>(10);
+        cache.expireAfterAccess(10, TimeUnit.NANOSECONDS);
+        cache.put("a", "A");
+        cache.put("b", "B");
+        cache.now = 8L;
+        assertThat(cache.get("a"), is("A"));
+        cache.now = 16L;
+        cache.cleanUp();
+        assertThat(cache.size(), is(1));
+        assertThat(cache.get("a"), is("A"));
+        cache.now = 26L;
+        assertThat(cache.get("a"), is(nullValue()));
+        assertThat(cache.size(), is(0));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void testLoader() throws Exception {
+        final AtomicInteger count = new AtomicInteger();
+        TinyLfuCache<String, String> cache =
+            new TinyLfuCache<String, String>(10)
+                .loader(new Loader<String, String>() {
+                    @Override
+                    public String load(String key) {
+                        count.incrementAndGet();
+                        return key.toUpperCase();
+                    }
+                })
+                .recordStats(true);
+        assertThat(cache.get("a"), is("A"));
+        assertThat(cache.get("a"), is("A"));
+        assertThat(count.get(), is(1));
+        CacheStats stats = cache.getStats();
+        assertThat(stats.getLoadCount(), is(1L));
+        assertThat(stats.getHitCount(), is(1L));
+        assertThat(stats.getMissCount(), is(1L));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test(timeout = 10000)
+    public void testLoader_concurrent() throws Exception {
+        final AtomicInteger count = new AtomicInteger();
+        final CountDownLatch loading = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final TinyLfuCache<String, String> cache =
+            new TinyLfuCache<String, String>(10)
+                .loader(new Loader<String, String>() {
+                    @Override
+                    public String load(String key) {
+                        count.incrementAndGet();
+                        loading.countDown();
+                        try {
+                            release.await();
+                        } catch (InterruptedException e) {
+                            throw new IllegalStateException(e);
+                        }
+                        return key.toUpperCase();
+                    }
+                });
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<String>> futures = newArrayList();
+            for (int i = 0; i < 4; ++i) {
+                futures.add(executor.submit(new Callable<String>() {
+                    @Override
+                    public String call() {
+                        return cache.get("a");
+                    }
+                }));
+            }
+            loading.await();
+            Thread.sleep(100);
+            release.countDown();
+            for (Future<String> future : futures) {
+                assertThat(future.get(), is("A"));
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertThat(count.get(), is(1));
+        assertThat(cache.getStats().getLoadCount(), is(1L));
+        assertThat(cache.loadingTasks.isEmpty(), is(true));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void testRefreshAfterWrite() throws Exception {
+        final AtomicInteger count = new AtomicInteger();
+        ManualClockCache<String, String> cache =
+            new ManualClockCache<String, String>(10);
+        cache.loader(new Loader<String, String>() {
+            @Override
+            public String load(String key) {
+                return key + count.incrementAndGet();
+            }
+        });
+        cache.refreshAfterWrite(10, TimeUnit.NANOSECONDS);
+        assertThat(cache.get("a"), is("a1"));
+        cache.now = 5L;
+        assertThat(cache.get("a"), is("a1"));
+        cache.now = 10L;
+        assertThat(cache.get("a"), is("a2"));
+
+        final List<Runnable> tasks = newArrayList();
+        cache.refreshExecutor(new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                tasks.add(command);
+            }
+        });
+        cache.now = 20L;
+        assertThat(cache.get("a"), is("a2"));
+        assertThat(cache.get("a"), is("a2"));
+        assertThat(tasks.size(), is(1));
+        tasks.get(0).run();
+        assertThat(cache.getIfPresent("a"), is("a3"));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void testRefreshAfterWrite_rejected() throws Exception {
+        final AtomicInteger count = new AtomicInteger();
+        ManualClockCache<String, String> cache =
+            new ManualClockCache<String, String>(10);
+        cache.loader(new Loader<String, String>() {
+            @Override
+            public String load(String key) {
+                return key + count.incrementAndGet();
+            }
+        });
+        cache.refreshAfterWrite(10, TimeUnit.NANOSECONDS);
+        cache.refreshExecutor(new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                throw new RejectedExecutionException();
+            }
+        });
+        assertThat(cache.get("a"), is("a1"));
+        cache.now = 10L;
+        assertThat(cache.get("a"), is("a1"));
+
+        final List<Runnable> tasks = newArrayList();
+        cache.refreshExecutor(new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                tasks.add(command);
+            }
+        });
+        assertThat(cache.get("a"), is("a1"));
+        assertThat(tasks.size(), is(1));
+        tasks.get(0).run();
+        assertThat(cache.getIfPresent("a"), is("a2"));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void testRefreshAfterWrite_weight() throws Exception {
+        ManualClockCache<String, String> cache =
+            new ManualClockCache<String, String>(10);
+        cache.weigher(new Weigher<Object, String>() {
+            @Override
+            public int weigh(Object key, String value) {
+                return value.length();
+            }
+        });
+        cache.loader(new Loader<String, String>() {
+            @Override
+            public String load(String key) {
+                return "123456789";
+            }
+        });
+        cache.refreshAfterWrite(10, TimeUnit.NANOSECONDS);
+        cache.put("a", "123");
+        cache.put("b", "123");
+        cache.now = 10L;
+        assertThat(cache.get("b"), is("123456789"));
+        assertThat(cache.getWeightedSize(), is(9L));
+        assertThat(cache.getIfPresent("a"), is(nullValue()));
+        assertThat(cache.getStats().getEvictionCount(), is(1L));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void testRefreshAfterWrite_failure() throws Exception {
+        final AtomicInteger count = new AtomicInteger();
+        ManualClockCache<String, String> cache =
+            new ManualClockCache<String, String>(10);
+        cache.loader(new Loader<String, String>() {
+            @Override
+            public String load(String key) {
+                if (count.incrementAndGet() == 2) {
+                    throw new IllegalStateException("refresh failure");
+                }
+                return key + count.get();
+            }
+        });
+        cache.refreshAfterWrite(10, TimeUnit.NANOSECONDS);
+        assertThat(cache.get("a"), is("a1"));
+        cache.now = 10L;
+        assertThat(cache.get("a"), is("a1"));
+        assertThat(cache.getStats().getLoadFailureCount(), is(1L));
+        assertThat(cache.get("a"), is("a3"));
+    }
+
+    /**
+     * 時刻を手動で進めるキャッシュです。
+     * 
+     * @param <K>
+     * @param <V>
+     */
+    public static class ManualClockCache<K, V> extends TinyLfuCache<K, V> {
+
+        long now;
+
+        /**
+         * @param maximumWeight
+         */
+        public ManualClockCache(long maximumWeight) {
+            super(maximumWeight);
+        }
+
+        @Override
+        protected long currentTime() {
+            return now;
+        }
+
+    }
+
+}
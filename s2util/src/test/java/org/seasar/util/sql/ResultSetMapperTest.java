@@ -0,0 +1,359 @@
+/*
+ * Copyright 2004-2012 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.util.sql;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.junit.After;
+import org.junit.Test;
+import org.seasar.util.exception.SIllegalStateException;
+import org.seasar.util.sql.ResultSetMapper.RowHandler;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+import static org.seasar.util.collection.CollectionsUtil.*;
+
+/**
+ * @author koichik
+ */
+public class ResultSetMapperTest {
+
+    private static final String[] LABELS =
+        new String[] { "EMP_ID", "EMP_NAME", "salary", "Manager_Id", "ACTIVE",
+            "HIRED_AT", "UNKNOWN_COLUMN" };
+
+    private static final int[] TYPES = new int[] { Types.INTEGER,
+        Types.VARCHAR, Types.DECIMAL, Types.BIGINT, Types.BOOLEAN,
+        Types.TIMESTAMP, Types.VARCHAR };
+
+    private static final Timestamp HIRED_AT = new Timestamp(1000L);
+
+    private static final Object[][] ROWS = new Object[][] {
+        { 1, "SCOTT", new BigDecimal("3000"), 10L, true, HIRED_AT, "x" },
+        { 2, "KING", null, null, false, null, "y" },
+        { 3, "SMITH", new BigDecimal("800"), 10L, true, HIRED_AT, "z" } };
+
+    private int metaDataCount;
+
+    /**
+     * @throws Exception
+     */
+    @After
+    public void tearDown() throws Exception {
+        ResultSetMapper.clear();
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void testMap() throws Exception {
+        ResultSet rs = createResultSet(LABELS, TYPES, ROWS);
+        ResultSetMapper<Emp> mapper = new ResultSetMapper<Emp>(Emp.class);
+        assertThat(rs.next(), is(true));
+        Emp emp = mapper.map(rs);
+        assertThat(emp.empId, is(1));
+        assertThat(emp.empName, is("SCOTT"));
+        assertThat(emp.salary, is(new BigDecimal("3000")));
+        assertThat(emp.managerId, is(10L));
+        assertThat(emp.active, is(true));
+        assertThat(emp.hiredAt.getTime(), is(HIRED_AT.getTime()));
+
+        assertThat(rs.next(), is(true));
+        emp = mapper.map(rs);
+        assertThat(emp.empId, is(2));
+        assertThat(emp.salary, is(nullValue()));
+        assertThat(emp.managerId, is(nullValue()));
+        assertThat(emp.active, is(false));
+        assertThat(emp.hiredAt, is(nullValue()));
+        assertThat(metaDataCount, is(1));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void testIterator() throws Exception {
+        ResultSetMapper<Emp> mapper = new ResultSetMapper<Emp>(Emp.class);
+        Iterator<Emp> it =
+            mapper.iterator(createResultSet(LABELS, TYPES, ROWS));
+        assertThat(it.hasNext(), is(true));
+        assertThat(it.hasNext(), is(true));
+        assertThat(it.next().empName, is("SCOTT"));
+        assertThat(it.next().empName, is("KING"));
+        assertThat(it.next().empName, is("SMITH"));
+        assertThat(it.hasNext(), is(false));
+        try {
+            it.next();
+            fail();
+        } catch (NoSuchElementException expected) {
+        }
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void testHandle() throws Exception {
+        ResultSetMapper<Emp> mapper = new ResultSetMapper<Emp>(Emp.class);
+        final List<String> names = newArrayList();
+        int count =
+            mapper.handle(
+                createResultSet(LABELS, TYPES, ROWS),
+                new RowHandler<Emp>() {
+                    @Override
+                    public boolean handle(Emp bean) {
+                        names.add(bean.empName);
+                        return true;
+                    }
+                });
+        assertThat(count, is(3));
+        assertThat(names.size(), is(3));
+        assertThat(names.get(2), is("SMITH"));
+
+        names.clear();
+        count =
+            mapper.handle(
+                createResultSet(LABELS, TYPES, ROWS),
+                new RowHandler<Object>() {
+                    @Override
+                    public boolean handle(Object bean) {
+                        names.add(((Emp) bean).empName);
+                        return names.size() < 2;
+                    }
+                });
+        assertThat(count, is(2));
+        assertThat(names.size(), is(2));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void testGetPlan() throws Exception {
+        ResultSetMapper<Emp> mapper = new ResultSetMapper<Emp>(Emp.class);
+        ResultSetMapper.Plan plan =
+            mapper.getPlan(createResultSet(LABELS, TYPES, ROWS).getMetaData());
+        assertThat(plan.columns.length, is(6));
+        assertThat(plan.columns[0].index, is(1));
+        assertThat(
+            plan.columns[0].propertyDesc.getPropertyName(),
+            is("empId"));
+        assertThat(
+            plan.columns[0].reader,
+            is(sameInstance(ResultSetMapper.ColumnReader.INT)));
+        assertThat(
+            plan.columns[3].reader,
+            is(sameInstance(ResultSetMapper.ColumnReader.LONG_WRAPPER)));
+        assertThat(
+            mapper.getPlan(createResultSet(LABELS, TYPES, ROWS)
+                .getMetaData()),
+            is(sameInstance(plan)));
+
+        int[] types = TYPES.clone();
+        types[0] = Types.BIGINT;
+        assertThat(
+            mapper.getPlan(createResultSet(LABELS, types, ROWS).getMetaData()),
+            is(sameInstance(plan)));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test(expected = SIllegalStateException.class)
+    public void testGetPlan_ambiguousColumns() throws Exception {
+        ResultSetMapper<Emp> mapper = new ResultSetMapper<Emp>(Emp.class);
+        mapper.getPlan(createResultSet(
+            new String[] { "EMP_ID", "EMPID" },
+            new int[] { Types.INTEGER, Types.INTEGER },
+            ROWS).getMetaData());
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test(expected = SIllegalStateException.class)
+    public void testGetPlan_ambiguousProperties() throws Exception {
+        ResultSetMapper<Ambiguous> mapper =
+            new ResultSetMapper<Ambiguous>(Ambiguous.class);
+        mapper.getPlan(createResultSet(
+            new String[] { "USER_ID" },
+            new int[] { Types.INTEGER },
+            ROWS).getMetaData());
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void testNormalize() throws Exception {
+        assertThat(ResultSetMapper.normalize("EMP_ID"), is("empid"));
+        assertThat(ResultSetMapper.normalize("empId"), is("empid"));
+        assertThat(ResultSetMapper.normalize("_a__B_"), is("ab"));
+    }
+
+    private ResultSet createResultSet(final String[] labels,
+            final int[] types, final Object[][] rows) {
+        final ResultSetMetaData metaData =
+            (ResultSetMetaData) Proxy.newProxyInstance(
+                ResultSetMapperTest.class.getClassLoader(),
+                new Class<?>[] { ResultSetMetaData.class },
+                new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method,
+                            Object[] args) throws Throwable {
+                        String name = method.getName();
+                        if (name.equals("getColumnCount")) {
+                            return labels.length;
+                        } else if (name.equals("getColumnLabel")) {
+                            return labels[(Integer) args[0] - 1];
+                        } else if (name.equals("getColumnType")) {
+                            return types[(Integer) args[0] - 1];
+                        }
+                        throw new UnsupportedOperationException(name);
+                    }
+                });
+        return (ResultSet) Proxy.newProxyInstance(
+            ResultSetMapperTest.class.getClassLoader(),
+            new Class<?>[] { ResultSet.class },
+            new InvocationHandler() {
+                int row = -1;
+
+                boolean wasNull;
+
+                @Override
+                public Object invoke(Object proxy, Method method,
+                        Object[] args) throws Throwable {
+                    String name = method.getName();
+                    if (name.equals("getMetaData")) {
+                        ++metaDataCount;
+                        return metaData;
+                    } else if (name.equals("next")) {
+                        return ++row < rows.length;
+                    } else if (name.equals("wasNull")) {
+                        return wasNull;
+                    } else if (name.startsWith("get")) {
+                        Object value = rows[row][(Integer) args[0] - 1];
+                        wasNull = value == null;
+                        Class<?> returnType = method.getReturnType();
+                        if (value != null || !returnType.isPrimitive()) {
+                            return value;
+                        } else if (returnType == boolean.class) {
+                            return false;
+                        } else if (returnType == int.class) {
+                            return 0;
+                        } else if (returnType == long.class) {
+                            return 0L;
+                        }
+                        return 0d;
+                    }
+                    throw new UnsupportedOperationException(name);
+                }
+            });
+    }
+
+    /**
+     * 
+     */
+    public static class Emp {
+
+        int empId;
+
+        String empName;
+
+        BigDecimal salary;
+
+        Long managerId;
+
+        boolean active;
+
+        Date hiredAt;
+
+        /**
+         * @param empId
+         */
+        public void setEmpId(int empId) {
+            this.empId = empId;
+        }
+
+        /**
+         * @param empName
+         */
+        public void setEmpName(String empName) {
+            this.empName = empName;
+        }
+
+        /**
+         * @param salary
+         */
+        public void setSalary(BigDecimal salary) {
+            this.salary = salary;
+        }
+
+        /**
+         * @param managerId
+         */
+        public void setManagerId(Long managerId) {
+            this.managerId = managerId;
+        }
+
+        /**
+         * @param active
+         */
+        public void setActive(boolean active) {
+            this.active = active;
+        }
+
+        /**
+         * @param hiredAt
+         */
+        public void setHiredAt(Date hiredAt) {
+            this.hiredAt = hiredAt;
+        }
+
+    }
+
+    /**
+     * 
+     */
+    public static class Ambiguous {
+
+        /**
+         * @param userId
+         */
+        public void setUserId(int userId) {
+        }
+
+        /**
+         * @param userId
+         */
+        public void setUser_id(int userId) {
+        }
+
+    }
+
+}
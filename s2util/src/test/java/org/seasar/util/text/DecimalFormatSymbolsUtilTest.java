@@ -20,6 +20,8 @@ import java.util.Locale;
 
 import junit.framework.TestCase;
 
+import org.seasar.util.collection.CacheStats;
+
 /**
  * @author higa
  * 
@@ -36,4 +38,24 @@ public class DecimalFormatSymbolsUtilTest extends TestCase {
         System.out.println("GroupingSeparator:"
             + symbols.getGroupingSeparator());
     }
+
+    /**
+     * @throws Exception
+     */
+    public void testGetStats() throws Exception {
+        DecimalFormatSymbolsUtil.setRecordStats(true);
+        try {
+            long hitCount = DecimalFormatSymbolsUtil.getStats().getHitCount();
+            DecimalFormatSymbols symbols =
+                DecimalFormatSymbolsUtil.getDecimalFormatSymbols(Locale.FRENCH);
+            assertSame(
+                symbols,
+                DecimalFormatSymbolsUtil.getDecimalFormatSymbols(Locale.FRENCH));
+            CacheStats stats = DecimalFormatSymbolsUtil.getStats();
+            assertTrue(stats.getHitCount() > hitCount);
+            assertTrue(stats.getSize() > 0);
+        } finally {
+            DecimalFormatSymbolsUtil.setRecordStats(false);
+        }
+    }
 }